@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf;
+
+import gov.nasa.jpf.util.RunRegistry;
+import gov.nasa.jpf.vm.VM;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * common setup for the JMH benchmarks, which all run JPF on the src/examples
+ * SUTs. This has to be executed from within the jpf-core root dir so that
+ * Config finds the jpf-core jpf.properties (which is what the 'jmh' task does)
+ */
+public class BenchmarkSupport {
+
+  // we only want to see the JMH output
+  static final String[] QUIET_ARGS = {
+    "+report.console.start=none",
+    "+report.console.transition=none",
+    "+report.console.constraint=none",
+    "+report.console.probe=none",
+    "+report.console.property_violation=none",
+    "+report.console.finished=none",
+    "+log.level=severe"
+  };
+
+  public static Config createConfig (String target, String... args){
+    ArrayList<String> list = new ArrayList<String>();
+    Collections.addAll(list, QUIET_ARGS);
+    Collections.addAll(list, args);
+    list.add("+target=" + target);
+
+    return new Config(list.toArray(new String[list.size()]));
+  }
+
+  public static JPF createJPF (String target, String... args){
+    JPF jpf = new JPF(createConfig(target, args));
+    if (!jpf.isRunnable()){
+      throw new JPFException("cannot run JPF on " + target);
+    }
+    return jpf;
+  }
+
+  /**
+   * initialize the VM of the provided JPF and execute up to 'maxTransitions'
+   * forward transitions, which gives us a representative state of the SUT
+   * for micro benchmarks (as opposed to the bare initial state)
+   */
+  public static VM initialize (JPF jpf, int maxTransitions){
+    RunRegistry.getDefaultRegistry().reset();
+
+    VM vm = jpf.getVM();
+    if (!vm.initialize()){
+      throw new JPFException("VM initialization failed");
+    }
+
+    for (int i=0; i<maxTransitions && !vm.isEndState(); i++){
+      if (!vm.forward()){
+        break;
+      }
+    }
+
+    return vm;
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.BenchmarkSupport;
+import gov.nasa.jpf.JPF;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * end-to-end runs of the configured search over a fixed set of small
+ * SUTs from src/examples. Each run includes JPF and VM initialization
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SearchBenchmark {
+
+  // target class, optionally followed by a blank and the 'target.args' value
+  @Param({"oldclassic", "Racer", "DiningPhil 3", "BoundedBuffer 2,4,1"})
+  public String sut;
+
+  @Param({"gov.nasa.jpf.search.DFSearch"})
+  public String search;
+
+  @Param({"gov.nasa.jpf.vm.serialize.CFSerializer"})
+  public String serializer;
+
+  @Benchmark
+  public long search(){
+    String target = sut;
+    String[] args = { "+search.class=" + search, "+vm.serializer.class=" + serializer };
+
+    int i = sut.indexOf(' ');
+    if (i > 0){
+      target = sut.substring(0, i);
+      args = Arrays.copyOf(args, args.length+1);
+      args[args.length-1] = "+target.args=" + sut.substring(i+1).trim();
+    }
+
+    JPF jpf = BenchmarkSupport.createJPF(target, args);
+    jpf.run();
+
+    // we return the number of states so that the run cannot be optimized away,
+    // and to be able to spot behavioral changes in the benchmark logs
+    return jpf.getVM().getStateCount();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.BenchmarkSupport;
+import gov.nasa.jpf.JPF;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * cost of storing and restoring states with the DefaultBacktracker, which
+ * is what the search pays for each forward/backtrack pair
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BacktrackerBenchmark {
+
+  @Param({"DiningPhil", "oldclassic"})
+  public String target;
+
+  @Param({"20"})
+  public int transitions;
+
+  VM vm;
+  Backtracker backtracker;
+  Heap heap;
+  int objref;
+
+  RestorableVMState state;
+
+  @Setup
+  public void setup(){
+    JPF jpf = BenchmarkSupport.createJPF(target, "+vm.backtracker.class=gov.nasa.jpf.vm.DefaultBacktracker");
+    vm = BenchmarkSupport.initialize(jpf, transitions);
+    backtracker = vm.getBacktracker();
+    heap = vm.getHeap();
+    objref = vm.getCurrentThread().getThreadObjectRef();
+    state = vm.getRestorableState();
+  }
+
+  @Benchmark
+  public boolean pushAndBacktrack(){
+    backtracker.pushSystemState();
+    backtracker.pushKernelState();
+    return backtracker.backtrack();
+  }
+
+  @Benchmark
+  public boolean pushModifyAndBacktrack(){
+    backtracker.pushSystemState();
+    backtracker.pushKernelState();
+
+    // forces a clone of the frozen ElementInfo
+    heap.getModifiable(objref);
+
+    return backtracker.backtrack();
+  }
+
+  @Benchmark
+  public RestorableVMState getAndRestoreState(){
+    RestorableVMState s = vm.getRestorableState();
+    vm.restoreState(state);
+    return s;
+  }
+}
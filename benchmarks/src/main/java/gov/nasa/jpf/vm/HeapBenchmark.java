@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.BenchmarkSupport;
+import gov.nasa.jpf.JPF;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * allocation and garbage collection in the GenericHeap implementations.
+ * Allocated objects are not referenced from anywhere, i.e. each gc() reclaims
+ * them and brings the heap back to the live set of the SUT state
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HeapBenchmark {
+
+  @Param({"OVHeap", "CowHeap", "PSIMHeap"})
+  public String heapClass;
+
+  @Param({"100"})
+  public int objects;
+
+  VM vm;
+  KernelState ks;
+  Heap heap;
+  ThreadInfo ti;
+
+  @Setup
+  public void setup(){
+    JPF jpf = BenchmarkSupport.createJPF("oldclassic", "+vm.heap.class=gov.nasa.jpf.vm." + heapClass);
+    vm = BenchmarkSupport.initialize(jpf, 10);
+    ks = vm.getKernelState();
+    heap = vm.getHeap();
+    ti = vm.getCurrentThread();
+  }
+
+  @Benchmark
+  public int allocateAndCollect(){
+    for (int i=0; i<objects; i++){
+      heap.newArray("I", 8, ti);
+    }
+    ks.gc();
+
+    return heap.size();
+  }
+
+  @Benchmark
+  public int collect(){
+    ks.gc();
+
+    return heap.size();
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.BenchmarkSupport;
+import gov.nasa.jpf.Config;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * insertion throughput of the StateSet implementations, using synthetic
+ * state vectors of which a configurable fraction has been seen before
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StateSetBenchmark {
+
+  @Param({"JenkinsStateSet", "ConcurrentJenkinsStateSet", "MappedStateSet", "BitstateStateSet"})
+  public String storage;
+
+  // length of the serialized state vectors
+  @Param({"64", "1024"})
+  public int length;
+
+  // number of distinct states
+  @Param({"100000"})
+  public int states;
+
+  // percentage of add() calls that hit an already stored state
+  @Param({"50"})
+  public int revisits;
+
+  Config config;
+  int[][] data;
+  int[] order;
+  int next;
+
+  SerializingStateSet stateSet;
+
+  @Setup
+  public void setup(){
+    config = BenchmarkSupport.createConfig("HelloWorld");
+
+    Random random = new Random(42);
+    data = new int[states][length];
+    for (int i=0; i<states; i++){
+      int[] v = data[i];
+      for (int j=0; j<length; j++){
+        v[j] = random.nextInt();
+      }
+    }
+
+    // the sequence in which we add states, which includes the revisits
+    int n = states * 100 / (100 - revisits);
+    order = new int[n];
+    int nNew = 0;
+    for (int i=0; i<n; i++){
+      if (nNew == 0 || (nNew < states && random.nextInt(100) >= revisits)){
+        order[i] = nNew++;
+      } else {
+        order[i] = random.nextInt(nNew);
+      }
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void createStateSet(){
+    stateSet = (SerializingStateSet) config.getInstance("vm.storage", "gov.nasa.jpf.vm." + storage, StateSet.class);
+    next = 0;
+  }
+
+  @Benchmark
+  public int add(){
+    if (next == order.length){
+      next = 0;
+    }
+    return stateSet.add(data[order[next++]]);
+  }
+}
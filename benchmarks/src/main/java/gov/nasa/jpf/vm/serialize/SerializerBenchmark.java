@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm.serialize;
+
+import gov.nasa.jpf.BenchmarkSupport;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.vm.StateSerializer;
+import gov.nasa.jpf.vm.VM;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * cost of computing the storing data for a given SUT state, which is what
+ * we pay for each new transition when matching states
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializerBenchmark {
+
+  @Param({"CFSerializer", "FilteringSerializer", "IncrementalSerializer"})
+  public String serializer;
+
+  @Param({"DiningPhil", "oldclassic"})
+  public String target;
+
+  @Param({"20"})
+  public int transitions;
+
+  VM vm;
+  StateSerializer ser;
+
+  @Setup
+  public void setup(){
+    JPF jpf = BenchmarkSupport.createJPF(target, "+vm.serializer.class=gov.nasa.jpf.vm.serialize." + serializer);
+    vm = BenchmarkSupport.initialize(jpf, transitions);
+    ser = vm.getSerializer();
+  }
+
+  @Benchmark
+  public int[] serialize(){
+    // AbstractSerializer caches the last result until the kernel state changes
+    vm.kernelStateChanged();
+    return ser.getStoringData();
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.listener;
+
+import gov.nasa.jpf.util.PhaseMetrics;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.Timespan;
+
+import java.util.Arrays;
+
+/**
+ * periodic JFR event that reports the PhaseMetrics deltas since the last
+ * period, one event per phase. This is kept separate from PhaseProfiler so that
+ * the jdk.jfr classes are only loaded if JFR output is requested.
+ *
+ * Compiling this class requires jdk.jfr (JDK 8u262 or later), which is why it
+ * lives in its own 'jfr' source set and PhaseProfiler only accesses it reflectively
+ */
+@Name("gov.nasa.jpf.PhaseMetrics")
+@Label("JPF Phase Metrics")
+@Category("JPF")
+@Description("time spent in JPF hot path phases since the last period")
+@Period("1 s")
+class PhaseMetricsEvent extends Event {
+
+  @Label("Phase")
+  String phase;
+
+  @Label("Calls")
+  long calls;
+
+  @Label("Total Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long totalTime;
+
+  @Label("Max Time")
+  @Description("max time of a single call since the start of the run")
+  @Timespan(Timespan.NANOSECONDS)
+  long maxTime;
+
+  static final long[] lastCount = new long[PhaseMetrics.N_PHASES];
+  static final long[] lastTotal = new long[PhaseMetrics.N_PHASES];
+
+  static final Runnable hook = new Runnable() {
+    @Override
+    public void run() {
+      for (int i=0; i<PhaseMetrics.N_PHASES; i++){
+        long n = PhaseMetrics.getCount(i);
+        long t = PhaseMetrics.getTotalNanos(i);
+
+        PhaseMetricsEvent e = new PhaseMetricsEvent();
+        e.phase = PhaseMetrics.getName(i);
+        e.calls = n - lastCount[i];
+        e.totalTime = t - lastTotal[i];
+        e.maxTime = PhaseMetrics.getMaxNanos(i);
+        e.commit();
+
+        lastCount[i] = n;
+        lastTotal[i] = t;
+      }
+    }
+  };
+
+  static void register (){
+    Arrays.fill(lastCount, 0);
+    Arrays.fill(lastTotal, 0);
+    FlightRecorder.addPeriodicEvent(PhaseMetricsEvent.class, hook);
+  }
+
+  static void flush (){
+    hook.run();
+  }
+
+  static void unregister (){
+    FlightRecorder.removePeriodicEvent(hook);
+  }
+}
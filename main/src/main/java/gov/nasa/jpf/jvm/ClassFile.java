@@ -86,6 +86,7 @@ public class ClassFile extends BinaryClassSource {
   // the const pool
   int[] cpPos;     // cpPos[i] holds data start index for cp_entry i (0 is unused)
   Object[] cpValue; // cpValue[i] hold the String/Integer/Float/Double associated with corresponding cp_entries
+  int cpEnd;        // data index of the first byte after the const pool
   
   //--- ctors
   public ClassFile (byte[] data, int offset){
@@ -830,21 +831,12 @@ public class ClassFile extends BinaryClassSource {
     int cpIdx;
 
     try {
-      // yeah, cafebabe
-      int magic = readI4();
-      if (magic != 0xCAFEBABE) {
-        error("wrong magic: " + Integer.toHexString(magic));
+      if (cpPos == null){
+        parseConstantPool();
+      } else {
+        pos = cpEnd; // const pool was already parsed ahead of time
       }
-
-      // we don't do much with the version numbers yet
-      int minor = readU2();
-      int major = readU2();
-
-      // get the const pool
-      int cpCount = readU2();
-      cpPos = new int[cpCount];
-      cpValue = new Object[cpCount];
-      parseCp(cpCount);
+      int cpCount = cpPos.length;
 
       // the class essentials
       int accessFlags = readU2();
@@ -880,6 +872,31 @@ public class ClassFile extends BinaryClassSource {
   }
 
 
+  /**
+   * parse the header and the const pool, which does not depend on any
+   * ClassFileReader or VM state. This is the part of parse() that can be done
+   * ahead of time and outside of the VM thread, e.g. to prefetch startup classes
+   */
+  public void parseConstantPool() throws ClassParseException {
+    // yeah, cafebabe
+    int magic = readI4();
+    if (magic != 0xCAFEBABE) {
+      error("wrong magic: " + Integer.toHexString(magic));
+    }
+
+    // we don't do much with the version numbers yet
+    int minor = readU2();
+    int major = readU2();
+
+    // get the const pool
+    int cpCount = readU2();
+    cpPos = new int[cpCount];
+    cpValue = new Object[cpCount];
+    parseCp(cpCount);
+
+    cpEnd = pos;
+  }
+
   //--- constpool parsing
 
   public static String readModifiedUTF8String( byte[] data, int pos, int len) throws ClassParseException {
@@ -24,6 +24,8 @@ import gov.nasa.jpf.vm.ClassFileMatch;
 import gov.nasa.jpf.vm.ClassLoaderInfo;
 import gov.nasa.jpf.vm.ClassParseException;
 
+import java.util.zip.CRC32;
+
 /**
  * ClassFileContainer that holds Java classfiles
  */
@@ -32,6 +34,8 @@ public abstract class JVMClassFileContainer extends ClassFileContainer {
   // the VM and container type specific info we need to instantiate a ClassInfo from this container
   public class JVMClassFileMatch extends ClassFileMatch {
     byte[] data;
+    long contentHash;
+    ClassFile cf; // set if the const pool was parsed ahead of time
     
     JVMClassFileMatch (String typeName, String url, byte[] data) {
       super(typeName, url);
@@ -47,13 +51,47 @@ public abstract class JVMClassFileContainer extends ClassFileContainer {
     public byte[] getData(){
       return data;
     }
+
+    @Override
+    public long getContentHash () {
+      if (contentHash == 0){
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        contentHash = (crc.getValue() << 32) | data.length;
+      }
+      return contentHash;
+    }
+    
+    @Override
+    public void prefetch () {
+      getContentHash();
+      
+      try {
+        ClassFile cf = new ClassFile(data);
+        cf.parseConstantPool();
+        this.cf = cf;
+      } catch (ClassParseException cpx){
+        // we report this when we parse the class
+      }
+    }
+    
+    // ClassFiles are parse cursors, i.e. a prefetched one can only be used once
+    ClassFile getClassFile (){
+      ClassFile cf = this.cf;
+      if (cf != null){
+        this.cf = null;
+        return cf;
+      } else {
+        return new ClassFile(data);
+      }
+    }
     
     @Override
     public JVMClassInfo createClassInfo (ClassLoaderInfo loader) throws ClassParseException {
       JVMSystemClassLoaderInfo sysCli = (JVMSystemClassLoaderInfo)loader.getSystemClassLoader();
       
       JVMCodeBuilder cb = sysCli.getCodeBuilder(typeName);
-      ClassFile cf = new ClassFile(data);
+      ClassFile cf = getClassFile();
       
       return new JVMClassInfo( typeName, loader, cf, url, cb);
     }
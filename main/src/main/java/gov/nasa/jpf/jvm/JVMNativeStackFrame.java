@@ -22,7 +22,6 @@ import gov.nasa.jpf.vm.NativeMethodInfo;
 import gov.nasa.jpf.vm.NativeStackFrame;
 import gov.nasa.jpf.vm.StackFrame;
 import gov.nasa.jpf.vm.ThreadInfo;
-import gov.nasa.jpf.vm.Types;
 
 /**
  * a NativeStackFrame used for calling NativeMethods from Java bytecode
@@ -37,92 +36,28 @@ public class JVMNativeStackFrame
   public void setArguments(ThreadInfo ti){
     StackFrame callerFrame = ti.getTopFrame(); // we are not going to modify it
     NativeMethodInfo nmi = (NativeMethodInfo)methodInfo;
-    int nArgs = nmi.getNumberOfArguments();
-    byte[] argTypes = nmi.getArgumentTypes();
-
-    Object[] a = new Object[nArgs + 2];
-
-    int stackOffset;
-    int i, j, k;
-    int ival;
-    long lval;
-
-    for (i = 0, stackOffset = 0, j = nArgs + 1, k = nArgs - 1;
-         i < nArgs;
-         i++, j--, k--) {
-      switch (argTypes[k]) {
-        case Types.T_BOOLEAN:
-          ival = callerFrame.peek(stackOffset);
-          a[j] = Boolean.valueOf(Types.intToBoolean(ival));
-
-          break;
-
-        case Types.T_BYTE:
-          ival = callerFrame.peek(stackOffset);
-          a[j] = Byte.valueOf((byte)ival);
-
-          break;
-
-        case Types.T_CHAR:
-          ival = callerFrame.peek(stackOffset);
-          a[j] = Character.valueOf((char)ival);
-
-          break;
-
-        case Types.T_SHORT:
-          ival = callerFrame.peek(stackOffset);
-          a[j] = new Short((short)ival);
-
-          break;
-
-        case Types.T_INT:
-          ival = callerFrame.peek(stackOffset);
-          a[j] = new Integer(ival);
-
-          break;
-
-        case Types.T_LONG:
-          lval = callerFrame.peekLong(stackOffset);
-          stackOffset++; // 2 stack words
-          a[j] = new Long(lval);
-
-          break;
-
-        case Types.T_FLOAT:
-          ival = callerFrame.peek(stackOffset);
-          a[j] = new Float(Types.intToFloat(ival));
-
-          break;
-
-        case Types.T_DOUBLE:
-          lval = callerFrame.peekLong(stackOffset);
-          stackOffset++; // 2 stack words
-          a[j] = new Double(Types.longToDouble(lval));
-
-          break;
+    int nArgSlots = nmi.getArgumentsSize();
+    if (!nmi.isStatic()) {
+      nArgSlots--; // we store 'this' separately
+    }
 
-        default:
-          // NOTE - we have to store T_REFERENCE as an Integer, because
-          // it shows up in our native method as an 'int'
-          ival = callerFrame.peek(stackOffset);
-          a[j] = new Integer(ival);
-      }
+    // we just copy the raw stack slots, conversion is done by the NativeMethodInfo invoker
+    int[] a = new int[nArgSlots + 1];
 
-      stackOffset++;
+    for (int i = 0, stackOffset = nArgSlots - 1; i < nArgSlots; i++, stackOffset--) {
+      a[i + 1] = callerFrame.peek(stackOffset);
     }
 
-    //--- set  our standard MJI header arguments
-    a[0] = ti.getMJIEnv();
-
+    //--- set our standard MJI header argument
     if (nmi.isStatic()) {
-      a[1] = new Integer(nmi.getClassInfo().getClassObjectRef());
+      a[0] = nmi.getClassInfo().getClassObjectRef();
     } else {
       int thisRef = callerFrame.getCalleeThis(nmi);
-      a[1] = new Integer(thisRef);
+      a[0] = thisRef;
 
       setThis(thisRef);
     }
 
-    setArgs(a);
+    setArgumentSlots(a);
   }
 }
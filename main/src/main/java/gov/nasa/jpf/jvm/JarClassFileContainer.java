@@ -25,6 +25,9 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -34,6 +37,7 @@ import java.util.jar.JarFile;
 public class JarClassFileContainer extends JVMClassFileContainer {
   protected JarFile jar;
   protected String pathPrefix; // optional
+  protected volatile Set<String> packageNames; // computed on demand, possibly by prefetch threads
 
   static String getContainerUrl (File file){
     try {
@@ -154,4 +158,33 @@ public class JarClassFileContainer extends JVMClassFileContainer {
     return null;
   }
 
+  /**
+   * jars don't change while we run, so we can collect the packages with one
+   * pass over the entries, which saves us from looking up each class in each
+   * jar of the classpath
+   */
+  @Override
+  public Set<String> getPackageNames() {
+    if (packageNames == null){
+      HashSet<String> set = new HashSet<String>();
+      int prefixLen = (pathPrefix != null) ? pathPrefix.length() : 0;
+
+      for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements();){
+        String pn = entries.nextElement().getName();
+
+        if (pn.endsWith(".class") && (pathPrefix == null || pn.startsWith(pathPrefix))){
+          int i = pn.lastIndexOf('/');
+          if (i > prefixLen){
+            set.add( pn.substring(prefixLen, i).replace('/', '.'));
+          } else {
+            set.add(""); // default package
+          }
+        }
+      }
+
+      packageNames = set;
+    }
+
+    return packageNames;
+  }
 }
@@ -36,7 +36,7 @@ public class BALOAD extends ArrayLoadInstruction {
     ei.checkArrayBounds(index);
 
     int value = 0;
-    Fields f = ei.getFields();
+    Fields f = ei.getReadOnlyFields();
     if (f instanceof ByteArrayFields){
       value = ei.getByteElement(index);
     } else if (f instanceof BooleanArrayFields){
@@ -33,6 +33,34 @@ import java.util.List;
  */
 public class InstructionFactory extends JVMInstructionFactory {
 
+  static {
+    // the instructions that can be executed by the fast interpreter loop
+    // (see Instruction.registerLocalOnly()). IDIV, IREM, LDIV and LREM are
+    // not included since they can throw ArithmeticExceptions
+    Instruction.registerLocalOnly(
+        ACONST_NULL.class, ICONST.class, LCONST.class, FCONST.class, DCONST.class,
+        BIPUSH.class, SIPUSH.class, NOP.class,
+        ILOAD.class, LLOAD.class, FLOAD.class, DLOAD.class, ALOAD.class,
+        ISTORE.class, LSTORE.class, FSTORE.class, DSTORE.class, ASTORE.class, IINC.class,
+        POP.class, POP2.class, DUP.class, DUP_X1.class, DUP_X2.class,
+        DUP2.class, DUP2_X1.class, DUP2_X2.class, SWAP.class,
+        IADD.class, ISUB.class, IMUL.class, INEG.class,
+        IAND.class, IOR.class, IXOR.class, ISHL.class, ISHR.class, IUSHR.class,
+        LADD.class, LSUB.class, LMUL.class, LNEG.class,
+        LAND.class, LOR.class, LXOR.class, LSHL.class, LSHR.class, LUSHR.class,
+        FADD.class, FSUB.class, FMUL.class, FDIV.class, FREM.class, FNEG.class,
+        DADD.class, DSUB.class, DMUL.class, DDIV.class, DREM.class, DNEG.class,
+        I2L.class, I2F.class, I2D.class, L2I.class, L2F.class, L2D.class,
+        F2I.class, F2L.class, F2D.class, D2I.class, D2L.class, D2F.class,
+        I2B.class, I2C.class, I2S.class,
+        LCMP.class, FCMPL.class, FCMPG.class, DCMPL.class, DCMPG.class,
+        IFEQ.class, IFNE.class, IFLT.class, IFGE.class, IFGT.class, IFLE.class,
+        IF_ICMPEQ.class, IF_ICMPNE.class, IF_ICMPLT.class, IF_ICMPGE.class,
+        IF_ICMPGT.class, IF_ICMPLE.class, IF_ACMPEQ.class, IF_ACMPNE.class,
+        IFNULL.class, IFNONNULL.class, GOTO.class, GOTO_W.class,
+        TABLESWITCH.class, LOOKUPSWITCH.class);
+  }
+
   public InstructionFactory(){
     // nothing here
   }
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.listener;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.JPFConfigException;
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.report.ConsolePublisher;
+import gov.nasa.jpf.report.Publisher;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.util.PhaseMetrics;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+
+/**
+ * listener that turns on the built-in PhaseMetrics timers and publishes them.
+ * Use together with 'report.probe_interval' to get periodic output from
+ * long running searches, e.g.
+ *
+ *   listener+=,.listener.PhaseProfiler
+ *   report.probe_interval=10
+ *
+ * If 'phase_profiler.jfr' is set, the phase timers are also reported as
+ * periodic 'gov.nasa.jpf.PhaseMetrics' JFR events, which requires a host VM
+ * with JFR support (JDK 8u262 or later) and an active recording (e.g.
+ * -XX:StartFlightRecording). PhaseMetricsEvent is loaded reflectively, i.e. jpf-core
+ * runs without jdk.jfr unless this option is set
+ */
+public class PhaseProfiler extends ListenerAdapter {
+
+  static final String JFR_EVENT = "gov.nasa.jpf.listener.PhaseMetricsEvent";
+
+  Method jfrFlush;      // non-null if we use JFR
+  Method jfrUnregister;
+
+  public PhaseProfiler (Config config, JPF jpf){
+    // listeners are created before the VM is initialized, i.e. this also
+    // covers the startup class loading
+    PhaseMetrics.enable();
+
+    if (config.getBoolean("phase_profiler.jfr", false)){
+      try {
+        Class<?> cls = Class.forName(JFR_EVENT);
+        cls.getDeclaredMethod("register").invoke(null);
+        jfrFlush = cls.getDeclaredMethod("flush");
+        jfrUnregister = cls.getDeclaredMethod("unregister");
+
+      } catch (ClassNotFoundException | LinkageError e){
+        throw new JPFConfigException("phase_profiler.jfr requires a host VM with JFR support: " + e);
+      } catch (ReflectiveOperationException e){
+        throw new JPFException("failed to register JFR phase metrics event: " + e);
+      }
+    }
+
+    jpf.addPublisherExtension(ConsolePublisher.class, this);
+  }
+
+  @Override
+  public void searchFinished (Search search){
+    // counters are kept for publishFinished(), but subsequent runs in the
+    // same host VM should not pay for the timers unless they ask for it
+    PhaseMetrics.disable();
+
+    if (jfrFlush != null){
+      try {
+        jfrFlush.invoke(null); // don't lose the last period
+        jfrUnregister.invoke(null);
+      } catch (ReflectiveOperationException e){
+        throw new JPFException("failed to unregister JFR phase metrics event: " + e);
+      }
+      jfrFlush = null;
+    }
+  }
+
+  @Override
+  public void publishProbe (Publisher publisher){
+    publish(publisher);
+  }
+
+  @Override
+  public void publishFinished (Publisher publisher){
+    publish(publisher);
+  }
+
+  void publish (Publisher publisher){
+    PrintWriter pw = publisher.getOut();
+    publisher.publishTopicStart("phase metrics");
+
+    PhaseMetrics.printOn(pw);
+  }
+}
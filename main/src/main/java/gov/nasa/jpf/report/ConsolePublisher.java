@@ -369,6 +369,11 @@ public class ConsolePublisher extends Publisher {
     pw.println("states:             new=" + stat.newStates + ",visited=" + stat.visitedStates
             + ",backtracked=" + stat.backtracked + ",end=" + stat.endStates);
     pw.println("search:             maxDepth=" + stat.maxDepth + ",constraints=" + stat.constraints);
+    if (stat.stateOmissionProbability >= 0){
+      pw.println("bitstate:           fill=" + String.format("%.4f", stat.stateFillRatio)
+            + ",omissionProbability=" + String.format("%.3e", stat.stateOmissionProbability)
+            + ",expectedOmitted=" + String.format("%.1f", stat.expectedOmittedStates));
+    }
     pw.println("choice generators:  thread=" + stat.threadCGs
             + " (signal=" + stat.signalCGs + ",lock=" + stat.monitorCGs + ",sharedRef=" + stat.sharedAccessCGs
             + ",threadApi=" + stat.threadApiCGs + ",reschedule=" + stat.breakTransitionCGs
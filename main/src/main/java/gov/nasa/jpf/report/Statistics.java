@@ -24,6 +24,7 @@ import gov.nasa.jpf.jvm.bytecode.JVMFieldInstruction;
 import gov.nasa.jpf.jvm.bytecode.JVMInvokeInstruction;
 import gov.nasa.jpf.jvm.bytecode.LockInstruction;
 import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.vm.BitstateStateSet;
 import gov.nasa.jpf.vm.ChoiceGenerator;
 import gov.nasa.jpf.vm.ClassInfo;
 import gov.nasa.jpf.vm.ElementInfo;
@@ -74,6 +75,11 @@ public class Statistics extends ListenerAdapter implements Cloneable {
   public long nReleasedObjects = 0;
   public int maxLiveObjects = 0;
 
+  // only set if we use a lossy (bitstate) state set
+  public double stateFillRatio = -1;
+  public double stateOmissionProbability = -1;
+  public double expectedOmittedStates = -1;
+
   @Override
   public Statistics clone() {
     try {
@@ -93,11 +99,6 @@ public class Statistics extends ListenerAdapter implements Cloneable {
     gcCycles++;
   }
   
-  @Override
-  public void instructionExecuted (VM vm, ThreadInfo ti, Instruction nextInsn, Instruction executedInsn){
-    insns++;
-  }
-
   @Override
   public void choiceGeneratorSet (VM vm, ChoiceGenerator<?> newCG){
     ChoiceGenerator<?> cg = VM.getVM().getChoiceGenerator();
@@ -146,6 +147,10 @@ public class Statistics extends ListenerAdapter implements Cloneable {
   
   @Override
   public void stateAdvanced (Search search){
+    // we don't count instructions ourselves since instructionExecuted() listeners
+    // disable the fast interpreter loop
+    insns = search.getVM().getExecutedInstructions();
+
     long m = Runtime.getRuntime().totalMemory();
     if (m > maxUsed) {
       maxUsed = m;
@@ -185,4 +190,16 @@ public class Statistics extends ListenerAdapter implements Cloneable {
     constraints++;
   }
 
+  @Override
+  public void searchFinished (Search search){
+    insns = search.getVM().getExecutedInstructions();
+
+    if (search.getVM().getStateSet() instanceof BitstateStateSet){
+      BitstateStateSet bss = (BitstateStateSet)search.getVM().getStateSet();
+      stateFillRatio = bss.getFillRatio();
+      stateOmissionProbability = bss.getOmissionProbability();
+      expectedOmittedStates = bss.getExpectedOmissions();
+    }
+  }
+
 }
@@ -271,6 +271,10 @@ public class XMLPublisher extends Publisher {
     out.println("    <visited-states>" + stat.visitedStates + "</visited-states>");
     out.println("    <backtracked-states>" + stat.backtracked + "</backtracked-states>");
     out.println("    <end-states>" + stat.endStates + "</end-states>");
+    if (stat.stateOmissionProbability >= 0){
+      out.println("    <bitstate-omission-probability>" + stat.stateOmissionProbability + "</bitstate-omission-probability>");
+      out.println("    <bitstate-expected-omitted>" + stat.expectedOmittedStates + "</bitstate-expected-omitted>");
+    }
     out.println("    <max-memory unit=\"MB\">" + (stat.maxUsed >>20) + "</max-memory>");
     out.println("  </statistics>");
   }
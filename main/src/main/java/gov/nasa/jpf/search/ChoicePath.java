@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.VM;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * a sequence of choice indices, one for each ChoiceGenerator on a path
+ * from the initial state (in CG registration order, i.e. including cascaded CGs).
+ *
+ * ChoicePaths are the unit of work that can be handed from one search to
+ * another (possibly in a different process), since they only depend on
+ * the deterministic re-execution of the SUT. They are replayed with a
+ * ChoicePathReplayer. This is a more compact (and class-agnostic) version
+ * of the trace files used by ChoicePoint
+ */
+public class ChoicePath implements Comparable<ChoicePath> {
+
+  final int[] choices;
+
+  public ChoicePath (int... choices){
+    this.choices = choices;
+  }
+
+  /**
+   * create a ChoicePath for the current state of the VM, i.e. the
+   * processed choice index of each CG on the current path 
+   */
+  public static ChoicePath getCurrent (VM vm){
+    ChoiceGenerator<?>[] cgs = vm.getChoiceGenerators();
+    if (cgs == null){
+      return new ChoicePath();
+    }
+
+    int[] a = new int[cgs.length];
+    for (int i=0; i<cgs.length; i++){
+      a[i] = cgs[i].getProcessedNumberOfChoices() -1;
+    }
+
+    return new ChoicePath(a);
+  }
+
+  public int length(){
+    return choices.length;
+  }
+
+  public int get (int idx){
+    return choices[idx];
+  }
+
+  public boolean isPrefixOf (ChoicePath other){
+    if (choices.length > other.choices.length){
+      return false;
+    }
+    for (int i=0; i<choices.length; i++){
+      if (choices[i] != other.choices[i]){
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int getCommonPrefixLength (ChoicePath other){
+    int n = Math.min(choices.length, other.choices.length);
+    int i=0;
+    while (i < n && choices[i] == other.choices[i]){
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * the choices from 'start' on
+   */
+  public ChoicePath getSuffix (int start){
+    return new ChoicePath(Arrays.copyOfRange(choices, start, choices.length));
+  }
+
+  /**
+   * lexicographic order, i.e. paths with long common prefixes are adjacent
+   */
+  @Override
+  public int compareTo (ChoicePath other){
+    int n = Math.min(choices.length, other.choices.length);
+    for (int i=0; i<n; i++){
+      if (choices[i] != other.choices[i]){
+        return (choices[i] < other.choices[i]) ? -1 : 1;
+      }
+    }
+    return Integer.compare(choices.length, other.choices.length);
+  }
+
+  @Override
+  public boolean equals (Object o){
+    if (o instanceof ChoicePath){
+      return Arrays.equals(choices, ((ChoicePath)o).choices);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode(){
+    return Arrays.hashCode(choices);
+  }
+
+  /**
+   * space separated list of choice indices, which is what parse() reads
+   */
+  @Override
+  public String toString(){
+    StringBuilder sb = new StringBuilder();
+    for (int i=0; i<choices.length; i++){
+      if (i>0){
+        sb.append(' ');
+      }
+      sb.append(choices[i]);
+    }
+    return sb.toString();
+  }
+
+  public static ChoicePath parse (String s){
+    s = s.trim();
+    if (s.isEmpty()){
+      return new ChoicePath();
+    }
+
+    String[] tokens = s.split("\\s+");
+    int[] a = new int[tokens.length];
+    try {
+      for (int i=0; i<tokens.length; i++){
+        a[i] = Integer.parseInt(tokens[i]);
+      }
+    } catch (NumberFormatException nfx){
+      throw new JPFException("illegal choice path: " + s);
+    }
+
+    return new ChoicePath(a);
+  }
+
+  //--- file storage (one path per line, '#' starts a comment line)
+
+  public static List<ChoicePath> readPaths (File file){
+    ArrayList<ChoicePath> list = new ArrayList<ChoicePath>();
+
+    try (BufferedReader r = new BufferedReader(new FileReader(file))) {
+      for (String line = r.readLine(); line != null; line = r.readLine()){
+        line = line.trim();
+        if (!line.startsWith("#")){
+          list.add(parse(line));
+        }
+      }
+    } catch (IOException iox){
+      throw new JPFException("error reading choice paths from " + file + ": " + iox.getMessage());
+    }
+
+    return list;
+  }
+
+  public static void writePaths (File file, List<ChoicePath> paths){
+    try (PrintWriter pw = new PrintWriter(new FileWriter(file))) {
+      for (ChoicePath p : paths){
+        pw.println(p);
+      }
+    } catch (IOException iox){
+      throw new JPFException("error writing choice paths to " + file + ": " + iox.getMessage());
+    }
+  }
+}
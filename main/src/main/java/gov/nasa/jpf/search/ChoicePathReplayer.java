@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * a VMListener that forces the next CG advances to follow a given ChoicePath.
+ *
+ * Replayed CGs are set done (see ChoiceGenerator.select()), i.e. a search that
+ * backtracks into the replayed prefix will not explore any of its siblings. This
+ * is what confines a search to the subtree below the path end.
+ *
+ * The replayer does not drive the VM itself - the owning search has to keep
+ * calling forward() until isReplaying() returns false
+ */
+public class ChoicePathReplayer extends ListenerAdapter {
+
+  protected ChoicePath path;
+  protected int pos;
+
+  // set if the SUT did not re-execute deterministically
+  protected boolean failed;
+
+  /**
+   * start replaying from the next CG advance on. Note that the caller is
+   * responsible for restoring the state the path starts from
+   */
+  public void start (VM vm, ChoicePath path){
+    this.path = path;
+    pos = 0;
+    failed = false;
+
+    if (path.length() > 0){
+      vm.setTraceReplay(true);
+    } else {
+      this.path = null;
+    }
+  }
+
+  public void stop (VM vm){
+    if (path != null){
+      path = null;
+      vm.setTraceReplay(false);
+    }
+  }
+
+  public boolean isReplaying (){
+    return (path != null);
+  }
+
+  public boolean hasFailed(){
+    return failed;
+  }
+
+  /**
+   * number of choices that were replayed so far
+   */
+  public int getReplayedChoices(){
+    return pos;
+  }
+
+  /**
+   * position the (already advanced once) CG on the replayed choice. The default
+   * is to select it, which means the CG does not have any choices left
+   */
+  protected void setChoice (ChoiceGenerator<?> cg, int choiceIndex){
+    cg.select(choiceIndex);
+  }
+
+  @Override
+  public void choiceGeneratorAdvanced (VM vm, ChoiceGenerator<?> currentCG) {
+    if (path != null){
+      int choiceIndex = path.get(pos++);
+
+      if (choiceIndex < currentCG.getTotalNumberOfChoices()){
+        setChoice(currentCG, choiceIndex);
+        if (pos == path.length()){
+          stop(vm);
+        }
+
+      } else {
+        // the SUT did not re-execute deterministically, there is no way to go on.
+        // Setting the CG done makes the VM skip the transition
+        failed = true;
+        stop(vm);
+        currentCG.setDone();
+        vm.ignoreState();
+      }
+    }
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.JPFException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * an append-only, disk based store for ChoicePaths, which is used to keep
+ * search frontiers out of the heap. Callers only keep the (long) position
+ * of each stored path.
+ *
+ * Paths are stored as variable length encoded choice indices in memory mapped
+ * segment files of a fixed size. Each segment keeps track of how many of its
+ * paths have not been removed yet, and the segment file is deleted once this
+ * count drops to zero and we have moved on to the next segment
+ */
+public class ChoicePathStore {
+
+  static class Segment {
+    File file;
+    MappedByteBuffer buf;
+    int nLive;
+
+    Segment (File file, MappedByteBuffer buf){
+      this.file = file;
+      this.buf = buf;
+    }
+  }
+
+  protected File dir;
+  protected int segmentSize;
+
+  protected ArrayList<Segment> segments = new ArrayList<Segment>(); // released segments are null
+  protected Segment current;
+
+  protected int nPaths;
+  protected long nBytes;
+
+  public ChoicePathStore (File dir, int segmentSize){
+    this.dir = dir;
+    this.segmentSize = segmentSize;
+
+    if (!dir.isDirectory() && !dir.mkdirs()){
+      throw new JPFException("cannot create choice path store dir: " + dir);
+    }
+  }
+
+  protected Segment createSegment (){
+    File file = new File(dir, "paths" + segments.size() + ".seg");
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(segmentSize);
+      MappedByteBuffer buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+      return new Segment(file, buf);
+
+    } catch (IOException iox){
+      throw new JPFException("cannot create choice path segment " + file + ": " + iox.getMessage());
+    }
+  }
+
+  static int getEncodedSize (int v){
+    int n = 1;
+    while ((v & ~0x7f) != 0){
+      v >>>= 7;
+      n++;
+    }
+    return n;
+  }
+
+  static void encode (MappedByteBuffer buf, int v){
+    while ((v & ~0x7f) != 0){
+      buf.put((byte)((v & 0x7f) | 0x80));
+      v >>>= 7;
+    }
+    buf.put((byte)v);
+  }
+
+  static int decode (MappedByteBuffer buf, int[] pos){
+    int p = pos[0];
+    int v = 0;
+    for (int shift = 0;; shift += 7){
+      byte b = buf.get(p++);
+      v |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0){
+        break;
+      }
+    }
+    pos[0] = p;
+    return v;
+  }
+
+  /**
+   * @return the position of the stored path
+   */
+  public long add (ChoicePath path){
+    int len = path.length();
+    int size = getEncodedSize(len);
+    for (int i=0; i<len; i++){
+      size += getEncodedSize(path.get(i) + 1); // unadvanced CGs have -1
+    }
+
+    if (size > segmentSize){
+      throw new JPFException("choice path exceeds segment size: " + len);
+    }
+
+    if (current == null || (segmentSize - current.buf.position()) < size){
+      current = createSegment();
+      segments.add(current);
+      releaseIfEmpty(segments.size()-2);
+    }
+
+    MappedByteBuffer buf = current.buf;
+    long pos = (long)(segments.size()-1) * segmentSize + buf.position();
+
+    encode(buf, len);
+    for (int i=0; i<len; i++){
+      encode(buf, path.get(i) + 1);
+    }
+
+    current.nLive++;
+    nPaths++;
+    nBytes += size;
+
+    return pos;
+  }
+
+  protected Segment getSegment (long pos){
+    int idx = (int)(pos / segmentSize);
+    Segment seg = (idx < segments.size()) ? segments.get(idx) : null;
+    if (seg == null){
+      throw new JPFException("no choice path at position " + pos);
+    }
+    return seg;
+  }
+
+  public ChoicePath get (long pos){
+    Segment seg = getSegment(pos);
+    int[] p = { (int)(pos % segmentSize) };
+
+    int len = decode(seg.buf, p);
+    int[] a = new int[len];
+    for (int i=0; i<len; i++){
+      a[i] = decode(seg.buf, p) - 1;
+    }
+
+    return new ChoicePath(a);
+  }
+
+  /**
+   * mark the path at 'pos' as not needed anymore, which might release its segment
+   */
+  public void remove (long pos){
+    int idx = (int)(pos / segmentSize);
+    Segment seg = getSegment(pos);
+
+    seg.nLive--;
+    nPaths--;
+    releaseIfEmpty(idx);
+  }
+
+  protected void releaseIfEmpty (int idx){
+    if (idx >= 0){
+      Segment seg = segments.get(idx);
+      if (seg != null && seg != current && seg.nLive == 0){
+        segments.set(idx, null);
+        seg.file.delete(); // the mapping goes away once the buffer is collected
+      }
+    }
+  }
+
+  /**
+   * number of paths that were added and not yet removed
+   */
+  public int size(){
+    return nPaths;
+  }
+
+  /**
+   * total number of bytes that were written
+   */
+  public long getNumberOfBytes(){
+    return nBytes;
+  }
+
+  public void close(){
+    for (Segment seg : segments){
+      if (seg != null){
+        seg.file.delete();
+      }
+    }
+    segments.clear();
+    current = null;
+  }
+}
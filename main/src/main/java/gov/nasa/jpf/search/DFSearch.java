@@ -19,17 +19,65 @@ package gov.nasa.jpf.search;
 
 
 import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFConfigException;
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.report.Statistics;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.FingerprintStateSet;
+import gov.nasa.jpf.vm.RestorableVMState;
+import gov.nasa.jpf.vm.StateSet;
 import gov.nasa.jpf.vm.VM;
 
+import java.io.File;
+import java.util.ArrayList;
+
 
 /**
  * standard depth first model checking (but can be bounded by search depth
  * and/or explicit Verify.ignoreIf)
+ *
+ * If 'search.checkpoint.file' is set, we write a SearchCheckpoint every
+ * 'search.checkpoint.interval' seconds, at the point where we are about to
+ * backtrack from a state. If 'search.resume' is set and the checkpoint file
+ * exists, the search continues from this checkpoint: we load the visited states,
+ * re-execute the checkpoint path without marking its CGs as done (which rebuilds
+ * the backtrack stack), and then backtrack from the checkpoint state as if we
+ * never stopped. This requires a state set that implements FingerprintStateSet.
+ * Errors that were found before the checkpoint are stored as choice paths, and
+ * are replayed (and hence reported again) at the end of the resumed search
  */
 public class DFSearch extends Search {
 
+  /**
+   * replays a checkpoint path such that the CGs keep their remaining choices
+   */
+  static class Resumer extends ChoicePathReplayer {
+    @Override
+    protected void setChoice (ChoiceGenerator<?> cg, int choiceIndex){
+      if (choiceIndex > 0){
+        cg.advance(choiceIndex); // the VM already advanced to the first choice
+      }
+    }
+  }
+
+  protected File checkpointFile;
+  protected long checkpointInterval; // msec
+  protected long lastCheckpoint;
+  protected boolean resume;
+
+  protected ArrayList<ChoicePath> errorPaths; // all errors found so far if we write checkpoints
+  protected int nResumedErrors;               // the ones we got from the checkpoint
+
   public DFSearch (Config config, VM vm) {
   	super(config,vm);
+
+    String path = config.getString("search.checkpoint.file");
+    if (path != null){
+      checkpointFile = new File(path);
+      checkpointInterval = config.getLong("search.checkpoint.interval", 600) * 1000;
+      resume = config.getBoolean("search.resume", false);
+      errorPaths = new ArrayList<ChoicePath>();
+    }
   }
 
   @Override
@@ -65,8 +113,22 @@ public class DFSearch extends Search {
 
     notifySearchStarted();
 
+    RestorableVMState initState = null;
+    if (checkpointFile != null){
+      getFingerprintStateSet(); // fail early
+      if (resume && checkpointFile.isFile()){
+        initState = vm.getRestorableState();
+        resumeFromCheckpoint();
+      }
+      lastCheckpoint = System.currentTimeMillis();
+    }
+
     while (!done) {
       if (checkAndResetBacktrackRequest() || !isNewState() || isEndState() || isIgnoredState() || depthLimitReached ) {
+        if (checkpointFile != null && (System.currentTimeMillis() - lastCheckpoint) > checkpointInterval){
+          writeCheckpoint();
+        }
+
         if (!backtrack()) { // backtrack not possible, done
           break;
         }
@@ -81,6 +143,9 @@ public class DFSearch extends Search {
         notifyStateAdvanced();
 
         if (currentError != null){
+          if (errorPaths != null){
+            errorPaths.add(ChoicePath.getCurrent(vm));
+          }
           notifyPropertyViolated();
 
           if (hasPropertyTermination()) {
@@ -107,10 +172,106 @@ public class DFSearch extends Search {
       }
     }
 
+    if (nResumedErrors > 0){
+      replayCheckpointErrors(initState);
+    }
+
     notifySearchFinished();
   }
 
 
+  protected FingerprintStateSet getFingerprintStateSet(){
+    StateSet stateSet = vm.getStateSet();
+    if (stateSet instanceof FingerprintStateSet){
+      return (FingerprintStateSet)stateSet;
+    } else {
+      throw new JPFConfigException("search checkpoints require a FingerprintStateSet, found: "
+              + ((stateSet != null) ? stateSet.getClass().getName() : "none"));
+    }
+  }
+
+  /**
+   * has to be called when we are about to backtrack from the current state,
+   * i.e. everything below it is explored
+   */
+  protected void writeCheckpoint(){
+    SearchCheckpoint cp = new SearchCheckpoint(ChoicePath.getCurrent(vm), errorPaths, getFingerprintStateSet());
+    cp.write(checkpointFile, getNextListenerOfType(Statistics.class, null));
+    lastCheckpoint = System.currentTimeMillis();
+
+    log.info("wrote search checkpoint at depth ", depth, " with ", vm.getStateSet().size(), " states");
+  }
+
+  protected void resumeFromCheckpoint(){
+    SearchCheckpoint cp = SearchCheckpoint.read(checkpointFile, getFingerprintStateSet(),
+            getNextListenerOfType(Statistics.class, null));
+    ChoicePath path = cp.getPath();
+    errorPaths.addAll(cp.getErrorPaths());
+    nResumedErrors = errorPaths.size();
+
+    log.info("resuming search from checkpoint with ", vm.getStateSet().size(), " states, ",
+            nResumedErrors, " errors, path length ", path.length());
+
+    // the checkpoint state and all its predecessors are already visited, so we
+    // don't notify listeners about the replayed transitions
+    Resumer resumer = new Resumer();
+    vm.addListener(resumer);
+    try {
+      resumer.start(vm, path);
+      while (resumer.isReplaying() && forward()){
+        depth++;
+      }
+    } finally {
+      resumer.stop(vm);
+      vm.removeListener(resumer);
+    }
+
+    if (resumer.hasFailed() || resumer.getReplayedChoices() < path.length()){
+      throw new JPFException("failed to re-execute search checkpoint path: " + path);
+    }
+
+    log.info("resumed search at depth ", depth);
+  }
+
+  /**
+   * re-execute the errors that were found before the checkpoint so that listeners and
+   * publishers see them. This happens at the end of the resumed search since we can't
+   * re-execute paths while the backtrack stack is in use. The replayed states are
+   * already visited, i.e. we don't notify about them
+   */
+  protected void replayCheckpointErrors (RestorableVMState initState){
+    ChoicePathReplayer replayer = new ChoicePathReplayer();
+    vm.addListener(replayer);
+
+    try {
+      for (int i=0; i<nResumedErrors; i++){
+        ChoicePath path = errorPaths.get(i);
+
+        vm.restoreState(initState);
+        vm.resetNextCG();
+        depth = 0;
+
+        boolean reproduced = false;
+        replayer.start(vm, path);
+        while (replayer.isReplaying() && forward()){
+          depth++;
+          if (currentError != null){
+            reproduced = true;
+            notifyPropertyViolated();
+            break;
+          }
+        }
+        replayer.stop(vm);
+
+        if (!reproduced){
+          log.warning("failed to reproduce checkpoint error for choice path: ", path);
+        }
+      }
+    } finally {
+      vm.removeListener(replayer);
+    }
+  }
+
   @Override
   public boolean supportsBacktrack () {
     return true;
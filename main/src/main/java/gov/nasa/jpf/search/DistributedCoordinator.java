@@ -0,0 +1,375 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.util.LongVector;
+import gov.nasa.jpf.vm.ConcurrentJenkinsStateSet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * the coordinator of a distributed search (see DistributedSearch), which routes
+ * work units between the workers and detects termination.
+ *
+ * Workers connect to the coordinator socket and identify themselves with a
+ * HELLO message. The coordinator then sends the root unit (the empty choice
+ * path) to worker 0, or the initial units (see addInitialUnit()) to their
+ * owners. Each worker sends a UNIT message with the fingerprint and
+ * the choice path of every state it reaches that is owned by another worker,
+ * which is forwarded to the owner, and
+ * a DONE message once it finished exploring a unit it received.
+ *
+ * Since all messages of a worker go through the same connection, the UNIT
+ * messages of a work unit always arrive before its DONE message. The search is
+ * therefore terminated once the number of DONE messages equals the number of
+ * distributed units, at which point we send STOP to all workers. This also
+ * happens if a worker reports a property violation with an ERROR message and
+ * we don't search for multiple errors.
+ *
+ * If the coordinator has a set of routed states, units for states that were
+ * already routed are dropped when they are received, i.e. they are neither
+ * forwarded nor counted.
+ *
+ * The coordinator does not depend on a VM, it can be used with any client that
+ * follows the protocol
+ */
+public class DistributedCoordinator {
+
+  //--- protocol message types
+  public static final int HELLO = 1;  // worker -> coordinator: worker id
+  public static final int UNIT = 2;   // worker -> coordinator: owner id, fingerprint, path;  coordinator -> worker: fingerprint, path
+  public static final int DONE = 3;   // worker -> coordinator: number of new states
+  public static final int ERROR = 4;  // worker -> coordinator: fingerprint, path
+  public static final int STOP = 5;   // coordinator -> worker
+
+  static final int CLOSED = -1;       // internal, connection of a worker was closed
+
+  public static class Message {
+    public final int worker;
+    public final int type;
+    public final int arg;
+    public final long fingerprint;
+    public final ChoicePath path;
+
+    Message (int worker, int type, int arg, long fingerprint, ChoicePath path){
+      this.worker = worker;
+      this.type = type;
+      this.arg = arg;
+      this.fingerprint = fingerprint;
+      this.path = path;
+    }
+  }
+
+  public static void writeMessage (DataOutput out, int type, int arg, long fingerprint, ChoicePath path) throws IOException {
+    out.writeByte(type);
+    out.writeInt(arg);
+    if (type == UNIT || type == ERROR){
+      out.writeLong(fingerprint);
+    }
+    if (path != null){
+      int len = path.length();
+      out.writeInt(len);
+      for (int i=0; i<len; i++){
+        out.writeInt(path.get(i));
+      }
+    }
+  }
+
+  public static Message readMessage (DataInput in, int worker) throws IOException {
+    int type = in.readByte();
+    int arg = in.readInt();
+    long fingerprint = (type == UNIT || type == ERROR) ? in.readLong() : 0;
+    ChoicePath path = null;
+
+    if (type == UNIT || type == ERROR){
+      int len = in.readInt();
+      int[] a = new int[len];
+      for (int i=0; i<len; i++){
+        a[i] = in.readInt();
+      }
+      path = new ChoicePath(a);
+    }
+
+    return new Message(worker, type, arg, fingerprint, path);
+  }
+
+  protected final int nWorkers;
+  protected final boolean stopOnError;
+
+  protected ServerSocket server;
+  protected Socket[] sockets;
+  protected DataOutputStream[] outs;
+
+  protected final LinkedBlockingQueue<Message> queue = new LinkedBlockingQueue<Message>();
+
+  protected ArrayList<Message> initialUnits = new ArrayList<Message>();
+  protected ConcurrentJenkinsStateSet routedStates; // optional, to drop units that were already routed
+
+  protected long nUnits;
+  protected long nDone;
+  protected long nNewStates;
+  protected ArrayList<ChoicePath> errorPaths = new ArrayList<ChoicePath>();
+  protected LongVector errorFingerprints = new LongVector();
+
+  public DistributedCoordinator (int nWorkers, boolean stopOnError){
+    this.nWorkers = nWorkers;
+    this.stopOnError = stopOnError;
+
+    sockets = new Socket[nWorkers];
+    outs = new DataOutputStream[nWorkers];
+  }
+
+  /**
+   * start listening for worker connections. A null host means loopback, and
+   * a port of 0 uses an ephemeral port
+   * @return the address workers have to connect to, as "host:port"
+   */
+  public String bind (String host, int port){
+    try {
+      InetAddress addr = (host != null) ? InetAddress.getByName(host) : InetAddress.getLoopbackAddress();
+      server = new ServerSocket();
+      server.bind(new InetSocketAddress(addr, port), nWorkers);
+      return addr.getHostAddress() + ':' + server.getLocalPort();
+
+    } catch (IOException iox){
+      throw new JPFException("cannot bind distributed search coordinator: " + iox.getMessage());
+    }
+  }
+
+  /**
+   * wait until all workers are connected
+   * @param timeout max msec to wait for each connection, 0 means no timeout
+   */
+  public void acceptWorkers (int timeout){
+    try {
+      server.setSoTimeout(timeout);
+
+      for (int i=0; i<nWorkers; i++){
+        Socket sock = server.accept();
+        sock.setTcpNoDelay(true);
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(sock.getInputStream()));
+        Message hello = readMessage(in, -1);
+        int id = hello.arg;
+        if (hello.type != HELLO || id < 0 || id >= nWorkers || sockets[id] != null){
+          sock.close();
+          throw new JPFException("invalid distributed search worker handshake: " + id);
+        }
+
+        sockets[id] = sock;
+        outs[id] = new DataOutputStream(new BufferedOutputStream(sock.getOutputStream()));
+        startReader(id, in);
+      }
+
+    } catch (SocketTimeoutException stx){
+      throw new JPFException("distributed search workers did not connect within " + timeout + "msec");
+    } catch (IOException iox){
+      throw new JPFException("error accepting distributed search workers: " + iox.getMessage());
+    }
+  }
+
+  protected void startReader (final int id, final DataInputStream in){
+    Thread t = new Thread("jpf-coordinator-reader-" + id){
+      @Override
+      public void run(){
+        try {
+          for (;;){
+            Message m = readMessage(in, id);
+
+            // readers run concurrently, hence the routed set has to be thread safe
+            if (m.type == UNIT && routedStates != null && routedStates.addFingerprint(m.fingerprint) < 0){
+              continue;
+            }
+            queue.add(m);
+          }
+        } catch (EOFException eofx){
+          // connection closed
+        } catch (IOException iox){
+          // connection failed, same as closed
+        }
+        queue.add(new Message(id, CLOSED, 0, 0, null));
+      }
+    };
+    t.setDaemon(true);
+    t.start();
+  }
+
+  protected void send (int worker, int type, long fingerprint, ChoicePath path) throws IOException {
+    writeMessage(outs[worker], type, 0, fingerprint, path);
+  }
+
+  protected void flush () throws IOException {
+    for (DataOutputStream out : outs){
+      out.flush();
+    }
+  }
+
+  /**
+   * add a unit that is sent to 'owner' when we start to run. If there are
+   * none, we start with the root unit
+   */
+  public void addInitialUnit (int owner, long fingerprint, ChoicePath path){
+    initialUnits.add(new Message(-1, UNIT, owner, fingerprint, path));
+  }
+
+  /**
+   * set the fingerprints of states that are already routed to their owners (or
+   * otherwise explored). UNIT messages for states in this set are dropped, and the
+   * fingerprints of all other units that we receive are added to it
+   */
+  public void setRoutedStates (ConcurrentJenkinsStateSet routedStates){
+    this.routedStates = routedStates;
+  }
+
+  /**
+   * distribute the initial units (or the root unit) and route messages until
+   * all units are done or a worker reported an error that terminates the search
+   */
+  public void run (){
+    try {
+      if (initialUnits.isEmpty()){
+        nUnits = 1;
+        send(0, UNIT, 0, new ChoicePath()); // the root, which has no fingerprint
+      } else {
+        for (Message m : initialUnits){
+          if (m.arg < 0 || m.arg >= nWorkers){
+            throw new JPFException("initial unit for unknown owner " + m.arg);
+          }
+          nUnits++;
+          send(m.arg, UNIT, m.fingerprint, m.path);
+        }
+      }
+
+      while (nDone < nUnits){
+        Message m = queue.poll();
+        if (m == null){
+          flush();
+          m = queue.take();
+        }
+
+        switch (m.type){
+          case UNIT:
+            if (m.arg < 0 || m.arg >= nWorkers){
+              throw new JPFException("distributed search worker " + m.worker + " sent unit for unknown owner " + m.arg);
+            }
+            nUnits++;
+            send(m.arg, UNIT, m.fingerprint, m.path);
+            break;
+
+          case DONE:
+            nDone++;
+            nNewStates += m.arg;
+            break;
+
+          case ERROR:
+            errorPaths.add(m.path);
+            errorFingerprints.add(m.fingerprint);
+            if (stopOnError){
+              stopWorkers();
+              return;
+            }
+            break;
+
+          case CLOSED:
+            throw new JPFException("distributed search worker " + m.worker + " terminated unexpectedly");
+
+          default:
+            throw new JPFException("unknown message from distributed search worker " + m.worker + ": " + m.type);
+        }
+      }
+
+      stopWorkers();
+
+    } catch (IOException iox){
+      throw new JPFException("distributed search communication failed: " + iox.getMessage());
+    } catch (InterruptedException ix){
+      throw new JPFException("distributed search coordinator interrupted");
+    }
+  }
+
+  protected void stopWorkers () {
+    for (int i=0; i<nWorkers; i++){
+      try {
+        send(i, STOP, 0, null);
+        outs[i].flush();
+      } catch (IOException iox){
+        // worker already gone, nothing to stop
+      }
+    }
+  }
+
+  public void close (){
+    try {
+      for (Socket sock : sockets){
+        if (sock != null){
+          sock.close();
+        }
+      }
+      if (server != null){
+        server.close();
+      }
+    } catch (IOException iox){
+      // nothing we can do about it
+    }
+  }
+
+  /**
+   * number of units that were distributed, including the root unit
+   */
+  public long getNumberOfUnits(){
+    return nUnits;
+  }
+
+  public long getNumberOfDoneUnits(){
+    return nDone;
+  }
+
+  /**
+   * accumulated number of new states reported by the workers
+   */
+  public long getNumberOfNewStates(){
+    return nNewStates;
+  }
+
+  public List<ChoicePath> getErrorPaths(){
+    return errorPaths;
+  }
+
+  /**
+   * fingerprints of the error states, in the order of getErrorPaths()
+   */
+  public long getErrorFingerprint (int i){
+    return errorFingerprints.get(i);
+  }
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFConfigException;
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.PartitionedStateSet;
+import gov.nasa.jpf.vm.RestorableVMState;
+import gov.nasa.jpf.vm.VM;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * a depth first search that is distributed over several JPF processes, which
+ * can run on different machines. The state space is partitioned by fingerprint
+ * ownership - each worker only stores the states that map to its partition (see
+ * PartitionedStateSet), i.e. the visited set is spread over all workers.
+ *
+ * If a worker reaches a state that is owned by another worker, it sends the
+ * fingerprint and choice path of this state as a work unit to the owner and
+ * backtracks. If the fingerprint is new for the owner, it re-executes the path
+ * from the initial state and explores the subtree below (see SubtreeDFSearch).
+ * Since only new states are re-executed, the overhead is bounded by the number
+ * of states times the average path length. Pending units are processed in path
+ * order, and we only re-execute the suffix that differs from the previous unit,
+ * which is still on the backtrack stack. Units are exchanged
+ * over sockets through a DistributedCoordinator, which also detects when all
+ * units are explored.
+ *
+ * The process that is started without 'search.distributed.id' is the
+ * coordinator. It listens on 'search.distributed.host' (loopback by default) and
+ * 'search.distributed.port' (ephemeral by default), and starts the first
+ * 'search.distributed.local_workers' of the 'search.distributed.workers' as local
+ * WorkerProcesses. Remaining workers have to be started with the same arguments
+ * plus '+search.distributed.id=<n>' and '+search.distributed.coordinator=<host:port>'.
+ * Property violations reported by workers are replayed by the coordinator so that
+ * they are published like errors of a normal search.
+ *
+ * Workers can be started with 'search.distributed.visited', a file with the
+ * fingerprints (see FingerprintStateSet) of states that count as explored.
+ *
+ * This requires that the SUT re-executes deterministically, and that all workers
+ * use the same serializer configuration
+ */
+public class DistributedSearch extends SubtreeDFSearch {
+
+
+  protected int nWorkers;
+  protected int workerId; // -1 for the coordinator
+
+  //--- coordinator
+  protected int nLocalWorkers;
+  protected String host;
+  protected int port;
+  protected int connectTimeout; // msec
+  protected File workDir;
+  protected long nWorkerStates;
+  protected long nWorkerUnits;
+
+  //--- worker
+  protected String coordinatorAddress;
+  protected PartitionedStateSet stateSet;
+  protected Socket socket;
+  protected DataOutputStream out;
+  protected PriorityBlockingQueue<DistributedCoordinator.Message> pendingUnits;
+  protected ChoicePath lastPath; // last executed unit, null if we have to start from the initial state
+  protected int nReceivedUnits;
+  protected int nVisitedUnits; // units we did not have to re-execute
+  protected int nSentUnits;
+
+  public DistributedSearch (Config config, VM vm) {
+    super(config, vm);
+
+    nWorkers = config.getInt("search.distributed.workers", Runtime.getRuntime().availableProcessors());
+    workerId = config.getInt("search.distributed.id", -1);
+
+    if (workerId < 0){
+      nLocalWorkers = Math.min(nWorkers, config.getInt("search.distributed.local_workers", nWorkers));
+      host = config.getString("search.distributed.host");
+      port = config.getInt("search.distributed.port", 0);
+      connectTimeout = config.getInt("search.distributed.connect_timeout", 60) * 1000;
+
+      String dir = config.getString("search.distributed.dir");
+      if (dir != null){
+        workDir = new File(dir);
+      }
+
+    } else {
+      coordinatorAddress = config.getString("search.distributed.coordinator");
+      if (coordinatorAddress == null){
+        throw new JPFConfigException("distributed search worker without search.distributed.coordinator");
+      }
+
+      stateSet = new PartitionedStateSet(nWorkers, workerId);
+      vm.setStateSet(stateSet);
+
+      String visited = config.getString("search.distributed.visited");
+      if (visited != null){
+        readVisited(new File(visited));
+      }
+
+      // STOP preempts units, which are ordered by path so that we can share prefixes
+      pendingUnits = new PriorityBlockingQueue<DistributedCoordinator.Message>(64,
+              new Comparator<DistributedCoordinator.Message>(){
+        @Override
+        public int compare (DistributedCoordinator.Message m1, DistributedCoordinator.Message m2){
+          if (m1.type != m2.type){
+            return (m1.type == DistributedCoordinator.UNIT) ? 1 : -1;
+          } else if (m1.path == null){
+            return 0;
+          } else {
+            return m1.path.compareTo(m2.path);
+          }
+        }
+      });
+    }
+  }
+
+  @Override
+  public void search () {
+    if (workerId >= 0){
+      work();
+
+    } else if (nLocalWorkers > 0 && !WorkerProcess.isSupported(config)){
+      log.warning("cannot start distributed search workers, falling back to sequential search");
+      super.search();
+
+    } else {
+      coordinate();
+    }
+  }
+
+  //--- the coordinator side
+
+  protected File getWorkDir (){
+    if (workDir == null){
+      try {
+        workDir = Files.createTempDirectory("jpf-distributed").toFile();
+      } catch (IOException iox){
+        throw new JPFException("cannot create work dir for distributed search: " + iox.getMessage());
+      }
+    } else if (!workDir.isDirectory() && !workDir.mkdirs()){
+      throw new JPFException("cannot create work dir for distributed search: " + workDir);
+    }
+
+    return workDir;
+  }
+
+  protected void coordinate (){
+    RestorableVMState initState = vm.getRestorableState();
+
+    notifySearchStarted();
+
+    DistributedCoordinator coordinator = new DistributedCoordinator(nWorkers, !getAllErrors);
+    WorkerProcess[] workers = new WorkerProcess[nLocalWorkers];
+
+    try {
+      String address = coordinator.bind(host, port);
+      log.info("distributed search coordinator listening on ", address, " for ", nWorkers, " workers");
+
+      if (nLocalWorkers > 0){
+        File dir = getWorkDir();
+        for (int i=0; i<nLocalWorkers; i++){
+          workers[i] = new WorkerProcess(config, i, new File(dir, "worker" + i + ".log"),
+                  "search.distributed.id=" + i,
+                  "search.distributed.coordinator=" + address);
+          workers[i].start();
+        }
+      }
+
+      coordinator.acceptWorkers(connectTimeout);
+      coordinator.run();
+
+      // let the local workers finish their output
+      for (WorkerProcess w : workers){
+        w.waitFor();
+      }
+
+    } finally {
+      for (WorkerProcess w : workers){
+        if (w != null){
+          w.destroy();
+        }
+      }
+      coordinator.close();
+    }
+
+    nWorkerStates = coordinator.getNumberOfNewStates();
+    nWorkerUnits = coordinator.getNumberOfUnits();
+    errorPaths.addAll(coordinator.getErrorPaths());
+
+    log.info("distributed search workers explored ", nWorkerStates, " new states in ",
+            nWorkerUnits, " units");
+
+    if (!errorPaths.isEmpty()){
+      replayErrors(initState);
+    }
+
+    notifySearchFinished();
+  }
+
+  /**
+   * re-execute the error paths reported by workers so that
+   * our own listeners and publishers see the property violations
+   */
+  protected void replayErrors (RestorableVMState initState){
+    for (ChoicePath path : errorPaths){
+      if (done){
+        break;
+      }
+
+      vm.restoreState(initState);
+      vm.resetNextCG();
+      depth = 0;
+
+      boolean reproduced = false;
+      replayer.start(vm, path);
+      while (replayer.isReplaying() && forward()){
+        depth++;
+        notifyStateAdvanced();
+
+        if (currentError != null){
+          reproduced = true;
+          replayer.stop(vm);
+          notifyPropertyViolated();
+          hasPropertyTermination();
+          break;
+        }
+      }
+
+      if (!reproduced){
+        replayer.stop(vm);
+        log.warning("failed to reproduce worker error for choice path: ", path);
+      }
+    }
+  }
+
+  //--- the worker side
+
+  /**
+   * initialize our state set with fingerprints of states that are
+   * already explored, e.g. by the master of a ParallelDFSearch
+   */
+  protected void readVisited (File file){
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      stateSet.readFingerprints(in);
+    } catch (IOException iox){
+      throw new JPFException("cannot read visited states of distributed search worker: " + iox.getMessage());
+    }
+  }
+
+  protected void connect (){
+    int idx = coordinatorAddress.lastIndexOf(':');
+    if (idx < 0){
+      throw new JPFConfigException("invalid search.distributed.coordinator address: " + coordinatorAddress);
+    }
+
+    try {
+      socket = new Socket(coordinatorAddress.substring(0, idx), Integer.parseInt(coordinatorAddress.substring(idx+1)));
+      socket.setTcpNoDelay(true);
+      out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+      DistributedCoordinator.writeMessage(out, DistributedCoordinator.HELLO, workerId, 0, null);
+      out.flush();
+
+    } catch (IOException | NumberFormatException x){
+      throw new JPFException("cannot connect to distributed search coordinator " + coordinatorAddress + ": " + x.getMessage());
+    }
+
+    final DataInputStream in;
+    try {
+      in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    } catch (IOException iox){
+      throw new JPFException("cannot read from distributed search coordinator: " + iox.getMessage());
+    }
+
+    // we don't want the coordinator to block on us while we are exploring
+    Thread reader = new Thread("jpf-worker-reader"){
+      @Override
+      public void run(){
+        try {
+          for (;;){
+            DistributedCoordinator.Message m = DistributedCoordinator.readMessage(in, workerId);
+            pendingUnits.add(m);
+            if (m.type != DistributedCoordinator.UNIT){
+              return;
+            }
+          }
+        } catch (IOException iox){
+          // coordinator gone, nothing left to do
+        }
+        pendingUnits.add(new DistributedCoordinator.Message(workerId, DistributedCoordinator.STOP, 0, 0, null));
+      }
+    };
+    reader.setDaemon(true);
+    reader.start();
+  }
+
+  protected void send (int type, int arg, long fingerprint, ChoicePath path){
+    try {
+      DistributedCoordinator.writeMessage(out, type, arg, fingerprint, path);
+    } catch (IOException iox){
+      throw new JPFException("cannot send to distributed search coordinator: " + iox.getMessage());
+    }
+  }
+
+  protected DistributedCoordinator.Message nextUnit (){
+    try {
+      DistributedCoordinator.Message unit = pendingUnits.poll();
+      if (unit == null){
+        out.flush();
+        unit = pendingUnits.take();
+      }
+      return unit;
+
+    } catch (IOException iox){
+      throw new JPFException("cannot send to distributed search coordinator: " + iox.getMessage());
+    } catch (InterruptedException ix){
+      throw new JPFException("distributed search worker interrupted");
+    }
+  }
+
+  protected void work (){
+    RestorableVMState initState = vm.getRestorableState();
+
+    notifySearchStarted();
+    connect();
+
+    try {
+      for (DistributedCoordinator.Message unit = nextUnit();
+              unit.type == DistributedCoordinator.UNIT && !done; unit = nextUnit()){
+        nReceivedUnits++;
+
+        // the root unit is the only one without a fingerprint
+        if (unit.path.length() > 0 && stateSet.isVisited(unit.fingerprint)){
+          nVisitedUnits++;
+          send(DistributedCoordinator.DONE, 0, 0, null);
+          continue;
+        }
+
+        int n = nNewStates;
+        if (moveTo(unit.path, initState)){
+          searchSubtree();
+          lastPath = unit.path;
+        } else {
+          lastPath = null;
+        }
+
+        send(DistributedCoordinator.DONE, nNewStates - n, 0, null);
+        out.flush(); // don't hold back units other workers might be waiting for
+      }
+
+      out.flush();
+      socket.close();
+
+    } catch (IOException iox){
+      throw new JPFException("distributed search worker failed to close connection: " + iox.getMessage());
+    }
+
+    log.info("distributed search worker ", workerId, " explored ", nNewStates, " new states in ",
+            nReceivedUnits, " units (", nVisitedUnits, " already visited), sent ", nSentUnits, " units");
+
+    notifySearchFinished();
+  }
+
+  /**
+   * the depth of the current state if it can be reached by backtracking and
+   * the CG chain has one (non-cascaded) CG per transition, -1 otherwise
+   */
+  protected int getLinearDepth (ChoiceGenerator<?>[] cgs){
+    if (cgs == null || (cgs.length != depth && cgs.length != depth+1)){
+      return -1;
+    }
+    for (ChoiceGenerator<?> cg : cgs){
+      if (cg.isCascaded() || cg.getCascadedParent() != null){
+        return -1;
+      }
+    }
+    return depth;
+  }
+
+  /**
+   * get to the end of 'path'. If it shares a prefix with the last unit, we
+   * backtrack to the state where the paths diverge and only re-execute the
+   * remaining choices, otherwise we start over from the initial state
+   */
+  protected boolean moveTo (ChoicePath path, RestorableVMState initState){
+    if (lastPath != null){
+      ChoiceGenerator<?>[] cgs = vm.getChoiceGenerators();
+      int k = path.getCommonPrefixLength(lastPath);
+
+      // after backtracking to depth k, the current CG is the one at index k
+      if (k < path.length() && k < cgs.length && getLinearDepth(cgs) >= k){
+        while (depth > k){
+          backtrack();
+          depth--;
+        }
+
+        ChoiceGenerator<?> cg = vm.getChoiceGenerator();
+        if (cg == cgs[k]){
+          cg.reset();
+          return replay(path.getSuffix(k));
+        }
+      }
+
+      vm.restoreState(initState);
+      vm.resetNextCG();
+      depth = 0;
+    }
+
+    return replay(path);
+  }
+
+  /**
+   * hand off states that are owned by other workers
+   */
+  @Override
+  protected void stateReached (){
+    if (currentError == null && !isIgnoredState() && stateSet.isForeignState()){
+      send(DistributedCoordinator.UNIT, stateSet.getLastOwner(), stateSet.getLastHash(), ChoicePath.getCurrent(vm));
+      nSentUnits++;
+    }
+  }
+
+  @Override
+  protected boolean handleError (){
+    boolean isTerminating = super.handleError();
+    send(DistributedCoordinator.ERROR, 0, stateSet.getLastHash(), errorPaths.get(errorPaths.size()-1));
+    return isTerminating;
+  }
+
+  public long getNumberOfWorkerStates(){
+    return nWorkerStates;
+  }
+
+  public long getNumberOfWorkerUnits(){
+    return nWorkerUnits;
+  }
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.util.IntVector;
+import gov.nasa.jpf.vm.ConcurrentJenkinsStateSet;
+import gov.nasa.jpf.vm.PartitionedStateSet;
+import gov.nasa.jpf.vm.RestorableVMState;
+import gov.nasa.jpf.vm.VM;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * a depth first search that uses several host VM processes to explore
+ * the subtrees of the state space in parallel.
+ *
+ * The search runs in three phases:
+ *
+ *  (1) the master (this search) does a normal DFS up to 'search.parallel.split_depth',
+ *      recording a ChoicePath for each new (non-end) state at this depth
+ *  (2) the recorded paths are sent as initial work units to 'search.parallel.workers'
+ *      JPF worker processes, which explore them like DistributedSearch workers do
+ *  (3) choice paths of property violations found by workers are replayed by the
+ *      master, so that errors are reported (and published) as if they were found
+ *      by a normal DFSearch
+ *
+ * The visited states are shared: the master uses a ConcurrentJenkinsStateSet,
+ * whose (non-unit) states are handed to the workers as already explored. During
+ * phase 2 the master is the DistributedCoordinator of the workers, which
+ * partition the states below the split depth by fingerprint ownership (see
+ * PartitionedStateSet). The coordinator reader threads add the fingerprints of
+ * all routed units to the master state set, and drop units for states that were
+ * already routed or explored by the master. The total number of explored states
+ * is therefore the same as for DFSearch (see getNumberOfStates()).
+ *
+ * Each property violation state is only reported once, i.e. worker errors are
+ * deduplicated by the fingerprint of their end state before they are replayed.
+ * This differs from DFSearch, which reports every transition into a violating
+ * state if 'search.multiple_errors' is set.
+ *
+ * SearchListeners are notified per process, i.e. the master listeners only see
+ * the phase 1 and phase 3 states. Worker output goes into log files within
+ * 'search.parallel.dir' (a temp dir if not set)
+ *
+ * Workers are started with the same command line arguments as the master, which
+ * therefore has to be started from a command line (config.getArgs() != null). If
+ * this is not the case, we fall back to a sequential search of the whole space
+ */
+public class ParallelDFSearch extends Search {
+
+  protected int nWorkers;
+  protected int splitDepth;
+  protected int connectTimeout; // msec
+  protected File workDir;
+
+  protected ConcurrentJenkinsStateSet stateSet;
+  protected ChoicePathReplayer replayer;
+  protected ArrayList<ChoicePath> units = new ArrayList<ChoicePath>();
+  protected IntVector unitIds = new IntVector();
+  protected IntVector errorIds = new IntVector(); // phase 1 error states
+
+  // aggregated worker results
+  protected int nTopLevelStates;
+  protected long nWorkerStates;
+  protected ArrayList<ChoicePath> errorPaths = new ArrayList<ChoicePath>();
+
+  public ParallelDFSearch (Config config, VM vm) {
+    super(config, vm);
+
+    nWorkers = config.getInt("search.parallel.workers", Runtime.getRuntime().availableProcessors());
+    splitDepth = config.getInt("search.parallel.split_depth", 5);
+    connectTimeout = config.getInt("search.parallel.connect_timeout", 60) * 1000;
+
+    String dir = config.getString("search.parallel.dir");
+    if (dir != null){
+      workDir = new File(dir);
+    }
+
+    // the workers use the same fingerprints, see PartitionedStateSet
+    stateSet = new ConcurrentJenkinsStateSet();
+    vm.setStateSet(stateSet);
+
+    replayer = new ChoicePathReplayer();
+    vm.addListener(replayer);
+  }
+
+  @Override
+  public boolean requestBacktrack () {
+    doBacktrack = true;
+    return true;
+  }
+
+  @Override
+  public void search () {
+    RestorableVMState initState = vm.getRestorableState();
+    boolean isParallel = (nWorkers > 1) && WorkerProcess.isSupported(config);
+
+    if (!isParallel){
+      log.warning("no parallel workers, falling back to sequential search");
+    }
+
+    notifySearchStarted();
+
+    if (searchTopLevel(isParallel ? splitDepth : Integer.MAX_VALUE)){
+      nTopLevelStates = stateSet.size() - units.size();
+
+      if (!units.isEmpty()){
+        runWorkers();
+
+        if (!errorPaths.isEmpty()){
+          replayErrors(initState);
+        }
+      }
+    } else {
+      nTopLevelStates = stateSet.size();
+    }
+
+    notifySearchFinished();
+  }
+
+  /**
+   * phase 1 - the DFSearch loop, with the difference that we don't descend below
+   * 'maxDepth' but store the choice paths of the respective states instead
+   *
+   * @return false if the search was terminated
+   */
+  protected boolean searchTopLevel (int maxDepth){
+    boolean depthLimitReached = false;
+    boolean isSplitState = false;
+
+    depth = 0;
+
+    while (!done) {
+      if (checkAndResetBacktrackRequest() || !isNewState() || isEndState() || isIgnoredState()
+              || depthLimitReached || isSplitState) {
+        if (!backtrack()) {
+          return true;
+        }
+
+        depthLimitReached = false;
+        isSplitState = false;
+        depth--;
+        notifyStateBacktracked();
+      }
+
+      if (forward()) {
+        depth++;
+        notifyStateAdvanced();
+
+        if (currentError != null){
+          int id = vm.getStateId();
+          if (id < 0 || errorIds.addIfAbsent(id)){ // report each error state only once
+            notifyPropertyViolated();
+
+            if (hasPropertyTermination()) {
+              return false;
+            }
+          }
+        }
+
+        if (depth >= depthLimit) {
+          depthLimitReached = true;
+          notifySearchConstraintHit("depth limit reached: " + depthLimit);
+          continue;
+        }
+
+        if (depth >= maxDepth && isNewState() && !isEndState() && !isIgnoredState()){
+          units.add(ChoicePath.getCurrent(vm));
+          unitIds.add(vm.getStateId());
+          isSplitState = true;
+          continue;
+        }
+
+        if (!checkStateSpaceLimit()) {
+          notifySearchConstraintHit("memory limit reached: " + minFreeMemory);
+          return false;
+        }
+
+      } else {
+        notifyStateProcessed();
+      }
+    }
+
+    return false;
+  }
+
+  protected File getWorkDir (){
+    if (workDir == null){
+      try {
+        workDir = Files.createTempDirectory("jpf-parallel").toFile();
+      } catch (IOException iox){
+        throw new JPFException("cannot create work dir for parallel search: " + iox.getMessage());
+      }
+    } else if (!workDir.isDirectory() && !workDir.mkdirs()){
+      throw new JPFException("cannot create work dir for parallel search: " + workDir);
+    }
+
+    return workDir;
+  }
+
+  /**
+   * write the fingerprints of all top level states except of the units, which
+   * the workers have to explore (in FingerprintStateSet format)
+   */
+  protected void writeVisited (File file, long[] fps, boolean[] isUnit){
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(fps.length - units.size());
+      for (int i=0; i<fps.length; i++){
+        if (!isUnit[i]){
+          out.writeLong(fps[i]);
+        }
+      }
+    } catch (IOException iox){
+      throw new JPFException("cannot write visited states for parallel search: " + iox.getMessage());
+    }
+  }
+
+  /**
+   * phase 2 - send the choice paths to the owners of their states, and route units
+   * between the worker processes until all of them are explored
+   */
+  protected void runWorkers (){
+    File dir = getWorkDir();
+    int n = Math.min(nWorkers, units.size());
+
+    long[] fps = stateSet.getFingerprints();
+    boolean[] isUnit = new boolean[fps.length];
+    for (int i=0; i<unitIds.size(); i++){
+      isUnit[unitIds.get(i)] = true;
+    }
+
+    File visitedFile = new File(dir, "visited.fp");
+    writeVisited(visitedFile, fps, isUnit);
+
+    DistributedCoordinator coordinator = new DistributedCoordinator(n, !getAllErrors);
+    for (int i=0; i<units.size(); i++){
+      long fp = fps[unitIds.get(i)];
+      coordinator.addInitialUnit(PartitionedStateSet.getOwner(fp, n), fp, units.get(i));
+    }
+    coordinator.setRoutedStates(stateSet);
+
+    WorkerProcess[] workers = new WorkerProcess[n];
+
+    try {
+      String address = coordinator.bind(null, 0);
+      log.info("starting ", n, " workers for ", units.size(), " subtrees in ", dir);
+
+      for (int i=0; i<n; i++){
+        workers[i] = new WorkerProcess(config, i, new File(dir, "worker" + i + ".log"),
+                "search.class=" + DistributedSearch.class.getName(),
+                "search.distributed.workers=" + n,
+                "search.distributed.id=" + i,
+                "search.distributed.coordinator=" + address,
+                "search.distributed.visited=" + visitedFile.getAbsolutePath());
+        workers[i].start();
+      }
+
+      coordinator.acceptWorkers(connectTimeout);
+      coordinator.run();
+
+      for (WorkerProcess w : workers){
+        w.waitFor();
+      }
+
+    } finally {
+      for (WorkerProcess w : workers){
+        if (w != null){
+          w.destroy();
+        }
+      }
+      coordinator.close();
+    }
+
+    nWorkerStates = coordinator.getNumberOfNewStates();
+    log.info("parallel search workers explored ", nWorkerStates, " new states");
+
+    // each error state is only reported once
+    HashSet<Long> errorStates = new HashSet<Long>();
+    for (int i=0; i<errorIds.size(); i++){
+      int id = errorIds.get(i);
+      if (id >= 0 && id < fps.length){
+        errorStates.add(fps[id]);
+      }
+    }
+
+    List<ChoicePath> paths = coordinator.getErrorPaths();
+    for (int i=0; i<paths.size(); i++){
+      if (errorStates.add(coordinator.getErrorFingerprint(i))){
+        errorPaths.add(paths.get(i));
+      }
+    }
+  }
+
+  /**
+   * phase 3 - re-execute the error paths reported by workers so that
+   * our own listeners and publishers see the property violations
+   */
+  protected void replayErrors (RestorableVMState initState){
+    for (ChoicePath path : errorPaths){
+      if (done){
+        break;
+      }
+
+      vm.restoreState(initState);
+      vm.resetNextCG();
+      depth = 0;
+
+      boolean reproduced = false;
+      replayer.start(vm, path);
+      while (replayer.isReplaying() && forward()){
+        depth++;
+        notifyStateAdvanced();
+
+        if (currentError != null){
+          reproduced = true;
+          replayer.stop(vm);
+          notifyPropertyViolated();
+          hasPropertyTermination();
+          break;
+        }
+      }
+
+      if (!reproduced){
+        replayer.stop(vm);
+        log.warning("failed to reproduce worker error for choice path: ", path);
+      }
+    }
+  }
+
+  public List<ChoicePath> getSubtreePaths(){
+    return units;
+  }
+
+  public long getNumberOfWorkerStates(){
+    return nWorkerStates;
+  }
+
+  /**
+   * number of distinct states explored by the master and all workers,
+   * including the initial state
+   */
+  public long getNumberOfStates(){
+    return nTopLevelStates + nWorkerStates;
+  }
+
+  @Override
+  public boolean supportsBacktrack () {
+    return true;
+  }
+}
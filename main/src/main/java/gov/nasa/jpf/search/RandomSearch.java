@@ -19,9 +19,18 @@ package gov.nasa.jpf.search;
 
 
 import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFException;
 import gov.nasa.jpf.vm.VM;
 import gov.nasa.jpf.vm.RestorableVMState;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 
 /**
  * this is a straight execution pseudo-search - it doesn't search at
@@ -29,64 +38,169 @@ import gov.nasa.jpf.vm.RestorableVMState;
  * going forward() until there is no next state then it restarts the search 
  * until it hits a certain number of paths executed
  *
- * <2do> this needs to be updated & tested
+ * Choices are picked at random from each CG with a seeded random generator
+ * ('search.RandomSearch.seed'), i.e. runs are reproducible and the choice
+ * paths of errors can be replayed by other searches. Optionally, results
+ * (path and state counts, error paths) are written to
+ * 'search.RandomSearch.results', and the search stops before starting a new
+ * path if 'search.RandomSearch.stop_file' exists. This is what SwarmSearch
+ * workers use
+ *
  */
 public class RandomSearch extends Search {
-  int path_limit = 0;
-  
+
+  // how often do we check for the stop file within a path
+  static final int STOP_CHECK_MASK = 0x3ff;
+
+  protected int pathLimit;
+  protected long seed;
+  protected Random random;
+
+  protected File stopFile;
+  protected String resultPath;
+
+  protected int nPaths;
+  protected int nNewStates;
+  protected int nEndStates;
+  protected int maxPathDepth;
+  protected ArrayList<ChoicePath> errorPaths = new ArrayList<ChoicePath>();
+
   public RandomSearch (Config config, VM vm) {
     super(config, vm);
-    
-    path_limit = config.getInt("search.RandomSearch.path_limit", 0);
+
+    // values < 1 still execute one path, as before
+    pathLimit = Math.max(1, config.getInt("search.RandomSearch.path_limit", 1));
+    seed = config.getLong("search.RandomSearch.seed", 42);
+    random = new Random(seed);
+    vm.setChoiceRandom(random); // the VM picks the choices before listeners see them
+
+    String stopPath = config.getString("search.RandomSearch.stop_file");
+    if (stopPath != null){
+      stopFile = new File(stopPath);
+    }
+    resultPath = config.getString("search.RandomSearch.results");
   }
-  
+
   @Override
   public void search () {
-    int    depth = 0;
-    int paths = 0;
-    depth++;
-    
-    if (hasPropertyTermination()) {
-      return;
-    }
-    
-    //vm.forward();
-    RestorableVMState init_state = vm.getRestorableState();
-    
+    RestorableVMState initState = vm.getRestorableState();
+
     notifySearchStarted();
+
     while (!done) {
-      if ((depth < depthLimit) && forward()) {
+      depth = 0;
+      executePath();
+      nPaths++;
+
+      if (depth > maxPathDepth){
+        maxPathDepth = depth;
+      }
+
+      if (done || nPaths >= pathLimit || isStopRequested()){
+        break;
+      }
+
+      vm.restoreState(initState);
+      vm.resetNextCG();
+    }
+
+    log.info("random search paths: ", nPaths, ", new states: ", nNewStates);
+
+    writeResults();
+    notifySearchFinished();
+  }
+
+  protected void executePath (){
+    while (!done) {
+      if (checkAndResetBacktrackRequest() || isIgnoredState()){
+        return;
+      }
+      if ((depth & STOP_CHECK_MASK) == STOP_CHECK_MASK && isStopRequested()){
+        return; // don't wait for the end of very long paths
+      }
+      if (isEndState()){
+        nEndStates++;
+        return;
+      }
+
+      if (forward()) {
+        depth++;
+        if (isNewState()){
+          nNewStates++;
+        }
         notifyStateAdvanced();
 
         if (currentError != null){
+          errorPaths.add(ChoicePath.getCurrent(vm));
           notifyPropertyViolated();
-
-          if (hasPropertyTermination()) {
-            return;
+          if (!hasPropertyTermination()){
+            checkAndResetBacktrackRequest(); // we search for multiple errors, next path
           }
+          return;
         }
 
-        if (isEndState()){
+        if (depth >= depthLimit) {
+          notifySearchConstraintHit("depth limit reached: " + depthLimit);
           return;
         }
 
-        depth++;
+        if (!checkStateSpaceLimit()) {
+          notifySearchConstraintHit("memory limit reached: " + minFreeMemory);
+          done = true;
+          return;
+        }
 
-      } else { // no next state or reached depth limit
+      } else { // no next state
         // <2do> we could check for more things here. If the last insn wasn't
         // the main return, or a System.exit() call, we could flag a JPFException
-        if (depth >= depthLimit) {
-          notifySearchConstraintHit("depth limit reached: " + depthLimit);
+        notifyStateProcessed();
+        return;
+      }
+    }
+  }
+
+  protected boolean isStopRequested (){
+    return (stopFile != null) && stopFile.exists();
+  }
+
+  protected void writeResults(){
+    if (resultPath != null){
+      try (PrintWriter pw = new PrintWriter(new FileWriter(resultPath))) {
+        pw.println("# RandomSearch results");
+        pw.print("seed ");
+        pw.println(seed);
+        pw.print("paths ");
+        pw.println(nPaths);
+        pw.print("states ");
+        pw.println(nNewStates);
+        pw.print("end ");
+        pw.println(nEndStates);
+        pw.print("depth ");
+        pw.println(maxPathDepth);
+        for (ChoicePath p : errorPaths){
+          pw.print("error ");
+          pw.println(p);
         }
-        checkPropertyViolation();
-        done = (paths >= path_limit);
-        paths++;
-        System.out.println("paths = " + paths);
-        depth = 1;
-        vm.restoreState(init_state);
-        vm.resetNextCG();
+      } catch (IOException iox){
+        throw new JPFException("error writing random search results: " + iox.getMessage());
       }
     }
-    notifySearchFinished();
+  }
+
+  public int getNumberOfPaths(){
+    return nPaths;
+  }
+
+  public int getNumberOfNewStates(){
+    return nNewStates;
+  }
+
+  public List<ChoicePath> getErrorPaths(){
+    return errorPaths;
+  }
+
+  @Override
+  public boolean supportsBacktrack () {
+    return false;
   }
 }
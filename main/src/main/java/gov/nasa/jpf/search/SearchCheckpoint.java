@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.report.Statistics;
+import gov.nasa.jpf.vm.FingerprintStateSet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * persistent snapshot of a running search that can be used to resume it after
+ * the host VM died. A checkpoint consists of
+ *
+ *  - the choice path of the current state, i.e. the choice indices of all CGs
+ *    on the SystemState CG stack. Re-executing this path rebuilds the backtrack
+ *    stack, and the CG positions determine which siblings remain to be explored
+ *  - the choice paths of all errors found so far, which are replayed by the
+ *    resumed search so that they are reported again
+ *  - the fingerprints of all visited states
+ *  - the search counters of the Statistics listener, if there is one
+ *
+ * Checkpoints are written to a temp file that replaces the previous checkpoint
+ * once it is complete, i.e. we never end up with a truncated checkpoint if
+ * the process gets killed while writing
+ */
+public class SearchCheckpoint {
+
+  static final long MAGIC = 0x4a504643484b5054L; // "JPFCHKPT"
+  static final int VERSION = 1;
+
+  protected ChoicePath path;
+  protected List<ChoicePath> errorPaths;
+
+  protected FingerprintStateSet stateSet;
+
+  public SearchCheckpoint (ChoicePath path, List<ChoicePath> errorPaths, FingerprintStateSet stateSet){
+    this.path = path;
+    this.errorPaths = errorPaths;
+    this.stateSet = stateSet;
+  }
+
+  public SearchCheckpoint (ChoicePath path, FingerprintStateSet stateSet){
+    this(path, new ArrayList<ChoicePath>(), stateSet);
+  }
+
+  public ChoicePath getPath(){
+    return path;
+  }
+
+  public List<ChoicePath> getErrorPaths(){
+    return errorPaths;
+  }
+
+  public void write (File file, Statistics stat){
+    File tmp = new File(file.getPath() + ".tmp");
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+      out.writeLong(MAGIC);
+      out.writeInt(VERSION);
+
+      writePath(out, path);
+
+      out.writeInt(errorPaths.size());
+      for (ChoicePath p : errorPaths){
+        writePath(out, p);
+      }
+
+      out.writeBoolean(stat != null);
+      if (stat != null){
+        out.writeLong(stat.newStates);
+        out.writeLong(stat.visitedStates);
+        out.writeLong(stat.backtracked);
+        out.writeLong(stat.endStates);
+        out.writeLong(stat.restored);
+        out.writeInt(stat.processed);
+        out.writeInt(stat.constraints);
+        out.writeInt(stat.maxDepth);
+      }
+
+      stateSet.writeFingerprints(out);
+
+    } catch (IOException iox){
+      throw new JPFException("cannot write search checkpoint " + tmp + ": " + iox.getMessage());
+    }
+
+    try {
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException iox){
+      throw new JPFException("cannot replace search checkpoint " + file + ": " + iox.getMessage());
+    }
+  }
+
+  static void writePath (DataOutputStream out, ChoicePath path) throws IOException {
+    int len = path.length();
+    out.writeInt(len);
+    for (int i=0; i<len; i++){
+      out.writeInt(path.get(i));
+    }
+  }
+
+  static ChoicePath readPath (DataInputStream in) throws IOException {
+    int len = in.readInt();
+    int[] choices = new int[len];
+    for (int i=0; i<len; i++){
+      choices[i] = in.readInt();
+    }
+    return new ChoicePath(choices);
+  }
+
+  /**
+   * read a checkpoint, replacing the contents of the provided state set and
+   * the counters of 'stat' (if not null)
+   */
+  public static SearchCheckpoint read (File file, FingerprintStateSet stateSet, Statistics stat){
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readLong() != MAGIC){
+        throw new JPFException("not a search checkpoint: " + file);
+      }
+      int version = in.readInt();
+      if (version != VERSION){
+        throw new JPFException("unsupported search checkpoint version " + version + ": " + file);
+      }
+
+      ChoicePath path = readPath(in);
+
+      int nErrors = in.readInt();
+      ArrayList<ChoicePath> errorPaths = new ArrayList<ChoicePath>(nErrors);
+      for (int i=0; i<nErrors; i++){
+        errorPaths.add(readPath(in));
+      }
+
+      if (in.readBoolean()){
+        long newStates = in.readLong();
+        long visitedStates = in.readLong();
+        long backtracked = in.readLong();
+        long endStates = in.readLong();
+        long restored = in.readLong();
+        int processed = in.readInt();
+        int constraints = in.readInt();
+        int maxDepth = in.readInt();
+
+        if (stat != null){
+          stat.newStates = newStates;
+          stat.visitedStates = visitedStates;
+          stat.backtracked = backtracked;
+          stat.endStates = endStates;
+          stat.restored = restored;
+          stat.processed = processed;
+          stat.constraints = constraints;
+          stat.maxDepth = maxDepth;
+        }
+      }
+
+      stateSet.readFingerprints(in);
+
+      return new SearchCheckpoint(path, errorPaths, stateSet);
+
+    } catch (IOException iox){
+      throw new JPFException("cannot read search checkpoint " + file + ": " + iox.getMessage());
+    }
+  }
+}
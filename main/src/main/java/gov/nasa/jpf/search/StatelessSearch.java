@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.RestorableVMState;
+import gov.nasa.jpf.vm.VM;
+
+import java.util.ArrayList;
+
+/**
+ * a depth first search that does not store or match states. Instead of
+ * backtracking, each new path is re-executed from the initial state along
+ * the choice prefix it shares with the previous path (using a ChoicePathReplayer),
+ * i.e. we trade execution time for memory that only depends on the search depth.
+ *
+ * This is mostly useful for concurrency models with state spaces that are too
+ * large to be stored, especially in combination with the DPORScheduler, which
+ * uses sleep sets to avoid re-exploring equivalent interleavings. Since there
+ * is no state matching, state spaces with cycles require a 'search.depth_limit'.
+ *
+ * We keep a copy of the first CG instance of each choice level, which is what
+ * determines the remaining choices. CGs that are re-created during replay only
+ * have to support select() with the same choice index
+ */
+public class StatelessSearch extends Search {
+
+  protected ChoicePathReplayer replayer;
+
+  // the CGs that determine the remaining choices of each level on the current path
+  protected ArrayList<ChoiceGenerator<?>> levels = new ArrayList<ChoiceGenerator<?>>();
+
+  protected int nPaths;
+  protected int nFailedReplays;
+  protected long nReplayedTransitions;
+
+  public StatelessSearch (Config config, VM vm) {
+    super(config, vm);
+
+    replayer = new ChoicePathReplayer();
+    vm.addListener(replayer);
+
+    if (vm.getStateSet() != null){
+      log.info("StatelessSearch turns off state matching");
+      vm.setStateSet(null);
+    }
+  }
+
+  @Override
+  public boolean requestBacktrack () {
+    doBacktrack = true;
+    return true;
+  }
+
+  @Override
+  public void search () {
+    RestorableVMState initState = vm.getRestorableState();
+    depth = 0;
+
+    notifySearchStarted();
+
+    boolean advanced = false;
+    while (!done) {
+      if (!executePath(advanced)){
+        break;
+      }
+      nPaths++;
+
+      ChoicePath next = getNextPath();
+      if (next == null){
+        break;
+      }
+
+      vm.restoreState(initState);
+      vm.resetNextCG();
+
+      if (!replay(next)){
+        break;
+      }
+      advanced = true;
+    }
+
+    log.info("stateless search paths: ", nPaths, ", replayed transitions: ", nReplayedTransitions);
+    notifySearchFinished();
+  }
+
+  /**
+   * go forward until we hit the end of the path, an error or a search constraint.
+   * If 'advanced' is set, the last transition was not yet checked, which is
+   * the case for the new transition at the end of a replayed prefix.
+   * Answer if the search should continue
+   */
+  protected boolean executePath (boolean advanced){
+    while (!done) {
+      if (advanced){
+        advanced = false;
+        notifyStateAdvanced();
+
+        if (currentError != null){
+          notifyPropertyViolated();
+          if (hasPropertyTermination()){
+            return false;
+          }
+          break;
+        }
+
+        if (depth >= depthLimit) {
+          notifySearchConstraintHit("depth limit reached: " + depthLimit);
+          break;
+        }
+
+        if (!checkStateSpaceLimit()) {
+          notifySearchConstraintHit("memory limit reached: " + minFreeMemory);
+          return false;
+        }
+      }
+
+      if (checkAndResetBacktrackRequest() || isEndState() || isIgnoredState()){
+        break;
+      }
+
+      if (forward()) {
+        depth++;
+        advanced = true;
+
+      } else { // forward did not execute any instructions
+        notifyStateProcessed();
+        break;
+      }
+    }
+
+    return !done;
+  }
+
+  /**
+   * update the choice levels with the CGs of the current path and compute the
+   * prefix of the next path, i.e. advance the deepest level that has choices left.
+   * Answer null if there are none
+   */
+  protected ChoicePath getNextPath (){
+    ChoiceGenerator<?>[] cgs = vm.getChoiceGenerators();
+    if (cgs != null){
+      for (int i=levels.size(); i<cgs.length; i++){
+        levels.add(getLevel(cgs[i]));
+      }
+    }
+
+    int j = levels.size()-1;
+    for (; j >= 0; j--){
+      if (levels.get(j).hasMoreChoices()){
+        break;
+      }
+    }
+
+    for (int i=levels.size()-1; i>j; i--){
+      levels.remove(i);
+    }
+
+    if (j < 0){
+      return null;
+    }
+
+    levels.get(j).advance();
+
+    int[] a = new int[j+1];
+    for (int i=0; i<=j; i++){
+      a[i] = levels.get(i).getProcessedNumberOfChoices() -1;
+    }
+
+    return new ChoicePath(a);
+  }
+
+  /**
+   * CGs get re-used (e.g. the root CG) or select()ed when we replay, which
+   * would change their remaining choices. We therefore enumerate on copies
+   */
+  protected ChoiceGenerator<?> getLevel (ChoiceGenerator<?> cg){
+    try {
+      return cg.clone();
+    } catch (CloneNotSupportedException x){
+      return cg;
+    }
+  }
+
+  /**
+   * re-execute the path from the current (initial) state. Answer if we
+   * reached the end of the path, in which case the last forward() has already
+   * executed the first transition that was not on the previous path
+   */
+  protected boolean replay (ChoicePath path){
+    depth = 0;
+    replayer.start(vm, path);
+
+    while (replayer.isReplaying()){
+      if (!forward()){
+        break;
+      }
+      depth++;
+      nReplayedTransitions++;
+    }
+
+    if (replayer.hasFailed() || replayer.isReplaying()){
+      // the SUT did not re-execute deterministically, we can't go on since all
+      // subsequent paths are based on the same levels
+      replayer.stop(vm);
+      log.warning("failed to replay choice path: ", path);
+      nFailedReplays++;
+      return false;
+    }
+
+    nReplayedTransitions--; // the last one was already the first new transition
+    notifyStateRestored();
+    return true;
+  }
+
+  /**
+   * the choice path of the current state, which can be used to resume the search
+   */
+  public ChoicePath getChoicePath (){
+    return ChoicePath.getCurrent(vm);
+  }
+
+  public int getNumberOfPaths (){
+    return nPaths;
+  }
+
+  public long getNumberOfReplayedTransitions (){
+    return nReplayedTransitions;
+  }
+
+  public int getNumberOfFailedReplays (){
+    return nFailedReplays;
+  }
+
+  @Override
+  public boolean supportsBacktrack () {
+    return false;
+  }
+}
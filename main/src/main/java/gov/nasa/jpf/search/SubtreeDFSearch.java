@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.vm.RestorableVMState;
+import gov.nasa.jpf.vm.VM;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * depth first search that is confined to the subtrees below a list of
+ * ChoicePaths (read from 'search.subtree.units'). Each path is replayed from
+ * the initial state, and then explored like DFSearch does, sharing the same
+ * state set between all subtrees.
+ *
+ * This is the base of DistributedSearch (and hence ParallelDFSearch) workers.
+ * If it runs standalone, results are written to the file specified by
+ * 'search.subtree.results', which contains the number of new states and the
+ * choice paths of all detected property violations
+ */
+public class SubtreeDFSearch extends Search {
+
+  protected ChoicePathReplayer replayer;
+  protected List<ChoicePath> units;
+  protected String resultPath;
+
+  protected int nNewStates;
+  protected int nFailedUnits;
+  protected ArrayList<ChoicePath> errorPaths = new ArrayList<ChoicePath>();
+
+  public SubtreeDFSearch (Config config, VM vm) {
+    super(config, vm);
+
+    replayer = new ChoicePathReplayer();
+    vm.addListener(replayer);
+
+    String unitsPath = config.getString("search.subtree.units");
+    if (unitsPath != null){
+      units = ChoicePath.readPaths(new File(unitsPath));
+    } else {
+      units = Collections.singletonList(new ChoicePath());
+    }
+
+    resultPath = config.getString("search.subtree.results");
+  }
+
+  @Override
+  public boolean requestBacktrack () {
+    doBacktrack = true;
+    return true;
+  }
+
+  @Override
+  public void search () {
+    RestorableVMState initState = vm.getRestorableState();
+
+    notifySearchStarted();
+
+    for (int i=0; i<units.size() && !done; i++){
+      if (i > 0){
+        vm.restoreState(initState);
+        vm.resetNextCG();
+        depth = 0;
+      }
+
+      if (replay(units.get(i))){
+        searchSubtree();
+      }
+    }
+
+    writeResults();
+    notifySearchFinished();
+  }
+
+  /**
+   * re-execute the path from the current state (usually the initial state),
+   * without any state matching. Answer if we reached the end of the path
+   */
+  protected boolean replay (ChoicePath path){
+    replayer.start(vm, path);
+
+    while (replayer.isReplaying()){
+      if (!forward()){
+        break;
+      }
+      depth++;
+
+      if (currentError != null){
+        // this is a violation on the path, which should have been detected by
+        // whoever created the path. Report it anyways, but don't search the subtree
+        replayer.stop(vm);
+        handleError();
+        return false;
+      }
+    }
+
+    if (replayer.hasFailed() || replayer.isReplaying()){
+      replayer.stop(vm);
+      log.warning("failed to replay choice path: ", path);
+      nFailedUnits++;
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * the DFSearch loop, which terminates when we backtrack above the
+   * state from which the subtree search was started
+   */
+  protected void searchSubtree (){
+    int baseDepth = depth;
+    boolean depthLimitReached = (depth >= depthLimit);
+
+    if (isNewState()){
+      nNewStates++;
+    }
+
+    while (!done) {
+      if (checkAndResetBacktrackRequest() || !isNewState() || isEndState() || isIgnoredState() || depthLimitReached ) {
+        if (depth == baseDepth || !backtrack()) {
+          break;
+        }
+
+        depthLimitReached = false;
+        depth--;
+        notifyStateBacktracked();
+      }
+
+      if (forward()) {
+        depth++;
+        notifyStateAdvanced();
+
+        if (isNewState()){
+          nNewStates++;
+        }
+        stateReached();
+
+        if (currentError != null){
+          if (handleError()){
+            break;
+          }
+        }
+
+        if (depth >= depthLimit) {
+          depthLimitReached = true;
+          notifySearchConstraintHit("depth limit reached: " + depthLimit);
+          continue;
+        }
+
+        if (!checkStateSpaceLimit()) {
+          notifySearchConstraintHit("memory limit reached: " + minFreeMemory);
+          done = true;
+          break;
+        }
+
+      } else { // forward did not execute any instructions
+        notifyStateProcessed();
+      }
+    }
+  }
+
+  /**
+   * called after each forward within the subtree, before the search decides if
+   * it has to backtrack. The default does nothing
+   */
+  protected void stateReached(){
+    // nothing here
+  }
+
+  // answers if the search should terminate
+  protected boolean handleError(){
+    errorPaths.add(ChoicePath.getCurrent(vm));
+    notifyPropertyViolated();
+    return hasPropertyTermination();
+  }
+
+  protected void writeResults(){
+    if (resultPath != null){
+      try (PrintWriter pw = new PrintWriter(new FileWriter(resultPath))) {
+        pw.println("# SubtreeDFSearch results");
+        pw.print("units ");
+        pw.println(units.size());
+        pw.print("failed ");
+        pw.println(nFailedUnits);
+        pw.print("states ");
+        pw.println(nNewStates);
+        for (ChoicePath p : errorPaths){
+          pw.print("error ");
+          pw.println(p);
+        }
+      } catch (IOException iox){
+        throw new JPFException("error writing subtree search results: " + iox.getMessage());
+      }
+    }
+  }
+
+  public int getNumberOfNewStates(){
+    return nNewStates;
+  }
+
+  public List<ChoicePath> getErrorPaths(){
+    return errorPaths;
+  }
+
+  @Override
+  public boolean supportsBacktrack () {
+    return true;
+  }
+}
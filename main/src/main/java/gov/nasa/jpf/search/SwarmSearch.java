@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFConfigException;
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.vm.RestorableVMState;
+import gov.nasa.jpf.vm.VM;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+/**
+ * swarm verification - a number of diversified RandomSearch workers that run
+ * in parallel, each with its own seed (which determines the choice order) and
+ * depth limit. This does not give any coverage guarantees, but bug finding
+ * throughput on large models scales with the number of workers instead of
+ * depending on how lucky a single search order is.
+ *
+ * Workers are separate host VM processes (see WorkerProcess), each one executing
+ * up to 'search.swarm.path_limit' paths. Worker i uses seed
+ * 'search.RandomSearch.seed' + i and, if 'search.swarm.depth_limit' is set, a depth
+ * limit that is spread evenly between depth_limit/workers and depth_limit. As soon
+ * as a worker reports a property violation (unless 'search.multiple_errors' is set),
+ * or 'search.swarm.time_limit' seconds have passed, we tell all workers to stop.
+ * Since models without errors would otherwise never terminate, path_limit and
+ * time_limit cannot both be unlimited (<= 0).
+ * Property violations are replayed by the master so that they are reported like
+ * errors found by a normal search, the other worker results are aggregated.
+ *
+ * If there are no command line arguments to start workers with, we fall back to
+ * a sequential RandomSearch
+ */
+public class SwarmSearch extends RandomSearch {
+
+  static final long POLL_INTERVAL = 100; // msec
+
+  protected int nWorkers;
+  protected int swarmDepthLimit;  // 0 means the normal depth limit for all workers
+  protected int workerPathLimit;  // <= 0 means no limit, requires a timeLimit
+  protected long timeLimit;       // msec, <= 0 means no limit, requires a workerPathLimit
+  protected File workDir;
+
+  protected ChoicePathReplayer replayer;
+
+  // aggregated worker results
+  protected int nWorkerPaths;
+  protected int nWorkerStates;
+  protected int maxWorkerStates;
+  protected int nWorkerEndStates;
+  protected int maxWorkerDepth;
+
+  public SwarmSearch (Config config, VM vm) {
+    super(config, vm);
+
+    nWorkers = config.getInt("search.swarm.workers", Runtime.getRuntime().availableProcessors());
+    swarmDepthLimit = config.getInt("search.swarm.depth_limit", 0);
+    workerPathLimit = config.getInt("search.swarm.path_limit", 1000);
+    timeLimit = config.getLong("search.swarm.time_limit", 0) * 1000;
+    if (workerPathLimit <= 0 && timeLimit <= 0){
+      throw new JPFConfigException("swarm search needs a 'search.swarm.path_limit' or 'search.swarm.time_limit'");
+    }
+
+    String dir = config.getString("search.swarm.dir");
+    if (dir != null){
+      workDir = new File(dir);
+    }
+
+    replayer = new ChoicePathReplayer();
+    vm.addListener(replayer);
+  }
+
+  @Override
+  public void search () {
+    if ((nWorkers <= 1) || !WorkerProcess.isSupported(config)){
+      log.warning("no swarm workers, falling back to sequential random search");
+      super.search();
+      return;
+    }
+
+    RestorableVMState initState = vm.getRestorableState();
+
+    notifySearchStarted();
+
+    runWorkers();
+    if (!errorPaths.isEmpty()){
+      replayErrors(initState);
+    }
+
+    notifySearchFinished();
+  }
+
+  protected File getWorkDir (){
+    if (workDir == null){
+      try {
+        workDir = Files.createTempDirectory("jpf-swarm").toFile();
+      } catch (IOException iox){
+        throw new JPFException("cannot create work dir for swarm search: " + iox.getMessage());
+      }
+    } else if (!workDir.isDirectory() && !workDir.mkdirs()){
+      throw new JPFException("cannot create work dir for swarm search: " + workDir);
+    }
+
+    return workDir;
+  }
+
+  protected int getWorkerDepthLimit (int workerId){
+    return Math.max(1, (int)((long)swarmDepthLimit * (workerId+1) / nWorkers));
+  }
+
+  protected void runWorkers (){
+    File dir = getWorkDir();
+    File stop = new File(dir, "swarm.stop");
+    stop.delete();
+
+    log.info("starting swarm of ", nWorkers, " workers in ", dir);
+
+    WorkerProcess[] workers = new WorkerProcess[nWorkers];
+    File[] results = new File[nWorkers];
+    boolean[] finished = new boolean[nWorkers];
+
+    try {
+      for (int i=0; i<nWorkers; i++){
+        results[i] = new File(dir, "worker" + i + ".results");
+        results[i].delete();
+
+        ArrayList<String> overrides = new ArrayList<String>();
+        overrides.add("search.class=" + RandomSearch.class.getName());
+        overrides.add("search.RandomSearch.seed=" + (seed + i));
+        overrides.add("search.RandomSearch.path_limit=" + (workerPathLimit > 0 ? workerPathLimit : Integer.MAX_VALUE));
+        overrides.add("search.RandomSearch.results=" + results[i].getAbsolutePath());
+        overrides.add("search.RandomSearch.stop_file=" + stop.getAbsolutePath());
+        if (swarmDepthLimit > 0){
+          overrides.add("search.depth_limit=" + getWorkerDepthLimit(i));
+        }
+
+        workers[i] = new WorkerProcess(config, i, new File(dir, "worker" + i + ".log"),
+                overrides.toArray(new String[overrides.size()]));
+        workers[i].start();
+      }
+
+      long tStart = System.currentTimeMillis();
+      boolean isStopping = false;
+
+      for (int nRunning = nWorkers; nRunning > 0;){
+        for (int i=0; i<nWorkers; i++){
+          if (!finished[i] && !workers[i].isAlive()){
+            finished[i] = true;
+            nRunning--;
+
+            int status = workers[i].waitFor();
+            if (!results[i].isFile()){
+              throw new JPFException("swarm worker " + i + " failed with status " + status
+                      + ", see " + workers[i].getLogFile());
+            }
+            readResults(i, results[i]);
+          }
+        }
+
+        if (!isStopping){
+          if (!errorPaths.isEmpty() && !getAllErrors){
+            log.info("swarm worker found property violation, stopping workers");
+            isStopping = requestStop(stop);
+
+          } else if (timeLimit > 0 && (System.currentTimeMillis() - tStart) > timeLimit){
+            notifySearchConstraintHit("swarm time limit reached: " + (timeLimit/1000) + "sec");
+            isStopping = requestStop(stop);
+          }
+        }
+
+        if (nRunning > 0){
+          try {
+            Thread.sleep(POLL_INTERVAL);
+          } catch (InterruptedException ix){
+            throw new JPFException("interrupted while waiting for swarm workers");
+          }
+        }
+      }
+
+    } finally {
+      for (WorkerProcess w : workers){
+        if (w != null){
+          w.destroy();
+        }
+      }
+      stop.delete();
+    }
+
+    log.info("swarm workers executed ", nWorkerPaths, " paths, ", nWorkerStates, " new states (max ",
+            maxWorkerStates, " per worker), ", nWorkerEndStates, " end states, max depth ", maxWorkerDepth);
+  }
+
+  protected boolean requestStop (File stop){
+    try {
+      stop.createNewFile();
+      return true;
+    } catch (IOException iox){
+      throw new JPFException("cannot create swarm stop file: " + iox.getMessage());
+    }
+  }
+
+  protected void readResults (int workerId, File file){
+    try (BufferedReader r = new BufferedReader(new FileReader(file))) {
+      for (String line = r.readLine(); line != null; line = r.readLine()){
+        if (line.startsWith("paths ")){
+          nWorkerPaths += Integer.parseInt(line.substring(6).trim());
+
+        } else if (line.startsWith("states ")){
+          int n = Integer.parseInt(line.substring(7).trim());
+          nWorkerStates += n;
+          if (n > maxWorkerStates){
+            maxWorkerStates = n;
+          }
+
+        } else if (line.startsWith("end ")){
+          nWorkerEndStates += Integer.parseInt(line.substring(4).trim());
+
+        } else if (line.startsWith("depth ")){
+          int d = Integer.parseInt(line.substring(6).trim());
+          if (d > maxWorkerDepth){
+            maxWorkerDepth = d;
+          }
+
+        } else if (line.startsWith("error ")){
+          errorPaths.add(ChoicePath.parse(line.substring(6)));
+        }
+      }
+    } catch (IOException | NumberFormatException x){
+      throw new JPFException("error reading results of swarm worker " + workerId + ": " + x.getMessage());
+    }
+  }
+
+  /**
+   * re-execute the error paths reported by workers so that our own
+   * listeners and publishers see the property violations. Unless we
+   * search for multiple errors, this only reports the first one
+   */
+  protected void replayErrors (RestorableVMState initState){
+    for (ChoicePath path : errorPaths){
+      if (done){
+        break;
+      }
+
+      vm.restoreState(initState);
+      vm.resetNextCG();
+      depth = 0;
+
+      boolean reproduced = false;
+      replayer.start(vm, path);
+      while (replayer.isReplaying() && forward()){
+        depth++;
+        notifyStateAdvanced();
+
+        if (currentError != null){
+          reproduced = true;
+          replayer.stop(vm);
+          notifyPropertyViolated();
+          hasPropertyTermination();
+          break;
+        }
+      }
+
+      if (!reproduced){
+        replayer.stop(vm);
+        log.warning("failed to reproduce swarm worker error for choice path: ", path);
+      }
+    }
+  }
+
+  public int getNumberOfWorkerPaths(){
+    return nWorkerPaths;
+  }
+
+  public int getNumberOfWorkerStates(){
+    return nWorkerStates;
+  }
+}
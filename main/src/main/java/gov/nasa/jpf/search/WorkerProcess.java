@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * helper to run a JPF instance in a separate host VM process.
+ *
+ * This is how we get parallelism for searches - a VM (and most of its
+ * ClassInfo and ThreadInfo infrastructure) is a per-process singleton, hence we
+ * cannot run several of them concurrently in the same host VM.
+ *
+ * The worker gets the same command line arguments as the current JPF
+ * run, with the provided overrides inserted before the first free (target)
+ * argument. Output of the worker is redirected into a log file
+ */
+public class WorkerProcess {
+
+  protected final int id;
+  protected final List<String> command;
+  protected final File logFile;
+
+  protected Process process;
+
+  public WorkerProcess (Config config, int id, File logFile, String... overrides){
+    this.id = id;
+    this.logFile = logFile;
+    this.command = getCommand(config, overrides);
+  }
+
+  /**
+   * can we start workers for this configuration at all? This requires
+   * the original command line args to be known
+   */
+  public static boolean isSupported (Config config){
+    return config.getArgs() != null;
+  }
+
+  protected static List<String> getCommand (Config config, String[] overrides){
+    String[] args = config.getArgs();
+    if (args == null){
+      throw new JPFException("cannot start JPF worker process without command line arguments");
+    }
+
+    ArrayList<String> cmd = new ArrayList<String>();
+
+    cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+    for (String a : config.getCompactTrimmedStringArray("search.worker.vm_args")){
+      cmd.add(a);
+    }
+
+    StringBuilder cp = new StringBuilder(System.getProperty("java.class.path"));
+    for (String p : config.getCompactTrimmedStringArray("native_classpath")){
+      cp.append(File.pathSeparatorChar);
+      cp.append(p);
+    }
+    cmd.add("-classpath");
+    cmd.add(cp.toString());
+
+    cmd.add(config.getString("search.worker.main", "gov.nasa.jpf.JPF"));
+
+    int i=0;
+    for (; i<args.length; i++){
+      String a = args[i];
+      if (a != null && a.length() > 0 && a.charAt(0) != '+' && a.charAt(0) != '-'){
+        break; // first free arg
+      }
+      cmd.add(a);
+    }
+
+    for (String o : overrides){
+      cmd.add("+" + o);
+    }
+
+    for (; i<args.length; i++){
+      cmd.add(args[i]);
+    }
+
+    return cmd;
+  }
+
+  public int getId(){
+    return id;
+  }
+
+  public File getLogFile(){
+    return logFile;
+  }
+
+  public List<String> getCommand(){
+    return command;
+  }
+
+  public void start (){
+    ProcessBuilder pb = new ProcessBuilder(command);
+    pb.redirectErrorStream(true);
+    pb.redirectOutput(logFile);
+
+    try {
+      process = pb.start();
+    } catch (IOException iox){
+      throw new JPFException("failed to start JPF worker " + id + ": " + iox.getMessage());
+    }
+  }
+
+  public boolean isAlive(){
+    if (process != null){
+      try {
+        process.exitValue();
+      } catch (IllegalThreadStateException x){
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * wait for the worker to terminate and return its exit value
+   */
+  public int waitFor (){
+    try {
+      return process.waitFor();
+    } catch (InterruptedException ix){
+      process.destroy();
+      throw new JPFException("interrupted while waiting for JPF worker " + id);
+    }
+  }
+
+  public void destroy(){
+    if (process != null){
+      process.destroy();
+    }
+  }
+}
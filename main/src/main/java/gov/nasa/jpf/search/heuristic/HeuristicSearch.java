@@ -163,13 +163,18 @@ public abstract class HeuristicSearch extends Search {
   }
 
   
-  private void restoreState (HeuristicState hState) {    
+  /**
+   * make the queued hState the current state
+   * @return false if the state could not be restored, i.e. has to be skipped
+   */
+  protected boolean restoreState (HeuristicState hState) {    
     vm.restoreState(hState.getVMState());
 
     // note we have to query the depth from the VM because the state is taken from the queue
     // and we have no idea when it was entered there
     depth = vm.getPathLength();
     notifyStateRestored();
+    return true;
   }
    
   @Override
@@ -189,9 +194,9 @@ public abstract class HeuristicSearch extends Search {
       generateChildren();
 
       while (!done && (parentState = getNextQueuedState()) != null) {
-        restoreState(parentState);
-        
-        generateChildren();
+        if (restoreState(parentState)) {
+          generateChildren();
+        }
       }
     }
     
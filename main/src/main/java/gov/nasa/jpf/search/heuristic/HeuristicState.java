@@ -35,6 +35,11 @@ public abstract class HeuristicState {
     stateId = vm.getStateId();
     vmState = vm.getRestorableState();
   }
+
+  protected HeuristicState (int stateId, RestorableVMState vmState) {
+    this.stateId = stateId;
+    this.vmState = vmState;
+  }
   
   public RestorableVMState getVMState () {
     return vmState;
@@ -18,6 +18,7 @@
 
 package gov.nasa.jpf.search.heuristic;
 
+import gov.nasa.jpf.vm.RestorableVMState;
 import gov.nasa.jpf.vm.VM;
 
 /**
@@ -34,22 +35,26 @@ public class PrioritizedState extends HeuristicState implements Comparable<Prior
     this.heuristicValue = heuristicValue;
   }
 
+  protected PrioritizedState (int stateId, RestorableVMState vmState, int heuristicValue) {
+    super(stateId, vmState);
+
+    this.heuristicValue = heuristicValue;
+  }
+
   public int getPriority () {
     return heuristicValue;
   }
 
   /*
-   * NOTE - since we can't use the Java 1.6 pollFirst()/pollLast() yet,
-   * we have to use remove(o), which in turn requires "compareTo(a) == 0" to
-   * be identical to "equals(o) == true", so we should implement both
+   * this is the same order as StaticPriorityQueue uses, i.e. "compareTo(a) == 0"
+   * is identical to "equals(o) == true"
    */
   @Override
   public int compareTo (PrioritizedState o) {
-     int diff = heuristicValue - o.heuristicValue;
-     if (diff == 0) {
-       return (stateId - o.stateId);
+     if (heuristicValue != o.heuristicValue) {
+       return (heuristicValue < o.heuristicValue) ? -1 : 1;
      } else {
-       return diff;
+       return (stateId < o.stateId) ? -1 : ((stateId == o.stateId) ? 0 : 1);
      }
   }
   @Override
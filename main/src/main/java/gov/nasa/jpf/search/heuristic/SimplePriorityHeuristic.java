@@ -19,24 +19,51 @@
 package gov.nasa.jpf.search.heuristic;
 
 import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.search.ChoicePath;
+import gov.nasa.jpf.search.ChoicePathReplayer;
+import gov.nasa.jpf.search.ChoicePathStore;
 import gov.nasa.jpf.util.Predicate;
+import gov.nasa.jpf.vm.RestorableVMState;
 import gov.nasa.jpf.vm.ThreadInfo;
 import gov.nasa.jpf.vm.VM;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
 /**
  * a heuristic that is based on static priorities that are determined
  * at state storage time
+ *
+ * If 'search.heuristic.spill' is set, queued states do not keep a
+ * RestorableVMState, but the ChoicePath that leads to them is spilled into a
+ * disk based ChoicePathStore. Restoring such a state means replaying its
+ * path from the initial state, i.e. we trade re-execution time for heap
+ * space. This only works for SUTs that re-execute deterministically
  */
 public abstract class SimplePriorityHeuristic extends HeuristicSearch {
 
   StaticPriorityQueue queue;
   
   protected Predicate<ThreadInfo> aliveThread;
+
+  // only set if we spill queued states
+  protected ChoicePathStore store;
+  protected ChoicePathReplayer replayer;
+  protected RestorableVMState initState;
+  protected int nFailedReplays;
   
   public SimplePriorityHeuristic (Config config, VM vm) {
     super(config,vm);
 
     queue = new StaticPriorityQueue(config);
+
+    if (config.getBoolean("search.heuristic.spill", false)) {
+      store = createStore(config);
+      replayer = new ChoicePathReplayer();
+      vm.addListener(replayer);
+    }
     
     aliveThread = new Predicate<ThreadInfo>() {
       @Override
@@ -47,6 +74,21 @@ public abstract class SimplePriorityHeuristic extends HeuristicSearch {
     
   }
 
+  protected ChoicePathStore createStore (Config config) {
+    int segmentSize = (int) Math.min(config.getMemorySize("search.heuristic.spill_segment", 64*1024*1024), Integer.MAX_VALUE);
+    String dir = config.getString("search.heuristic.spill_dir");
+
+    if (dir != null) {
+      return new ChoicePathStore(new File(dir), segmentSize);
+    } else {
+      try {
+        return new ChoicePathStore(Files.createTempDirectory("jpf-spill").toFile(), segmentSize);
+      } catch (IOException iox) {
+        throw new JPFException("cannot create spill dir for heuristic search: " + iox.getMessage());
+      }
+    }
+  }
+
   protected abstract int computeHeuristicValue ();
 
   protected int computeAstarPathCost (VM vm) {
@@ -71,34 +113,117 @@ public abstract class SimplePriorityHeuristic extends HeuristicSearch {
       }
     }
     
-    PrioritizedState hState = new PrioritizedState(vm,heuristicValue);
-    
-    queue.add(hState);
-    
+    if (store == null) {
+      PrioritizedState hState = new PrioritizedState(vm,heuristicValue);
+
+      queue.add(hState);
+
+      return hState;
+
+    } else {
+      return spillCurrentState(heuristicValue);
+    }
+  }
+
+  protected PrioritizedState spillCurrentState (int heuristicValue) {
+    if (initState == null) {
+      // the root state is the one all spilled states are replayed from
+      initState = vm.getRestorableState();
+      PrioritizedState hState = new PrioritizedState(vm.getStateId(), initState, heuristicValue);
+      queue.add(hState);
+      return hState;
+    }
+
+    SpilledState hState = new SpilledState(vm, heuristicValue);
+
+    PrioritizedState evicted = null;
+    if (queue.isQueueLimitReached()) {
+      evicted = queue.last();
+      if (evicted == null || hState.compareTo(evicted) >= 0) {
+        return hState; // not queued, nothing to spill
+      }
+    }
+
+    if (queue.add(hState)) {
+      hState.position = store.add(ChoicePath.getCurrent(vm));
+      release(evicted);
+    }
+
     return hState;
   }
-  
+
+  protected void release (PrioritizedState hState) {
+    if (hState instanceof SpilledState) {
+      store.remove(((SpilledState)hState).position);
+    }
+  }
+
   @Override
-  protected HeuristicState getNextQueuedState () {
-    
-    //HeuristicState hState = queue.pollFirst();  // only Java 1.6
-    //if (isBeanSearch) { queue.clear(); }
-    //return hState;
+  protected boolean restoreState (HeuristicState hState) {
+    if (!(hState instanceof SpilledState)) {
+      return super.restoreState(hState);
+    }
+
+    ChoicePath path = store.get(((SpilledState)hState).position);
+    release((SpilledState)hState);
+
+    vm.restoreState(initState);
+    vm.resetNextCG();
 
-    if (queue.size() == 0) {                      // the dreaded Java 1.5 version
-      return null;
+    replayer.start(vm, path);
+    while (replayer.isReplaying() && forward()) {
+      // nothing, the replayer selects the choices
     }
-    HeuristicState hState = queue.first();
-    
+
+    if (replayer.hasFailed() || replayer.isReplaying()) {
+      replayer.stop(vm);
+      log.warning("failed to replay spilled choice path: ", path);
+      nFailedReplays++;
+      return false;
+    }
+
+    depth = vm.getPathLength();
+    notifyStateRestored();
+    return true;
+  }
+
+  @Override
+  protected HeuristicState getNextQueuedState () {
+    HeuristicState hState = queue.pollFirst();
+
     if (isBeamSearch) {
-      queue.clear();
-    } else {
-      queue.remove(hState);      
+      if (store != null) {
+        for (PrioritizedState s = queue.pollFirst(); s != null; s = queue.pollFirst()) {
+          release(s);
+        }
+      } else {
+        queue.clear();
+      }
     }
-    
+
     return hState;
   }
 
+  @Override
+  public void search () {
+    try {
+      super.search();
+
+    } finally {
+      if (store != null) {
+        if (nFailedReplays > 0) {
+          log.warning("failed to replay ", nFailedReplays, " spilled states");
+        }
+        log.info("spilled ", store.getNumberOfBytes(), " bytes of choice paths");
+        store.close();
+      }
+    }
+  }
+
+  public int getNumberOfFailedReplays () {
+    return nFailedReplays;
+  }
+
   @Override
   public int getQueueSize() {
     return queue.size();
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search.heuristic;
+
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * a PrioritizedState that does not keep a RestorableVMState, but the position
+ * of its ChoicePath in a ChoicePathStore. The state has to be re-created
+ * by replaying this path from the initial state
+ */
+public class SpilledState extends PrioritizedState {
+
+  long position;
+
+  public SpilledState (VM vm, int heuristicValue) {
+    super(vm.getStateId(), null, heuristicValue);
+  }
+
+  public long getPosition () {
+    return position;
+  }
+}
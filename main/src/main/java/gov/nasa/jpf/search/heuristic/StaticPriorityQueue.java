@@ -6,85 +6,308 @@
  * The Java Pathfinder core (jpf-core) platform is licensed under the
  * Apache License, Version 2.0 (the "License"); you may not use this file except
  * in compliance with the License. You may obtain a copy of the License at
- * 
- *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
  *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and 
+ * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package gov.nasa.jpf.search.heuristic;
 
 import gov.nasa.jpf.Config;
 
-import java.util.Iterator;
-import java.util.TreeSet;
+import java.util.Arrays;
 
 /**
- * container for statically prioritized states, based on bounded
- * RB trees
- * 
- * TreeSet is a better choice than PriorityQueue since the size
- * constraint means we have to remove elements from both ends, which
- * is inefficient with heaps. A simple (binary) sorted array using
- * block copy can be more efficient, but that very much depends on
- * queue size and processor, so it's not really worth the trouble
- * 
- * <2do> this needs to be re-evaluated in light of the stupid fact
- * that pollFirst()/pollLast() are only in Java 1.6 and we can't switch
- * yet (no Java 1.6 for PPC), which forces us to do some shuffling to
- * make remove(last()) work as expected
+ * container for statically prioritized states, based on a bounded
+ * min-max heap
+ *
+ * The size constraint means we have to remove elements from both ends (the
+ * best state is the next one to expand, the worst state gets evicted if the
+ * queue is full), which a min-max heap does in O(log n) without the per
+ * element node objects of a RB tree. The heap is kept in two parallel arrays,
+ * the primitive sort keys (priority and state id, so that ties are broken
+ * in state creation order) and the states themselves
  */
-@SuppressWarnings("serial")
-public class StaticPriorityQueue extends TreeSet<PrioritizedState> {
+public class StaticPriorityQueue {
+
+  static final int INIT_CAPACITY = 1024;
 
   int maxQueueSize;
-  
+
+  long[] keys;
+  PrioritizedState[] states;
+  int size;
+
   public StaticPriorityQueue (Config config) {
     // unbound queues are pretty pointless - we could probably better use
     // DFSearch in this case
-    maxQueueSize = config.getInt("search.heuristic.queue_limit", 1024);
-    if (maxQueueSize < 0){
-      maxQueueSize = Integer.MAX_VALUE;
-    }
+    this( config.getInt("search.heuristic.queue_limit", 1024));
+  }
+
+  public StaticPriorityQueue (int queueLimit) {
+    maxQueueSize = (queueLimit < 0) ? Integer.MAX_VALUE : queueLimit;
+
+    int n = Math.max(1, Math.min(maxQueueSize, INIT_CAPACITY));
+    keys = new long[n];
+    states = new PrioritizedState[n];
+  }
+
+  /**
+   * lower values mean higher priorities, and the signed long order of keys
+   * is the (priority,stateId) order
+   */
+  static long getKey (PrioritizedState s){
+    return ((long)s.heuristicValue << 32) | (((long)s.stateId - Integer.MIN_VALUE) & 0xffffffffL);
   }
-    
-  @Override
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(states, 0, size, null);
+    size = 0;
+  }
+
+  /**
+   * add a state, evicting the lowest priority state if the queue is full
+   * @return false if the queue is full and the new state has a lower priority
+   * than all queued states
+   */
   public boolean add (PrioritizedState s) {
-    if (size() < maxQueueSize) { // limit not yet reached
-      return super.add(s);
-      
-    } else {
-      PrioritizedState last = last();
-      if (s.compareTo(last) < 0) {
-        //pollLast();   // that's only Java 1.6
-        remove(last);
-        
-        return super.add(s);
-        
-      } else {
+    long key = getKey(s);
+
+    if (size >= maxQueueSize) {
+      if (size == 0 || key >= keys[getLastIndex()]) {
         // don't add with this priority value
         return false;
       }
+      pollLast();
     }
+
+    if (size == keys.length) {
+      int newCapacity = (int) Math.min((long)size * 2, maxQueueSize);
+      keys = Arrays.copyOf(keys, newCapacity);
+      states = Arrays.copyOf(states, newCapacity);
+    }
+
+    int i = size++;
+    keys[i] = key;
+    states[i] = s;
+    bubbleUp(i);
+
+    return true;
+  }
+
+  /**
+   * @return the highest priority state, or null if the queue is empty
+   */
+  public PrioritizedState first() {
+    return (size > 0) ? states[0] : null;
+  }
+
+  /**
+   * @return the lowest priority state, or null if the queue is empty
+   */
+  public PrioritizedState last() {
+    return (size > 0) ? states[getLastIndex()] : null;
+  }
+
+  /**
+   * remove and return the highest priority state, or null if the queue is empty
+   */
+  public PrioritizedState pollFirst() {
+    return (size > 0) ? removeAt(0) : null;
+  }
+
+  /**
+   * remove and return the lowest priority state, or null if the queue is empty
+   */
+  public PrioritizedState pollLast() {
+    return (size > 0) ? removeAt(getLastIndex()) : null;
   }
-  
+
   public boolean isQueueLimitReached() {
-    return size() >= maxQueueSize;
+    return size >= maxQueueSize;
+  }
+
+  //--- min-max heap internals - even levels are min levels, odd levels max levels
+
+  static boolean isMinLevel (int i) {
+    return ((31 - Integer.numberOfLeadingZeros(i+1)) & 1) == 0;
+  }
+
+  // index of the max element, which is one of the root children (if any)
+  int getLastIndex() {
+    if (size <= 1) {
+      return 0;
+    } else if (size == 2) {
+      return 1;
+    } else {
+      return (keys[1] >= keys[2]) ? 1 : 2;
+    }
+  }
+
+  void swap (int i, int j) {
+    long k = keys[i];
+    keys[i] = keys[j];
+    keys[j] = k;
+
+    PrioritizedState s = states[i];
+    states[i] = states[j];
+    states[j] = s;
   }
-  
+
+  PrioritizedState removeAt (int i) {
+    PrioritizedState s = states[i];
+    int last = --size;
+
+    if (i != last) {
+      keys[i] = keys[last];
+      states[i] = states[last];
+      states[last] = null;
+      trickleDown(i);
+      bubbleUp(i); // in case the moved element did not come from below i
+    } else {
+      states[last] = null;
+    }
+
+    return s;
+  }
+
+  void bubbleUp (int i) {
+    if (i > 0) {
+      int p = (i-1)/2;
+      if (isMinLevel(i)) {
+        if (keys[i] > keys[p]) {
+          swap(i, p);
+          bubbleUpMax(p);
+        } else {
+          bubbleUpMin(i);
+        }
+      } else {
+        if (keys[i] < keys[p]) {
+          swap(i, p);
+          bubbleUpMin(p);
+        } else {
+          bubbleUpMax(i);
+        }
+      }
+    }
+  }
+
+  void bubbleUpMin (int i) {
+    while (i > 2) {
+      int g = ((i-1)/2 -1)/2;
+      if (keys[i] < keys[g]) {
+        swap(i, g);
+        i = g;
+      } else {
+        break;
+      }
+    }
+  }
+
+  void bubbleUpMax (int i) {
+    while (i > 2) {
+      int g = ((i-1)/2 -1)/2;
+      if (keys[i] > keys[g]) {
+        swap(i, g);
+        i = g;
+      } else {
+        break;
+      }
+    }
+  }
+
+  void trickleDown (int i) {
+    if (isMinLevel(i)) {
+      trickleDownMin(i);
+    } else {
+      trickleDownMax(i);
+    }
+  }
+
+  void trickleDownMin (int i) {
+    while (2*i + 1 < size) {
+      int m = 2*i + 1;
+      // smallest of children and grandchildren
+      for (int c = m; c <= 2*i + 2 && c < size; c++) {
+        if (keys[c] < keys[m]) {
+          m = c;
+        }
+        for (int g = 2*c + 1; g <= 2*c + 2 && g < size; g++) {
+          if (keys[g] < keys[m]) {
+            m = g;
+          }
+        }
+      }
+
+      if (keys[m] >= keys[i]) {
+        break;
+      }
+      swap(i, m);
+
+      if (m > 2*i + 2) { // grandchild
+        int p = (m-1)/2;
+        if (keys[m] > keys[p]) {
+          swap(m, p);
+        }
+        i = m;
+      } else {
+        break;
+      }
+    }
+  }
+
+  void trickleDownMax (int i) {
+    while (2*i + 1 < size) {
+      int m = 2*i + 1;
+      // largest of children and grandchildren
+      for (int c = m; c <= 2*i + 2 && c < size; c++) {
+        if (keys[c] > keys[m]) {
+          m = c;
+        }
+        for (int g = 2*c + 1; g <= 2*c + 2 && g < size; g++) {
+          if (keys[g] > keys[m]) {
+            m = g;
+          }
+        }
+      }
+
+      if (keys[m] <= keys[i]) {
+        break;
+      }
+      swap(i, m);
+
+      if (m > 2*i + 2) { // grandchild
+        int p = (m-1)/2;
+        if (keys[m] < keys[p]) {
+          swap(m, p);
+        }
+        i = m;
+      } else {
+        break;
+      }
+    }
+  }
+
   // for debugging purposes
   void dump() {
-    int i=0;
     System.err.print('[');
-    for (Iterator<PrioritizedState> it=iterator(); it.hasNext();) {
-      if (i++ > 0) {
+    for (int i=0; i<size; i++) {
+      if (i > 0) {
         System.err.print(',');
       }
-      System.err.print(it.next());
+      System.err.print(states[i]);
     }
     System.err.println(']');
   }
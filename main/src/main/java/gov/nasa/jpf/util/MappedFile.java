@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.util;
+
+import gov.nasa.jpf.JPFException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * a memory mapped file that can exceed the 2GB limit of a single MappedByteBuffer,
+ * for storing large primitive arrays outside of the Java heap.
+ *
+ * The file is mapped in segments of SEGMENT_SIZE bytes. Since all offsets of
+ * values are aligned to their size, a value never straddles a segment boundary.
+ * Note that mapped regions are only released once their buffers get
+ * garbage collected, there is no explicit unmap in Java 8
+ */
+public class MappedFile {
+
+  static final int SEGMENT_SHIFT = 30;
+  static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+  static final int SEGMENT_MASK = (int)SEGMENT_SIZE -1;
+
+  protected final File file;
+  protected RandomAccessFile raf;
+  protected FileChannel channel;
+
+  protected MappedByteBuffer[] segments = new MappedByteBuffer[0];
+  protected long capacity;
+
+  /**
+   * open (and create if required) 'file', mapping at least 'minCapacity' bytes.
+   * If 'truncate' is set, existing contents are discarded
+   */
+  public MappedFile (File file, long minCapacity, boolean truncate){
+    this.file = file;
+
+    try {
+      raf = new RandomAccessFile(file, "rw");
+      if (truncate){
+        raf.setLength(0);
+      }
+      channel = raf.getChannel();
+
+      ensureCapacity(Math.max(minCapacity, raf.length()));
+
+    } catch (IOException iox){
+      throw new JPFException("failed to map file " + file + ": " + iox.getMessage());
+    }
+  }
+
+  /**
+   * create a temporary mapped file that is deleted when the host VM terminates
+   */
+  public static MappedFile createTemp (String prefix, long minCapacity){
+    try {
+      File f = File.createTempFile(prefix, ".map");
+      f.deleteOnExit();
+      return new MappedFile(f, minCapacity, true);
+    } catch (IOException iox){
+      throw new JPFException("failed to create temp file: " + iox.getMessage());
+    }
+  }
+
+  public File getFile(){
+    return file;
+  }
+
+  public long getCapacity(){
+    return capacity;
+  }
+
+  /**
+   * grow the mapping (and the file) so that it covers at least 'minCapacity' bytes.
+   * Capacity is doubled to amortize remapping
+   */
+  public void ensureCapacity (long minCapacity){
+    if (minCapacity > capacity){
+      long newCapacity = Math.max(minCapacity, capacity*2);
+      int nSegments = (int)((newCapacity + SEGMENT_SIZE -1) >> SEGMENT_SHIFT);
+
+      MappedByteBuffer[] newSegments = new MappedByteBuffer[nSegments];
+      // full segments are never remapped
+      int nFull = (int)(capacity >> SEGMENT_SHIFT);
+      System.arraycopy(segments, 0, newSegments, 0, nFull);
+
+      try {
+        for (int i=nFull; i<nSegments; i++){
+          long pos = (long)i << SEGMENT_SHIFT;
+          long len = Math.min(SEGMENT_SIZE, newCapacity - pos);
+          newSegments[i] = channel.map(FileChannel.MapMode.READ_WRITE, pos, len);
+        }
+      } catch (IOException iox){
+        throw new JPFException("failed to map file " + file + ": " + iox.getMessage());
+      }
+
+      segments = newSegments;
+      capacity = newCapacity;
+    }
+  }
+
+  public long getLong (long offset){
+    return segments[(int)(offset >> SEGMENT_SHIFT)].getLong((int)offset & SEGMENT_MASK);
+  }
+
+  public void putLong (long offset, long v){
+    segments[(int)(offset >> SEGMENT_SHIFT)].putLong((int)offset & SEGMENT_MASK, v);
+  }
+
+  public int getInt (long offset){
+    return segments[(int)(offset >> SEGMENT_SHIFT)].getInt((int)offset & SEGMENT_MASK);
+  }
+
+  public void putInt (long offset, int v){
+    segments[(int)(offset >> SEGMENT_SHIFT)].putInt((int)offset & SEGMENT_MASK, v);
+  }
+
+  /**
+   * set 'len' bytes starting at 'offset' to 0. Both have to be 8-byte aligned
+   */
+  public void clear (long offset, long len){
+    for (long end = offset + len; offset < end; offset += 8){
+      putLong(offset, 0L);
+    }
+  }
+
+  /**
+   * write changes back to the file
+   */
+  public void force(){
+    for (MappedByteBuffer b : segments){
+      b.force();
+    }
+  }
+
+  public void close(){
+    try {
+      segments = new MappedByteBuffer[0];
+      capacity = 0;
+      channel.close();
+      raf.close();
+    } catch (IOException iox){
+      throw new JPFException("failed to close mapped file " + file + ": " + iox.getMessage());
+    }
+  }
+}
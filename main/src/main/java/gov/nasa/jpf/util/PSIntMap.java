@@ -1544,7 +1544,84 @@ public class PSIntMap <V> implements Iterable<V> {
       }
     }
   }
-    
+
+  /**
+   * process all values of this map that are not identical to the value of the
+   * same key in 'other'. Since both maps are persistent, we only have to descend
+   * into nodes that are not shared between them, i.e. if 'other' was derived from
+   * this map or vice versa, this is proportional to the number of changes and not
+   * to the size of the maps
+   */
+  public void processChanged (PSIntMap<V> other, Processor<V> p){
+    if (rootNode != null){
+      if (other == null || other.rootNode == null || other.rootLevel != rootLevel){
+        process(p);
+      } else {
+        processChanged( rootLevel, 0, PSIntMap.<V>asNode(rootNode), PSIntMap.<V>asNode(other.rootNode), other, p);
+      }
+    }
+  }
+
+  // is the node at 'level' with key bits 'prefix' on the path to a pending stagingNode
+  protected boolean isOnStagingPath (int level, int prefix){
+    if (stagingNode == targetNode){
+      return false;
+    } else {
+      int shift = (level+1) * 5;
+      return (shift >= 32) || ((stagingNodeMask >>> shift) == prefix);
+    }
+  }
+
+  // the trie is not homogeneously typed (inner nodes hold nodes, value nodes
+  // hold values), which is why we need this (single) unchecked conversion
+  @SuppressWarnings("unchecked")
+  protected static <V> Node<V> asNode (Object o){
+    return (Node<V>)o;
+  }
+
+  protected void processChanged (int level, int prefix, Node<V> node, Node<V> otherNode, PSIntMap<V> other, Processor<V> p){
+    if (level == 0){ // value level
+      if (node == targetNode){
+        node = stagingNode;
+      }
+      if (otherNode == other.targetNode){
+        otherNode = other.stagingNode;
+      }
+
+      if (node != otherNode){
+        int len = node.getNumberOfElements();
+        for (int i=0; i<len; i++){
+          V v = node.getElementAtStorageIndex(i);
+          if (v != otherNode.getElementAtLevelIndex( node.storageToLevelIndex(i))){
+            p.process(v);
+          }
+        }
+      }
+
+    } else { // node level
+      if (node == otherNode && !isOnStagingPath(level, prefix) && !other.isOnStagingPath(level, prefix)){
+        return; // shared subtree
+      }
+
+      int len = node.getNumberOfElements();
+      for (int i=0; i<len; i++){
+        int idx = node.storageToLevelIndex(i);
+        Node<V> n = asNode(node.getElementAtStorageIndex(i));
+        Node<V> otherN = asNode(otherNode.getElementAtLevelIndex(idx));
+
+        if (otherN == null){
+          if (targetNode == stagingNode){
+            n.process( level-1, null, null, p);
+          } else {
+            n.process( level-1, PSIntMap.<V>asNode(targetNode), stagingNode, p);
+          }
+        } else {
+          processChanged( level-1, (prefix << 5) | idx, n, otherN, other, p);
+        }
+      }
+    }
+  }
+
   final protected Node removeAllSatisfying (int level, Node node, Predicate<V> pred){
     if (level == 0){ // value level
       return ((Node<V>)node).removeAllSatisfying(pred);
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.util;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * low overhead timers for the hot phases of a JPF run (transition execution,
+ * state serialization and storage, backtracking, gc and class loading).
+ *
+ * This is a static registry because the instrumented call sites are spread
+ * all over the VM and have no common context object. Hot path call sites check
+ * isEnabled() before calling start()/stop(), i.e. they only cost a static field
+ * check if profiling is off. Otherwise each phase gets a count, total and max
+ * time (in nanoseconds), and a histogram with log2 buckets.
+ *
+ * Phases can nest (e.g. serialization happens inside of state storage, class
+ * loading inside of transitions), but recursive entries of the same phase
+ * (class loading that resolves super classes) are only timed once. Call sites
+ * have to call stop() from a finally block, since an unbalanced start() would
+ * turn off timing of this phase for the rest of the run.
+ *
+ * Counters are only updated from the JPF thread. Readers on other threads
+ * (e.g. the probe timer) can see slightly inconsistent values, which is
+ * acceptable for statistics
+ */
+public final class PhaseMetrics {
+
+  public static final int TRANSITION = 0;     // ThreadInfo.executeTransition
+  public static final int SERIALIZE = 1;      // StateSerializer.getStoringData (for state matching)
+  public static final int STATE_STORE = 2;    // StateSet.addCurrent (includes SERIALIZE)
+  public static final int PUSH_STATE = 3;     // Backtracker.pushKernelState
+  public static final int BACKTRACK = 4;      // Backtracker.backtrack
+  public static final int GC = 5;             // KernelState.gc
+  public static final int CLASS_LOAD = 6;     // ClassInfo creation from class files
+
+  static final String[] NAMES = {
+    "transition", "serialize", "stateStore", "pushState", "backtrack", "gc", "classLoad"
+  };
+
+  public static final int N_PHASES = NAMES.length;
+  public static final int N_BUCKETS = 64;
+
+  static boolean enabled;
+
+  static final int[] active = new int[N_PHASES];
+  static final long[] count = new long[N_PHASES];
+  static final long[] total = new long[N_PHASES];
+  static final long[] max = new long[N_PHASES];
+  static final long[][] histogram = new long[N_PHASES][N_BUCKETS];
+
+  private PhaseMetrics (){
+    // no instances
+  }
+
+  /**
+   * enable timers and reset all counters. This has to happen before the VM
+   * is initialized if we want to include startup class loading
+   */
+  public static void enable (){
+    reset();
+    enabled = true;
+  }
+
+  public static void disable (){
+    enabled = false;
+  }
+
+  public static boolean isEnabled (){
+    return enabled;
+  }
+
+  public static void reset (){
+    Arrays.fill(active, 0);
+    Arrays.fill(count, 0);
+    Arrays.fill(total, 0);
+    Arrays.fill(max, 0);
+    for (long[] h : histogram){
+      Arrays.fill(h, 0);
+    }
+  }
+
+  /**
+   * @return the start time to pass into stop(), or 0 if this phase is not timed
+   */
+  public static long start (int phase){
+    if (enabled && active[phase]++ == 0){
+      return System.nanoTime();
+    }
+    return 0;
+  }
+
+  public static void stop (int phase, long tStart){
+    if (enabled && --active[phase] == 0 && tStart != 0){
+      long d = System.nanoTime() - tStart;
+
+      count[phase]++;
+      total[phase] += d;
+      if (d > max[phase]){
+        max[phase] = d;
+      }
+      histogram[phase][getBucket(d)]++;
+    }
+  }
+
+  /**
+   * bucket i holds durations in [2^(i-1), 2^i) ns, bucket 0 holds 0 ns
+   */
+  static int getBucket (long nanos){
+    return Math.min(N_BUCKETS-1, 64 - Long.numberOfLeadingZeros(nanos));
+  }
+
+  public static String getName (int phase){
+    return NAMES[phase];
+  }
+
+  public static long getCount (int phase){
+    return count[phase];
+  }
+
+  public static long getTotalNanos (int phase){
+    return total[phase];
+  }
+
+  public static long getMaxNanos (int phase){
+    return max[phase];
+  }
+
+  public static long[] getHistogram (int phase){
+    return histogram[phase].clone();
+  }
+
+  /**
+   * upper bound of the duration that 'percent' of the recorded calls did not exceed
+   */
+  public static long getPercentileNanos (int phase, int percent){
+    long[] h = histogram[phase];
+    long n = 0;
+    for (long c : h){
+      n += c;
+    }
+
+    long limit = (n * percent + 99) / 100;
+    long sum = 0;
+    for (int i=0; i<N_BUCKETS; i++){
+      sum += h[i];
+      if (sum >= limit && sum > 0){
+        return (i == 0) ? 0 : Math.min(1L << i, max[phase]);
+      }
+    }
+    return 0;
+  }
+
+  public static void printOn (PrintWriter pw){
+    pw.println("phase            calls      total[ms]    avg[us]    p50[us]    p99[us]    max[us]");
+
+    for (int i=0; i<N_PHASES; i++){
+      long n = count[i];
+      long avg = (n > 0) ? total[i] / n : 0;
+
+      pw.printf("%-12s %10d %13d %10.1f %10.1f %10.1f %10.1f%n", NAMES[i], n,
+              total[i] / 1000000, avg / 1000.0, getPercentileNanos(i, 50) / 1000.0,
+              getPercentileNanos(i, 99) / 1000.0, max[i] / 1000.0);
+    }
+  }
+}
@@ -67,6 +67,12 @@ public class AllRunnablesSyncPolicy implements SyncPolicy {
     }
   }
 
+  /**
+   * the factory method for scheduling point CGs, override if you need a different CG type
+   */
+  protected ChoiceGenerator<ThreadInfo> createThreadChoice (String id, ThreadInfo[] choices){
+    return new ThreadChoiceFromSet( id, choices, true);
+  }
     
   protected ChoiceGenerator<ThreadInfo> getRunnableCG (String id, ThreadInfo tiCurrent){
     ApplicationContext appCtx = tiCurrent.getApplicationContext();
@@ -82,7 +88,7 @@ public class AllRunnablesSyncPolicy implements SyncPolicy {
       }
     }
     
-    ChoiceGenerator<ThreadInfo> cg = new ThreadChoiceFromSet( id, choices, true);
+    ChoiceGenerator<ThreadInfo> cg = createThreadChoice( id, choices);
     
     if(!vm.getThreadList().hasProcessTimeoutRunnables(appCtx)) {
       GlobalSchedulingPoint.setGlobal(cg);
@@ -312,7 +318,7 @@ public class AllRunnablesSyncPolicy implements SyncPolicy {
   @Override
   public void setRootCG (){
     ThreadInfo[] runnables = vm.getThreadList().getTimeoutRunnables();
-    ChoiceGenerator<ThreadInfo> cg = new ThreadChoiceFromSet( ROOT, runnables, true);
+    ChoiceGenerator<ThreadInfo> cg = createThreadChoice( ROOT, runnables);
     vm.getSystemState().setMandatoryNextChoiceGenerator( cg, "no ROOT choice generator");
   }
   
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFConfigException;
+import gov.nasa.jpf.util.OATHash;
+
+/**
+ * a lossy StateSet that uses Holzmann's bitstate (supertrace) hashing: each
+ * state sets 'vm.storage.bitstate.hashes' bits in a fixed size bit array of
+ * 'vm.storage.bitstate.size' bytes, and is considered visited if all of its bits
+ * are already set.
+ *
+ * This can cause states to be erroneously matched (i.e. their subtrees are
+ * omitted from the search), which is why it is only suitable for bug hunting.
+ * The probability of such omissions is estimated from the fill ratio of the bit
+ * array, and reported in the statistics.
+ *
+ * Since we don't store anything for a state, there is no id for visited states,
+ * addCurrent() returns UNKNOWN_ID for them, which makes them look like the init
+ * state (see SystemState.isInitState()). Configurations that depend on the ids of
+ * visited states are therefore rejected: search.match_depth, the DPORScheduler,
+ * and the NoStateCycles and StateSpaceDot listeners
+ */
+public class BitstateStateSet extends SerializingStateSet {
+
+  // configured listeners that need the ids of visited states
+  static final String[] INCOMPATIBLE_LISTENERS = {
+    "gov.nasa.jpf.listener.NoStateCycles",
+    "gov.nasa.jpf.listener.StateSpaceDot"
+  };
+
+  protected final long[] bits;
+  protected final long mask;
+  protected final int nHashes;
+
+  protected int nStates;
+  protected long nSetBits;
+
+  // sum of the omission probabilities at the time new states were added
+  protected double expectedOmissions;
+
+  public BitstateStateSet (Config config){
+    long nBytes = config.getMemorySize("vm.storage.bitstate.size", 64 << 20);
+    nHashes = config.getInt("vm.storage.bitstate.hashes", 3);
+
+    if (nHashes < 1){
+      throw new JPFConfigException("vm.storage.bitstate.hashes has to be positive: " + nHashes);
+    }
+    checkCompatibility(config);
+
+    // round down to a power of two number of bits, we need a simple mask
+    long nBits = Long.highestOneBit(Math.max(nBytes, 8) * 8);
+    if ((nBits >> 6) > Integer.MAX_VALUE){
+      nBits = (long)Integer.highestOneBit(Integer.MAX_VALUE) << 6;
+    }
+
+    bits = new long[(int)(nBits >> 6)];
+    mask = nBits -1;
+  }
+
+  protected void checkCompatibility (Config config){
+    if (config.getBoolean("search.match_depth")){
+      throw new JPFConfigException("BitstateStateSet does not support search.match_depth");
+    }
+
+    Class<?> schedulerCls = config.getClass("vm.scheduler.class");
+    if (schedulerCls != null && DPORScheduler.class.isAssignableFrom(schedulerCls)){
+      throw new JPFConfigException("BitstateStateSet does not support " + schedulerCls.getName());
+    }
+
+    Class<?>[] listenerCls = config.getClasses("listener");
+    if (listenerCls != null){
+      for (Class<?> cls : listenerCls){
+        for (String clsName : INCOMPATIBLE_LISTENERS){
+          if (cls != null && cls.getName().equals(clsName)){
+            throw new JPFConfigException("BitstateStateSet does not support listener " + clsName);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public int size () {
+    return nStates;
+  }
+
+  @Override
+  public int add (int[] val) {
+    // double hashing (Kirsch/Mitzenmacher), which only needs two independent hashes
+    long h1 = JenkinsStateSet.longLookup3Hash(val);
+    long h2 = ((long)OATHash.hash(val) << 1) | 1;
+    boolean isNew = false;
+
+    for (int i=0; i<nHashes; i++){
+      long idx = (h1 + i*h2) & mask;
+      int w = (int)(idx >>> 6);
+      long b = 1L << idx; // only uses the low 6 bits
+
+      if ((bits[w] & b) == 0){
+        bits[w] |= b;
+        nSetBits++;
+        isNew = true;
+      }
+    }
+
+    if (isNew){
+      expectedOmissions += getOmissionProbability();
+      return nStates++;
+    } else {
+      return UNKNOWN_ID;
+    }
+  }
+
+  public int getNumberOfHashes(){
+    return nHashes;
+  }
+
+  public long getNumberOfBits(){
+    return mask +1;
+  }
+
+  public long getNumberOfSetBits(){
+    return nSetBits;
+  }
+
+  public double getFillRatio(){
+    return (double)nSetBits / (mask+1);
+  }
+
+  /**
+   * probability that the next new state is erroneously matched, i.e. that
+   * all of its bits are already set
+   */
+  public double getOmissionProbability(){
+    return Math.pow(getFillRatio(), nHashes);
+  }
+
+  /**
+   * estimated number of states that were omitted so far
+   */
+  public double getExpectedOmissions(){
+    return expectedOmissions;
+  }
+}
@@ -18,6 +18,8 @@
 
 package gov.nasa.jpf.vm;
 
+import java.util.Set;
+
 /**
  * abstract class that represents the source of a classfile, such
  * as (root) directories and jars
@@ -46,4 +48,13 @@ public abstract class ClassFileContainer {
   }
 
   public abstract ClassFileMatch getMatch (String clsName) throws ClassParseException;
+
+  /**
+   * @return the (dot separated) names of all packages this container has
+   * classfiles for, or null if this is not known upfront, in which case
+   * the container has to be searched for every class
+   */
+  public Set<String> getPackageNames() {
+    return null;
+  }
 }
@@ -36,6 +36,24 @@ public abstract class ClassFileMatch {
   
   public abstract ClassFileContainer getContainer();
 
+  /**
+   * a hash of the classfile contents that is used to check if cached
+   * ClassInfos are still valid. Return 0 if this is not supported, in which
+   * case classes from this match are not cached
+   */
+  public long getContentHash () {
+    return 0;
+  }
+
+  /**
+   * do whatever we can do with the classfile contents ahead of time, without
+   * access to VM state. This is called from prefetch threads, and should not
+   * throw exceptions - errors are reported once we create the ClassInfo
+   */
+  public void prefetch () {
+    // nothing by default
+  }
+
   // those are here because VM specific subclasses know about the binary format, how to get the data from the
   // respective container, and what parser to use to transform it
   public abstract ClassInfo createClassInfo (ClassLoaderInfo loader) throws ClassParseException;
@@ -2531,6 +2531,18 @@ public class ClassInfo extends InfoObject implements Iterable<MethodInfo>, Gener
    * of which has been loaded by some other classloader.
    */
   public ClassInfo cloneFor (ClassLoaderInfo cl) {
+    ClassInfo ci = copyFor(cl);
+
+    if (ci != null){
+      VM.getVM().notifyClassLoaded(ci);
+    }
+    return ci;
+  }
+
+  /**
+   * the part of cloneFor() that creates and links the copy, without notifying listeners
+   */
+  protected ClassInfo copyFor (ClassLoaderInfo cl) {
     ClassInfo ci;
 
     try {
@@ -2538,6 +2550,7 @@ public class ClassInfo extends InfoObject implements Iterable<MethodInfo>, Gener
 
       ci.classLoader = cl;
       ci.interfaces = new HashSet<ClassInfo>();
+      ci.allInterfaces = null;
       ci.resolveClass();
 
       ci.id = -1;
@@ -2552,6 +2565,9 @@ public class ClassInfo extends InfoObject implements Iterable<MethodInfo>, Gener
         e.setValue(mi.getInstanceFor(ci));
       }
 
+      // might be one of our own methods, which have been replaced by now
+      ci.finalizer = ci.getFinalizer0();
+
       ci.iFields = new FieldInfo[iFields.length];
       for(int i=0; i<iFields.length; i++) {
         ci.iFields[i] = iFields[i].getInstanceFor(ci);
@@ -2573,10 +2589,107 @@ public class ClassInfo extends InfoObject implements Iterable<MethodInfo>, Gener
       return null;
     }
 
-    VM.getVM().notifyClassLoaded(ci);
     return ci;
   }
-  
+
+  /**
+   * can we store a template of this class in the ClassInfoCache? Classes with
+   * bootstrap methods are excluded since those refer to lambda bodies that
+   * might be defined by other classes
+   */
+  protected boolean isCacheable () {
+    return (bootstrapMethods == null) || (bootstrapMethods.length == 0);
+  }
+
+  /**
+   * create an unlinked copy of this freshly parsed class that can be stored in the
+   * ClassInfoCache, to instantiate this class in subsequent JPF runs.
+   *
+   * The template gets its own (unregistered) methods and fields since the
+   * originals might be modified by listeners during this run. All references
+   * into the current run (classloader, super classes, peers) are reset so that
+   * we don't keep the whole run alive
+   */
+  protected ClassInfo createTemplate () {
+    ClassInfo ci;
+
+    try {
+      ci = (ClassInfo)clone();
+    } catch (CloneNotSupportedException cnsx){
+      cnsx.printStackTrace();
+      return null;
+    }
+
+    ci.classLoader = null;
+    ci.superClass = null;
+    ci.interfaces = NO_INTERFACES;
+    ci.allInterfaces = null;
+    ci.finalizer = null;
+    ci.releaseActions = null;
+    ci.id = -1;
+    ci.uniqueId = -1;
+
+    if (methods != Collections.EMPTY_MAP){
+      ci.methods = new HashMap<String, MethodInfo>(methods.size());
+      for (MethodInfo mi : methods.values()){
+        MethodInfo miTemplate = mi.copyFor(ci);
+        if (miTemplate instanceof NativeMethodInfo){
+          // gets re-bound by the native peer of the run the template is used in
+          ((NativeMethodInfo)miTemplate).peer = null;
+        }
+        ci.methods.put(miTemplate.getUniqueName(), miTemplate);
+      }
+    }
+
+    ci.iFields = new FieldInfo[iFields.length];
+    for(int i=0; i<iFields.length; i++) {
+      ci.iFields[i] = iFields[i].getInstanceFor(ci);
+    }
+
+    ci.sFields = new FieldInfo[sFields.length];
+    for(int i=0; i<sFields.length; i++) {
+      ci.sFields[i] = sFields[i].getInstanceFor(ci);
+    }
+
+    ci.rebindAllAnnotations(null);
+
+    // this is just a flag for copyFor() to look up the native peer of the new run
+    ci.nativePeer = (nativePeer != null) ? NativePeer.TEMPLATE_PEER : null;
+
+    return ci;
+  }
+
+  protected void rebindAllAnnotations (ClassLoaderInfo cl) {
+    rebindAnnotations(cl);
+
+    for (MethodInfo mi : methods.values()){
+      mi.rebindAnnotations(cl);
+    }
+    for (FieldInfo fi : iFields){
+      fi.rebindAnnotations(cl);
+    }
+    for (FieldInfo fi : sFields){
+      fi.rebindAnnotations(cl);
+    }
+  }
+
+  /**
+   * create a new ClassInfo for the current run from a template that was
+   * created by createTemplate() in a previous run. This does everything the
+   * parsing ctor does after reading the classfile, except of processing
+   * annotations that are already reflected in our methods and fields
+   */
+  protected ClassInfo instantiateTemplate (ClassLoaderInfo cl) {
+    ClassInfo ci = copyFor(cl);
+
+    if (ci != null){
+      ci.rebindAllAnnotations(cl);
+      ci.processJPFConfigAnnotation();
+      ci.loadAnnotationListeners();
+    }
+    return ci;
+  }
+
   // <2do> should be abstract
   public StackFrame createStackFrame (ThreadInfo ti, MethodInfo callee){
     return null;
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.util.JPFLogger;
+
+import java.util.HashMap;
+
+/**
+ * an optional cache of parsed classes that survives JPF runs within the same
+ * host VM. This is mostly useful for test suites (e.g. TestJPF derived ones)
+ * that execute a large number of short JPF runs, each of which would otherwise
+ * re-parse the same system, model and application classes.
+ *
+ * We store an unlinked template copy of each parsed ClassInfo, keyed by the
+ * classfile URL and validated by a hash of the classfile contents. Subsequent
+ * runs instantiate new ClassInfos from these templates, which still have to be
+ * resolved and linked like cross-classloader clones, but don't need to be parsed.
+ *
+ * Templates only refer to host VM objects that are independent of the run they
+ * were created in (instructions, method and field infos). The whole cache gets
+ * flushed if any of the config settings that affect class parsing change
+ * between runs
+ */
+public class ClassInfoCache {
+
+  static JPFLogger log = JPF.getLogger("class");
+
+  // the config keys that determine how ClassInfos are created
+  static final String[] PARSE_KEYS = {
+    "jvm.insn_factory.class", "vm.fields_factory.class", "peer_packages", "native_classpath"
+  };
+
+  static class Entry {
+    long hash;
+    ClassInfo template;
+
+    Entry (long hash, ClassInfo template){
+      this.hash = hash;
+      this.template = template;
+    }
+  }
+
+  static boolean enabled;
+
+  // what we need to compare against to find out if the cached ClassInfos are still valid.
+  // Each run gets its own JPFClassLoader, but as long as that delegates to the same class
+  // for our instruction factory, cached instructions are still compatible
+  static String parseSettings;
+  static Class<?> insnFactoryClass;
+
+  static HashMap<String,Entry> entries = new HashMap<String,Entry>();
+
+  static int nHits;
+  static int nMisses;
+
+  /**
+   * This is invoked by ClassLoaderInfo.init(), i.e. once per JPF run
+   */
+  static void init (Config config){
+    enabled = config.getBoolean("vm.class_cache", false);
+    nHits = 0;
+    nMisses = 0;
+
+    if (enabled){
+      String settings = getParseSettings(config);
+      Class<?> cls = config.getClass("jvm.insn_factory.class");
+
+      if (!settings.equals(parseSettings) || (cls != insnFactoryClass)){
+        if (!entries.isEmpty()){
+          log.info("flushing class cache, changed parse settings");
+        }
+        flush();
+        parseSettings = settings;
+        insnFactoryClass = cls;
+      }
+
+    } else {
+      flush();
+    }
+  }
+
+  static String getParseSettings (Config config){
+    StringBuilder sb = new StringBuilder();
+    for (String key : PARSE_KEYS){
+      sb.append(key);
+      sb.append('=');
+      sb.append(config.getString(key, ""));
+      sb.append(';');
+    }
+    return sb.toString();
+  }
+
+  public static void flush (){
+    entries.clear();
+    parseSettings = null;
+    insnFactoryClass = null;
+  }
+
+  public static boolean isEnabled (){
+    return enabled;
+  }
+
+  public static int size (){
+    return entries.size();
+  }
+
+  public static int getNumberOfHits (){
+    return nHits;
+  }
+
+  public static int getNumberOfMisses (){
+    return nMisses;
+  }
+
+  /**
+   * get a new ClassInfo for the given match from a cached template, or return
+   * null if there is none (or if the classfile has changed since we cached it)
+   */
+  static ClassInfo getClassInfo (ClassFileMatch match, ClassLoaderInfo cl){
+    if (enabled){
+      String url = match.getClassURL();
+      Entry e = entries.get(url);
+
+      if (e != null){
+        if (e.hash == match.getContentHash()){
+          nHits++;
+          return e.template.instantiateTemplate(cl);
+
+        } else {
+          entries.remove(url); // classfile has changed
+        }
+      }
+
+      nMisses++;
+    }
+
+    return null;
+  }
+
+  /**
+   * store a template for a ClassInfo that was just parsed. This has to be
+   * called before the ClassInfo gets registered or otherwise exposed to listeners,
+   * which might modify it
+   */
+  static void add (ClassFileMatch match, ClassInfo ci){
+    if (enabled && ci.isCacheable()){
+      long hash = match.getContentHash();
+      if (hash != 0){
+        entries.put(match.getClassURL(), new Entry(hash, ci.createTemplate()));
+      }
+    }
+  }
+}
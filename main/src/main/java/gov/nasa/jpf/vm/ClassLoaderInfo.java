@@ -22,6 +22,7 @@ import gov.nasa.jpf.JPF;
 import gov.nasa.jpf.JPFException;
 import gov.nasa.jpf.SystemAttribute;
 import gov.nasa.jpf.util.JPFLogger;
+import gov.nasa.jpf.util.PhaseMetrics;
 import gov.nasa.jpf.util.SparseIntVector;
 import gov.nasa.jpf.util.StringSetMatcher;
 
@@ -135,6 +136,8 @@ public class ClassLoaderInfo
     globalCLids = new SparseIntVector();
     loadedClasses = new HashMap<String,ClassInfo>(); // not sure we actually want this for multiple runs (unless we check file stamps)
     loadedAnnotations = new HashMap<String,AnnotationInfo>();
+
+    ClassInfoCache.init(config);
     
     enabledAssertionPatterns = StringSetMatcher.getNonEmpty(config.getStringArray("vm.enable_assertions"));
     disabledAssertionPatterns = StringSetMatcher.getNonEmpty(config.getStringArray("vm.disable_assertions"));
@@ -348,12 +351,23 @@ public class ClassLoaderInfo
               ci = ci.cloneFor(this);
             }
           } else {
-            try {
-              log.info("loading class ", typeName, " from ",  url);
-              ci = match.createClassInfo(this);
-              
-            } catch (ClassParseException cpx){
-              throw new ClassInfoException( "error parsing class", this, "java.lang.NoClassDefFoundError", typeName, cpx);
+            ci = ClassInfoCache.getClassInfo(match, this); // did we parse it in a previous run
+            if (ci != null){
+              log.info("loading cached class ", typeName, " from ",  url);
+
+            } else {
+              if (PhaseMetrics.isEnabled()){
+                long t = PhaseMetrics.start(PhaseMetrics.CLASS_LOAD);
+                try {
+                  ci = parseClassInfo(match, typeName);
+                } finally {
+                  PhaseMetrics.stop(PhaseMetrics.CLASS_LOAD, t);
+                }
+              } else {
+                ci = parseClassInfo(match, typeName);
+              }
+
+              ClassInfoCache.add(match, ci);
             }
             
             loadedClasses.put( url, ci);
@@ -371,6 +385,17 @@ public class ClassLoaderInfo
     return ci;
   }
   
+  // create a new ClassInfo from the classfile, which can be expensive and is therefore timed by the caller
+  protected ClassInfo parseClassInfo (ClassFileMatch match, String typeName) throws ClassInfoException {
+    try {
+      log.info("loading class ", typeName, " from ",  match.getClassURL());
+      return match.createClassInfo(this);
+
+    } catch (ClassParseException cpx){
+      throw new ClassInfoException( "error parsing class", this, "java.lang.NoClassDefFoundError", typeName, cpx);
+    }
+  }
+
   /**
    * this is for user defined ClassLoaders that explicitly provide the class file data
    */
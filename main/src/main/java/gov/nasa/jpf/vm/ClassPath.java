@@ -23,25 +23,34 @@ import gov.nasa.jpf.util.JPFLogger;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * this is a lookup mechanism for class files that is based on an ordered
  * list of directory or jar entries
+ *
+ * Since most containers know their packages upfront, we keep an index of
+ * which containers can have classes of a given package, so that we don't
+ * have to ask all containers of a long classpath for each class
  */
 public class ClassPath implements Restorable<ClassPath>{
 
   static class CPMemento implements Memento<ClassPath> {
     ClassPath cp;
     ArrayList<ClassFileContainer> pathElements;
+    ConcurrentHashMap<String,ClassFileContainer[]> packageIndex;
 
     CPMemento (ClassPath cp){
       this.cp = cp;
       this.pathElements = new ArrayList<ClassFileContainer>(cp.pathElements);
+      this.packageIndex = cp.packageIndex; // only depends on pathElements
     }
 
     @Override
     public ClassPath restore (ClassPath ignored) {
       cp.pathElements = this.pathElements;
+      cp.packageIndex = this.packageIndex;
       return cp;
     }
   }
@@ -51,9 +60,16 @@ public class ClassPath implements Restorable<ClassPath>{
   
   protected ArrayList<ClassFileContainer> pathElements;
 
+  // package name -> containers that might have classes of this package, in
+  // classpath order. Entries are computed on demand, and the whole map is
+  // replaced if we add a container. This is a concurrent map because prefetch
+  // threads look up classes while the VM thread does (see SystemClassLoaderInfo)
+  protected ConcurrentHashMap<String,ClassFileContainer[]> packageIndex;
+
 
   public ClassPath(){
     pathElements = new ArrayList<ClassFileContainer>();
+    packageIndex = new ConcurrentHashMap<String,ClassFileContainer[]>();
   }
   
   @Override
@@ -68,6 +84,7 @@ public class ClassPath implements Restorable<ClassPath>{
   public void addClassFileContainer (ClassFileContainer pathElement){
     assert pathElement != null;
     pathElements.add(pathElement);
+    packageIndex = new ConcurrentHashMap<String,ClassFileContainer[]>();
   }
 
 
@@ -100,8 +117,32 @@ public class ClassPath implements Restorable<ClassPath>{
     throw new ClassParseException(msg);
   }
 
+  static String getPackageName (String clsName){
+    int i = clsName.lastIndexOf('.');
+    return (i > 0) ? clsName.substring(0, i) : "";
+  }
+
+  protected ClassFileContainer[] getContainers (String pkgName){
+    ClassFileContainer[] containers = packageIndex.get(pkgName);
+
+    if (containers == null){
+      ArrayList<ClassFileContainer> list = new ArrayList<ClassFileContainer>();
+      for (ClassFileContainer container : pathElements){
+        Set<String> pkgNames = container.getPackageNames();
+        if (pkgNames == null || pkgNames.contains(pkgName)){
+          list.add(container);
+        }
+      }
+
+      containers = list.toArray(new ClassFileContainer[list.size()]);
+      packageIndex.put(pkgName, containers);
+    }
+
+    return containers;
+  }
+
   public ClassFileMatch findMatch (String clsName) throws ClassParseException {
-    for (ClassFileContainer container : pathElements){
+    for (ClassFileContainer container : getContainers(getPackageName(clsName))){
       ClassFileMatch match = container.getMatch(clsName);
       if (match != null){
         logger.fine("found ", clsName, " in ", container.getName());
@@ -93,7 +93,7 @@ abstract class CollapsePools {
     }
 
     public int getFieldsIndex(ElementInfo ei) {
-      Entry<Fields> entry = fieldsPool.getEntry(ei.getFields());
+      Entry<Fields> entry = fieldsPool.getEntry(ei.getReadOnlyFields());
       ei.restoreFields(entry.key);
       return entry.val;
     }
@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * a thread safe variant of JenkinsStateSet that can be shared between several
+ * exploring threads, and does not stop the world for rehashing.
+ *
+ * The table is open-addressed (double hashing, like JenkinsStateSet), but
+ * stores the fingerprints directly in the slots, which are only modified with
+ * CAS operations. Slots only go from EMPTY to either a fingerprint or to MOVED,
+ * which is what makes lookups consistent while a resize is in progress:
+ *
+ *  - if a lookup finds a MOVED slot before finding its fingerprint, the fingerprint
+ *    cannot be in this table (anymore), and the lookup continues in the next table
+ *  - a resize does not copy the table at once, each add() that sees a pending resize
+ *    migrates the next MIGRATE_CHUNK slots (i.e. resizing is incremental and cooperative)
+ *  - migrated entries keep their state ids, new fingerprints get the next id
+ *
+ * State ids are assigned in order of insertion, i.e. if there is only one thread
+ * this has the same id semantics as JenkinsStateSet (size() before add() is the id
+ * of a new state). Concurrent callers should use addFingerprint(), which encodes if
+ * the state was new.
+ *
+ * The fingerprints are compatible with JenkinsStateSet, i.e. fingerprints that
+ * are written by one of them can be read by the other
+ */
+public class ConcurrentJenkinsStateSet extends SerializingStateSet implements FingerprintStateSet {
+
+  static final double MAX_LOAD = 0.6;
+  static final int INIT_SIZE = 65536;
+  static final int MIGRATE_CHUNK = 1024;
+
+  // reserved slot values. Fingerprints that collide with them are mapped to FP_REPLACEMENT
+  static final long EMPTY = 0;
+  static final long MOVED = 1;
+  static final long FP_REPLACEMENT = 2;
+
+  static final class Table {
+    final AtomicLongArray fingerprints;
+    final AtomicIntegerArray ids; // state id + 1, 0 means not yet published
+    final int mask;
+    final int maxFill;
+
+    final AtomicInteger fill = new AtomicInteger();
+    final AtomicReference<Table> next = new AtomicReference<Table>();
+
+    // migration progress (only used once 'next' is set)
+    final AtomicInteger migrateIdx = new AtomicInteger();
+    final AtomicInteger migratedSlots = new AtomicInteger();
+
+    Table (int size){
+      fingerprints = new AtomicLongArray(size);
+      ids = new AtomicIntegerArray(size);
+      mask = size-1;
+      maxFill = (int)(size * MAX_LOAD);
+    }
+
+    int length(){
+      return mask+1;
+    }
+  }
+
+  protected final AtomicReference<Table> root;
+  protected final AtomicInteger nStates = new AtomicInteger();
+
+  public ConcurrentJenkinsStateSet (){
+    this(INIT_SIZE);
+  }
+
+  public ConcurrentJenkinsStateSet (int initSize){
+    int size = Integer.highestOneBit(Math.max(initSize, MIGRATE_CHUNK) -1) << 1;
+    root = new AtomicReference<Table>(new Table(size));
+  }
+
+  @Override
+  public int size () {
+    return nStates.get();
+  }
+
+  @Override
+  public int add (int[] val) {
+    int id = addFingerprint(JenkinsStateSet.longLookup3Hash(val));
+    return (id >= 0) ? id : -id -1;
+  }
+
+  /**
+   * thread safe add of a state fingerprint
+   * @return the state id if the fingerprint was new, or (-id -1) if it already was in the set
+   */
+  public int addFingerprint (long fp){
+    if (fp == EMPTY || fp == MOVED){
+      fp = FP_REPLACEMENT;
+    }
+
+    Table t = root.get();
+    if (t.next.get() != null){
+      helpMigrate(t);
+      t = root.get();
+    }
+
+    return insert(t, fp, -1);
+  }
+
+  /**
+   * open addressing insert of 'fp' into table 't' (or its successors). If 'migratedId' is
+   * not negative, we copy an existing entry from the previous table, otherwise a new
+   * fingerprint gets the next state id
+   */
+  protected int insert (Table t, long fp, int migratedId){
+    while (true){
+      AtomicLongArray fps = t.fingerprints;
+      int mask = t.mask;
+      int idx = (int)(fp >> 32) & mask;
+      int delta = (int)fp | 1; // must be odd
+      int n = 0;
+
+      probe:
+      while (true){
+        long v = fps.get(idx);
+
+        if (v == fp){
+          return -getPublishedId(t, idx) -1;
+
+        } else if (v == EMPTY){
+          if (!fps.compareAndSet(idx, EMPTY, fp)){
+            continue; // somebody else got this slot, re-read it
+          }
+
+          int id = (migratedId >= 0) ? migratedId : nStates.getAndIncrement();
+          t.ids.set(idx, id+1);
+
+          if (t.fill.incrementAndGet() >= t.maxFill){
+            startResize(t);
+          }
+          return id;
+
+        } else if (v == MOVED || ++n > mask){
+          break probe; // not in this table, try the next one
+        }
+
+        idx = (idx + delta) & mask;
+      }
+
+      Table next = t.next.get();
+      if (next == null){
+        // we can only get here if the table filled up before anybody could start
+        // the resize, which means we have to do it ourselves
+        startResize(t);
+        next = t.next.get();
+      }
+      t = next;
+    }
+  }
+
+  protected int getPublishedId (Table t, int idx){
+    int id;
+    while ((id = t.ids.get(idx)) == 0){
+      Thread.yield(); // the inserter did not yet publish the id
+    }
+    return id-1;
+  }
+
+  protected void startResize (Table t){
+    if (t.next.get() == null){
+      t.next.compareAndSet(null, new Table(t.length() << 1));
+    }
+  }
+
+  /**
+   * migrate the next chunk of slots from 't' into its successor, and
+   * swing the root if this was the last one
+   */
+  protected void helpMigrate (Table t){
+    Table next = t.next.get();
+    int len = t.length();
+    int start = t.migrateIdx.getAndAdd(MIGRATE_CHUNK);
+
+    if (start < len){
+      int end = Math.min(start + MIGRATE_CHUNK, len);
+      AtomicLongArray fps = t.fingerprints;
+
+      for (int i=start; i<end; i++){
+        long v = fps.get(i);
+        if (v == EMPTY){
+          if (fps.compareAndSet(i, EMPTY, MOVED)){
+            continue;
+          }
+          v = fps.get(i); // somebody just inserted here
+        }
+        insert(next, v, getPublishedId(t, i));
+      }
+
+      if (t.migratedSlots.addAndGet(end - start) == len){
+        root.compareAndSet(t, next);
+      }
+    }
+  }
+
+  /**
+   * the fingerprints of all states, indexed by state id. This is not
+   * atomic, i.e. states that are added while we collect might be missing
+   */
+  public long[] getFingerprints (){
+    long[] fps = new long[nStates.get()];
+
+    // during a resize entries can be in both tables, but they have the same id
+    for (Table t = root.get(); t != null; t = t.next.get()){
+      AtomicLongArray tfps = t.fingerprints;
+      for (int i=0; i<=t.mask; i++){
+        long v = tfps.get(i);
+        if (v != EMPTY && v != MOVED){
+          int id = t.ids.get(i) -1;
+          if (id >= 0 && id < fps.length){
+            fps[id] = v;
+          }
+        }
+      }
+    }
+
+    return fps;
+  }
+
+  @Override
+  public void writeFingerprints (DataOutput out) throws IOException {
+    long[] fps = getFingerprints();
+
+    out.writeInt(fps.length);
+    for (int i=0; i<fps.length; i++){
+      out.writeLong(fps[i]);
+    }
+  }
+
+  /**
+   * this is not thread safe, there must not be concurrent adds while we read
+   */
+  @Override
+  public void readFingerprints (DataInput in) throws IOException {
+    int n = in.readInt();
+
+    int size = INIT_SIZE;
+    while (n >= (int)(size * MAX_LOAD)){
+      size <<= 1;
+    }
+
+    Table t = new Table(size);
+    for (int i=0; i<n; i++){
+      long fp = in.readLong();
+      if (fp == EMPTY || fp == MOVED){
+        fp = FP_REPLACEMENT;
+      }
+      insert(t, fp, i);
+    }
+
+    nStates.set(n);
+    root.set(t);
+  }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.Config;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * a SGOID heap that stores ElementInfos in copy-on-write pages, which are
+ * structurally shared between the current heap and all stored snapshots.
+ *
+ * Storing a state is O(1) for the page directory, plus freezing the
+ * ElementInfos that were allocated or cloned since the last store (we keep
+ * track of those instead of freezing the whole heap). The first modification
+ * of a page after a store copies this page (and the directory if required),
+ * i.e. the per-transition overhead is proportional to the number of pages
+ * that contain modified objects.
+ *
+ * Restoring a state re-installs the snapshot directory in O(1). The transient
+ * ElementInfo state (attributes, serialization ids, thread lock info) is
+ * lazily reset for each page upon its first access after the restore, except
+ * of the pages containing locked objects, which are processed eagerly so that
+ * the ThreadInfo lock state is up-to-date.
+ *
+ * Since SGOIDs are dense, we don't need a sparse container like PSIntMap,
+ * and page access is a simple two level array lookup.
+ *
+ * NOTE - a reference value of 0 represents null and therefore is not a valid SGOID
+ */
+public class CowHeap extends GenericSGOIDHeap {
+
+  static final int PAGE_BITS = 8;
+  static final int PAGE_SIZE = 1 << PAGE_BITS;
+  static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  static class Page {
+    final ElementInfo[] elements;
+
+    // the generation that owns this page, i.e. is allowed to modify it in place
+    int gen;
+
+    // the restore count for which the ElementInfos of this page have been processed
+    // (this is a transient value that can be modified even if the page is shared)
+    int restoreCount;
+
+    Page (int gen, int restoreCount){
+      this.elements = new ElementInfo[PAGE_SIZE];
+      this.gen = gen;
+      this.restoreCount = restoreCount;
+    }
+
+    Page (Page other, int gen){
+      this.elements = other.elements.clone();
+      this.gen = gen;
+      this.restoreCount = other.restoreCount;
+    }
+  }
+
+  static class CowMemento extends GenericSGOIDHeapMemento {
+    Page[] pages;
+    int size;
+    int[] lockedRefs;
+
+    CowMemento (CowHeap heap){
+      super(heap);
+
+      heap.freezeChanged();
+
+      pages = heap.pages;
+      size = heap.size;
+      lockedRefs = heap.lockedRefs;
+
+      heap.share();
+    }
+
+    @Override
+    public Heap restore(Heap inSitu) {
+      super.restore( inSitu);
+
+      CowHeap heap = (CowHeap) inSitu;
+      heap.restorePages(pages, size, lockedRefs);
+
+      return heap;
+    }
+  }
+
+  class ElementInfoIterator implements Iterator<ElementInfo>, Iterable<ElementInfo> {
+    int nextRef;
+
+    ElementInfoIterator() {
+      nextRef = findNext(0);
+    }
+
+    // we always look up the current pages since the heap might change
+    // while we iterate (e.g. removals during sweep)
+    int findNext (int ref){
+      int nPages = pages.length;
+      for (int pi = ref >>> PAGE_BITS; pi < nPages; pi++){
+        Page page = pages[pi];
+        if (page != null){
+          ElementInfo[] elements = page.elements;
+          for (int i = (pi == (ref >>> PAGE_BITS)) ? (ref & PAGE_MASK) : 0; i < PAGE_SIZE; i++){
+            if (elements[i] != null){
+              return (pi << PAGE_BITS) + i;
+            }
+          }
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextRef >= 0;
+    }
+
+    @Override
+    public ElementInfo next() {
+      if (nextRef < 0){
+        throw new NoSuchElementException();
+      }
+
+      ElementInfo ei = get(nextRef);
+      nextRef = findNext(nextRef+1);
+      return ei;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("no ElementInfo removal through iterator");
+    }
+
+    @Override
+    public Iterator<ElementInfo> iterator() {
+      return this;
+    }
+  }
+
+  //--- instance data
+
+  Page[] pages;
+  int size;
+
+  // the generation that owns the page directory
+  int dirGen;
+
+  // the current generation, which is incremented on every store and restore.
+  // this is never restored, so that pages of a snapshot can't be owned by any
+  // subsequent generation
+  int gen;
+
+  // incremented on every restore, to lazily reset transient ElementInfo state
+  int restoreCount;
+
+
+  public CowHeap (Config config, KernelState ks){
+    super(config, ks);
+
+    pages = new Page[16];
+    dirGen = gen;
+  }
+
+  //--- page management
+
+  protected Page getModifiablePage (int ref){
+    int pi = ref >>> PAGE_BITS;
+
+    if (pi >= pages.length){
+      int newLen = pages.length;
+      while (newLen <= pi){
+        newLen <<= 1;
+      }
+      Page[] newPages = new Page[newLen];
+      System.arraycopy(pages, 0, newPages, 0, pages.length);
+      pages = newPages;
+      dirGen = gen;
+
+    } else if (dirGen != gen){
+      pages = pages.clone();
+      dirGen = gen;
+    }
+
+    Page page = pages[pi];
+    if (page == null){
+      page = new Page(gen, restoreCount);
+      pages[pi] = page;
+
+    } else if (page.gen != gen){
+      // make sure we don't copy ElementInfos that still need to be processed
+      cleanUp(page);
+      page = new Page(page, gen);
+      pages[pi] = page;
+    }
+
+    return page;
+  }
+
+  protected void cleanUp (Page page){
+    if (page.restoreCount != restoreCount){
+      page.restoreCount = restoreCount;
+
+      ElementInfo[] elements = page.elements;
+      for (int i=0; i<PAGE_SIZE; i++){
+        ElementInfo ei = elements[i];
+        if (ei != null){
+          ElementInfo.restorer.process(ei);
+        }
+      }
+    }
+  }
+
+  // called after we took a snapshot - everything we have now is shared
+  protected void share (){
+    gen++;
+  }
+
+  protected void restorePages (Page[] pages, int size, int[] lockedRefs){
+    if (changedRefs != null){
+      logChangedRefs(this.pages, pages);
+    }
+
+    this.pages = pages;
+    this.size = size;
+    this.lockedRefs = lockedRefs;
+
+    gen++;
+    restoreCount++;
+    changed.clear();
+
+    // the ThreadInfos have already been restored, now we have to update
+    // their lock info (which is what cleanUp does for all processed objects)
+    for (int i=0; i<lockedRefs.length; i++){
+      get(lockedRefs[i]);
+    }
+  }
+
+  /**
+   * log the refs that differ between the current and the restored pages. Since
+   * pages are shared between snapshots, we only have to compare the ElementInfos
+   * of pages that are not identical
+   */
+  protected void logChangedRefs (Page[] pages, Page[] restoredPages){
+    int n = Math.max(pages.length, restoredPages.length);
+    for (int pi=0; pi<n; pi++){
+      Page page = (pi < pages.length) ? pages[pi] : null;
+      Page restoredPage = (pi < restoredPages.length) ? restoredPages[pi] : null;
+
+      if (page != restoredPage){
+        int ref = pi << PAGE_BITS;
+        for (int i=0; i<PAGE_SIZE; i++, ref++){
+          ElementInfo ei = (page != null) ? page.elements[i] : null;
+          ElementInfo restoredEi = (restoredPage != null) ? restoredPage.elements[i] : null;
+          if (ei != restoredEi){
+            addChangedRef(ref);
+          }
+        }
+      }
+    }
+  }
+
+  //--- the container interface
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  protected void set (int index, ElementInfo ei) {
+    Page page = getModifiablePage(index);
+    int i = index & PAGE_MASK;
+
+    if (page.elements[i] == null){
+      size++;
+    }
+    page.elements[i] = ei;
+
+    changed.add(ei);
+  }
+
+  @Override
+  public ElementInfo get (int ref) {
+    if (ref <= 0) {
+      return null;
+    } else {
+      int pi = ref >>> PAGE_BITS;
+      if (pi < pages.length){
+        Page page = pages[pi];
+        if (page != null){
+          if (page.restoreCount != restoreCount){
+            cleanUp(page);
+          }
+          return page.elements[ref & PAGE_MASK];
+        }
+      }
+      return null;
+    }
+  }
+
+  @Override
+  public ElementInfo getModifiable (int ref) {
+    ElementInfo ei = get(ref);
+
+    if (ei != null && ei.isFrozen()) {
+      ei = ei.deepClone();
+      // freshly created ElementInfos are not frozen, so we don't have to defreeze
+      set(ref, ei);
+      addModified(ref);
+    }
+
+    return ei;
+  }
+
+  @Override
+  protected void remove (int ref) {
+    if (get(ref) != null){
+      Page page = getModifiablePage(ref);
+      page.elements[ref & PAGE_MASK] = null;
+      size--;
+    }
+  }
+
+  @Override
+  public boolean isAlive (ElementInfo ei){
+    if (ei != null){
+      // make sure we don't see stale live bits of snapshot objects
+      get(ei.getObjectRef());
+    }
+    return super.isAlive(ei);
+  }
+
+  @Override
+  public Iterator<ElementInfo> iterator() {
+    return new ElementInfoIterator();
+  }
+
+  @Override
+  public Iterable<ElementInfo> liveObjects() {
+    return new ElementInfoIterator();
+  }
+
+  @Override
+  public void resetVolatiles() {
+    // we don't have any
+  }
+
+  @Override
+  public void restoreVolatiles() {
+    // we don't have any
+  }
+
+  @Override
+  public Memento<Heap> getMemento(MementoFactory factory) {
+    return factory.getMemento(this);
+  }
+
+  @Override
+  public Memento<Heap> getMemento(){
+    return new CowMemento(this);
+  }
+}
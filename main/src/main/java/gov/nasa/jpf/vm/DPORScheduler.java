@@ -0,0 +1,741 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.search.DFSearch;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.search.StatelessSearch;
+import gov.nasa.jpf.util.JPFLogger;
+import gov.nasa.jpf.vm.bytecode.ArrayElementInstruction;
+import gov.nasa.jpf.vm.bytecode.FieldInstruction;
+import gov.nasa.jpf.vm.bytecode.InstanceFieldInstruction;
+import gov.nasa.jpf.vm.choice.DPORThreadChoice;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * a Scheduler that implements dynamic partial order reduction (Flanagan/Godefroid)
+ * with sleep sets.
+ *
+ * We use the normal AllRunnables/PathSharedness scheduling points, only that they
+ * create DPORThreadChoices, which start out with a single choice. While we execute, we
+ * record the footprint (read/written fields, array elements and locks) of each
+ * transition. Once a transition is done, we look for the latest transition of
+ * another thread on the current path that it depends on and that doesn't happen
+ * before it (which we determine with vector clocks), and add our thread to the
+ * backtrack set of the CG this transition was executed from. If the thread wasn't
+ * runnable there, we have to add all runnables. The same check is performed for
+ * the pending operations of all threads whenever we reach a new DPOR CG.
+ *
+ * Sleep sets make sure we don't re-explore interleavings that only differ in the
+ * order of independent transitions: threads whose transitions from the parent CG
+ * were already explored and are independent of the one we just executed are
+ * put to sleep in the new CG.
+ *
+ * Since the backtrack sets of DPOR depend on what gets explored below a state,
+ * state matching needs extra care. We keep a summary of all (thread, footprint)
+ * pairs that were explored below each state, and replay it against the current
+ * path when we match a state. If we match a state that is still on the path (a
+ * cycle), we conservatively fully expand all CGs along the cycle. The number of
+ * kept summaries is bounded by 'vm.scheduler.dpor.max_summaries', least recently
+ * used ones are dropped first. Matching a state without summary fully expands all
+ * CGs of the current path.
+ *
+ * Our policies are not configurable since they have to create DPORThreadChoices,
+ * i.e. 'vm.scheduler.sync.class' and 'vm.scheduler.sharedness.class' are ignored.
+ *
+ * This requires a depth first search that notifies about all backtracks (e.g.
+ * DFSearch), or a StatelessSearch. The latter does not backtrack but re-executes
+ * the path prefix from the initial state, hence re-created CGs adopt the DPOR data
+ * of the ones that were created at the same position of the first execution.
+ * DPOR can only be as precise as the scheduling points of the
+ * underlying policies - we can't add choices to states that don't have a CG.
+ * Accesses that are not visible as field, array or lock operations (e.g. from
+ * native peers) are not tracked.
+ */
+public class DPORScheduler extends DelegatingScheduler {
+
+  static JPFLogger log = JPF.getLogger("gov.nasa.jpf.vm.DPORScheduler");
+
+  static final int[] NO_CLOCK = new int[0];
+
+  protected boolean useSleepSets;
+  protected int maxSummaries;
+  protected boolean isReducing = true; // false if the search does not support DPOR
+  protected boolean isStateless;       // set if the search re-executes paths instead of backtracking
+
+  // the first instance of each DPOR CG on the current path (indexed by DPOR depth), which
+  // re-created CGs have to adopt in stateless searches
+  protected ArrayList<DPORThreadChoice> pathCGs = new ArrayList<DPORThreadChoice>();
+  protected DPORListener listener;
+
+  public DPORScheduler (Config config){
+    super( new DPORSyncPolicy(config), new DPORSharednessPolicy(config));
+
+    useSleepSets = config.getBoolean("vm.scheduler.dpor.sleep_sets", true);
+    maxSummaries = config.getInt("vm.scheduler.dpor.max_summaries", 1000000);
+  }
+
+  @Override
+  public void initialize (VM vm, ApplicationContext appCtx) {
+    super.initialize(vm, appCtx);
+
+    if (listener == null){ // we get initialized for each application context
+      listener = new DPORListener(vm);
+      vm.getJPF().addListener(listener);
+    }
+  }
+
+  //--- dependency computation
+
+  static int clockValue (int[] clock, int tid){
+    return (tid < clock.length) ? clock[tid] : 0;
+  }
+
+  static int[] join (int[] a, int[] b){
+    if (b.length > a.length){
+      a = Arrays.copyOf(a, b.length);
+    }
+    for (int i=0; i<b.length; i++){
+      if (b[i] > a[i]){
+        a[i] = b[i];
+      }
+    }
+    return a;
+  }
+
+  static void addBacktrack (DPORThreadChoice cg, ThreadInfo ti){
+    if (!cg.addBacktrack(ti)){
+      // the thread wasn't runnable there, we have to try all alternatives
+      cg.addAllBacktrack();
+    }
+  }
+
+  /**
+   * the clock of the last transition of thread 'tid' on the path ending in 'cg'.
+   * If the thread was started along this path, it inherits the clock of the starting
+   * transition. Accesses of the starter that follow the start within the same
+   * transition could not be interleaved with the new thread from any CG
+   * before that point anyways
+   */
+  protected int[] getThreadClock (int tid, DPORThreadChoice cg){
+    for (; cg != null; cg = cg.getParent()){
+      if (cg.getNextChoice().getId() == tid || cg.hasStartedThread(tid)){
+        return getClock(cg);
+      }
+    }
+
+    return NO_CLOCK;
+  }
+
+  protected int[] getClock (DPORThreadChoice cg){
+    int[] clock = cg.getCurrentClock();
+    if (clock == null){
+      clock = processTransition(cg);
+    }
+    return clock;
+  }
+
+  /**
+   * check the transition that was executed from 'cg' against all previous transitions
+   * of other threads on the path. This adds backtrack points and computes the vector clock
+   * of the transition
+   */
+  protected int[] processTransition (DPORThreadChoice cg){
+    ThreadInfo ti = cg.getNextChoice();
+    int tid = ti.getId();
+    TransitionFootprint fp = cg.getCurrentFootprint();
+    int[] c0 = getThreadClock(tid, cg.getParent());
+    int[] clock = Arrays.copyOf(c0, Math.max(c0.length, tid+1));
+    boolean found = false;
+
+    for (DPORThreadChoice p = cg.getParent(); p != null; p = p.getParent()){
+      int pid = p.getNextChoice().getId();
+      if (pid != tid){
+        if (fp.conflictsWith(p.getCurrentFootprint())){
+          if (!found && (p.getDepth() > clockValue(c0, pid))){
+            addBacktrack(p, ti);
+            found = true;
+          }
+          clock = join(clock, getClock(p));
+        }
+      }
+    }
+
+    clock[tid] = cg.getDepth();
+    cg.setCurrentClock(clock);
+    return clock;
+  }
+
+  /**
+   * check a transition of thread 'ti' that has not been executed yet against the
+   * path ending in 'cg'
+   */
+  protected void checkPending (ThreadInfo ti, TransitionFootprint fp, DPORThreadChoice cg){
+    int tid = ti.getId();
+    int[] clock = getThreadClock(tid, cg);
+
+    for (DPORThreadChoice p = cg; p != null; p = p.getParent()){
+      int pid = p.getNextChoice().getId();
+      if (pid != tid){
+        if (fp.conflictsWith(p.getCurrentFootprint())){
+          if (p.getDepth() > clockValue(clock, pid)){
+            addBacktrack(p, ti);
+            return;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * compute the footprint of the next operation of a thread, or null if it
+   * isn't a shared memory or lock access
+   */
+  protected TransitionFootprint getPendingFootprint (ThreadInfo ti){
+    long key;
+    int mode = TransitionFootprint.WRITE;
+
+    if (ti.isBlocked()){
+      ElementInfo ei = ti.getLockObject();
+      if (ei == null){
+        return null;
+      }
+      key = TransitionFootprint.getLockKey(ei.getObjectRef());
+
+    } else if (ti.isRunnable() && ti.getTopFrame() != null){
+      Instruction insn = ti.getPC();
+
+      if (insn instanceof FieldInstruction){
+        FieldInstruction finsn = (FieldInstruction)insn;
+        FieldInfo fi = finsn.peekFieldInfo(); // we can't resolve here since that could load classes
+        if (fi == null){
+          return null;
+        }
+        if (finsn instanceof InstanceFieldInstruction){
+          ElementInfo ei = finsn.peekElementInfo(ti);
+          if (ei == null){
+            return null;
+          }
+          key = TransitionFootprint.getFieldKey(ei.getObjectRef(), fi.getFieldIndex());
+        } else {
+          key = TransitionFootprint.getStaticFieldKey(fi.getClassInfo().getUniqueId(), fi.getFieldIndex());
+        }
+        if (finsn.isRead()){
+          mode = TransitionFootprint.READ;
+        }
+
+      } else if (insn instanceof ArrayElementInstruction){
+        ArrayElementInstruction ainsn = (ArrayElementInstruction)insn;
+        ElementInfo ei = ainsn.peekArrayElementInfo(ti);
+        if (ei == null){
+          return null;
+        }
+        key = TransitionFootprint.getArrayElementKey(ei.getObjectRef(), ainsn.peekIndex(ti));
+        if (ainsn.isRead()){
+          mode = TransitionFootprint.READ;
+        }
+
+      } else {
+        return null;
+      }
+
+    } else {
+      return null;
+    }
+
+    TransitionFootprint fp = new TransitionFootprint();
+    fp.add(key, mode);
+    return fp;
+  }
+
+  /**
+   * this is where we compute the sleep set and the initial choice of a new DPOR CG
+   */
+  protected void initializeChoice (VM vm, DPORThreadChoice cg){
+    DPORThreadChoice parent = cg.getPreviousChoiceGeneratorOfType(DPORThreadChoice.class);
+    cg.initialize(parent, vm.getSearch().getDepth());
+
+    ThreadInfo[] choices = cg.getChoices();
+
+    if (isStateless){
+      int d = cg.getDepth();
+      if (vm.isTraceReplay() && d <= pathCGs.size()){
+        if (cg.adopt(pathCGs.get(d-1))){
+          return; // nothing to compute, this is a re-execution
+        }
+        log.warning("replayed DPOR choice does not match previous execution: ", cg);
+      }
+
+      while (pathCGs.size() >= d){
+        pathCGs.remove(pathCGs.size()-1);
+      }
+      pathCGs.add(cg);
+    }
+
+    if (!isReducing){
+      cg.addAllBacktrack();
+      return;
+    }
+
+    if (parent != null){
+      processTransition(parent);
+
+      if (useSleepSets){
+        // every thread that was explored or asleep in the parent and is independent
+        // of the transition we just executed can sleep here, too
+        TransitionFootprint fp = parent.getCurrentFootprint();
+        int cur = parent.getChoiceIndex();
+
+        for (int i=0; i<choices.length; i++){
+          int j = parent.indexOf(choices[i]);
+          if (j >= 0 && j != cur && (parent.isExplored(j) || parent.isSleeping(j))){
+            TransitionFootprint fpSleep = parent.getFootprint(j);
+            if (fpSleep != null && !fpSleep.conflictsWith(fp)){
+              cg.setSleeping(i, fpSleep);
+            }
+          }
+        }
+      }
+
+      for (ThreadInfo ti : vm.getThreadList()){
+        if (ti.isAlive()){
+          TransitionFootprint fp = getPendingFootprint(ti);
+          if (fp != null){
+            checkPending(ti, fp, parent);
+          }
+        }
+      }
+    }
+
+    // we prefer to continue with the current thread to avoid context switches
+    ThreadInfo tiCurrent = vm.getCurrentThread();
+    int i = cg.indexOf(tiCurrent);
+    if (i < 0 || cg.isSleeping(i)){
+      for (i = 0; i < choices.length && cg.isSleeping(i); i++);
+    }
+    if (i < choices.length){
+      cg.addBacktrack(choices[i]);
+    } // otherwise all runnables are asleep and this state is redundant
+  }
+
+  /**
+   * per state summary of all transitions that were explored below this state, which
+   * we need to replay if we match the state. If the state is on a cycle, this
+   * summary can be incomplete and we have to include the summaries of the
+   * states that closed the cycles. It is also incomplete if something below
+   * the state matched a state whose summary was already dropped
+   */
+  static class Summary {
+    TransitionFootprint[] footprints = new TransitionFootprint[0]; // indexed by thread id
+    ArrayList<Summary> targets;
+    boolean isUnknown; // we don't know all transitions below this state
+
+    void add (int tid, TransitionFootprint fp){
+      if (!fp.isEmpty()){
+        if (tid >= footprints.length){
+          footprints = Arrays.copyOf(footprints, tid+1);
+        }
+        TransitionFootprint f = footprints[tid];
+        if (f == null){
+          footprints[tid] = f = new TransitionFootprint();
+        }
+        f.addAll(fp);
+      }
+    }
+
+    void addTarget (Summary s){
+      if (s != this){
+        if (targets == null){
+          targets = new ArrayList<Summary>();
+        }
+        if (!targets.contains(s)){
+          targets.add(s);
+        }
+      }
+    }
+
+    void addAll (Summary s){
+      isUnknown |= s.isUnknown;
+      for (int i=0; i<s.footprints.length; i++){
+        if (s.footprints[i] != null){
+          add(i, s.footprints[i]);
+        }
+      }
+      if (s.targets != null){
+        for (Summary t : s.targets){
+          addTarget(t);
+        }
+      }
+    }
+  }
+
+  /**
+   * the listener that collects the transition footprints and drives the
+   * backtrack and sleep set computation
+   */
+  protected class DPORListener extends ListenerAdapter {
+
+    VM vm;
+
+    DPORThreadChoice curCg; // the DPOR CG the current transition was executed from
+
+    // pending array access, we have to get ref and index before the insn is executed
+    ArrayElementInstruction arrayInsn;
+    long arrayKey;
+
+    // state matching support
+    boolean matchStates;
+    TransitionFootprint stateFootprint = new TransitionFootprint(); // of the current (JPF) transition
+    // stateId -> Summary in access order, so that we can drop the least recently used ones
+    @SuppressWarnings("serial")
+    LinkedHashMap<Integer,Summary> summaries = new LinkedHashMap<Integer,Summary>(1024, 0.75f, true){
+      @Override
+      protected boolean removeEldestEntry (Map.Entry<Integer,Summary> eldest){
+        if (size() > maxSummaries){
+          nDropped++;
+          return true;
+        }
+        return false;
+      }
+    };
+    ArrayList<Summary> path = new ArrayList<Summary>();       // indexed by search depth
+    HashMap<Integer,Integer> onPath = new HashMap<Integer,Integer>(); // stateId -> depth
+    int[] pathIds = new int[64];
+
+    int nCycles;
+    int nReplays;
+    int nDropped;
+    int nUnknown;
+
+    DPORListener (VM vm){
+      this.vm = vm;
+    }
+
+    void record (long key, int mode){
+      if (!isReducing){
+        return;
+      }
+
+      DPORThreadChoice cg = curCg;
+      if (cg != null){
+        if (cg.getCurrentFootprint().add(key, mode)){
+          cg.setCurrentClock(null); // needs to be re-computed
+        }
+      }
+      if (matchStates){
+        stateFootprint.add(key, mode);
+      }
+    }
+
+    //--- VMListener interface
+
+    @Override
+    public void choiceGeneratorSet (VM vm, ChoiceGenerator<?> newCG) {
+      if (newCG instanceof DPORThreadChoice){
+        DPORThreadChoice cg = (DPORThreadChoice)newCG;
+        if (!cg.isInitialized()){
+          initializeChoice(vm, cg);
+        }
+      }
+    }
+
+    @Override
+    public void choiceGeneratorAdvanced (VM vm, ChoiceGenerator<?> currentCG) {
+      if (!isReducing){
+        return;
+      }
+      if (currentCG instanceof DPORThreadChoice){
+        curCg = (DPORThreadChoice)currentCG;
+      } else {
+        // this could be a data CG we backtracked to, the transition still belongs to the last DPOR CG
+        curCg = currentCG.getPreviousChoiceGeneratorOfType(DPORThreadChoice.class);
+      }
+    }
+
+    @Override
+    public void executeInstruction (VM vm, ThreadInfo ti, Instruction insn) {
+      if (insn instanceof ArrayElementInstruction){
+        ArrayElementInstruction ainsn = (ArrayElementInstruction)insn;
+        ElementInfo ei = ainsn.peekArrayElementInfo(ti);
+        if (ei != null){
+          arrayInsn = ainsn;
+          arrayKey = TransitionFootprint.getArrayElementKey(ei.getObjectRef(), ainsn.peekIndex(ti));
+        }
+      }
+    }
+
+    @Override
+    public void instructionExecuted (VM vm, ThreadInfo ti, Instruction nextInsn, Instruction insn) {
+      if (insn instanceof FieldInstruction){
+        FieldInstruction finsn = (FieldInstruction)insn;
+        if (finsn.isCompleted(ti)){
+          FieldInfo fi = finsn.getFieldInfo();
+          long key;
+          if (fi.isStatic()){
+            key = TransitionFootprint.getStaticFieldKey(fi.getClassInfo().getUniqueId(), fi.getFieldIndex());
+          } else {
+            ElementInfo ei = finsn.getLastElementInfo();
+            if (ei == null){
+              return;
+            }
+            key = TransitionFootprint.getFieldKey(ei.getObjectRef(), fi.getFieldIndex());
+          }
+          record(key, finsn.isRead() ? TransitionFootprint.READ : TransitionFootprint.WRITE);
+        }
+
+      } else if (insn == arrayInsn){
+        if (insn.isCompleted(ti)){
+          record(arrayKey, arrayInsn.isRead() ? TransitionFootprint.READ : TransitionFootprint.WRITE);
+        }
+        arrayInsn = null;
+      }
+    }
+
+    void recordLock (ElementInfo ei){
+      record( TransitionFootprint.getLockKey(ei.getObjectRef()), TransitionFootprint.WRITE);
+    }
+
+    @Override
+    public void objectLocked (VM vm, ThreadInfo ti, ElementInfo ei) {
+      recordLock(ei);
+    }
+
+    @Override
+    public void objectUnlocked (VM vm, ThreadInfo ti, ElementInfo ei) {
+      recordLock(ei);
+    }
+
+    @Override
+    public void objectWait (VM vm, ThreadInfo ti, ElementInfo ei) {
+      recordLock(ei);
+    }
+
+    @Override
+    public void objectNotify (VM vm, ThreadInfo ti, ElementInfo ei) {
+      recordLock(ei);
+    }
+
+    @Override
+    public void objectNotifyAll (VM vm, ThreadInfo ti, ElementInfo ei) {
+      recordLock(ei);
+    }
+
+    @Override
+    public void threadStarted (VM vm, ThreadInfo tiStarted) {
+      record( TransitionFootprint.getLockKey(tiStarted.getThreadObjectRef()), TransitionFootprint.WRITE);
+      if (curCg != null){
+        curCg.addStartedThread(tiStarted);
+      }
+    }
+
+    @Override
+    public void threadTerminated (VM vm, ThreadInfo ti) {
+      // joins wait on the thread object
+      record( TransitionFootprint.getLockKey(ti.getThreadObjectRef()), TransitionFootprint.WRITE);
+    }
+
+    //--- SearchListener interface
+
+    @Override
+    public void searchStarted (Search search) {
+      isStateless = (search instanceof StatelessSearch);
+      if (!(search instanceof DFSearch) && !isStateless){
+        log.warning("DPOR requires a depth first search, falling back to full expansion for ",
+                    search.getClass().getName());
+        isReducing = false;
+      }
+
+      matchStates = (vm.getStateSet() != null);
+      setPath(0, vm.getStateId(), new Summary());
+    }
+
+    void setPath (int depth, int stateId, Summary s){
+      while (path.size() <= depth){
+        path.add(null);
+      }
+      path.set(depth, s);
+
+      if (depth >= pathIds.length){
+        pathIds = Arrays.copyOf(pathIds, depth*2);
+      }
+      pathIds[depth] = stateId;
+
+      if (s != null){
+        onPath.put(stateId, depth);
+      }
+    }
+
+    @Override
+    public void stateAdvanced (Search search) {
+      if (!isReducing){
+        return;
+      }
+      if (curCg != null){
+        processTransition(curCg); // in case this is the end of the path
+      }
+
+      if (matchStates){
+        int depth = search.getDepth();
+        int stateId = search.getStateId();
+        Summary src = path.get(depth-1);
+
+        if (src != null){
+          src.add(vm.getCurrentThread().getId(), stateFootprint);
+        }
+        stateFootprint = new TransitionFootprint();
+
+        if (search.isNewState()){
+          if (search.isEndState() || search.isIgnoredState()){
+            setPath(depth, stateId, null);
+          } else {
+            Summary s = new Summary();
+            summaries.put(stateId, s);
+            setPath(depth, stateId, s);
+          }
+
+        } else {
+          Integer cycleDepth = onPath.get(stateId);
+          if (cycleDepth != null){
+            expandCycle(cycleDepth);
+            if (src != null){
+              src.addTarget(path.get(cycleDepth));
+            }
+          } else {
+            Summary s = summaries.get(stateId);
+            if (s != null){
+              if (src != null){
+                src.addAll(s);
+              }
+              replay(s);
+
+            } else if (nDropped > 0 && !search.isEndState()){
+              // we might have dropped its summary, i.e. don't know what was explored below
+              nUnknown++;
+              expandPath(depth);
+            }
+          }
+          setPath(depth, stateId, null);
+        }
+      }
+    }
+
+    @Override
+    public void stateBacktracked (Search search) {
+      if (isReducing && matchStates){
+        int depth = search.getDepth();
+        if (depth+1 < path.size()){
+          Summary child = path.get(depth+1);
+          if (child != null){
+            Summary s = path.get(depth);
+            if (s != null){
+              s.addAll(child);
+            }
+            onPath.remove(pathIds[depth+1]);
+          }
+          path.set(depth+1, null);
+        }
+      }
+    }
+
+    /**
+     * we matched a state that is still on the path, i.e. we don't know yet what will be explored
+     * below it. Conservatively expand all CGs on the cycle
+     */
+    void expandCycle (int cycleDepth){
+      nCycles++;
+      for (DPORThreadChoice cg = curCg; cg != null && cg.getStateDepth() >= cycleDepth; cg = cg.getParent()){
+        cg.addAllBacktrack();
+      }
+    }
+
+    /**
+     * we matched a state without summary, fully expand all CGs on the path and mark
+     * the summaries of the path as unknown so that later matches also expand. Since
+     * this loses reduction, the summary limit should be large enough to make it rare
+     */
+    void expandPath (int depth){
+      for (int i=0; i<depth && i<path.size(); i++){
+        Summary s = path.get(i);
+        if (s != null){
+          s.isUnknown = true;
+        }
+      }
+      for (DPORThreadChoice cg = curCg; cg != null; cg = cg.getParent()){
+        cg.addAllBacktrack();
+      }
+    }
+
+    /**
+     * we matched a state that was explored before, check everything that was executed below it
+     * as if it would be executed next
+     */
+    void replay (Summary s){
+      if (curCg != null){
+        nReplays++;
+        if (replay(s, new IdentityHashMap<Summary,Summary>())){
+          nUnknown++;
+          expandPath(vm.getSearch().getDepth());
+        }
+      }
+    }
+
+    /**
+     * @return true if any of the replayed summaries is unknown
+     */
+    boolean replay (Summary s, IdentityHashMap<Summary,Summary> visited){
+      boolean isUnknown = false;
+      if (visited.put(s, s) == null){
+        isUnknown = s.isUnknown;
+        ThreadList tl = vm.getThreadList();
+        for (int tid=0; tid<s.footprints.length; tid++){
+          TransitionFootprint fp = s.footprints[tid];
+          if (fp != null){
+            ThreadInfo ti = tl.getThreadInfoForId(tid);
+            if (ti != null){
+              checkPending(ti, fp, curCg);
+            }
+          }
+        }
+
+        if (s.targets != null){
+          for (Summary t : s.targets){
+            isUnknown |= replay(t, visited);
+          }
+        }
+      }
+      return isUnknown;
+    }
+
+    @Override
+    public void searchFinished (Search search) {
+      if (isReducing){
+        log.info("DPOR state matches with replays: ", nReplays, ", cycles: ", nCycles,
+                 ", dropped summaries: ", nDropped, ", unknown: ", nUnknown);
+      }
+    }
+  }
+}
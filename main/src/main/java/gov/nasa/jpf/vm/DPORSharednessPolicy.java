@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.vm.choice.DPORThreadChoice;
+
+/**
+ * a PathSharednessPolicy that creates DPORThreadChoices, to be used by the DPORScheduler.
+ * We need a path local sharedness policy since DPOR only adds backtrack points to
+ * CGs on the current path
+ */
+public class DPORSharednessPolicy extends PathSharednessPolicy {
+
+  public DPORSharednessPolicy (Config config){
+    super(config);
+  }
+
+  @Override
+  protected ChoiceGenerator<ThreadInfo> createThreadChoice (String id, ThreadInfo[] choices){
+    return new DPORThreadChoice( id, choices, true);
+  }
+}
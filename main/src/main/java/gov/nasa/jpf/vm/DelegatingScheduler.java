@@ -34,6 +34,11 @@ public class DelegatingScheduler implements Scheduler {
     sharednessPolicy = config.getEssentialInstance("vm.scheduler.sharedness.class", SharednessPolicy.class);
   }
   
+  protected DelegatingScheduler (SyncPolicy syncPolicy, SharednessPolicy sharednessPolicy){
+    this.syncPolicy = syncPolicy;
+    this.sharednessPolicy = sharednessPolicy;
+  }
+  
   //--- Scheduler interface
 
   @Override
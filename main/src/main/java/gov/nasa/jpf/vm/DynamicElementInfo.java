@@ -133,7 +133,7 @@ public class DynamicElementInfo extends ElementInfo {
 
     int vref = getDeclaredReferenceField("value", "java.lang.String");
     ElementInfo e = VM.getVM().getHeap().get(vref);
-    CharArrayFields cf = (CharArrayFields)e.getFields();
+    CharArrayFields cf = (CharArrayFields)e.getReadOnlyFields();
     char[] v = cf.asCharArray();
     
     return new String(v).equals(s);
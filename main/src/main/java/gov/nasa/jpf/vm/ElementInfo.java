@@ -80,6 +80,15 @@ public abstract class ElementInfo
 
   public static final int ATTR_ATTRIBUTE_CHANGED = 0x80000; // refers only to sticky bits
 
+  // fields/monitor are still shared with the frozen ElementInfo this one was cloned
+  // from, and have to be copied before they are modified (see deepClone)
+  public static final int ATTR_FIELDS_SHARED = 0x1000000;
+
+  public static final int ATTR_MONITOR_SHARED = 0x2000000;
+
+  // transient flag set by the heap during minor gcs for objects that were allocated since the last gc
+  public static final int ATTR_IS_YOUNG = 0x4000000;
+
   //--- useful flag sets & masks
 
   static final int ATTR_STORE_MASK = 0x0000ffff;
@@ -572,7 +581,7 @@ public abstract class ElementInfo
    */
   public void setObjectAttr(Object a){
     checkIsModifiable();
-    fields.setObjectAttr(a);
+    getModifiableFields().setObjectAttr(a);
   }
 
   /**
@@ -582,23 +591,23 @@ public abstract class ElementInfo
    * - you constructed a multi value list with ObjectList.createList()
    */
   public void setObjectAttrNoClone(Object a){
-    fields.setObjectAttr(a);
+    getNoCloneFields().setObjectAttr(a);
   }
 
 
   public void addObjectAttr(Object a){
     checkIsModifiable();
-    fields.addObjectAttr(a);
+    getModifiableFields().addObjectAttr(a);
   }
 
   public void removeObjectAttr(Object a){
     checkIsModifiable();
-    fields.removeObjectAttr(a);
+    getModifiableFields().removeObjectAttr(a);
   }
 
   public void replaceObjectAttr(Object oldAttr, Object newAttr){
     checkIsModifiable();
-    fields.replaceObjectAttr(oldAttr, newAttr);
+    getModifiableFields().replaceObjectAttr(oldAttr, newAttr);
   }
 
 
@@ -650,7 +659,7 @@ public abstract class ElementInfo
     checkIsModifiable();
 
     int nFields = getNumberOfFieldsOrElements();
-    fields.setFieldAttr(nFields, fi.getFieldIndex(), attr);
+    getModifiableFields().setFieldAttr(nFields, fi.getFieldIndex(), attr);
   }
 
 
@@ -658,17 +667,17 @@ public abstract class ElementInfo
     checkIsModifiable();
 
     int nFields = getNumberOfFieldsOrElements();
-    fields.addFieldAttr(nFields, fi.getFieldIndex(), a);
+    getModifiableFields().addFieldAttr(nFields, fi.getFieldIndex(), a);
   }
 
   public void removeFieldAttr(FieldInfo fi, Object a){
     checkIsModifiable();
-    fields.removeFieldAttr(fi.getFieldIndex(), a);
+    getModifiableFields().removeFieldAttr(fi.getFieldIndex(), a);
   }
 
   public void replaceFieldAttr(FieldInfo fi, Object oldAttr, Object newAttr){
     checkIsModifiable();
-    fields.replaceFieldAttr(fi.getFieldIndex(), oldAttr, newAttr);
+    getModifiableFields().replaceFieldAttr(fi.getFieldIndex(), oldAttr, newAttr);
   }
 
   /**
@@ -719,7 +728,7 @@ public abstract class ElementInfo
   public void setElementAttr(int idx, Object attr){
     int nElements = getNumberOfFieldsOrElements();
     checkIsModifiable();
-    fields.setFieldAttr(nElements, idx, attr);
+    getModifiableFields().setFieldAttr(nElements, idx, attr);
   }
 
   /**
@@ -730,7 +739,7 @@ public abstract class ElementInfo
    */
   public void setElementAttrNoClone(int idx, Object attr){
     int nElements = getNumberOfFieldsOrElements();
-    fields.setFieldAttr(nElements, idx, attr);
+    getNoCloneFields().setFieldAttr(nElements, idx, attr);
   }
 
 
@@ -738,17 +747,17 @@ public abstract class ElementInfo
     checkIsModifiable();
 
     int nElements = getNumberOfFieldsOrElements();
-    fields.addFieldAttr(nElements, idx, a);
+    getModifiableFields().addFieldAttr(nElements, idx, a);
   }
 
   public void removeElementAttr(int idx, Object a){
     checkIsModifiable();
-    fields.removeFieldAttr(idx, a);
+    getModifiableFields().removeFieldAttr(idx, a);
   }
 
   public void replaceElementAttr(int idx, Object oldAttr, Object newAttr){
     checkIsModifiable();
-    fields.replaceFieldAttr(idx, oldAttr, newAttr);
+    getModifiableFields().replaceFieldAttr(idx, oldAttr, newAttr);
   }
 
   /**
@@ -756,15 +765,15 @@ public abstract class ElementInfo
    */
   public void addElementAttrNoClone(int idx, Object a){
     int nElements = getNumberOfFieldsOrElements();
-    fields.addFieldAttr(nElements, idx, a);
+    getNoCloneFields().addFieldAttr(nElements, idx, a);
   }
 
   public void removeElementAttrNoClone(int idx, Object a){
-    fields.removeFieldAttr(idx, a);
+    getNoCloneFields().removeFieldAttr(idx, a);
   }
 
   public void replaceElementAttrNoClone(int idx, Object oldAttr, Object newAttr){
-    fields.replaceFieldAttr(idx, oldAttr, newAttr);
+    getNoCloneFields().replaceFieldAttr(idx, oldAttr, newAttr);
   }
 
   /**
@@ -864,7 +873,7 @@ public abstract class ElementInfo
 
     if (fi.isBooleanField()) {
       int offset = fi.getStorageOffset();
-      fields.setBooleanValue(offset, newValue);
+      getModifiableFields().setBooleanValue(offset, newValue);
     } else {
       throw new JPFException("not a boolean field: " + fi.getFullName());
     }
@@ -875,7 +884,7 @@ public abstract class ElementInfo
 
     if (fi.isByteField()) {
       int offset = fi.getStorageOffset();
-      fields.setByteValue(offset, newValue);
+      getModifiableFields().setByteValue(offset, newValue);
     } else {
       throw new JPFException("not a byte field: " + fi.getFullName());
     }
@@ -886,7 +895,7 @@ public abstract class ElementInfo
 
     if (fi.isCharField()) {
       int offset = fi.getStorageOffset();
-      fields.setCharValue(offset, newValue);
+      getModifiableFields().setCharValue(offset, newValue);
     } else {
       throw new JPFException("not a char field: " + fi.getFullName());
     }
@@ -897,7 +906,7 @@ public abstract class ElementInfo
 
     if (fi.isShortField()) {
       int offset = fi.getStorageOffset();
-      fields.setShortValue(offset, newValue);
+      getModifiableFields().setShortValue(offset, newValue);
     } else {
       throw new JPFException("not a short field: " + fi.getFullName());
     }
@@ -908,7 +917,7 @@ public abstract class ElementInfo
 
     if (fi.isIntField()) {
       int offset = fi.getStorageOffset();
-      fields.setIntValue(offset, newValue);
+      getModifiableFields().setIntValue(offset, newValue);
     } else {
       throw new JPFException("not an int field: " + fi.getFullName());
     }
@@ -919,7 +928,7 @@ public abstract class ElementInfo
 
     if (fi.isLongField()) {
       int offset = fi.getStorageOffset();
-      fields.setLongValue(offset, newValue);
+      getModifiableFields().setLongValue(offset, newValue);
     } else {
       throw new JPFException("not a long field: " + fi.getFullName());
     }
@@ -930,7 +939,7 @@ public abstract class ElementInfo
 
     if (fi.isFloatField()) {
       int offset = fi.getStorageOffset();
-      fields.setFloatValue(offset, newValue);
+      getModifiableFields().setFloatValue(offset, newValue);
     } else {
       throw new JPFException("not a float field: " + fi.getFullName());
     }
@@ -941,7 +950,7 @@ public abstract class ElementInfo
 
     if (fi.isDoubleField()) {
       int offset = fi.getStorageOffset();
-      fields.setDoubleValue(offset, newValue);
+      getModifiableFields().setDoubleValue(offset, newValue);
     } else {
       throw new JPFException("not a double field: " + fi.getFullName());
     }
@@ -952,7 +961,7 @@ public abstract class ElementInfo
 
     if (fi.isReference()) {
       int offset = fi.getStorageOffset();
-      fields.setReferenceValue(offset, newValue);
+      getModifiableFields().setReferenceValue(offset, newValue);
     } else {
       throw new JPFException("not a reference field: " + fi.getFullName());
     }
@@ -963,7 +972,7 @@ public abstract class ElementInfo
 
     if (fi.is1SlotField()) {
       int offset = fi.getStorageOffset();
-      fields.setIntValue(offset, newValue);
+      getModifiableFields().setIntValue(offset, newValue);
     } else {
       throw new JPFException("not a 1 slot field: " + fi.getFullName());
     }
@@ -974,7 +983,7 @@ public abstract class ElementInfo
 
     if (fi.is2SlotField()) {
       int offset = fi.getStorageOffset();
-      fields.setLongValue(offset, newValue);
+      getModifiableFields().setLongValue(offset, newValue);
     } else {
       throw new JPFException("not a 2 slot field: " + fi.getFullName());
     }
@@ -1014,7 +1023,7 @@ public abstract class ElementInfo
     checkIsModifiable();
 
     FieldInfo fi = getDeclaredFieldInfo(clsBase, fname);
-    fields.setLongValue(fi.getStorageOffset(), value);
+    getModifiableFields().setLongValue(fi.getStorageOffset(), value);
   }
 
   public long getDeclaredLongField(String fname, String clsBase){
@@ -1257,8 +1266,8 @@ public abstract class ElementInfo
     // note also this preserves values in case of a self copy
     checkIsModifiable();
 
-    Object srcVals = ( (ArrayFields)eiSrc.getFields() ).getValues();
-    Object dstVals = ( (ArrayFields)fields ).getValues();
+    Object dstVals = ( (ArrayFields)getModifiableFields() ).getValues();
+    Object srcVals = ( (ArrayFields)eiSrc.fields ).getValues();
 
     // this might throw ArrayIndexOutOfBoundsExceptions and ArrayStoreExceptions
     System.arraycopy(srcVals, srcIdx, dstVals, dstIdx, length);
@@ -1283,55 +1292,55 @@ public abstract class ElementInfo
   public void setBooleanElement(int idx, boolean value){
     checkArray(idx);
     checkIsModifiable();
-    fields.setBooleanValue(idx, value);
+    getModifiableFields().setBooleanValue(idx, value);
   }
 
   public void setByteElement(int idx, byte value){
     checkArray(idx);
     checkIsModifiable();
-    fields.setByteValue(idx, value);
+    getModifiableFields().setByteValue(idx, value);
   }
 
   public void setCharElement(int idx, char value){
     checkArray(idx);
     checkIsModifiable();
-    fields.setCharValue(idx, value);
+    getModifiableFields().setCharValue(idx, value);
   }
 
   public void setShortElement(int idx, short value){
     checkArray(idx);
     checkIsModifiable();
-    fields.setShortValue(idx, value);
+    getModifiableFields().setShortValue(idx, value);
   }
 
   public void setIntElement(int idx, int value){
     checkArray(idx);
     checkIsModifiable();
-    fields.setIntValue(idx, value);
+    getModifiableFields().setIntValue(idx, value);
   }
 
   public void setLongElement(int idx, long value){
     checkArray(idx);
     checkIsModifiable();
-    fields.setLongValue(idx, value);
+    getModifiableFields().setLongValue(idx, value);
   }
 
   public void setFloatElement(int idx, float value){
     checkArray(idx);
     checkIsModifiable();
-    fields.setFloatValue(idx, value);
+    getModifiableFields().setFloatValue(idx, value);
   }
 
   public void setDoubleElement(int idx, double value){
     checkArray(idx);
     checkIsModifiable();
-    fields.setDoubleValue(idx, value);
+    getModifiableFields().setDoubleValue(idx, value);
   }
 
   public void setReferenceElement(int idx, int value){
     checkArray(idx);
     checkIsModifiable();
-    fields.setReferenceValue(idx, value);
+    getModifiableFields().setReferenceValue(idx, value);
   }
 
   /**
@@ -1342,7 +1351,7 @@ public abstract class ElementInfo
     src.checkArray(srcPos + len - 1);
     checkIsModifiable();
 
-    ArrayFields da = (ArrayFields)fields;
+    ArrayFields da = (ArrayFields)getModifiableFields();
     ArrayFields sa = (ArrayFields)src.fields;
 
     da.copyElements(sa, srcPos, dstPos, len);
@@ -1454,7 +1463,7 @@ public abstract class ElementInfo
   // <2do> these will check for corresponding ArrayFields types
   public boolean[] asBooleanArray(){
     if (fields instanceof ArrayFields) {
-      return ( (ArrayFields)fields ).asBooleanArray();
+      return ( (ArrayFields)getExposedFields() ).asBooleanArray();
     } else {
       throw new JPFException("not an array: " + classInfo.getName());
     }
@@ -1462,7 +1471,7 @@ public abstract class ElementInfo
 
   public byte[] asByteArray(){
     if (fields instanceof ArrayFields) {
-      return ( (ArrayFields)fields ).asByteArray();
+      return ( (ArrayFields)getExposedFields() ).asByteArray();
     } else {
       throw new JPFException("not an array: " + classInfo.getName());
     }
@@ -1470,7 +1479,7 @@ public abstract class ElementInfo
 
   public short[] asShortArray(){
     if (fields instanceof ArrayFields) {
-      return ( (ArrayFields)fields ).asShortArray();
+      return ( (ArrayFields)getExposedFields() ).asShortArray();
     } else {
       throw new JPFException("not an array: " + classInfo.getName());
     }
@@ -1478,7 +1487,7 @@ public abstract class ElementInfo
 
   public char[] asCharArray(){
     if (fields instanceof ArrayFields) {
-      return ( (ArrayFields)fields ).asCharArray();
+      return ( (ArrayFields)getExposedFields() ).asCharArray();
     } else {
       throw new JPFException("not an array: " + classInfo.getName());
     }
@@ -1486,7 +1495,7 @@ public abstract class ElementInfo
 
   public int[] asIntArray(){
     if (fields instanceof ArrayFields) {
-      return ( (ArrayFields)fields ).asIntArray();
+      return ( (ArrayFields)getExposedFields() ).asIntArray();
     } else {
       throw new JPFException("not an array: " + classInfo.getName());
     }
@@ -1494,7 +1503,7 @@ public abstract class ElementInfo
 
   public long[] asLongArray(){
     if (fields instanceof ArrayFields) {
-      return ( (ArrayFields)fields ).asLongArray();
+      return ( (ArrayFields)getExposedFields() ).asLongArray();
     } else {
       throw new JPFException("not an array: " + classInfo.getName());
     }
@@ -1502,7 +1511,7 @@ public abstract class ElementInfo
 
   public float[] asFloatArray(){
     if (fields instanceof ArrayFields) {
-      return ( (ArrayFields)fields ).asFloatArray();
+      return ( (ArrayFields)getExposedFields() ).asFloatArray();
     } else {
       throw new JPFException("not an array: " + classInfo.getName());
     }
@@ -1510,7 +1519,7 @@ public abstract class ElementInfo
 
   public double[] asDoubleArray(){
     if (fields instanceof ArrayFields) {
-      return ( (ArrayFields)fields ).asDoubleArray();
+      return ( (ArrayFields)getExposedFields() ).asDoubleArray();
     } else {
       throw new JPFException("not an array: " + classInfo.getName());
     }
@@ -1518,7 +1527,7 @@ public abstract class ElementInfo
 
   public int[] asReferenceArray(){
     if (fields instanceof ArrayFields) {
-      return ( (ArrayFields)fields ).asReferenceArray();
+      return ( (ArrayFields)getExposedFields() ).asReferenceArray();
     } else {
       throw new JPFException("not an array: " + classInfo.getName());
     }
@@ -1685,6 +1694,7 @@ public abstract class ElementInfo
       ElementInfo ei = (ElementInfo)super.clone();
       ei.fields = fields.clone();
       ei.monitor = monitor.clone();
+      ei.attributes &= ~(ATTR_FIELDS_SHARED | ATTR_MONITOR_SHARED);
 
       return ei;
 
@@ -1693,17 +1703,25 @@ public abstract class ElementInfo
     }
   }
 
-  // this is the one that should be used by heap
+  /**
+   * this is the one that should be used by heap
+   *
+   * Since we are usually cloning a frozen ElementInfo in order to change just one
+   * aspect of it (e.g. a field value, or the monitor for a lock/unlock), we don't
+   * copy fields and monitor here. They are shared with the frozen original until
+   * the first modification (getModifiableFields, getModifiableMonitor), which
+   * avoids the Fields and value array allocation for the most frequent
+   * non-field changes
+   */
   public ElementInfo deepClone(){
     try {
       ElementInfo ei = (ElementInfo)super.clone();
-      ei.fields = fields.clone();
-      ei.monitor = monitor.clone();
 
       // referencingThreads is at least subtree global, hence doesn't need to be cloned
 
       ei.cachedMemento = null;
       ei.defreeze();
+      ei.attributes |= (ATTR_FIELDS_SHARED | ATTR_MONITOR_SHARED);
 
       return ei;
 
@@ -1794,8 +1812,8 @@ public abstract class ElementInfo
     // the thread might be still in the lockedThreads list if this is the
     // first step of a transition
     setMonitorWithoutLocked(ti);
-    monitor.setLockingThread(ti);
-    monitor.incLockCount();
+    getModifiableMonitor().setLockingThread(ti);
+    getModifiableMonitor().incLockCount();
 
     // before we enter anything else, mark this thread as not being blocked anymore
     ti.resetLockRef();
@@ -1868,11 +1886,11 @@ public abstract class ElementInfo
 
       // leave the contenders - we need to know whom to block on subsequent lock
 
-      monitor.decLockCount();
-      monitor.setLockingThread(null);
+      getModifiableMonitor().decLockCount();
+      getModifiableMonitor().setLockingThread(null);
 
     } else { // recursive unlock
-      monitor.decLockCount();
+      getModifiableMonitor().decLockCount();
     }
 
     return didUnblock;
@@ -1992,8 +2010,8 @@ public abstract class ElementInfo
     if (holdsLock) {
       ti.setLockCount(monitor.getLockCount());
 
-      monitor.setLockingThread(null);
-      monitor.setLockCount(0);
+      getModifiableMonitor().setLockingThread(null);
+      getModifiableMonitor().setLockCount(0);
 
       ti.removeLockedObject(this);
 
@@ -2025,8 +2043,8 @@ public abstract class ElementInfo
     assert ti.isUnblocked() : "resume waiting thread " + ti.getName() + " which is not unblocked";
 
     setMonitorWithoutLocked(ti);
-    monitor.setLockingThread(ti);
-    monitor.setLockCount(ti.getLockCount());
+    getModifiableMonitor().setLockingThread(ti);
+    getModifiableMonitor().setLockCount(ti.getLockCount());
 
     ti.setLockCount(0);
     ti.resetLockRef();
@@ -2129,6 +2147,7 @@ public abstract class ElementInfo
 
   public void restoreFields(Fields f){
     fields = f;
+    attributes &= ~ATTR_FIELDS_SHARED;
   }
 
   /**
@@ -2136,12 +2155,21 @@ public abstract class ElementInfo
    * ElementInfo change status, this field is state managed!
    */
   public Fields getFields(){
+    return getExposedFields();
+  }
+
+  /**
+   * same as getFields(), but for callers that only read values (like serializers),
+   * which therefore don't cause shared fields of unfrozen ElementInfos to be copied.
+   * The returned object must not be modified
+   */
+  public Fields getReadOnlyFields(){
     return fields;
   }
 
   public ArrayFields getArrayFields(){
     if (fields instanceof ArrayFields) {
-      return (ArrayFields)fields;
+      return (ArrayFields)getExposedFields();
     } else {
       throw new JPFException("not an array: " + classInfo.getName());
     }
@@ -2158,6 +2186,7 @@ public abstract class ElementInfo
 
   public void restoreMonitor(Monitor m){
     monitor = m;
+    attributes &= ~ATTR_MONITOR_SHARED;
   }
 
   /**
@@ -2212,6 +2241,63 @@ public abstract class ElementInfo
     attributes &= ~ATTR_IS_MARKED;
   }
 
+  public boolean isYoung(){
+    return ( attributes & ATTR_IS_YOUNG ) != 0;
+  }
+
+  public void setYoung(boolean isYoung){
+    if (isYoung) {
+      attributes |= ATTR_IS_YOUNG;
+    } else {
+      attributes &= ~ATTR_IS_YOUNG;
+    }
+  }
+
+
+  /**
+   * return the Fields object for modification, which requires a copy if we
+   * still share it with the frozen ElementInfo we were cloned from
+   */
+  protected Fields getModifiableFields(){
+    if (( attributes & ATTR_FIELDS_SHARED ) != 0) {
+      attributes &= ~ATTR_FIELDS_SHARED;
+      fields = fields.clone();
+    }
+    return fields;
+  }
+
+  protected Monitor getModifiableMonitor(){
+    if (( attributes & ATTR_MONITOR_SHARED ) != 0) {
+      attributes &= ~ATTR_MONITOR_SHARED;
+      monitor = monitor.clone();
+    }
+    return monitor;
+  }
+
+  /**
+   * the Fields object modified by the *NoClone attribute setters, which change
+   * attributes in place. Frozen ElementInfos keep their Fields object, i.e. this
+   * also modifies the stored state (and the frozen ElementInfos we still share
+   * the fields with). Unfrozen clones get the copy that deepClone() deferred,
+   * so that we don't modify the frozen original
+   */
+  private Fields getNoCloneFields(){
+    if (( attributes & ATTR_IS_FROZEN ) != 0) {
+      return fields;
+    } else {
+      return getModifiableFields();
+    }
+  }
+
+  // we can't track what callers do with exposed value arrays or Fields objects,
+  // hence we have to assume they get modified if we are not frozen
+  private Fields getExposedFields(){
+    if (( attributes & ATTR_IS_FROZEN ) == 0) {
+      return getModifiableFields();
+    } else {
+      return fields;
+    }
+  }
 
   protected void checkIsModifiable(){
     if (( attributes & ATTR_IS_FROZEN ) != 0) {
@@ -2221,12 +2307,12 @@ public abstract class ElementInfo
 
   void setMonitorWithLocked(ThreadInfo ti){
     checkIsModifiable();
-    monitor.addLocked(ti);
+    getModifiableMonitor().addLocked(ti);
   }
 
   void setMonitorWithoutLocked(ThreadInfo ti){
     checkIsModifiable();
-    monitor.removeLocked(ti);
+    getModifiableMonitor().removeLocked(ti);
   }
 
   public boolean isLockedBy(ThreadInfo ti){
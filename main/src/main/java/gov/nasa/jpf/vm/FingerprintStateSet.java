@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * a StateSet that is fully described by the (ordered) fingerprints of its
+ * states, which can be written and read back, e.g. to resume a search from a
+ * checkpoint. State ids are preserved, i.e. the fingerprint of state i is the
+ * i-th value that is written
+ */
+public interface FingerprintStateSet extends StateSet {
+
+  void writeFingerprints (DataOutput out) throws IOException;
+
+  /**
+   * replace the current contents of the set with the fingerprints that were
+   * written by writeFingerprints()
+   */
+  void readFingerprints (DataInput in) throws IOException;
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+/**
+ * a StateSerializer that can compute a 64bit fingerprint of the current state
+ * without creating the (full) serialized state vector. This is used by
+ * StateSets that only store hash values, such as IncrementalStateSet
+ */
+public interface FingerprintingSerializer extends StateSerializer {
+
+  /**
+   * @return the fingerprint of the current state. This is not comparable
+   * with hash values of the getStoringData() vector
+   */
+  long getStateFingerprint();
+}
@@ -19,6 +19,7 @@
 package gov.nasa.jpf.vm;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -38,6 +39,16 @@ import gov.nasa.jpf.util.Processor;
  * 
  * The concrete Heap implementors have to provide the ElementInfo collection
  * and associated getters, allocators and iterators
+ *
+ * If 'vm.gc.full_interval' is > 1, only every n-th gc along a path is a full
+ * collection. The others are minor gcs that only trace and sweep objects which
+ * were allocated since the last gc, treating all older objects as live. Since
+ * references to young objects can only be stored in old objects that were
+ * modified since the last gc, and old objects can only be modified after they
+ * were cloned by getModifiable() (unless they are still not frozen), we keep
+ * a remembered set of the objects that went through this write barrier, and use
+ * it as additional roots. Garbage that is not young anymore is reclaimed by the
+ * next full gc
  */
 public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
   
@@ -46,12 +57,24 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
     int attributes;
     IntVector pinDownList;
     Map<Integer,IntTable<String>> internStringsMap;
+
+    // incremental gc state (only if enabled). Note that our state is stored
+    // before the gc, i.e. it is restored with its young objects
+    int gcCount;
+    int[] youngRefs;
+    int[] modifiedRefs;
     
     protected GenericHeapMemento (GenericHeap heap){
       // these are copy-on-first-write, so we don't have to clone
       pinDownList = heap.pinDownList;
       internStringsMap = heap.internStringsMap;
       attributes = heap.attributes & ATTR_STORE_MASK;
+
+      if (heap.youngRefs != null){
+        gcCount = heap.gcCount;
+        youngRefs = heap.youngRefs.toArray();
+        modifiedRefs = heap.modifiedRefs.toArray();
+      }
       
       heap.setStored();
     }
@@ -63,6 +86,12 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
       heap.internStringsMap = internStringsMap;
       heap.attributes = attributes;
       heap.liveBitValue = false; // always start with false after a restore
+
+      if (youngRefs != null){
+        heap.gcCount = gcCount;
+        heap.youngRefs = new IntVector(youngRefs);
+        heap.modifiedRefs = new IntVector(modifiedRefs);
+      }
       return inSitu;
     }
   }
@@ -119,6 +148,44 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
   // the number of live objects
   // <2do> currently only defined after gc
   protected int nLiveObjects;
+
+  //--- incremental gc support (the lists are null if every gc is a full gc)
+
+  // every fullGcInterval'th gc on a path is a full gc
+  protected int fullGcInterval;
+
+  // number of gcs on the current path
+  protected int gcCount;
+
+  // the objects that were allocated since the last gc
+  protected IntVector youngRefs;
+
+  // the remembered set - old objects that were cloned by getModifiable() since the
+  // last gc, or were not frozen at the time of the last gc
+  protected IntVector modifiedRefs;
+
+  // set while we only trace young objects
+  protected boolean isMinorGc;
+
+  //--- change tracking for incremental serializers (null/false unless requested)
+
+  // refs of ElementInfos that were allocated, cloned or removed since the last
+  // clearChangedRefs(), including the ones that differ after a restore. Might
+  // contain duplicates
+  protected IntVector changedRefs;
+
+  // set if we don't know which refs have changed, e.g. after a restore of a
+  // heap that doesn't compute the delta to the restored state
+  protected boolean allRefsChanged;
+
+  //--- frozen ElementInfo support for heaps that share objects between states (CowHeap, PSIMHeap)
+
+  // ElementInfos that were set since the last store, i.e. are not yet frozen
+  protected ArrayList<ElementInfo> changed = new ArrayList<ElementInfo>();
+
+  // sorted refs of objects with monitor state that has to be propagated to
+  // ThreadInfos upon restore. This is copy-on-write, and usually small
+  protected int[] lockedRefs = new int[0];
   
   //--- constructors
 
@@ -135,6 +202,12 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
     if (config.getBoolean("vm.sweep",true)){
       attributes |= ATTR_GC;
     }
+
+    fullGcInterval = config.getInt("vm.gc.full_interval", 1);
+    if (fullGcInterval > 1){
+      youngRefs = new IntVector();
+      modifiedRefs = new IntVector();
+    }
   }
 
 
@@ -142,6 +215,128 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
     return new DynamicElementInfo( objref,ci,f,m,ti);
   }
   
+  /**
+   * does this heap keep the serialization ids of restored objects that are shared
+   * with the state we backtrack from? Serializers that rely on sids being reset
+   * upon restore have to use a per-run sid range in this case
+   */
+  public boolean keepsStaleSerializationIds (){
+    return false;
+  }
+
+  //--- frozen ElementInfo support
+
+  /**
+   * freeze all ElementInfos that were set since the last store, so that they
+   * can be shared with the snapshot, and record which ones have locked monitors
+   */
+  protected void freezeChanged (){
+    int n = changed.size();
+    if (n > 0){
+      for (int i=0; i<n; i++){
+        ElementInfo ei = changed.get(i);
+        ei.freeze();
+
+        if (get(ei.getObjectRef()) == ei){
+          Monitor monitor = ei.getMonitor();
+          setLocked(ei.getObjectRef(), (monitor.getLockingThread() != null) || monitor.hasLockedThreads());
+        }
+      }
+      changed.clear();
+    }
+  }
+
+  protected void setLocked (int ref, boolean isLocked){
+    int[] a = lockedRefs;
+    int len = a.length;
+    int idx = Arrays.binarySearch(a, ref);
+
+    if (isLocked){
+      if (idx < 0){
+        idx = -idx -1;
+        int[] newRefs = new int[len+1];
+        System.arraycopy(a, 0, newRefs, 0, idx);
+        newRefs[idx] = ref;
+        System.arraycopy(a, idx, newRefs, idx+1, len - idx);
+        lockedRefs = newRefs;
+      }
+    } else {
+      if (idx >= 0){
+        int[] newRefs = new int[len-1];
+        System.arraycopy(a, 0, newRefs, 0, idx);
+        System.arraycopy(a, idx+1, newRefs, idx, len - idx - 1);
+        lockedRefs = newRefs;
+      }
+    }
+  }
+
+  //--- incremental gc and change tracking
+
+  protected void addYoung (int objref){
+    if (youngRefs != null){
+      youngRefs.add(objref);
+    }
+    addChangedRef(objref);
+  }
+
+  /**
+   * the write barrier for incremental gc and change tracking, to be called by
+   * concrete heaps if getModifiable() had to clone a frozen ElementInfo
+   */
+  protected void addModified (int objref){
+    if (modifiedRefs != null){
+      modifiedRefs.add(objref);
+    }
+    addChangedRef(objref);
+  }
+
+  protected void addChangedRef (int objref){
+    if (changedRefs != null){
+      changedRefs.add(objref);
+    }
+  }
+
+  /**
+   * to be called by concrete heaps upon restore if they don't log the refs
+   * that differ between the current and the restored state
+   */
+  protected void setAllRefsChanged (){
+    if (changedRefs != null){
+      allRefsChanged = true;
+      changedRefs.clear();
+    }
+  }
+
+  /**
+   * start to log changed refs, for clients that want to process only the
+   * objects that changed since they last looked (e.g. IncrementalSerializer).
+   * Note this only tracks the ElementInfo identities - frozen ElementInfos
+   * don't change, and modifying them requires getModifiable()
+   */
+  public void trackChangedRefs (){
+    if (changedRefs == null){
+      changedRefs = new IntVector();
+      allRefsChanged = true; // we don't know what happened before
+    }
+  }
+
+  /**
+   * @return the refs of objects that were allocated, replaced or removed
+   * since the last clearChangedRefs() (including the ones that differ after
+   * a restore), or null if we don't know, in which case clients have to
+   * process all live objects
+   */
+  public IntVector getChangedRefs (){
+    return allRefsChanged ? null : changedRefs;
+  }
+
+  public void clearChangedRefs (){
+    if (changedRefs != null){
+      changedRefs.clear();
+      allRefsChanged = false;
+    }
+  }
+
   //--- pinDown handling
   protected void addToPinDownList (int objref){
     if ((attributes & ATTR_PINDOWN_CHANGED) == 0) {
@@ -207,11 +402,14 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
    * reset all weak references that now point to collected objects to 'null'
    * NOTE: this implementation requires our own Reference/WeakReference implementation, to
    * make sure the 'ref' field is the first one
+   * @return true if we had to reset any weak reference
    */
-  protected void cleanupWeakRefs () {
+  protected boolean cleanupWeakRefs () {
+    boolean isModified = false;
+
     if (weakRefs != null) {
       for (ElementInfo ei : weakRefs) {
-        Fields f = ei.getFields();
+        Fields f = ei.getReadOnlyFields();
         int    ref = f.getIntValue(0); // watch out, the 0 only works with our own WeakReference impl
         if (ref != MJIEnv.NULL) {
           ElementInfo refEi = get(ref);
@@ -219,12 +417,15 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
             ei = ei.getModifiableInstance();
             // we need to make sure the Fields are properly state managed
             ei.setReferenceField(ei.getFieldInfo(0), MJIEnv.NULL);
+            isModified = true;
           }
         }
       }
 
       weakRefs = null;
     }
+
+    return isModified;
   }
   
   // NOTE - this is where to assert if this index isn't occupied yet, since only concrete classes know
@@ -248,6 +449,7 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
     ElementInfo ei = createElementInfo( objref, ci, f, m, ti);
     
     set(objref, ei);
+    addYoung(objref);
 
     attributes |= ATTR_ELEMENTS_CHANGED;
 
@@ -288,6 +490,7 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
     DynamicElementInfo ei = createElementInfo( objref, ci, f, m, ti);
 
     set(objref, ei);
+    addYoung(objref);
 
     attributes |= ATTR_ELEMENTS_CHANGED;
 
@@ -555,6 +758,9 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
 
     ElementInfo ei = get(objref);
     if (!ei.isMarked()){ // only add objects once
+      if (isMinorGc && !ei.isYoung()){
+        return; // old objects are considered to be live, no need to trace them
+      }
       ei.setMarked();
       markQueue.add(ei);
     }
@@ -613,6 +819,7 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
         
         vm.notifyObjectReleased(ti, ei);
         remove(ei.getObjectRef());
+        addChangedRef(ei.getObjectRef());
       }
     }
     
@@ -634,8 +841,6 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
   }
   
   protected void mark () {
-    markQueue.clear();
-    
     //--- mark everything in our root set
     markPinDownList();
     vm.getThreadList().markRoots(this);      // mark thread stacks
@@ -647,22 +852,184 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
   
   @Override
   public void gc() {
+    gc(null);
+  }
+
+  @Override
+  public void gc (LiveObjectMarker marker) {
     vm.notifyGCBegin();
 
     weakRefs = null;
-    liveBitValue = !liveBitValue;
+    markQueue.clear();
 
-    mark();
-    
-    // at this point all live objects are marked
-    sweep();
+    if (marker == null && isMinorGcDue()){
+      isMinorGc = true;
+      markYoung();
+      sweepYoung();
+      isMinorGc = false;
+
+    } else {
+      // this has to happen before we flip the live bit since the marker
+      // might still look at unmarked objects
+      if (marker != null){
+        marker.markLiveObjects(this);
+      }
+
+      liveBitValue = !liveBitValue;
+
+      mark();
+
+      // at this point all live objects are marked
+      sweep();
+    }
 
-    cleanupWeakRefs(); // for potential nullification
+    // before the weak refs are nullified, which goes through getModifiable()
+    resetGcTracking();
+
+    boolean isModified = cleanupWeakRefs(); // for potential nullification
+
+    if (marker != null){
+      marker.gcFinished(this, isModified);
+    }
 
     vm.processPostGcActions();
     vm.notifyGCEnd();
   }
 
+  /**
+   * we do a full gc if incremental gc is disabled, if this is the first or
+   * the fullGcInterval'th gc on this path, or if the current thread has terminated
+   * (since its Thread object and the ThreadInfo can only go away in a full gc)
+   */
+  protected boolean isMinorGcDue (){
+    return (youngRefs != null) && (gcCount % fullGcInterval) != 0
+            && !vm.getCurrentThread().isTerminated();
+  }
+
+  /**
+   * minor gc mark phase. Old objects are not traced, but the ones from the
+   * remembered set are used as additional roots
+   */
+  protected void markYoung (){
+    int n = youngRefs.size();
+    for (int i=0; i<n; i++){
+      ElementInfo ei = get(youngRefs.get(i));
+      if (ei != null){
+        ei.setYoung(true);
+      }
+    }
+
+    markPinDownList();
+    vm.getThreadList().markRoots(this);
+    vm.getClassLoaderList().markRoots(this);
+
+    n = modifiedRefs.size();
+    for (int i=0; i<n; i++){
+      ElementInfo ei = get(modifiedRefs.get(i));
+      if (ei != null && !ei.isYoung()){
+        ei.markRecursive(this);
+      }
+    }
+
+    markQueue.process(elementInfoMarker);
+  }
+
+  /**
+   * minor gc sweep phase, which only looks at young objects and the remembered set.
+   * Since we don't flip the live bit, old objects stay alive
+   */
+  protected void sweepYoung (){
+    ThreadInfo ti = vm.getCurrentThread();
+    int tid = ti.getId();
+    boolean isThreadTermination = ti.isTerminated();
+    int n = 0;
+
+    int len = youngRefs.size();
+
+    if (vm.finalizersEnabled()){
+      FinalizerThreadInfo tiFinalizer = vm.getFinalizerThread();
+      if (tiFinalizer != null){
+        for (int i=0; i<len; i++){
+          ElementInfo ei = get(youngRefs.get(i));
+          if (ei != null && !ei.isMarked() && ei.hasFinalizer() && !ei.isFinalized()) {
+            ei = tiFinalizer.getFinalizerQueuedInstance(ei);
+            ei.setMarked();
+            ei.markRecursive(this);
+          }
+        }
+        markQueue.process(elementInfoMarker);
+      }
+    }
+
+    for (int i=0; i<len; i++){
+      ElementInfo ei = get(youngRefs.get(i));
+      if (ei == null){
+        continue;
+      }
+      ei.setYoung(false);
+
+      if (ei.isMarked()){
+        ei.setUnmarked();
+        ei.setAlive(liveBitValue);
+
+        ei.cleanUp(this, isThreadTermination, tid);
+        n++;
+
+      } else {
+        ei.processReleaseActions();
+
+        vm.notifyObjectReleased(ti, ei);
+        remove(ei.getObjectRef());
+        addChangedRef(ei.getObjectRef());
+      }
+    }
+
+    // old objects might have field lock infos that refer to released young objects
+    len = modifiedRefs.size();
+    for (int i=0; i<len; i++){
+      ElementInfo ei = get(modifiedRefs.get(i));
+      if (ei != null){
+        ei.cleanUp(this, isThreadTermination, tid);
+      }
+    }
+
+    nLiveObjects += n;
+  }
+
+  /**
+   * start a new incremental gc cycle. The new remembered set consists of the
+   * surviving young and remembered objects that are not frozen, since those
+   * can still be modified without going through getModifiable()
+   */
+  protected void resetGcTracking (){
+    if (youngRefs != null){
+      IntVector remembered = new IntVector();
+      addUnfrozen(youngRefs, remembered);
+      addUnfrozen(modifiedRefs, remembered);
+
+      int n = remembered.size();
+      for (int i=0; i<n; i++){
+        get(remembered.get(i)).setUnmarked();
+      }
+
+      youngRefs.clear();
+      modifiedRefs = remembered;
+      gcCount++;
+    }
+  }
+
+  // all objects are unmarked at this point, so we can use the mark bit to avoid duplicates
+  private void addUnfrozen (IntVector refs, IntVector remembered){
+    int n = refs.size();
+    for (int i=0; i<n; i++){
+      ElementInfo ei = get(refs.get(i));
+      if (ei != null && !ei.isFrozen() && !ei.isMarked()){
+        ei.setMarked();
+        remembered.add(ei.getObjectRef());
+      }
+    }
+  }
+
   /**
    * clean up reference values that are stored outside of reference fields 
    * called from KernelState to process live ElementInfos after GC has finished
@@ -304,6 +304,13 @@ public abstract class GenericSharednessPolicy implements SharednessPolicy, Attri
       return null;
     }
     
+    return createThreadChoice( id, choices);
+  }
+  
+  /**
+   * the factory method for scheduling point CGs, override if you need a different CG type
+   */
+  protected ChoiceGenerator<ThreadInfo> createThreadChoice (String id, ThreadInfo[] choices){
     return new ThreadChoiceFromSet( id, choices, true);
   }
   
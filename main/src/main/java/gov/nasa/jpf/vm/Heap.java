@@ -30,6 +30,12 @@ public interface Heap extends Iterable<ElementInfo> {
 
   void gc();
 
+  /**
+   * gc that lets 'marker' mark live objects from within its own heap traversal
+   * before we trace the remaining roots, which avoids marking objects twice
+   */
+  void gc (LiveObjectMarker marker);
+
   boolean isOutOfMemory();
 
   void setOutOfMemory(boolean isOutOfMemory);
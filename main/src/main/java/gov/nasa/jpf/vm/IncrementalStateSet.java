@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.JPFConfigException;
+import gov.nasa.jpf.util.PhaseMetrics;
+
+/**
+ * a JenkinsStateSet that directly stores the fingerprints computed by a
+ * FingerprintingSerializer (e.g. IncrementalSerializer), i.e. that doesn't
+ * need to create and hash a serialized state vector for each new state.
+ *
+ * Fingerprint files of this set are only compatible with runs that use
+ * the same serializer
+ */
+public class IncrementalStateSet extends JenkinsStateSet {
+
+  protected FingerprintingSerializer fpSerializer;
+
+  @Override
+  public void attach (VM vm){
+    super.attach(vm);
+
+    if (serializer instanceof FingerprintingSerializer){
+      fpSerializer = (FingerprintingSerializer)serializer;
+    } else {
+      throw new JPFConfigException("IncrementalStateSet requires a FingerprintingSerializer (e.g. "
+              + "gov.nasa.jpf.vm.serialize.IncrementalSerializer), found: " + serializer.getClass().getName());
+    }
+  }
+
+  @Override
+  public int addCurrent (){
+    long fp;
+    if (PhaseMetrics.isEnabled()){
+      long t = PhaseMetrics.start(PhaseMetrics.SERIALIZE);
+      try {
+        fp = fpSerializer.getStateFingerprint();
+      } finally {
+        PhaseMetrics.stop(PhaseMetrics.SERIALIZE, t);
+      }
+    } else {
+      fp = fpSerializer.getStateFingerprint();
+    }
+
+    return addFingerprint(fp);
+  }
+}
@@ -126,6 +126,28 @@ public abstract class InfoObject implements Cloneable {
     return annotations;
   }
 
+  /**
+   * replace our annotations with copies that are bound to the provided
+   * ClassLoaderInfo (which can be null for templates that are kept across runs)
+   */
+  protected void rebindAnnotations (ClassLoaderInfo cl){
+    AnnotationInfo[] ai = annotations;
+    if ((ai != null) && (ai.length > 0)){
+      annotations = new AnnotationInfo[ai.length];
+      for (int i=0; i<ai.length; i++){
+        annotations[i] = ai[i].cloneFor(cl);
+      }
+    }
+
+    AbstractTypeAnnotationInfo[] tai = typeAnnotations;
+    if ((tai != null) && (tai.length > 0)){
+      typeAnnotations = new AbstractTypeAnnotationInfo[tai.length];
+      for (int i=0; i<tai.length; i++){
+        typeAnnotations[i] = (AbstractTypeAnnotationInfo)tai[i].cloneFor(cl);
+      }
+    }
+  }
+
   //--- type annotations
   
   public void setTypeAnnotations (AbstractTypeAnnotationInfo[] typeAnnotations){
@@ -21,6 +21,7 @@ import gov.nasa.jpf.util.ObjectList;
 import gov.nasa.jpf.util.Source;
 import gov.nasa.jpf.vm.bytecode.InstructionInterface;
 
+import java.util.HashSet;
 
 
 /**
@@ -35,6 +36,12 @@ public abstract class Instruction implements Cloneable, InstructionInterface {
 
   // property/mode specific attributes
   protected Object attr;
+
+  // the instruction classes that can be executed by the fast interpreter loop
+  private static final HashSet<Class<?>> localOnlyClasses = new HashSet<Class<?>>();
+
+  // lazily computed from localOnlyClasses: 0 = unknown, 1 = local only, -1 = not local
+  private byte localOnly;
   
   // this is for changing from InstructionInterface types to Instruction types
   @Override
@@ -64,6 +71,32 @@ public abstract class Instruction implements Cloneable, InstructionInterface {
     return false;
   }
 
+  /**
+   * register instruction classes that only operate on operands and locals
+   * of the top frame, i.e. cannot throw exceptions, allocate objects, load
+   * classes, change frames or register ChoiceGenerators (other than
+   * transition breaks). This only holds for the exact classes - subclasses
+   * (e.g. created by instruction factories of extensions) are not local-only
+   * unless they are registered themselves
+   */
+  public static synchronized void registerLocalOnly (Class<?>... insnClasses){
+    for (Class<?> cls : insnClasses){
+      localOnlyClasses.add(cls);
+    }
+  }
+
+  /**
+   * can this instruction be executed by the fast interpreter loop of
+   * ThreadInfo, which skips listener notifications and per-instruction
+   * bookkeeping (see registerLocalOnly())
+   */
+  public final boolean isLocalOnly(){
+    if (localOnly == 0){
+      localOnly = localOnlyClasses.contains(getClass()) ? (byte)1 : (byte)-1;
+    }
+    return (localOnly > 0);
+  }
+
   /**
    * is this instruction part of a monitorenter code pattern 
    */
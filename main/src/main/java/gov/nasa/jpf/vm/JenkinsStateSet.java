@@ -26,10 +26,14 @@ package gov.nasa.jpf.vm;
 
 //import gov.nasa.jpf.util.LongVector;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Implements StateSet based on Jenkins hashes.
  */
-public class JenkinsStateSet extends SerializingStateSet {
+public class JenkinsStateSet extends SerializingStateSet implements FingerprintStateSet {
   static final double MAX_LOAD = 0.7;
   static final int INIT_SIZE = 65536;
 
@@ -101,6 +105,33 @@ public class JenkinsStateSet extends SerializingStateSet {
   @Override
   public int add (int[] val) {
     long hash = longLookup3Hash(val); // this is the expensive part
+    return addFingerprint(hash);
+  }
+
+  /**
+   * @return the id of the state with the given hash value, or UNKNOWN_ID if
+   * it is not in the set
+   */
+  protected int getId (long hash) {
+    int mask = hashtable.length - 1;
+    int idx = (int)(hash >> 32) & mask;
+    int delta = (int)hash | 1;
+
+    while (hashtable[idx] != 0) {
+      int id = hashtable[idx] - 1;
+      if (fingerprints[id] == hash){
+        return id;
+      }
+      idx = (idx + delta) & mask;
+    }
+
+    return UNKNOWN_ID;
+  }
+
+  /**
+   * add a state by its (already computed) hash value
+   */
+  protected int addFingerprint (long hash) {
     int i;
     
     // hash table lookup & add; open-addressed, double hashing
@@ -164,6 +195,43 @@ public class JenkinsStateSet extends SerializingStateSet {
     return lastStateId;
   }
   
+  @Override
+  public void writeFingerprints (DataOutput out) throws IOException {
+    int n = lastStateId + 1;
+    out.writeInt(n);
+    for (int i=0; i<n; i++){
+      out.writeLong(fingerprints[i]);
+    }
+  }
+
+  @Override
+  public void readFingerprints (DataInput in) throws IOException {
+    int n = in.readInt();
+
+    int size = INIT_SIZE;
+    while (n > (int)(MAX_LOAD * (size-1))){
+      size <<= 1;
+    }
+    hashtable = new int[size];
+    int mask = size - 1;
+    nextRehash = (int) (MAX_LOAD * mask);
+
+    fingerprints = new long[Math.max(n, nextRehash/2)];
+    for (int i=0; i<n; i++){
+      long h = in.readLong();
+      fingerprints[i] = h;
+
+      int idx = (int)(h >> 32) & mask;
+      int delta = (int)h | 1;
+      while (hashtable[idx] != 0) {
+        idx = (idx + delta) & mask;
+      }
+      hashtable[idx] = i + 1; // in table, add 1
+    }
+
+    lastStateId = n - 1;
+  }
+
   void growFingerprint (int minSize){
     // we don't try to be fancy here
     int newSize = fingerprints.length *2;
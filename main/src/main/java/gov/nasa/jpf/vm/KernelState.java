@@ -18,6 +18,8 @@
 package gov.nasa.jpf.vm;
 
 import gov.nasa.jpf.Config;
+import gov.nasa.jpf.util.PhaseMetrics;
+
 import java.util.Iterator;
 import java.util.Stack;
 
@@ -159,8 +161,23 @@ public class KernelState implements Restorable<KernelState> {
   }
 
   public void gc () {
-        
-    heap.gc();
+    gc(null);
+  }
+
+  /**
+   * gc that lets 'marker' do part of the mark phase (see LiveObjectMarker)
+   */
+  public void gc (LiveObjectMarker marker) {
+    if (PhaseMetrics.isEnabled()){
+      long t = PhaseMetrics.start(PhaseMetrics.GC);
+      try {
+        heap.gc(marker);
+      } finally {
+        PhaseMetrics.stop(PhaseMetrics.GC, t);
+      }
+    } else {
+      heap.gc(marker);
+    }
 
     // we might have stored stale references in live objects
     // (ElementInfos on the heap have already been cleaned up in the gc)
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+/**
+ * a heap traversal that can do (part of) the gc mark phase on the side, so
+ * that we don't have to trace the same objects twice per transition. This is
+ * used to fuse state serialization with garbage collection
+ *
+ * Implementors have to make sure that
+ *  - they only mark objects that are reachable from gc roots without going
+ *    through the referent of a WeakReference
+ *  - all objects that are referenced from a marked object are either marked
+ *    by the implementor too, or passed to Heap.queueMark()
+ *  - marked WeakReference objects are registered with Heap.registerWeakReference()
+ *
+ * The heap marks the remaining roots and objects afterwards
+ */
+public interface LiveObjectMarker {
+
+  /**
+   * called at the beginning of the mark phase
+   */
+  void markLiveObjects (Heap heap);
+
+  /**
+   * called after the sweep. If 'isModified' is set the gc had to change objects
+   * after they were marked (e.g. to clear WeakReferences), i.e. results of the
+   * marker traversal are stale
+   */
+  void gcFinished (Heap heap, boolean isModified);
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.util.MappedFile;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * a JenkinsStateSet variant that keeps both the fingerprints and the hash table
+ * in memory mapped files instead of the Java heap, so that the number of
+ * states is only bounded by disk/address space and not by heap size.
+ *
+ * Fingerprints are appended in state id order to the file given by
+ * 'vm.storage.file' (a temp file if not set). If 'vm.storage.reuse' is set,
+ * the states of an existing file are loaded, i.e. they count as visited for
+ * the current run. The hash table only contains state ids and is rebuilt from
+ * the fingerprints on startup, which is why it is always stored in a temp file.
+ * This file is reused for rehashing, and deleted when the set is closed.
+ *
+ * The fingerprint file is forced to disk on each rehash and when the set is
+ * closed (at the end of the run, see VM.cleanUp()), and the stored state count
+ * is only updated after that. A crash can therefore lose the states that were
+ * added since the last rehash, but does not leave an inconsistent file
+ */
+public class MappedStateSet extends SerializingStateSet implements FingerprintStateSet, Closeable {
+
+  static final long MAGIC = 0x4a50465354415445L; // "JPFSTATE"
+  static final int HEADER_SIZE = 64;
+  static final int COUNT_OFFSET = 8;
+
+  static final double MAX_LOAD = 0.7;
+  static final int INIT_SIZE = 65536;
+
+  protected MappedFile fingerprints;
+  protected MappedFile hashtable;
+  protected boolean isTempFile;
+
+  protected int nStates;
+  protected int mask;
+  protected int nextRehash;
+
+  public MappedStateSet (Config config){
+    String path = config.getString("vm.storage.file");
+    boolean reuse = config.getBoolean("vm.storage.reuse", false);
+
+    if (path != null){
+      File file = new File(path);
+      fingerprints = new MappedFile(file, HEADER_SIZE + INIT_SIZE*8L, !reuse);
+    } else {
+      fingerprints = MappedFile.createTemp("jpf-states", HEADER_SIZE + INIT_SIZE*8L);
+      isTempFile = true;
+    }
+
+    long magic = fingerprints.getLong(0);
+    if (magic == MAGIC){
+      nStates = fingerprints.getInt(COUNT_OFFSET);
+    } else if (magic == 0){
+      fingerprints.putLong(0, MAGIC);
+      fingerprints.putInt(COUNT_OFFSET, 0);
+    } else {
+      throw new JPFException("not a state storage file: " + fingerprints.getFile());
+    }
+
+    int size = INIT_SIZE;
+    while (nStates >= (int)(MAX_LOAD * size)){
+      size <<= 1;
+    }
+    rehash(size);
+  }
+
+  @Override
+  public int size () {
+    return nStates;
+  }
+
+  protected long getFingerprint (int id){
+    return fingerprints.getLong(HEADER_SIZE + (long)id*8);
+  }
+
+  protected void rehash (int newSize){
+    long len = (long)newSize * 4;
+    if (hashtable == null){
+      hashtable = MappedFile.createTemp("jpf-statehash", len);
+    } else {
+      // we only grow, and the table is rebuilt from the fingerprints
+      hashtable.ensureCapacity(len);
+      hashtable.clear(0, len);
+    }
+
+    mask = newSize -1;
+    nextRehash = (int)(MAX_LOAD * newSize);
+
+    for (int i=0; i<nStates; i++){
+      long h = getFingerprint(i);
+      int idx = (int)(h >> 32) & mask;
+      int delta = (int)h | 1;
+      while (hashtable.getInt((long)idx*4) != 0){
+        idx = (idx + delta) & mask;
+      }
+      hashtable.putInt((long)idx*4, i+1);
+    }
+
+    force();
+  }
+
+  @Override
+  public int add (int[] val) {
+    long hash = JenkinsStateSet.longLookup3Hash(val);
+
+    // open-addressed, double hashing (see JenkinsStateSet)
+    int idx = (int)(hash >> 32) & mask;
+    int delta = (int)hash | 1; // must be odd!
+
+    for (int v = hashtable.getInt((long)idx*4); v != 0; v = hashtable.getInt((long)idx*4)){
+      int id = v - 1; // in table, 1 higher
+      if (getFingerprint(id) == hash){
+        return id;
+      }
+      idx = (idx + delta) & mask;
+    }
+
+    //--- only reached if state is new
+    int id = nStates++;
+    fingerprints.ensureCapacity(HEADER_SIZE + (long)nStates*8);
+    fingerprints.putLong(HEADER_SIZE + (long)id*8, hash);
+
+    if (nStates >= nextRehash){
+      rehash((mask+1) << 1);
+    } else {
+      hashtable.putInt((long)idx*4, id+1);
+    }
+
+    return id;
+  }
+
+  @Override
+  public void writeFingerprints (DataOutput out) throws IOException {
+    out.writeInt(nStates);
+    for (int i=0; i<nStates; i++){
+      out.writeLong(getFingerprint(i));
+    }
+  }
+
+  @Override
+  public void readFingerprints (DataInput in) throws IOException {
+    int n = in.readInt();
+
+    fingerprints.ensureCapacity(HEADER_SIZE + (long)n*8);
+    for (int i=0; i<n; i++){
+      fingerprints.putLong(HEADER_SIZE + (long)i*8, in.readLong());
+    }
+    nStates = n;
+
+    int size = INIT_SIZE;
+    while (nStates >= (int)(MAX_LOAD * size)){
+      size <<= 1;
+    }
+    rehash(size);
+  }
+
+  /**
+   * write all fingerprints back to the storage file. The count is only
+   * updated after the fingerprints are written, so that it never covers
+   * fingerprints that did not make it to the file
+   */
+  public void force(){
+    fingerprints.force();
+    fingerprints.putInt(COUNT_OFFSET, nStates);
+    fingerprints.force();
+  }
+
+  /**
+   * force the fingerprints and release both files. The hash table file is
+   * deleted, and so is the fingerprint file if it is a temp file. The set
+   * cannot be used anymore after this
+   */
+  @Override
+  public void close(){
+    if (fingerprints != null){
+      force();
+      fingerprints.close();
+      if (isTempFile){
+        fingerprints.getFile().delete();
+      }
+      fingerprints = null;
+    }
+
+    if (hashtable != null){
+      hashtable.close();
+      hashtable.getFile().delete();
+      hashtable = null;
+    }
+  }
+}
@@ -1349,15 +1349,28 @@ public String getCompleteName () {
    * and all the instructions belong to the method
    */
   public MethodInfo getInstanceFor(ClassInfo ci) {
+    MethodInfo clone = copyFor(ci);
+
+    if (clone != null){
+      clone.globalId = mthTable.size();
+      mthTable.add(clone);
+    }
+
+    return clone;
+  }
+
+  /**
+   * the part of getInstanceFor() that clones this method and its instructions,
+   * without registering the clone in the mthTable. This is also used to create
+   * templates that are never executed (see ClassInfoCache)
+   */
+  protected MethodInfo copyFor (ClassInfo ci) {
     MethodInfo clone;
 
     try {
       clone = (MethodInfo)super.clone();
       clone.ci = ci;
 
-      clone.globalId = mthTable.size();
-      mthTable.add(this);
-
       if(code == null) {
         clone.code = null;
       } else {
@@ -1375,4 +1388,23 @@ public String getCompleteName () {
 
     return clone;
   }
+
+  @Override
+  protected void rebindAnnotations (ClassLoaderInfo cl){
+    super.rebindAnnotations(cl);
+
+    AnnotationInfo[][] pai = parameterAnnotations;
+    if (pai != null){
+      parameterAnnotations = new AnnotationInfo[pai.length][];
+      for (int i=0; i<pai.length; i++){
+        AnnotationInfo[] ai = pai[i];
+        if (ai != null){
+          parameterAnnotations[i] = new AnnotationInfo[ai.length];
+          for (int j=0; j<ai.length; j++){
+            parameterAnnotations[i][j] = ai[j].cloneFor(cl);
+          }
+        }
+      }
+    }
+  }
 }
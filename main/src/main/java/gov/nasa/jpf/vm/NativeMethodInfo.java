@@ -19,11 +19,15 @@
 package gov.nasa.jpf.vm;
 
 import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.JPFException;
 import gov.nasa.jpf.JPFNativePeerException;
 import gov.nasa.jpf.util.JPFLogger;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 
 /**
  * a MethodInfo for a native peer executed method
@@ -43,9 +47,37 @@ public class NativeMethodInfo extends MethodInfo {
     }
   }
 
+  // the type of our invokers: (env, argSlots) -> boxed return value
+  static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, MJIEnv.class, int[].class);
+
+  // slot value extractors, with (argSlots, slotIndex) parameters
+  static final MethodHandle INT_SLOT = MethodHandles.arrayElementGetter(int[].class);
+  static final MethodHandle BOOLEAN_SLOT, LONG_SLOT, FLOAT_SLOT, DOUBLE_SLOT;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      BOOLEAN_SLOT = lookup.findStatic(NativeMethodInfo.class, "getBooleanSlot",
+                                       MethodType.methodType(boolean.class, int[].class, int.class));
+      LONG_SLOT = lookup.findStatic(NativeMethodInfo.class, "getLongSlot",
+                                    MethodType.methodType(long.class, int[].class, int.class));
+      FLOAT_SLOT = lookup.findStatic(NativeMethodInfo.class, "getFloatSlot",
+                                     MethodType.methodType(float.class, int[].class, int.class));
+      DOUBLE_SLOT = lookup.findStatic(NativeMethodInfo.class, "getDoubleSlot",
+                                      MethodType.methodType(double.class, int[].class, int.class));
+    } catch (NoSuchMethodException | IllegalAccessException x) {
+      throw new JPFException("cannot initialize native method slot accessors", x);
+    }
+  }
+
   protected Method mth; // the native method to enter in lieu
   protected NativePeer peer;
 
+  // mth bound to peer, taking its arguments directly from the argument slots of
+  // the NativeStackFrame, i.e. without reflection and argument boxing. This is
+  // created upon first invocation since most peer methods are never called
+  protected MethodHandle invoker;
+
   public NativeMethodInfo (MethodInfo mi, Method mth, NativePeer peer){
     super(mi);  // <2do> do we want any operands or locals?
 
@@ -55,10 +87,95 @@ public class NativeMethodInfo extends MethodInfo {
     ci.setNativeCallCode(this);
   }
 
+  static boolean getBooleanSlot (int[] slots, int idx) {
+    return Types.intToBoolean(slots[idx]);
+  }
+
+  static long getLongSlot (int[] slots, int idx) {
+    return Types.intsToLong(slots[idx + 1], slots[idx]);
+  }
+
+  static float getFloatSlot (int[] slots, int idx) {
+    return Types.intToFloat(slots[idx]);
+  }
+
+  static double getDoubleSlot (int[] slots, int idx) {
+    return Types.intsToDouble(slots[idx + 1], slots[idx]);
+  }
+
+  static MethodHandle getSlotExtractor (Class<?> type, int idx) {
+    MethodHandle mh;
+
+    if (type == long.class) {
+      mh = LONG_SLOT;
+    } else if (type == double.class) {
+      mh = DOUBLE_SLOT;
+    } else if (type == float.class) {
+      mh = FLOAT_SLOT;
+    } else if (type == boolean.class) {
+      mh = BOOLEAN_SLOT;
+    } else {
+      mh = INT_SLOT;
+    }
+
+    mh = MethodHandles.insertArguments(mh, 1, idx);
+
+    if (type == byte.class || type == char.class || type == short.class) {
+      mh = MethodHandles.explicitCastArguments(mh, MethodType.methodType(type, int[].class));
+    }
+
+    return mh;
+  }
+
+  /**
+   * bind the peer method so that it can be called with the raw argument slots
+   * of a NativeStackFrame. The MJI method signature is (MJIEnv, int, ...), with
+   * the 'this' or class object reference as the first slot
+   */
+  protected MethodHandle createInvoker (Method mth, NativePeer peer) {
+    try {
+      MethodHandle mh = MethodHandles.publicLookup().unreflect(mth);
+      if (!Modifier.isStatic(mth.getModifiers())) {
+        mh = mh.bindTo(peer);
+      }
+
+      Class<?>[] pTypes = mth.getParameterTypes();
+      int nArgs = pTypes.length - 1; // everything but the MJIEnv
+      MethodHandle[] extractors = new MethodHandle[nArgs];
+      int[] reorder = new int[pTypes.length];
+
+      for (int i = 0, idx = 0; i < nArgs; i++) {
+        Class<?> t = pTypes[i + 1];
+        extractors[i] = getSlotExtractor(t, idx);
+        reorder[i + 1] = 1;
+        idx += (t == long.class || t == double.class) ? 2 : 1;
+      }
+
+      mh = MethodHandles.filterArguments(mh, 1, extractors);
+      mh = MethodHandles.permuteArguments(mh, MethodType.methodType(mh.type().returnType(), MJIEnv.class, int[].class), reorder);
+
+      // this boxes primitive return values, and returns null for void methods
+      return mh.asType(INVOKER_TYPE);
+
+    } catch (IllegalAccessException | IllegalArgumentException | ClassCastException x) {
+      throw new JPFException("cannot bind native method " + mth, x);
+    }
+  }
+
   public void replace( MethodInfo mi){
     mthTable.set(mi.globalId, this);
     mi.ci.putDeclaredMethod(this);
   }
+
+  @Override
+  protected MethodInfo copyFor (ClassInfo ci) {
+    NativeMethodInfo clone = (NativeMethodInfo)super.copyFor(ci);
+
+    if (clone != null){
+      clone.invoker = null; // bound to our peer
+    }
+    return clone;
+  }
   
   @Override
   public boolean isUnresolvedNativeMethod() {
@@ -106,7 +223,6 @@ public class NativeMethodInfo extends MethodInfo {
 
   public Instruction executeNative (ThreadInfo ti) {
     Object   ret = null;
-    Object[] args = null;
     MJIEnv   env = ti.getMJIEnv();
         
     NativeStackFrame nativeFrame = (NativeStackFrame)ti.getTopFrame();
@@ -118,72 +234,63 @@ public class NativeMethodInfo extends MethodInfo {
                                         "cannot find native " + ci.getName() + '.' + getName());
     }
 
+    MethodHandle mh = invoker;
+    if (mh == null) {
+      mh = invoker = createInvoker(mth, peer);
+    }
+
     try {
-      args = nativeFrame.getArguments();
-
-      // this is the reflection call into the native peer
-      ret = mth.invoke(peer, args);
-
-      if (env.hasException()) {
-        // even though we should prefer throwing normal exceptionHandlers,
-        // sometimes it might be better/required to explicitly throw
-        // something that's not wrapped into a InvocationTargetException
-        // (e.g. InterruptedException), which is why there still is a
-        // MJIEnv.throwException()
-        return ti.throwException( env.popException());
-      }
+      // this is the call into the native peer
+      ret = (Object) mh.invokeExact(env, nativeFrame.getArgumentSlots());
+
+    } catch (ClassInfoException cie) {
+      // if loading a class throws an exception
+      return ti.createAndThrowException(cie.getExceptionClass(), cie.getMessage());
 
-      StackFrame top = ti.getTopFrame();
-//      if (top == nativeFrame){ // no roundtrips, straight return
-      if (top.originatesFrom(nativeFrame)){ // could have changed attributes
-        NativeStackFrame ntop = (NativeStackFrame)top;
+    } catch (UncaughtException ux) {
+      throw ux;
 
-        if (env.isInvocationRepeated()){
-          // don't advance
-          return ntop.getPC();
+    } catch (Throwable t) {
+      // this will catch all exceptionHandlers thrown by the native method execution
+      // we don't try to hand them back to the application
+      throw new JPFNativePeerException("exception in native method "
+          + ci.getName() + '.' + getName(), t);
+    }
 
-        } else {
-          // we don't have to do a ti.topClone() because the last insn left
-          // is NATIVERETURN. Even if a listener creates a CG on it, it won't
-          // modify its StackFrame, which is then popped anyways
+    if (env.hasException()) {
+      // even though we should prefer throwing normal exceptionHandlers,
+      // sometimes it might be better/required to explicitly throw
+      // something that's not thrown from the peer method
+      // (e.g. InterruptedException), which is why there still is a
+      // MJIEnv.throwException()
+      return ti.throwException( env.popException());
+    }
 
-          ntop.setReturnValue(ret);
-          ntop.setReturnAttr(env.getReturnAttribute());
+    StackFrame top = ti.getTopFrame();
+//    if (top == nativeFrame){ // no roundtrips, straight return
+    if (top.originatesFrom(nativeFrame)){ // could have changed attributes
+      NativeStackFrame ntop = (NativeStackFrame)top;
 
-          return ntop.getPC().getNext(); // that should be the NATIVERETURN
-        }
+      if (env.isInvocationRepeated()){
+        // don't advance
+        return ntop.getPC();
 
       } else {
-        // direct calls from within the native method, i.e. nativeFrame is not
-        // on top anymore, but its current instruction (invoke) will be reexecuted
-        // because DirectCallStackFrames don't advance the pc of the new top top upon return
-        return top.getPC();
-      }
+        // we don't have to do a ti.topClone() because the last insn left
+        // is NATIVERETURN. Even if a listener creates a CG on it, it won't
+        // modify its StackFrame, which is then popped anyways
 
-    } catch (IllegalArgumentException iax) {
-      logger.warning(iax.toString());
-      return ti.createAndThrowException("java.lang.IllegalArgumentException",
-                                        "calling " + ci.getName() + '.' + getName());
-    } catch (IllegalAccessException ilax) {
-      logger.warning(ilax.toString());
-      return ti.createAndThrowException("java.lang.IllegalAccessException",
-                                        "calling " + ci.getName() + '.' + getName());
-    } catch (InvocationTargetException itx) {
+        ntop.setReturnValue(ret);
+        ntop.setReturnAttr(env.getReturnAttribute());
 
-      // if loading a class throws an exception
-      if(itx.getTargetException() instanceof ClassInfoException) {
-        ClassInfoException cie = (ClassInfoException) itx.getTargetException();
-        return ti.createAndThrowException(cie.getExceptionClass(), cie.getMessage());
+        return ntop.getPC().getNext(); // that should be the NATIVERETURN
       }
 
-      if (itx.getTargetException() instanceof UncaughtException) {  // Native methods could 
-        throw (UncaughtException) itx.getTargetException();
-      } 
-       
-      // this will catch all exceptionHandlers thrown by the native method execution
-      // we don't try to hand them back to the application
-      throw new JPFNativePeerException("exception in native method "
-          + ci.getName() + '.' + getName(), itx.getTargetException());
+    } else {
+      // direct calls from within the native method, i.e. nativeFrame is not
+      // on top anymore, but its current instruction (invoke) will be reexecuted
+      // because DirectCallStackFrames don't advance the pc of the new top top upon return
+      return top.getPC();
     }
   }
 
@@ -191,6 +298,103 @@ public class NativeMethodInfo extends MethodInfo {
     return(mth == null);
   }
 
+  /**
+   * convert the raw argument slots of a NativeStackFrame into the boxed
+   * arguments of a reflection call. This is only used on demand (e.g. by
+   * listeners), our own invocation doesn't need boxing
+   */
+  public Object[] getBoxedArguments (int[] argSlots) {
+    int      nArgs = getNumberOfArguments();
+    byte[]   argTypes = getArgumentTypes();
+    Object[] a = new Object[nArgs+2];
+
+    for (int i = 0, idx = 1; i < nArgs; i++, idx++) {
+      switch (argTypes[i]) {
+      case Types.T_BOOLEAN:
+        a[i+2] = Boolean.valueOf(getBooleanSlot(argSlots, idx));
+        break;
+      case Types.T_BYTE:
+        a[i+2] = Byte.valueOf((byte) argSlots[idx]);
+        break;
+      case Types.T_CHAR:
+        a[i+2] = Character.valueOf((char) argSlots[idx]);
+        break;
+      case Types.T_SHORT:
+        a[i+2] = Short.valueOf((short) argSlots[idx]);
+        break;
+      case Types.T_LONG:
+        a[i+2] = Long.valueOf(getLongSlot(argSlots, idx));
+        idx++;
+        break;
+      case Types.T_FLOAT:
+        a[i+2] = Float.valueOf(getFloatSlot(argSlots, idx));
+        break;
+      case Types.T_DOUBLE:
+        a[i+2] = Double.valueOf(getDoubleSlot(argSlots, idx));
+        idx++;
+        break;
+      default:
+        // T_INT and T_REFERENCE, which shows up in our native method as an 'int'
+        a[i+2] = Integer.valueOf(argSlots[idx]);
+      }
+    }
+
+    a[1] = Integer.valueOf(argSlots[0]);
+    a[0] = ThreadInfo.getCurrentThread().getMJIEnv();
+
+    return a;
+  }
+
+  /**
+   * the inverse of getBoxedArguments(), for callers that still set up native
+   * frames with the boxed arguments of a reflection call
+   */
+  public int[] getArgumentSlots (Object[] boxedArgs) {
+    int      nArgs = getNumberOfArguments();
+    byte[]   argTypes = getArgumentTypes();
+    int      nArgSlots = isStatic() ? getArgumentsSize() : getArgumentsSize() - 1;
+    int[]    a = new int[nArgSlots + 1];
+
+    for (int i = 0, idx = 1; i < nArgs; i++, idx++) {
+      Object v = boxedArgs[i+2];
+
+      switch (argTypes[i]) {
+      case Types.T_BOOLEAN:
+        a[idx] = Types.booleanToInt(((Boolean) v).booleanValue());
+        break;
+      case Types.T_BYTE:
+        a[idx] = ((Byte) v).byteValue();
+        break;
+      case Types.T_CHAR:
+        a[idx] = ((Character) v).charValue();
+        break;
+      case Types.T_SHORT:
+        a[idx] = ((Short) v).shortValue();
+        break;
+      case Types.T_LONG:
+        long l = ((Long) v).longValue();
+        a[idx] = Types.hiLong(l);
+        a[++idx] = Types.loLong(l);
+        break;
+      case Types.T_FLOAT:
+        a[idx] = Types.floatToInt(((Float) v).floatValue());
+        break;
+      case Types.T_DOUBLE:
+        double d = ((Double) v).doubleValue();
+        a[idx] = Types.hiDouble(d);
+        a[++idx] = Types.loDouble(d);
+        break;
+      default:
+        // T_INT and T_REFERENCE
+        a[idx] = ((Integer) v).intValue();
+      }
+    }
+
+    a[0] = ((Integer) boxedArgs[1]).intValue();
+
+    return a;
+  }
+
   /**
    * Get and convert the native method parameters off the ThreadInfo stack.
    * Use the MethodInfo parameter type info for this (not the reflect.Method
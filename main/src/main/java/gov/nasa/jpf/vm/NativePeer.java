@@ -52,6 +52,9 @@ public class NativePeer implements Cloneable {
 
   static String[] peerPackages;
 
+  // stands in for the peer of ClassInfo templates that are kept across runs (see ClassInfoCache)
+  static final NativePeer TEMPLATE_PEER = new NativePeer();
+
   ClassInfo ci;
   Class<?> peerClass;
   HashMap<String, Method> methods;
@@ -21,16 +21,17 @@ package gov.nasa.jpf.vm;
 import gov.nasa.jpf.JPFException;
 import gov.nasa.jpf.jvm.bytecode.NATIVERETURN;
 import gov.nasa.jpf.util.HashData;
-import gov.nasa.jpf.util.Misc;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.Arrays;
 
 /**
  * a stack frame for MJI methods
  * <p>
- * This is a special Stackframe to execute NativeMethodInfos, which are just a wrapper around Java reflection
- * calls. As required by the Java reflection API, they can store argument and return values as object references
+ * This is a special Stackframe to execute NativeMethodInfos, which are just a wrapper around MethodHandle
+ * calls of the peer methods. Arguments are stored as the raw stack slots of the call, return values as
+ * object references
  * <p>
  * NOTE: operands and locals can be, but are not automatically used during
  * native method execution.
@@ -50,14 +51,34 @@ public abstract class NativeStackFrame
 
   protected Object retAttr;
 
-  // our argument registers
+  // our argument registers. These are the stack slots of the call, with the
+  // 'this' reference (or the class object reference for static methods) at index 0
+  protected int[] argSlots;
+
+  // boxed arguments, which are only created on demand
   protected Object[] args;
 
   public NativeStackFrame(NativeMethodInfo mi){
     super(mi, 0, 0);
   }
 
+  public void setArgumentSlots(int[] argSlots){
+    this.argSlots = argSlots;
+    this.args = null;
+  }
+
+  public int[] getArgumentSlots(){
+    return argSlots;
+  }
+
+  /**
+   * set the arguments in the boxed form of a reflection call (see getArguments())
+   *
+   * @deprecated use setArgumentSlots(), which doesn't need the boxed values
+   */
+  @Deprecated
   public void setArgs(Object[] args){
+    this.argSlots = ((NativeMethodInfo)methodInfo).getArgumentSlots(args);
     this.args = args;
   }
 
@@ -104,7 +125,14 @@ public abstract class NativeStackFrame
     return retAttr;
   }
 
+  /**
+   * return the arguments in the boxed form of a reflection call, i.e. with
+   * the MJIEnv and the 'this' or class object reference as the first two elements
+   */
   public Object[] getArguments(){
+    if (args == null){
+      args = ((NativeMethodInfo)methodInfo).getBoxedArguments(argSlots);
+    }
     return args;
   }
 
@@ -134,7 +162,7 @@ public abstract class NativeStackFrame
       hd.add(retAttr);
     }
 
-    for (Object a : args) {
+    for (int a : argSlots) {
       hd.add(a);
     }
   }
@@ -158,11 +186,7 @@ public abstract class NativeStackFrame
       return false;
     }
 
-    if (args.length != o.args.length) {
-      return false;
-    }
-
-    if (!Misc.compare(args.length, args, o.args)) {
+    if (!Arrays.equals(argSlots, o.argSlots)) {
       return false;
     }
 
@@ -54,6 +54,7 @@ public class OVHeap extends GenericSGOIDHeap {
       OVHeap heap = (OVHeap)inSitu;
       heap.elementInfos.restore(eiSnap);      
       heap.elementInfos.process(ElementInfo.restorer);
+      heap.setAllRefsChanged(); // this is O(heap) anyway
       
       return heap;
     }
@@ -110,6 +111,7 @@ public class OVHeap extends GenericSGOIDHeap {
         ei = ei.deepClone(); 
         // freshly created ElementInfos are not frozen, so we don't have to defreeze
         elementInfos.set(ref, ei);
+        addModified(ref);
       }
 
       return ei;
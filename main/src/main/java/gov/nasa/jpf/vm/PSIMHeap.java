@@ -20,6 +20,7 @@ package gov.nasa.jpf.vm;
 import gov.nasa.jpf.Config;
 import gov.nasa.jpf.util.PSIntMap;
 import gov.nasa.jpf.util.Predicate;
+import gov.nasa.jpf.util.Processor;
 
 import java.util.Iterator;
 
@@ -46,26 +47,46 @@ public class PSIMHeap extends GenericSGOIDHeap {
    */
   static class PSIMMemento extends GenericSGOIDHeapMemento {
     PSIntMap<ElementInfo> eiSnap;
+    int[] lockedRefs;
     
     PSIMMemento (PSIMHeap heap) {
       super(heap);
       
-      heap.elementInfos.process(ElementInfo.storer);
+      heap.freezeChanged();
       eiSnap = heap.elementInfos; // no need to transform anything, it's persistent
+      lockedRefs = heap.lockedRefs;
     }
 
     @Override
     public Heap restore(Heap inSitu) {
-      super.restore( inSitu);
-      
       PSIMHeap heap = (PSIMHeap) inSitu;
-      heap.elementInfos = eiSnap;
-      heap.elementInfos.process(ElementInfo.restorer);
+      boolean liveBitValue = heap.liveBitValue;
+      
+      super.restore( inSitu);
+      heap.liveBitValue = liveBitValue; // all shared objects are still alive
+      heap.restoreElementInfos(eiSnap, lockedRefs);
       
       return heap;
     }
   }
   
+  /**
+   * resets the transient state of restored ElementInfos. Lock info is updated
+   * separately, since we only process objects that are not shared with the
+   * map we backtrack from
+   */
+  static class Resetter implements Processor<ElementInfo> {
+    boolean liveBitValue;
+    
+    @Override
+    public void process (ElementInfo ei){
+      ei.attributes &= ElementInfo.ATTR_STORE_MASK;
+      ei.setSerializationId(0);
+      ei.markUnchanged();
+      ei.setAlive(liveBitValue);
+    }
+  }
+  
   class SweepPredicate implements Predicate<ElementInfo>{
     ThreadInfo ti;
     int tid;
@@ -91,14 +112,29 @@ public class PSIMHeap extends GenericSGOIDHeap {
         ei.processReleaseActions();
         // <2do> still have to process finalizers here, which might make the object live again
         vm.notifyObjectReleased( ti, ei);
+        addChangedRef(ei.getObjectRef());
         return true;
       } 
     }
   }
   
+  /**
+   * logs the refs of processed ElementInfos for change tracking
+   */
+  class ChangeLogger implements Processor<ElementInfo> {
+    @Override
+    public void process (ElementInfo ei){
+      addChangedRef(ei.getObjectRef());
+    }
+  }
+
   SweepPredicate sweepPredicate;
   PSIntMap<ElementInfo> elementInfos;
   
+  Resetter resetter = new Resetter();
+
+  ChangeLogger changeLogger = new ChangeLogger();
+  
   
   public PSIMHeap (Config config, KernelState ks) {
     super(config,ks);
@@ -107,6 +143,43 @@ public class PSIMHeap extends GenericSGOIDHeap {
     sweepPredicate = new SweepPredicate();
   }
   
+  /**
+   * we only reset ElementInfos upon restore that are not shared with the map
+   * we backtrack from, i.e. shared ones keep their sids
+   */
+  @Override
+  public boolean keepsStaleSerializationIds (){
+    return true;
+  }
+
+  /**
+   * only the ElementInfos that are not shared between the restored and the
+   * current map can have transient state from another path, which makes this
+   * proportional to the distance between the two states
+   */
+  protected void restoreElementInfos (PSIntMap<ElementInfo> eiSnap, int[] lockedRefs){
+    resetter.liveBitValue = liveBitValue;
+    eiSnap.processChanged(elementInfos, resetter);
+
+    if (changedRefs != null){
+      // both the restored and the dropped ElementInfos
+      eiSnap.processChanged(elementInfos, changeLogger);
+      elementInfos.processChanged(eiSnap, changeLogger);
+    }
+    
+    elementInfos = eiSnap;
+    this.lockedRefs = lockedRefs;
+    changed.clear();
+    
+    // the ThreadInfos have already been restored, now we have to update their lock info
+    for (int i=0; i<lockedRefs.length; i++){
+      ElementInfo ei = elementInfos.get(lockedRefs[i]);
+      if (ei != null){
+        ei.updateLockingInfo();
+      }
+    }
+  }
+  
   @Override
   public int size() {
     return elementInfos.size();
@@ -115,6 +188,7 @@ public class PSIMHeap extends GenericSGOIDHeap {
   @Override
   protected void set(int index, ElementInfo ei) {
     elementInfos = elementInfos.set(index, ei);
+    changed.add(ei);
   }
 
   @Override
@@ -139,6 +213,8 @@ public class PSIMHeap extends GenericSGOIDHeap {
         ei = ei.deepClone(); 
         // freshly created ElementInfos are not frozen, so we don't have to defreeze
         elementInfos = elementInfos.set(ref, ei);
+        changed.add(ei);
+        addModified(ref);
       }
 
       return ei;
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.JPFException;
+
+/**
+ * a JenkinsStateSet that only stores the states of one partition of the state
+ * space, which is used by distributed searches where each process owns the
+ * states whose fingerprints map to its partition.
+ *
+ * States of other partitions are not stored, addCurrent() returns UNKNOWN_ID
+ * for them (i.e. they are not new here) and getLastOwner() tells the search
+ * which partition they have to be sent to.
+ *
+ * States that are reached while the VM replays a trace (see VM.isTraceReplay())
+ * are not stored either, since they are only prefixes of states that have been
+ * assigned to us, and might not have been explored by their owner yet
+ */
+public class PartitionedStateSet extends JenkinsStateSet {
+
+  protected final int nPartitions;
+  protected final int partition;
+
+  protected VM vm;
+  protected int lastOwner;
+  protected long lastHash;
+
+  public PartitionedStateSet (int nPartitions, int partition){
+    if (partition < 0 || partition >= nPartitions){
+      throw new JPFException("invalid state set partition " + partition + " of " + nPartitions);
+    }
+
+    this.nPartitions = nPartitions;
+    this.partition = partition;
+    lastOwner = partition;
+  }
+
+  @Override
+  public void attach (VM vm){
+    super.attach(vm);
+    this.vm = vm;
+  }
+
+  /**
+   * the owner is computed from mixed hash bits so that it does not correlate
+   * with the hash table index and probe delta of the owner
+   */
+  public static int getOwner (long hash, int nPartitions){
+    return (int)((((hash * 0x9e3779b97f4a7c15L) >>> 32) * nPartitions) >>> 32);
+  }
+
+  @Override
+  public int addCurrent (){
+    if (vm.isTraceReplay()){
+      lastOwner = partition;
+      return UNKNOWN_ID;
+    }
+
+    return super.addCurrent();
+  }
+
+  @Override
+  public int add (int[] val){
+    long hash = longLookup3Hash(val);
+
+    lastHash = hash;
+    lastOwner = getOwner(hash, nPartitions);
+    if (lastOwner == partition){
+      return addFingerprint(hash);
+    } else {
+      return UNKNOWN_ID;
+    }
+  }
+
+  /**
+   * partition of the last state that was added. Note this is not updated
+   * for ignored states, which are not added at all
+   */
+  public int getLastOwner(){
+    return lastOwner;
+  }
+
+  /**
+   * fingerprint of the last state that was added
+   */
+  public long getLastHash(){
+    return lastHash;
+  }
+
+  /**
+   * this is how owners can check states they receive from other partitions
+   * without re-executing them
+   */
+  public boolean isVisited (long hash){
+    return getId(hash) != UNKNOWN_ID;
+  }
+
+  public boolean isForeignState(){
+    return lastOwner != partition;
+  }
+
+  public int getPartition(){
+    return partition;
+  }
+
+  public int getNumberOfPartitions(){
+    return nPartitions;
+  }
+}
@@ -17,6 +17,7 @@
  */
 package gov.nasa.jpf.vm;
 
+import gov.nasa.jpf.util.PhaseMetrics;
 
 public abstract class SerializingStateSet implements StateSet {
   protected StateSerializer serializer;
@@ -28,7 +29,19 @@ public abstract class SerializingStateSet implements StateSet {
   
   @Override
   public int addCurrent () {
-    return add(serializer.getStoringData());
+    int[] state;
+    if (PhaseMetrics.isEnabled()){
+      long t = PhaseMetrics.start(PhaseMetrics.SERIALIZE);
+      try {
+        state = serializer.getStoringData();
+      } finally {
+        PhaseMetrics.stop(PhaseMetrics.SERIALIZE, t);
+      }
+    } else {
+      state = serializer.getStoringData();
+    }
+
+    return add(state);
   }
   
   protected abstract int add(int[] state);
@@ -23,7 +23,13 @@ import gov.nasa.jpf.util.JPFLogger;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * @author Nastaran Shafiei <nastaran.shafiei@gmail.com>
@@ -74,6 +80,15 @@ public abstract class SystemClassLoaderInfo extends ClassLoaderInfo {
    */
   protected List<Attributor> attributors;
   
+  //--- optional classfile prefetching during VM initialization
+  
+  // number of threads used to look up and pre-parse classfiles (vm.class_prefetch.threads), 0 means no prefetch
+  protected int prefetchThreads;
+  
+  // pending or completed lookups, which are removed once we use them. Only accessed by the VM thread,
+  // and only set during VM initialization (see releasePrefetchedClasses())
+  protected HashMap<String,ForkJoinTask<ClassFileMatch>> prefetchedMatches;
+  
   
   public SystemClassLoaderInfo (VM vm, int appId){
      super(vm);
@@ -90,6 +105,7 @@ public abstract class SystemClassLoaderInfo extends ClassLoaderInfo {
     
     initializeSystemClassPath( vm, appId);
     initializeAttributors( vm, appId);
+    initializePrefetch( vm, appId);
   }
   
   protected abstract void initializeSystemClassPath (VM vm, int appId);
@@ -106,6 +122,12 @@ public abstract class SystemClassLoaderInfo extends ClassLoaderInfo {
     }
   }
 
+  protected void initializePrefetch (VM vm, int appId){
+    Config conf = vm.getConfig();
+    
+    prefetchThreads = conf.getInt("vm.class_prefetch.threads", 0);
+  }
+  
   public void addAttributor (Attributor a){
     attributors.add(a);
   }
@@ -152,6 +174,78 @@ public abstract class SystemClassLoaderInfo extends ClassLoaderInfo {
     
     return ci;
   }
+  
+  //--- prefetch support
+  
+  /**
+   * start to look up and pre-parse the classfiles of the given classes on a
+   * thread pool, which can overlap the classfile I/O, decompression and const
+   * pool parsing of all startup classes. Creating and linking the ClassInfos is
+   * still done on the VM thread when the classes are resolved, in the same order
+   * as without prefetching
+   */
+  public void prefetchClasses (List<String> clsNames){
+    if (prefetchThreads > 0){
+      LinkedHashSet<String> typeNames = new LinkedHashSet<String>();
+      for (String clsName : clsNames){
+        typeNames.add( Types.getClassNameFromTypeName(clsName));
+      }
+      
+      ForkJoinPool pool = new ForkJoinPool(prefetchThreads);
+      prefetchedMatches = new HashMap<String,ForkJoinTask<ClassFileMatch>>();
+      
+      for (final String typeName : typeNames){
+        if (!ClassInfo.isBuiltinClass(typeName) && !resolvedClasses.containsKey(typeName)){
+          ForkJoinTask<ClassFileMatch> task = pool.submit( new Callable<ClassFileMatch>(){
+            @Override
+            public ClassFileMatch call() throws ClassParseException {
+              ClassFileMatch match = cp.findMatch(typeName);
+              if (match != null){
+                match.prefetch();
+              }
+              return match;
+            }
+          });
+          prefetchedMatches.put(typeName, task);
+        }
+      }
+      
+      pool.shutdown(); // this still processes all submitted tasks
+      log.info("prefetching ", prefetchedMatches.size(), " classes");
+    }
+  }
+  
+  @Override
+  protected ClassFileMatch getMatch (String typeName){
+    if (prefetchedMatches != null){
+      ForkJoinTask<ClassFileMatch> task = prefetchedMatches.remove(typeName);
+      if (task != null){
+        try {
+          ClassFileMatch match = task.get();
+          if (match != null){
+            return match;
+          }
+        } catch (InterruptedException | ExecutionException x){
+          // fall back to a normal lookup, which reports the error
+        }
+      }
+    }
+    
+    return super.getMatch(typeName);
+  }
+  
+  /**
+   * drop all prefetched classfiles that were not used during VM initialization,
+   * so that we don't keep their data alive for the rest of the run
+   */
+  public void releasePrefetchedClasses (){
+    if (prefetchedMatches != null){
+      for (ForkJoinTask<ClassFileMatch> task : prefetchedMatches.values()){
+        task.cancel(false);
+      }
+      prefetchedMatches = null;
+    }
+  }
 
   @Override
   public boolean isSystemClassLoader() {
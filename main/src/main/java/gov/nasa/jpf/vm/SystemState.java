@@ -20,10 +20,12 @@ package gov.nasa.jpf.vm;
 import gov.nasa.jpf.Config;
 import gov.nasa.jpf.JPFException;
 import gov.nasa.jpf.util.TypeSpecMatcher;
+import gov.nasa.jpf.util.PhaseMetrics;
 import gov.nasa.jpf.vm.choice.BreakGenerator;
 
 import java.io.PrintWriter;
 import java.util.LinkedHashMap;
+import java.util.Random;
 
 
 /**
@@ -670,9 +672,13 @@ public class SystemState {
   }
   
   public boolean gcIfNeeded () {
+    return gcIfNeeded(null);
+  }
+
+  public boolean gcIfNeeded (LiveObjectMarker marker) {
     boolean needed = false;
     if (GCNeeded) {
-      ks.gc();
+      ks.gc(marker);
       GCNeeded = false;
       needed = true;
     }
@@ -762,7 +768,16 @@ public class SystemState {
     trail = new Transition(curCg, execThread);
     entryAtomicLevel = atomicLevel; // store before we start to enter
 
-    execThread.executeTransition(this);    
+    if (PhaseMetrics.isEnabled()){
+      long t = PhaseMetrics.start(PhaseMetrics.TRANSITION);
+      try {
+        execThread.executeTransition(this);
+      } finally {
+        PhaseMetrics.stop(PhaseMetrics.TRANSITION, t);
+      }
+    } else {
+      execThread.executeTransition(this);
+    }
   }
 
   /**
@@ -824,7 +839,14 @@ public class SystemState {
   protected void advance( VM vm, ChoiceGenerator<?> cg){
     while (true) {
       if (cg.hasMoreChoices()){
-        cg.advance();
+        // searches that don't backtrack might pick random choices (see VM.setChoiceRandom())
+        Random random = vm.getChoiceRandom();
+        int n = (random != null) ? cg.getTotalNumberOfChoices() : 0;
+        if (n > 1 && !vm.isTraceReplay()){
+          cg.select( random.nextInt(n));
+        } else {
+          cg.advance();
+        }
         isIgnored = false;
         vm.notifyChoiceGeneratorAdvanced(cg);
         
@@ -1849,7 +1849,11 @@ public class ThreadInfo extends InfoObject
       // the transition was explicitly marked as ignored, or we have reached a
       // max insn count and preempt the thread upon the next available backjump
       while (pc != null) {
-        nextPc = executeInstruction();
+        if (pc.isLocalOnly() && (pendingSUTExceptionRequest == null) && vm.isFastInterpreterEnabled()) {
+          nextPc = executeLocalInstructions(ss, pc);
+        } else {
+          nextPc = executeInstruction();
+        }
 
         if (ss.breakTransition()) {
           if (ss.extendTransition()){
@@ -1872,6 +1876,40 @@ public class ThreadInfo extends InfoObject
   }
 
 
+  /**
+   * the fast interpreter loop, which executes a straight-line sequence of
+   * local-only instructions (see Instruction.registerLocalOnly()) without
+   * listener notifications. It is only used if there are no instruction
+   * listeners and falls back to executeInstruction() at the first instruction
+   * that is not local-only, or if one of them breaks the transition (e.g. a
+   * backjump that exceeds the max transition length)
+   *
+   * @return the next instruction to execute, which already is set as the pc
+   */
+  protected Instruction executeLocalInstructions (SystemState ss, Instruction pc) {
+    Instruction next;
+    int n = 0;
+
+    do {
+      resetTransientAttributes();
+      next = pc.execute(this);
+      n++;
+      executedInstructions++;
+      ss.recordExecutionStep(pc);
+      setPC(next);
+
+      if (ss.breakTransition()) {
+        break;
+      }
+      pc = next;
+    } while (pc != null && pc.isLocalOnly());
+
+    vm.nInstructions += n;
+    vm.getSearch().checkAndResetProbeRequest();
+
+    return next;
+  }
+
   protected void resetTransientAttributes(){
     attributes &= ~(ATTR_SKIP_INSN_EXEC | ATTR_SKIP_INSN_LOG | ATTR_ENABLE_EMPTY_TRANSITION);
   }
@@ -1906,6 +1944,7 @@ public class ThreadInfo extends InfoObject
 
     // we also count the skipped ones
     executedInstructions++;
+    vm.nInstructions++;
     
     if ((attributes & ATTR_SKIP_INSN_LOG) == 0) {
       ss.recordExecutionStep(pc);
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import java.util.Arrays;
+
+/**
+ * the set of shared memory locations (fields, array elements and locks) a
+ * transition has read or written. This is what partial order reduction uses
+ * to decide if two transitions of different threads are dependent, i.e. if
+ * their execution order matters.
+ *
+ * Locations are encoded as long keys that combine an object reference (or class
+ * id for statics) with a kind tag and a field or element index. The set is a
+ * simple open addressing hash table since most footprints only contain a
+ * handful of locations, but summaries of whole sub-trees can get larger.
+ * Different locations that map to the same key (e.g. array indices that exceed
+ * the index bits) only cause spurious dependencies, which is safe
+ */
+public class TransitionFootprint {
+
+  public static final int READ = 1;
+  public static final int WRITE = 2;
+
+  static final long KIND_FIELD  = 0;
+  static final long KIND_STATIC = 1L << 30;
+  static final long KIND_ARRAY  = 2L << 30;
+  static final long KIND_LOCK   = 3L << 30;
+  static final long INDEX_MASK  = (1L << 30) - 1;
+
+  static final long EMPTY = -1L; // refs and ids are not negative, hence keys are not either
+
+  static final int INIT_CAPACITY = 8;
+
+  protected long[] keys;
+  protected byte[] modes;
+  protected int size;
+
+  public TransitionFootprint (){
+    // we only allocate on the first add since many transitions don't touch shared locations
+  }
+
+  public static long getFieldKey (int objRef, int fieldIndex){
+    return ((long)objRef << 32) | KIND_FIELD | (fieldIndex & INDEX_MASK);
+  }
+
+  public static long getStaticFieldKey (long classUniqueId, int fieldIndex){
+    long classId = ((classUniqueId >>> 32) * 65599 + (classUniqueId & 0xffffffffL)) & 0x7fffffffL;
+    return (classId << 32) | KIND_STATIC | (fieldIndex & INDEX_MASK);
+  }
+
+  public static long getArrayElementKey (int arrayRef, int index){
+    return ((long)arrayRef << 32) | KIND_ARRAY | (index & INDEX_MASK);
+  }
+
+  public static long getLockKey (int objRef){
+    return ((long)objRef << 32) | KIND_LOCK;
+  }
+
+  public int size(){
+    return size;
+  }
+
+  public boolean isEmpty(){
+    return size == 0;
+  }
+
+  static int hash (long key){
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int)(h ^ (h >>> 32));
+  }
+
+  protected int indexOf (long key){
+    if (keys != null){
+      int mask = keys.length-1;
+      for (int i = hash(key) & mask;; i = (i+1) & mask){
+        long k = keys[i];
+        if (k == key){
+          return i;
+        } else if (k == EMPTY){
+          return -1;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the access mode bits for this key, 0 if it isn't in the set
+   */
+  public int getMode (long key){
+    int i = indexOf(key);
+    return (i < 0) ? 0 : modes[i];
+  }
+
+  /**
+   * @return true if this changed the footprint
+   */
+  public boolean add (long key, int mode){
+    if (keys == null){
+      keys = new long[INIT_CAPACITY];
+      Arrays.fill(keys, EMPTY);
+      modes = new byte[INIT_CAPACITY];
+
+    } else if ((size+1)*4 > keys.length*3){
+      grow();
+    }
+
+    int mask = keys.length-1;
+    for (int i = hash(key) & mask;; i = (i+1) & mask){
+      long k = keys[i];
+      if (k == key){
+        int m = modes[i];
+        if ((m | mode) != m){
+          modes[i] = (byte)(m | mode);
+          return true;
+        } else {
+          return false;
+        }
+
+      } else if (k == EMPTY){
+        keys[i] = key;
+        modes[i] = (byte)mode;
+        size++;
+        return true;
+      }
+    }
+  }
+
+  public boolean addRead (long key){
+    return add(key, READ);
+  }
+
+  public boolean addWrite (long key){
+    return add(key, WRITE);
+  }
+
+  protected void grow(){
+    long[] oldKeys = keys;
+    byte[] oldModes = modes;
+
+    keys = new long[oldKeys.length * 2];
+    Arrays.fill(keys, EMPTY);
+    modes = new byte[keys.length];
+    size = 0;
+
+    for (int i=0; i<oldKeys.length; i++){
+      if (oldKeys[i] != EMPTY){
+        add(oldKeys[i], oldModes[i]);
+      }
+    }
+  }
+
+  /**
+   * @return true if this changed the footprint
+   */
+  public boolean addAll (TransitionFootprint other){
+    boolean changed = false;
+    if (other.keys != null){
+      long[] ok = other.keys;
+      for (int i=0; i<ok.length; i++){
+        if (ok[i] != EMPTY){
+          changed |= add(ok[i], other.modes[i]);
+        }
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * two footprints conflict if they share a location that at least one of them writes
+   */
+  public boolean conflictsWith (TransitionFootprint other){
+    TransitionFootprint a = this;
+    TransitionFootprint b = other;
+
+    if (a.size == 0 || b.size == 0){
+      return false;
+    }
+    if (a.size > b.size){ // iterate over the smaller one
+      a = other;
+      b = this;
+    }
+
+    long[] ak = a.keys;
+    for (int i=0; i<ak.length; i++){
+      long k = ak[i];
+      if (k != EMPTY){
+        int m = b.getMode(k);
+        if (m != 0 && ((m | a.modes[i]) & WRITE) != 0){
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
+  @Override
+  public String toString(){
+    StringBuilder sb = new StringBuilder("TransitionFootprint{");
+    if (keys != null){
+      boolean first = true;
+      for (int i=0; i<keys.length; i++){
+        long k = keys[i];
+        if (k != EMPTY){
+          if (!first){
+            sb.append(',');
+          }
+          first = false;
+          sb.append(k >>> 32);
+          switch ((int)((k >>> 30) & 3)){
+            case 0: sb.append('.'); break;
+            case 1: sb.append(":static."); break;
+            case 2: sb.append('['); break;
+            case 3: sb.append(":lock"); break;
+          }
+          if ((k & KIND_LOCK) != KIND_LOCK){
+            sb.append(k & INDEX_MASK);
+          }
+          sb.append(((modes[i] & WRITE) != 0) ? "(w)" : "(r)");
+        }
+      }
+    }
+    sb.append('}');
+    return sb.toString();
+  }
+}
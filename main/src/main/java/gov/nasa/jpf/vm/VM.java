@@ -22,6 +22,8 @@ import gov.nasa.jpf.JPF;
 import gov.nasa.jpf.JPFConfigException;
 import gov.nasa.jpf.JPFException;
 import gov.nasa.jpf.JPFListenerException;
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.PropertyListenerAdapter;
 import gov.nasa.jpf.jvm.ClassFile;
 import gov.nasa.jpf.vm.FinalizerThreadInfo;
 import gov.nasa.jpf.search.Search;
@@ -29,7 +31,10 @@ import gov.nasa.jpf.util.IntTable;
 import gov.nasa.jpf.util.JPFLogger;
 import gov.nasa.jpf.util.Misc;
 import gov.nasa.jpf.util.Predicate;
+import gov.nasa.jpf.util.PhaseMetrics;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
@@ -37,6 +42,7 @@ import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 
 /**
@@ -104,6 +110,8 @@ public abstract class VM {
 
   protected boolean isTraceReplay; // can be set by listeners to indicate this is a replay
 
+  protected Random choiceRandom; // optional, picks the choices of advanced CGs (see setChoiceRandom())
+
   /** the repository we use to find out if we already have seen a state */
   protected StateSet stateSet;
 
@@ -123,6 +131,16 @@ public abstract class VM {
    creating objects on each notification */
   protected VMListener[] listeners = new VMListener[0];
 
+  /** the subsets of listeners that subscribe to high frequency notifications,
+   which are only dispatched to listeners that override the respective
+   ListenerAdapter method (see isSubscribed()) */
+  protected VMListener[] executeInstructionListeners = new VMListener[0];
+  protected VMListener[] instructionExecutedListeners = new VMListener[0];
+  protected VMListener[] methodEnteredListeners = new VMListener[0];
+  protected VMListener[] methodExitedListeners = new VMListener[0];
+  protected VMListener[] objectCreatedListeners = new VMListener[0];
+  protected VMListener[] objectReleasedListeners = new VMListener[0];
+
   /** did we get a new transition */
   protected boolean transitionOccurred;
 
@@ -141,6 +159,17 @@ public abstract class VM {
   protected boolean pathOutput;
   protected boolean indentOutput;
   protected boolean processFinalizers;
+
+  /** do we let the serializer mark live objects while computing the state
+   * after a transition, so that the gc doesn't have to trace them again */
+  protected boolean fusedGc;
+
+  /** do we execute local-only instructions in the fast interpreter loop if
+   * there are no instruction listeners (see ThreadInfo.executeLocalInstructions()) */
+  protected boolean fastInterpreter;
+
+  /** total number of executed (non-hidden) instructions */
+  protected long nInstructions;
   
   // <2do> there are probably many places where this should be used
   protected boolean isBigEndian;
@@ -178,6 +207,10 @@ public abstract class VM {
     indentOutput = config.getBoolean("vm.indent_output",false);
 
     processFinalizers = config.getBoolean("vm.process_finalizers", false);
+
+    fusedGc = config.getBoolean("vm.gc.fused", false);
+
+    fastInterpreter = config.getBoolean("vm.fast_interpreter", false);
     
     isBigEndian = getPlatformEndianness(config);
     initialized = false;
@@ -265,7 +298,14 @@ public abstract class VM {
    * called after the JPF run is finished. Shouldn't be public, but is called by JPF
    */
   public void cleanUp(){
-    // nothing yet
+    // state sets might hold external resources, such as mapped files
+    if (stateSet instanceof Closeable){
+      try {
+        ((Closeable)stateSet).close();
+      } catch (IOException iox){
+        log.warning("failed to close state set: ", iox.getMessage());
+      }
+    }
   }
   
   protected boolean getPlatformEndianness (Config config){
@@ -453,6 +493,15 @@ public abstract class VM {
     return list;
   }
   
+  /**
+   * start an (optional) parallel lookup of the startup classfiles, see SystemClassLoaderInfo.prefetchClasses()
+   */
+  protected void prefetchStartupClasses (SystemClassLoaderInfo sysCl, String mainClassName){
+    List<String> clsNames = getStartupSystemClassNames();
+    clsNames.add(mainClassName);
+    sysCl.prefetchClasses(clsNames);
+  }
+  
   /**
    * this adds the application main class and its supers to the list of startup classes 
    */
@@ -561,8 +610,10 @@ public abstract class VM {
     SystemClassLoaderInfo sysCl = appCtx.sysCl;
     
     ThreadInfo tiMain = createMainThreadInfo(tid, appCtx);
+    prefetchStartupClasses(sysCl, appCtx.mainClassName);
     List<ClassInfo> startupClasses = getStartupSystemClassInfos(sysCl, tiMain);
     ClassInfo ciMain = getMainClassInfo(sysCl, appCtx.mainClassName, tiMain, startupClasses);
+    sysCl.releasePrefetchedClasses();
 
     if (!checkSystemClassCompatibility( sysCl)){
       throw new JPFConfigException("non-JPF system classes, check classpath");
@@ -661,6 +712,7 @@ public abstract class VM {
   public void addListener (VMListener newListener) {
     log.info("VMListener added: ", newListener);
     listeners = Misc.appendElement(listeners, newListener);
+    updateListenerSubscriptions();
   }
 
   public boolean hasListenerOfType (Class<?> listenerCls) {
@@ -673,6 +725,60 @@ public abstract class VM {
   
   public void removeListener (VMListener removeListener) {
     listeners = Misc.removeElement(listeners, removeListener);
+    updateListenerSubscriptions();
+  }
+
+  /**
+   * does the listener override the no-op implementation of a notification
+   * method it inherits from ListenerAdapter or PropertyListenerAdapter.
+   * Listeners that directly implement VMListener subscribe to everything
+   */
+  protected static boolean isSubscribed (VMListener listener, String mthName, Class<?>... argTypes){
+    try {
+      Class<?> declCls = listener.getClass().getMethod(mthName, argTypes).getDeclaringClass();
+      return (declCls != ListenerAdapter.class) && (declCls != PropertyListenerAdapter.class);
+
+    } catch (NoSuchMethodException x){
+      return true; // can't happen for VMListeners, but be conservative
+    }
+  }
+
+  protected static VMListener[] getSubscribers (VMListener[] listeners, String mthName, Class<?>... argTypes){
+    VMListener[] subscribers = new VMListener[0];
+    for (VMListener l : listeners){
+      if (isSubscribed(l, mthName, argTypes)){
+        subscribers = Misc.appendElement(subscribers, l);
+      }
+    }
+    return subscribers;
+  }
+
+  protected void updateListenerSubscriptions (){
+    executeInstructionListeners = getSubscribers(listeners, "executeInstruction",
+            VM.class, ThreadInfo.class, Instruction.class);
+    instructionExecutedListeners = getSubscribers(listeners, "instructionExecuted",
+            VM.class, ThreadInfo.class, Instruction.class, Instruction.class);
+    methodEnteredListeners = getSubscribers(listeners, "methodEntered",
+            VM.class, ThreadInfo.class, MethodInfo.class);
+    methodExitedListeners = getSubscribers(listeners, "methodExited",
+            VM.class, ThreadInfo.class, MethodInfo.class);
+    objectCreatedListeners = getSubscribers(listeners, "objectCreated",
+            VM.class, ThreadInfo.class, ElementInfo.class);
+    objectReleasedListeners = getSubscribers(listeners, "objectReleased",
+            VM.class, ThreadInfo.class, ElementInfo.class);
+  }
+
+  /**
+   * can ThreadInfos use the fast interpreter loop, which does not notify
+   * executeInstruction() and instructionExecuted() listeners
+   */
+  public boolean isFastInterpreterEnabled () {
+    return fastInterpreter && (executeInstructionListeners.length == 0)
+                           && (instructionExecutedListeners.length == 0);
+  }
+
+  public long getExecutedInstructions () {
+    return nInstructions;
   }
 
   public void setTraceReplay (boolean isReplay) {
@@ -683,6 +789,20 @@ public abstract class VM {
     return isTraceReplay;
   }
 
+  /**
+   * set a random generator that picks the choice each CG is advanced to, instead
+   * of enumerating choices in order. This is for searches that do not backtrack
+   * (e.g. RandomSearch). The choice is selected before choiceGeneratorAdvanced()
+   * listeners are notified, and the CG is set done. Trace replays are not affected
+   */
+  public void setChoiceRandom (Random random) {
+    choiceRandom = random;
+  }
+
+  public Random getChoiceRandom () {
+    return choiceRandom;
+  }
+
   public boolean hasToRecordSteps() {
     // we have to record if there either is a reporter that has
     // a 'trace' topic, or there is an explicit request
@@ -789,8 +909,8 @@ public abstract class VM {
 
   protected void notifyExecuteInstruction (ThreadInfo ti, Instruction insn) {
     try {
-      for (int i = 0; i < listeners.length; i++) {
-        listeners[i].executeInstruction(this, ti, insn);
+      for (int i = 0; i < executeInstructionListeners.length; i++) {
+        executeInstructionListeners[i].executeInstruction(this, ti, insn);
       }
     } catch (UncaughtException x) {
       throw x;
@@ -803,9 +923,8 @@ public abstract class VM {
 
   protected void notifyInstructionExecuted (ThreadInfo ti, Instruction insn, Instruction nextInsn) {
     try {
-      //listener.instructionExecuted(this);
-      for (int i = 0; i < listeners.length; i++) {
-        listeners[i].instructionExecuted(this, ti, nextInsn, insn);
+      for (int i = 0; i < instructionExecutedListeners.length; i++) {
+        instructionExecutedListeners[i].instructionExecuted(this, ti, nextInsn, insn);
       }
     } catch (UncaughtException x) {
       throw x;
@@ -946,8 +1065,8 @@ public abstract class VM {
 
   protected void notifyObjectCreated(ThreadInfo ti, ElementInfo ei) {
     try {
-      for (int i = 0; i < listeners.length; i++) {
-        listeners[i].objectCreated(this, ti, ei);
+      for (int i = 0; i < objectCreatedListeners.length; i++) {
+        objectCreatedListeners[i].objectCreated(this, ti, ei);
       }
     } catch (UncaughtException x) {
       throw x;
@@ -960,8 +1079,8 @@ public abstract class VM {
 
   protected void notifyObjectReleased(ThreadInfo ti, ElementInfo ei) {
     try {
-      for (int i = 0; i < listeners.length; i++) {
-        listeners[i].objectReleased(this, ti, ei);
+      for (int i = 0; i < objectReleasedListeners.length; i++) {
+        objectReleasedListeners[i].objectReleased(this, ti, ei);
       }
     } catch (UncaughtException x) {
       throw x;
@@ -1142,8 +1261,8 @@ public abstract class VM {
 
   protected void notifyMethodEntered(ThreadInfo ti, MethodInfo mi) {
     try {
-      for (int i = 0; i < listeners.length; i++) {
-        listeners[i].methodEntered(this, ti, mi);
+      for (int i = 0; i < methodEnteredListeners.length; i++) {
+        methodEnteredListeners[i].methodEntered(this, ti, mi);
       }
     } catch (UncaughtException x) {
       throw x;
@@ -1156,8 +1275,8 @@ public abstract class VM {
 
   protected void notifyMethodExited(ThreadInfo ti, MethodInfo mi) {
     try {
-      for (int i = 0; i < listeners.length; i++) {
-        listeners[i].methodExited(this, ti, mi);
+      for (int i = 0; i < methodExitedListeners.length; i++) {
+        methodExitedListeners[i].methodExited(this, ti, mi);
       }
     } catch (UncaughtException x) {
       throw x;
@@ -1316,6 +1435,22 @@ public abstract class VM {
     return serializer;
   }
 
+  /**
+   * if we store states with a serializer that can mark live objects, the gc
+   * after a transition can be fused with computing the state. This is not
+   * supported with finalizers since they can revive objects after we already
+   * serialized the state
+   */
+  protected LiveObjectMarker getLiveObjectMarker(){
+    if (fusedGc && !processFinalizers && (stateSet instanceof SerializingStateSet)){
+      StateSerializer s = getSerializer();
+      if (s instanceof LiveObjectMarker){
+        return (LiveObjectMarker)s;
+      }
+    }
+    return null;
+  }
+
   public void setSerializer (StateSerializer newSerializer){
     serializer = newSerializer;
     serializer.attach(this);
@@ -1328,6 +1463,18 @@ public abstract class VM {
     return stateSet;
   }
 
+  /**
+   * replace the configured stateSet. Setting this to null turns off state
+   * matching, i.e. every transition leads to a new state. This has to be called
+   * before the search is started
+   */
+  public void setStateSet (StateSet newStateSet){
+    stateSet = newStateSet;
+    if (stateSet != null){
+      stateSet.attach(this);
+    }
+  }
+
   public Scheduler getScheduler(){
     return scheduler;
   }
@@ -1637,7 +1784,18 @@ public abstract class VM {
   public boolean backtrack () {
     transitionOccurred = false;
 
-    boolean success = backtracker.backtrack();
+    boolean success;
+    if (PhaseMetrics.isEnabled()){
+      long t = PhaseMetrics.start(PhaseMetrics.BACKTRACK);
+      try {
+        success = backtracker.backtrack();
+      } finally {
+        PhaseMetrics.stop(PhaseMetrics.BACKTRACK, t);
+      }
+    } else {
+      success = backtracker.backtrack();
+    }
+
     if (success) {
       if (CHECK_CONSISTENCY) checkConsistency(false);
       
@@ -1713,7 +1871,16 @@ public abstract class VM {
         checkConsistency(true); // don't push an inconsistent state
       }
 
-      backtracker.pushKernelState();
+      if (PhaseMetrics.isEnabled()){
+        long t = PhaseMetrics.start(PhaseMetrics.PUSH_STATE);
+        try {
+          backtracker.pushKernelState();
+        } finally {
+          PhaseMetrics.stop(PhaseMetrics.PUSH_STATE, t);
+        }
+      } else {
+        backtracker.pushKernelState();
+      }
 
       // cache this before we enter (and increment) the next insn(s)
       lastTrailInfo = path.getLast();
@@ -1735,14 +1902,24 @@ public abstract class VM {
         // because this transition is usually incomplete
 
         if (runGc && !hasPendingException()) {
-          if(ss.gcIfNeeded()) {
+          if(ss.gcIfNeeded( getLiveObjectMarker())) {
             processFinalizers();
           }
         }
 
         if (stateSet != null) {
           newStateId = stateSet.size();
-          int id = stateSet.addCurrent();
+          int id;
+          if (PhaseMetrics.isEnabled()){
+            long t = PhaseMetrics.start(PhaseMetrics.STATE_STORE);
+            try {
+              id = stateSet.addCurrent();
+            } finally {
+              PhaseMetrics.stop(PhaseMetrics.STATE_STORE, t);
+            }
+          } else {
+            id = stateSet.addCurrent();
+          }
           ss.setId(id);
 
         } else { // this is 'state-less' model checking, i.e. we don't match states
@@ -69,6 +69,13 @@ public abstract class FieldInstruction extends Instruction implements ReadOrWrit
   }
   
   public abstract FieldInfo getFieldInfo();
+  
+  /**
+   * return the FieldInfo if it was already resolved, without causing class loading
+   */
+  public FieldInfo peekFieldInfo(){
+    return fi;
+  }
   @Override
   public abstract boolean isRead();
   
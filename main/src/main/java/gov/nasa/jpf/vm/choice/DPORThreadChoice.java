@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm.choice;
+
+import gov.nasa.jpf.vm.ThreadChoiceGenerator;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.TransitionFootprint;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * a ThreadChoiceGenerator for dynamic partial order reduction. Other than
+ * ThreadChoiceFromSet, this one does not enumerate all its runnable threads, but
+ * only the ones in its 'backtrack' set that are not in its 'sleep' set. The
+ * backtrack set initially holds just one thread and gets extended by the
+ * DPORScheduler when it finds out that a later transition of another thread
+ * depends on the one we executed from here.
+ *
+ * We also keep what the DPORScheduler needs to compute dependencies: the
+ * footprint and vector clock of each explored choice, the footprints of
+ * sleeping threads, and the link to the previous DPORThreadChoice on the path
+ */
+public class DPORThreadChoice extends ThreadChoiceFromSet {
+
+  protected DPORThreadChoice parent; // the previous DPOR CG on the path
+  protected int depth;               // number of DPOR CGs on the path up to and including this one
+  protected int stateDepth;          // search depth of the state this CG was set in
+  protected boolean isInitialized;
+
+  // the choice index we have to return on the next advance() if this CG is
+  // re-executed (see adopt() and reset())
+  protected int replayIndex = -1;
+
+  protected boolean[] backtrack;
+  protected boolean[] done;
+  protected boolean[] sleeping;
+
+  // footprints of the explored transitions, or the pending transitions of sleeping threads
+  protected TransitionFootprint[] footprints;
+
+  // vector clocks (indexed by thread id) of explored transitions, null if not yet computed
+  protected int[][] clocks;
+
+  // ids of threads that were started by explored transitions
+  protected int[][] started;
+
+  public DPORThreadChoice (String id, ThreadInfo[] set, boolean isSchedulingPoint){
+    super(id, set, isSchedulingPoint);
+
+    int n = set.length;
+    backtrack = new boolean[n];
+    done = new boolean[n];
+    sleeping = new boolean[n];
+    footprints = new TransitionFootprint[n];
+    clocks = new int[n][];
+    started = new int[n][];
+  }
+
+  /**
+   * this is called by the DPORScheduler when the CG becomes the current one,
+   * i.e. after it got randomized or reordered
+   */
+  public void initialize (DPORThreadChoice parent, int stateDepth){
+    this.parent = parent;
+    this.depth = (parent != null) ? parent.depth + 1 : 1;
+    this.stateDepth = stateDepth;
+    isInitialized = true;
+  }
+
+  /**
+   * share the backtrack, sleep and per choice data of a CG that was created at the
+   * same position of a previous execution of the current path, and continue
+   * with its current choice. This is how stateless searches that re-execute
+   * paths from the initial state (instead of backtracking) keep the DPOR state.
+   *
+   * @return false if the template does not have the same choices
+   */
+  public boolean adopt (DPORThreadChoice template){
+    ThreadInfo[] tv = template.values;
+    if (tv.length != values.length){
+      return false;
+    }
+    for (int i=0; i<values.length; i++){
+      if (tv[i].getId() != values[i].getId()){
+        return false;
+      }
+    }
+
+    backtrack = template.backtrack;
+    done = template.done;
+    sleeping = template.sleeping;
+    footprints = template.footprints;
+    clocks = template.clocks;
+    started = template.started;
+
+    replayIndex = template.count;
+    return true;
+  }
+
+  public boolean isInitialized(){
+    return isInitialized;
+  }
+
+  public DPORThreadChoice getParent(){
+    return parent;
+  }
+
+  public int getDepth(){
+    return depth;
+  }
+
+  public int getStateDepth(){
+    return stateDepth;
+  }
+
+  public int indexOf (ThreadInfo ti){
+    int tid = ti.getId();
+    for (int i=0; i<values.length; i++){
+      if (values[i].getId() == tid){
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  //--- backtrack and sleep set management
+
+  /**
+   * @return false if the thread is not a choice of this CG, in which case the
+   * caller has to fall back to addAllBacktrack()
+   */
+  public boolean addBacktrack (ThreadInfo ti){
+    int i = indexOf(ti);
+    if (i >= 0){
+      backtrack[i] = true;
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  public void addAllBacktrack (){
+    Arrays.fill(backtrack, true);
+  }
+
+  public boolean isBacktrack (int idx){
+    return backtrack[idx];
+  }
+
+  public boolean isExplored (int idx){
+    return done[idx];
+  }
+
+  public void setSleeping (int idx, TransitionFootprint fp){
+    sleeping[idx] = true;
+    footprints[idx] = fp;
+  }
+
+  public boolean isSleeping (int idx){
+    return sleeping[idx];
+  }
+
+  public int getNumberOfSleepingThreads(){
+    int n = 0;
+    for (int i=0; i<sleeping.length; i++){
+      if (sleeping[i]){
+        n++;
+      }
+    }
+    return n;
+  }
+
+  //--- per choice data
+
+  public int getChoiceIndex(){
+    return count;
+  }
+
+  public TransitionFootprint getFootprint (int idx){
+    return footprints[idx];
+  }
+
+  public TransitionFootprint getCurrentFootprint (){
+    return (count >= 0) ? footprints[count] : null;
+  }
+
+  public int[] getClock (int idx){
+    return clocks[idx];
+  }
+
+  public int[] getCurrentClock (){
+    return (count >= 0) ? clocks[count] : null;
+  }
+
+  public void setCurrentClock (int[] clock){
+    clocks[count] = clock;
+  }
+
+  public void addStartedThread (ThreadInfo ti){
+    if (count >= 0 && !hasStartedThread(ti.getId())){
+      int[] a = started[count];
+      if (a == null){
+        a = new int[1];
+      } else {
+        a = Arrays.copyOf(a, a.length+1);
+      }
+      a[a.length-1] = ti.getId();
+      started[count] = a;
+    }
+  }
+
+  public boolean hasStartedThread (int tid){
+    if (count >= 0){
+      int[] a = started[count];
+      if (a != null){
+        for (int i=0; i<a.length; i++){
+          if (a[i] == tid){
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  //--- the ChoiceGenerator interface
+
+  protected int nextIndex(){
+    for (int i=0; i<values.length; i++){
+      if (backtrack[i] && !done[i] && !sleeping[i]){
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * we don't forget what was explored from here, a reset CG re-executes its
+   * current choice (unless it gets select()ed), which is what searches that
+   * restore the initial state and then replay a path need
+   */
+  @Override
+  public void reset () {
+    replayIndex = count;
+    super.reset();
+  }
+
+  @Override
+  public boolean hasMoreChoices () {
+    return !isDone && (replayIndex >= 0 || nextIndex() >= 0);
+  }
+
+  protected void setChoice (int i){
+    count = i;
+    done[i] = true;
+    footprints[i] = new TransitionFootprint();
+    clocks[i] = null;
+    started[i] = null;
+  }
+
+  @Override
+  public void advance () {
+    if (replayIndex >= 0){ // re-execution, the footprint will be recorded again
+      count = replayIndex;
+      replayIndex = -1;
+
+    } else {
+      int i = nextIndex();
+      if (i >= 0){
+        setChoice(i);
+      }
+    }
+  }
+
+  /**
+   * we can't use the generic reset-and-advance, which would mark all choices
+   * on the way as explored
+   */
+  @Override
+  public void select (int choiceIndex) {
+    replayIndex = -1;
+    setChoice(choiceIndex);
+    setDone();
+  }
+
+  @Override
+  public ThreadChoiceGenerator reorder (Comparator<ThreadInfo> comparator){
+    ThreadInfo[] newValues = values.clone();
+    Arrays.sort(newValues, comparator);
+
+    return new DPORThreadChoice( id, newValues, isSchedulingPoint);
+  }
+
+  @Override
+  public void printOn (PrintWriter pw) {
+    pw.print(getClass().getName());
+    pw.append("[id=\"");
+    pw.append(id);
+    pw.append('"');
+
+    pw.append(",isCascaded:");
+    pw.append(Boolean.toString(isCascaded));
+
+    pw.print(",{");
+    for (int i=0; i<values.length; i++) {
+      if (i > 0) pw.print(',');
+      if (i == count) {
+        pw.print(MARKER);
+      }
+      pw.print(values[i].getName());
+      if (sleeping[i]){
+        pw.print("(sleep)");
+      } else if (backtrack[i] && !done[i]){
+        pw.print("(backtrack)");
+      }
+    }
+    pw.print("}]");
+  }
+}
@@ -49,7 +49,10 @@ public class AdaptiveSerializer extends CFSerializer {
   @Override
   protected void queueReference(ElementInfo ei){
     if (traverseObjects){
-      refQueue.add(ei);
+      super.queueReference(ei);
+    } else if (isMarking && isStrongRef){
+      // we don't traverse it, so the heap has to
+      heap.queueMark(ei.getObjectRef());
     }
   }
 
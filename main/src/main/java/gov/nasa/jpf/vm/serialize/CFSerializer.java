@@ -18,13 +18,23 @@
 
 package gov.nasa.jpf.vm.serialize;
 
+import gov.nasa.jpf.util.BitArray;
+import gov.nasa.jpf.util.FinalBitSet;
+import gov.nasa.jpf.vm.ClassInfo;
 import gov.nasa.jpf.vm.ElementInfo;
+import gov.nasa.jpf.vm.FieldInfo;
+import gov.nasa.jpf.vm.Fields;
+import gov.nasa.jpf.vm.GenericHeap;
+import gov.nasa.jpf.vm.Heap;
 import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.KernelState;
+import gov.nasa.jpf.vm.LiveObjectMarker;
 import gov.nasa.jpf.vm.MJIEnv;
 import gov.nasa.jpf.vm.StackFrame;
 import gov.nasa.jpf.vm.ThreadInfo;
 import gov.nasa.jpf.vm.ThreadList;
 
+import java.util.HashMap;
 import java.util.Iterator;
 
 /**
@@ -44,8 +54,14 @@ import java.util.Iterator;
  * because then this range will experience scheduling dependent orders. A hybrid
  * approach in which only this segment is canonicalized might work, but it is
  * questionable if the overhead is worth the effort.
+ *
+ * If 'vm.gc.fused' is set, the live objects after a transition are serialized
+ * from within the gc mark phase, in which case we also mark all objects that are
+ * strongly reachable from the serialized roots (see LiveObjectMarker). Objects
+ * that are only referenced from filtered fields are left to the heap. Thread
+ * states are serialized once the state is stored
  */
-public class CFSerializer extends FilteringSerializer {
+public class CFSerializer extends FilteringSerializer implements LiveObjectMarker {
 
   // we flip this on every serialization, which helps us to avoid passes
   // over the serialized objects to reset their sids. This works by resetting
@@ -53,13 +69,53 @@ public class CFSerializer extends FilteringSerializer {
   // from -1, but store the absolute value in the serialization stream
   boolean positiveSid;
 
+  // set if the heap does not reset the sids of restored objects that are shared
+  // with the state we backtrack from (see GenericHeap.keepsStaleSerializationIds()),
+  // in which case a stale sid might have the same sign as the current run. We then
+  // count sids upwards across serializations, and only sids that are larger than
+  // sidBase are valid for the current run. The stream contains the sid relative to
+  // sidBase. Only if the counter gets too large we have to reset all sids, which is rare
+  boolean monotonicSids;
+
+  static final int MAX_SID = Integer.MAX_VALUE / 2;
+
+  int sidBase;
+
   int sidCount;
 
+  // set while we serialize from within the gc mark phase
+  boolean isMarking;
+
+  // does the reference we currently process keep its target alive, i.e. is it
+  // not the referent of a WeakReference or a field of an unmarked object
+  boolean isStrongRef = true;
+
+  final HashMap<ClassInfo,FinalBitSet> instanceGcRefMasks = new HashMap<ClassInfo,FinalBitSet>();
+
+  // set if buf holds the live objects we serialized during the last gc, which
+  // only have to be completed with the thread states if we store the state
+  boolean hasSerializedLiveObjects;
+
+  final KernelState.ChangeListener liveObjectsInvalidator = new KernelState.ChangeListener() {
+    @Override
+    public void kernelStateChanged (KernelState ks){
+      hasSerializedLiveObjects = false;
+    }
+  };
+
   @Override
   protected void initReferenceQueue() {
     super.initReferenceQueue();
 
-    if (positiveSid){
+    monotonicSids = (heap instanceof GenericHeap) && ((GenericHeap)heap).keepsStaleSerializationIds();
+
+    if (monotonicSids){
+      if (sidCount > MAX_SID){
+        resetSerializationIds();
+      }
+      sidBase = sidCount;
+
+    } else if (positiveSid){
       positiveSid = false;
       sidCount = -1;
     } else {
@@ -68,8 +124,20 @@ public class CFSerializer extends FilteringSerializer {
     }
   }
 
+  // this only has to reset the sids of the current heap, all other ElementInfos
+  // get their sids reset when they are restored
+  protected void resetSerializationIds(){
+    for (ElementInfo ei : heap.liveObjects()){
+      ei.setSerializationId(0);
+    }
+    sidCount = 0;
+  }
+
   // might be overriden in subclasses to conditionally queue objects
   protected void queueReference(ElementInfo ei){
+    if (isMarking && isStrongRef){
+      ei.setMarked();
+    }
     refQueue.add(ei);
   }
 
@@ -82,25 +150,166 @@ public class CFSerializer extends FilteringSerializer {
       ElementInfo ei = heap.get(objref);
       int sid = ei.getSerializationId();
 
-      if (positiveSid){ // count sid upwards from 1
+      if (monotonicSids){
+        if (sid <= sidBase){ // not seen before in this serialization run
+          sid = ++sidCount;
+          ei.setSerializationId(sid);
+          queueReference(ei);
+        } else if (isMarking){
+          markSeenReference(ei);
+        }
+        sid -= sidBase;
+
+      } else if (positiveSid){ // count sid upwards from 1
         if (sid <= 0){  // not seen before in this serialization run
           sid = sidCount++;
           ei.setSerializationId(sid);
           queueReference(ei);
+        } else if (isMarking){
+          markSeenReference(ei);
         }
       } else { // count sid downwards from -1
         if (sid >= 0){ // not seen before in this serialization run
           sid = sidCount--;
           ei.setSerializationId(sid);
           queueReference(ei);
+        } else if (isMarking){
+          markSeenReference(ei);
         }
         sid = -sid;
       }
 
-      // note that we always add the absolute sid value
+      // note that we always add the absolute (or relative) sid value
       buf.add(sid);
     }
   }
+
+  /**
+   * a strong reference to an object we already queued as weakly reachable.
+   * Since we might have processed it already, we let the heap trace it
+   */
+  protected void markSeenReference (ElementInfo ei){
+    if (isStrongRef && !ei.isMarked()){
+      heap.queueMark(ei.getObjectRef());
+    }
+  }
+
+  //--- fused gc support
+
+  @Override
+  public void markLiveObjects (Heap heap){
+    hasSerializedLiveObjects = false;
+
+    if (cached == null){
+      isMarking = true;
+      try {
+        serializeLiveObjects();
+        hasSerializedLiveObjects = true;
+      } finally {
+        isMarking = false;
+      }
+    }
+  }
+
+  @Override
+  public void gcFinished (Heap heap, boolean isModified){
+    if (hasSerializedLiveObjects){
+      if (isModified){
+        hasSerializedLiveObjects = false;
+      } else {
+        // released Thread objects during the sweep don't affect the live objects, but
+        // everything after the gc does
+        ks.pushChangeListener(liveObjectsInvalidator);
+      }
+    }
+  }
+
+  @Override
+  protected void serializeLiveObjects() {
+    if (hasSerializedLiveObjects){
+      // we already did this from within the gc, and buf still holds the data
+      hasSerializedLiveObjects = false;
+    } else {
+      super.serializeLiveObjects();
+    }
+  }
+
+  /**
+   * all reference slots of 'ci' instances that keep their targets alive, i.e.
+   * everything except of the WeakReference referent
+   */
+  protected FinalBitSet getInstanceGcRefMask (ClassInfo ci){
+    FinalBitSet v = instanceGcRefMasks.get(ci);
+    if (v == null){
+      BitArray b = new BitArray(ci.getInstanceDataSize());
+      boolean isWeakRef = ci.isWeakReference();
+
+      for (ClassInfo c = ci; c != null; c = c.getSuperClass()){
+        boolean isRef = isWeakRef && c.isReferenceClassInfo();
+        int n = c.getNumberOfDeclaredInstanceFields();
+        for (int i = 0; i < n; i++){
+          FieldInfo fi = c.getDeclaredInstanceField(i);
+          // only the first Reference field is the referent (see ElementInfo.markRecursive)
+          if (fi.isReference() && !(isRef && i == 0)){
+            b.set(fi.getStorageOffset());
+          }
+        }
+      }
+
+      v = FinalBitSet.create(b);
+      instanceGcRefMasks.put(ci, v);
+    }
+    return v;
+  }
+
+  @Override
+  public void process (ElementInfo ei) {
+    if (isMarking){
+      // objects that are not marked yet are only reachable through weak references
+      // so far, and so is everything we reach from them
+      isStrongRef = ei.isMarked();
+      if (isStrongRef && ei.getClassInfo().isWeakReference()){
+        heap.registerWeakReference(ei);
+      }
+
+      super.process(ei);
+      isStrongRef = true;
+
+    } else {
+      super.process(ei);
+    }
+  }
+
+  @Override
+  protected void processNamedFields (ClassInfo ci, Fields fields){
+    if (!isMarking){
+      super.processNamedFields(ci, fields);
+
+    } else {
+      FinalBitSet filtered = getInstanceFilterMask(ci);
+      FinalBitSet refs = getInstanceRefMask(ci);
+      FinalBitSet gcRefs = getInstanceGcRefMask(ci);
+      boolean isStrong = isStrongRef;
+
+      int[] values = fields.asFieldSlots();
+      for (int i = 0; i < values.length; i++) {
+        int v = values[i];
+        if (!filtered.get(i)) {
+          if (refs.get(i)) {
+            isStrongRef = isStrong && gcRefs.get(i);
+            processReference(v);
+          } else {
+            buf.add(v);
+          }
+        } else if (isStrong && gcRefs.get(i)) {
+          // not serialized, but still keeps its target alive
+          heap.queueMark(v);
+        }
+      }
+
+      isStrongRef = isStrong;
+    }
+  }
   
   @Override
   protected void serializeStackFrames() {
@@ -140,6 +349,10 @@ public class CFSerializer extends FilteringSerializer {
   
   @Override
   protected int getSerializedReferenceValue (ElementInfo ei){
-    return Math.abs(ei.getSerializationId());
+    if (monotonicSids){
+      return ei.getSerializationId() - sidBase;
+    } else {
+      return Math.abs(ei.getSerializationId());
+    }
   }
 }
@@ -292,7 +292,7 @@ public class DynamicAbstractionSerializer extends FilteringSerializer {
   // we can hash combinations/relations of field values
   @Override
   public void process (ElementInfo ei) {
-    Fields fields = ei.getFields();
+    Fields fields = ei.getReadOnlyFields();
     ClassInfo ci = ei.getClassInfo();
 
     if (StringSetMatcher.isMatch(ci.getName(), includeClasses, excludeClasses)) {
@@ -334,7 +334,7 @@ public class DynamicAbstractionSerializer extends FilteringSerializer {
   @Override
   protected void serializeClass (StaticElementInfo sei) {
     ClassInfo ci = sei.getClassInfo();
-    Fields fields = sei.getFields();
+    Fields fields = sei.getReadOnlyFields();
 
     if (StringSetMatcher.isMatch(ci.getName(), includeClasses, excludeClasses)) {
       buf.add(sei.getStatus());
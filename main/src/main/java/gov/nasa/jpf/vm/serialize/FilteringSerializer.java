@@ -245,7 +245,7 @@ public class FilteringSerializer extends AbstractSerializer implements Reference
   // better support specialized subclasses
   @Override
   public void process (ElementInfo ei) {
-    Fields fields = ei.getFields();
+    Fields fields = ei.getReadOnlyFields();
     ClassInfo ci = ei.getClassInfo();
     buf.add(ci.getUniqueId());
 
@@ -417,7 +417,7 @@ public class FilteringSerializer extends AbstractSerializer implements Reference
   protected void serializeClass (StaticElementInfo sei){
     buf.add(sei.getStatus());
 
-    Fields fields = sei.getFields();
+    Fields fields = sei.getReadOnlyFields();
     ClassInfo ci = sei.getClassInfo();
     FinalBitSet filtered = getStaticFilterMask(ci);
     FinalBitSet refs = getStaticRefMask(ci);
@@ -446,17 +446,23 @@ public class FilteringSerializer extends AbstractSerializer implements Reference
   
   //--- our main purpose in life
 
-  @Override
-  protected int[] computeStoringData() {
-
+  /**
+   * serialize all live objects and loaded classes
+   */
+  protected void serializeLiveObjects() {
     buf.clear();
     heap = ks.getHeap();
     initReferenceQueue();
 
-    //--- serialize all live objects and loaded classes
     serializeStackFrames();
     serializeClassLoaders();
     processReferenceQueue();
+  }
+
+  @Override
+  protected int[] computeStoringData() {
+
+    serializeLiveObjects();
     
     //--- now serialize the thread states (which might refer to live objects)
     // we do this last because threads contain some internal references
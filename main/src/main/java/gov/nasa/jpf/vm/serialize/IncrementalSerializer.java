@@ -0,0 +1,384 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm.serialize;
+
+import gov.nasa.jpf.util.IntVector;
+import gov.nasa.jpf.vm.ClassLoaderInfo;
+import gov.nasa.jpf.vm.ElementInfo;
+import gov.nasa.jpf.vm.FingerprintingSerializer;
+import gov.nasa.jpf.vm.GenericHeap;
+import gov.nasa.jpf.vm.KernelState;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.StaticElementInfo;
+import gov.nasa.jpf.vm.Statics;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.ThreadList;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * a FilteringSerializer that does not re-serialize the whole heap for each
+ * new state, but only re-hashes objects, classes and stack frames that have
+ * changed since they were last seen.
+ *
+ * Change detection uses the copy-on-write discipline of the state storage:
+ * once a state is stored, all its ElementInfos and StackFrames are frozen,
+ * and any subsequent modification works on a clone. The heap logs the refs
+ * of ElementInfos that were allocated, cloned or removed since we last looked,
+ * including the ones that differ after a restore (see GenericHeap.getChangedRefs()).
+ * We keep a running, order independent sum of the per-object hash contributions,
+ * and only update the contributions of logged refs and of objects that were not
+ * frozen when we hashed them. Per transition, the heap part of the state
+ * therefore costs O(changed objects), unless the heap can't tell what changed
+ * upon restore (OVHeap), in which case we re-scan all objects but still only
+ * re-hash the ones that are not cached.
+ *
+ * The serialized state is a short vector of the combined hashes. Since we
+ * don't traverse the heap from the roots, we rely on the garbage collector
+ * to remove unreachable objects before the state is stored (which is the
+ * default), and we serialize raw reference values, i.e. heap symmetry is
+ * handled like in our FilteringSerializer base, not like in CFSerializer.
+ *
+ * This is also a FingerprintingSerializer, i.e. it can be used together with
+ * IncrementalStateSet, which directly stores our fingerprints instead of
+ * hashing the state vector again
+ *
+ * NOTE - the resulting storing data is a hash value, which adds a (small)
+ * probability of hash collisions on top of the one of the StateSet
+ */
+public class IncrementalSerializer extends FilteringSerializer implements FingerprintingSerializer {
+
+  static final long GOLDEN = 0x9e3779b97f4a7c15L;
+
+  // the ElementInfos whose contributions are included in heapHash, and their
+  // object hash values, indexed by ref
+  protected ElementInfo[] eiCache = new ElementInfo[1024];
+  protected long[] hashCache = new long[1024];
+
+  // the round in which we last updated a ref, to skip duplicates
+  protected int[] updateRound = new int[1024];
+  protected int round;
+
+  // the running sum of the included object contributions
+  protected long heapHash;
+  protected int nObjects;
+
+  // refs of included objects that were not frozen when we hashed them, i.e.
+  // that could have changed in place
+  protected IntVector unfrozenRefs = new IntVector();
+  protected IntVector pendingRefs = new IntVector();
+
+  // the heap we get the changed refs from, null if it doesn't support this
+  protected GenericHeap trackedHeap;
+  protected boolean isTracking;
+
+  // the statics and frame caches are keyed by identity. The frame cache is
+  // generational so that we don't leak frames that are not used anymore
+  protected IdentityHashMap<StaticElementInfo,Long> staticsCache = new IdentityHashMap<StaticElementInfo,Long>();
+  protected IdentityHashMap<StackFrame,Long> frameCache = new IdentityHashMap<StackFrame,Long>();
+  protected IdentityHashMap<StackFrame,Long> lastFrameCache = new IdentityHashMap<StackFrame,Long>();
+
+  protected int maxStaticsCacheSize = 8192;
+
+  // the vector we return, which is separate from the scratch buffer we use
+  // for hashing individual objects
+  protected IntVector data = new IntVector(256);
+
+  // the fingerprint of the current state, valid if hasFingerprint is set
+  protected long fingerprint;
+  protected boolean hasFingerprint;
+
+  // we don't traverse, we just add the reference values
+  @Override
+  public void processReference(int objref) {
+    buf.add(objref);
+  }
+
+  //--- hashing
+
+  static long mix (long h){
+    // MurmurHash3 fmix64 finalizer
+    h ^= (h >>> 33);
+    h *= 0xff51afd7ed558ccdL;
+    h ^= (h >>> 33);
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= (h >>> 33);
+    return h;
+  }
+
+  static long hash (IntVector v){
+    int n = v.size();
+    long h = n * GOLDEN;
+    for (int i=0; i<n; i++){
+      h = (h + v.get(i)) * 0x100000001b3L;
+      h ^= (h >>> 29);
+    }
+    return mix(h);
+  }
+
+  protected long hashBuffer (){
+    return hash(buf);
+  }
+
+  protected void ensureCacheCapacity (int ref){
+    if (ref >= eiCache.length){
+      int newLen = eiCache.length;
+      while (newLen <= ref){
+        newLen <<= 1;
+      }
+
+      eiCache = Arrays.copyOf(eiCache, newLen);
+      hashCache = Arrays.copyOf(hashCache, newLen);
+      updateRound = Arrays.copyOf(updateRound, newLen);
+    }
+  }
+
+  static long getContribution (int ref, long h){
+    return mix(h ^ (ref * GOLDEN));
+  }
+
+  /**
+   * make sure the contribution of 'ref' reflects the object that is currently
+   * stored under this ref (which is null if it was removed). If 'force' is not
+   * set, we skip the re-hash if the included object is still the same frozen
+   * ElementInfo
+   */
+  protected void updateObject (int ref, boolean force){
+    ensureCacheCapacity(ref);
+    if (updateRound[ref] == round){
+      return; // already done
+    }
+    updateRound[ref] = round;
+
+    ElementInfo ei = heap.get(ref);
+    ElementInfo cached = eiCache[ref];
+
+    if (cached != null){
+      if (cached == ei && !force && ei.isFrozen()){
+        return; // frozen objects don't change
+      }
+      heapHash -= getContribution(ref, hashCache[ref]);
+      nObjects--;
+      eiCache[ref] = null;
+    }
+
+    if (ei != null){
+      buf.clear();
+      process(ei);
+      long h = hashBuffer();
+
+      eiCache[ref] = ei;
+      hashCache[ref] = h;
+      heapHash += getContribution(ref, h);
+      nObjects++;
+
+      if (!ei.isFrozen()){
+        unfrozenRefs.add(ref);
+      }
+    }
+  }
+
+  protected void nextRound (){
+    if (++round == 0){
+      Arrays.fill(updateRound, 0);
+      round = 1;
+    }
+  }
+
+  protected long getStaticsHash (StaticElementInfo sei){
+    Long cached = staticsCache.get(sei);
+    if (cached != null && sei.isFrozen()){
+      return cached;
+    }
+
+    buf.clear();
+    buf.add(sei.getClassInfo().getUniqueId());
+    serializeClass(sei);
+    long h = hashBuffer();
+
+    if (sei.isFrozen()){
+      if (staticsCache.size() >= maxStaticsCacheSize){
+        staticsCache.clear();
+      }
+      staticsCache.put(sei, h);
+    }
+
+    return h;
+  }
+
+  protected long getFrameHash (StackFrame frame){
+    Long cached = lastFrameCache.get(frame);
+    if (cached == null){
+      cached = frameCache.get(frame);
+    }
+    if (cached != null && frame.isFrozen()){
+      frameCache.put(frame, cached);
+      return cached;
+    }
+
+    buf.clear();
+    serializeFrame(frame);
+    long h = hashBuffer();
+
+    if (frame.isFrozen()){
+      frameCache.put(frame, h);
+    }
+
+    return h;
+  }
+
+  protected void addLong (long v){
+    data.add((int)(v >>> 32));
+    data.add((int)v);
+  }
+
+  //--- the state components
+
+  protected void hashHeap (){
+    if (heap != trackedHeap){
+      trackedHeap = null;
+      isTracking = false;
+      if (heap instanceof GenericHeap){
+        trackedHeap = (GenericHeap)heap;
+        trackedHeap.trackChangedRefs();
+        isTracking = true;
+      }
+    }
+
+    nextRound();
+
+    // objects that might have changed in place since we hashed them
+    IntVector v = pendingRefs;
+    pendingRefs = unfrozenRefs;
+    unfrozenRefs = v;
+    unfrozenRefs.clear();
+    int n = pendingRefs.size();
+    for (int i=0; i<n; i++){
+      updateObject(pendingRefs.get(i), true);
+    }
+
+    IntVector changedRefs = isTracking ? trackedHeap.getChangedRefs() : null;
+    if (changedRefs != null){
+      n = changedRefs.size();
+      for (int i=0; i<n; i++){
+        updateObject(changedRefs.get(i), false);
+      }
+
+    } else { // we have to look at all objects
+      for (ElementInfo ei : heap){
+        updateObject(ei.getObjectRef(), false);
+      }
+
+      // and drop the ones that are gone
+      for (int ref=0; ref<eiCache.length; ref++){
+        if (eiCache[ref] != null && updateRound[ref] != round){
+          heapHash -= getContribution(ref, hashCache[ref]);
+          nObjects--;
+          eiCache[ref] = null;
+        }
+      }
+    }
+
+    if (isTracking){
+      trackedHeap.clearChangedRefs();
+    }
+
+    data.add(nObjects);
+    addLong(heapHash);
+  }
+
+  protected void hashStatics (){
+    data.add(ks.classLoaders.size());
+
+    for (ClassLoaderInfo cl : ks.classLoaders) {
+      if (cl.isAlive()) {
+        Statics statics = cl.getStatics();
+        long h = statics.size();
+        for (StaticElementInfo sei : statics.liveStatics()) {
+          h = mix(h * GOLDEN + getStaticsHash(sei));
+        }
+        addLong(h);
+      }
+    }
+  }
+
+  protected void hashThreads (){
+    ThreadList tl = ks.getThreadList();
+
+    // swap frame cache generations
+    IdentityHashMap<StackFrame,Long> m = lastFrameCache;
+    lastFrameCache = frameCache;
+    frameCache = m;
+    frameCache.clear();
+
+    for (ThreadInfo ti : tl) {
+      if (ti.isAlive()) {
+        long h = ti.getThreadObjectRef();
+        for (StackFrame frame = ti.getTopFrame(); frame != null; frame = frame.getPrevious()){
+          h = mix(h * GOLDEN + getFrameHash(frame));
+        }
+        addLong(h);
+
+        // thread states are small, so we just serialize them as they are
+        buf.clear();
+        serializeThreadState(ti);
+        data.append(buf);
+      }
+    }
+  }
+
+  protected void computeStateData (){
+    data.clear();
+    heap = ks.getHeap();
+
+    hashHeap();
+    hashStatics();
+    hashThreads();
+
+    buf.clear();
+    serializeNativeStateHolders();
+    data.append(buf);
+  }
+
+  @Override
+  protected int[] computeStoringData() {
+    computeStateData();
+    return data.toArray();
+  }
+
+  @Override
+  public long getStateFingerprint (){
+    if (!hasFingerprint){
+      computeStateData();
+      fingerprint = hash(data);
+
+      if (cached == null){ // otherwise we are already registered
+        ks.pushChangeListener(this);
+      }
+      hasFingerprint = true;
+    }
+    return fingerprint;
+  }
+
+  @Override
+  public void kernelStateChanged (KernelState same) {
+    super.kernelStateChanged(same);
+    hasFingerprint = false;
+  }
+}
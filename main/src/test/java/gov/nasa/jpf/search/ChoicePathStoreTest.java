@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * unit test for the segment file based ChoicePathStore
+ */
+public class ChoicePathStoreTest {
+
+  static int countSegments (File dir){
+    return dir.list().length;
+  }
+
+  @Test
+  public void testAddGet() throws Exception {
+    File dir = Files.createTempDirectory("jpf-test").toFile();
+    ChoicePathStore store = new ChoicePathStore(dir, 1024);
+
+    ChoicePath p0 = new ChoicePath();
+    ChoicePath p1 = new ChoicePath(0, 1, 2, -1, 127, 128, 300000, Integer.MAX_VALUE-1);
+
+    long pos0 = store.add(p0);
+    long pos1 = store.add(p1);
+
+    assertEquals(2, store.size());
+    assertEquals(p0, store.get(pos0));
+    assertEquals(p1, store.get(pos1));
+
+    store.close();
+    assertEquals(0, countSegments(dir));
+    dir.delete();
+  }
+
+  @Test
+  public void testSegmentRelease() throws Exception {
+    File dir = Files.createTempDirectory("jpf-test").toFile();
+    ChoicePathStore store = new ChoicePathStore(dir, 256);
+    Random random = new Random(42);
+
+    ArrayList<ChoicePath> paths = new ArrayList<ChoicePath>();
+    ArrayList<Long> positions = new ArrayList<Long>();
+
+    for (int i=0; i<1000; i++){
+      int[] a = new int[random.nextInt(50)];
+      for (int j=0; j<a.length; j++){
+        a[j] = random.nextInt(1000);
+      }
+      ChoicePath p = new ChoicePath(a);
+      paths.add(p);
+      positions.add(store.add(p));
+    }
+    assertTrue(countSegments(dir) > 1);
+
+    // FIFO removal, as in a breadth first search
+    for (int i=0; i<paths.size(); i++){
+      assertEquals(paths.get(i), store.get(positions.get(i)));
+      store.remove(positions.get(i));
+    }
+
+    assertEquals(0, store.size());
+    assertEquals(1, countSegments(dir)); // the current segment is kept
+
+    store.close();
+    assertFalse(dir.list().length > 0);
+    dir.delete();
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * unit test for the DistributedCoordinator, using loopback workers that
+ * explore a binary tree of the given depth. Each child unit is sent to
+ * the worker that owns the sum of its choices
+ */
+public class DistributedCoordinatorTest {
+
+  static class TreeWorker extends Thread {
+    final String address;
+    final int id;
+    final int nWorkers;
+    final int maxDepth;
+    final ChoicePath errorPath;
+    int nUnits;
+    Throwable exception;
+
+    TreeWorker (String address, int id, int nWorkers, int maxDepth, ChoicePath errorPath){
+      this.address = address;
+      this.id = id;
+      this.nWorkers = nWorkers;
+      this.maxDepth = maxDepth;
+      this.errorPath = errorPath;
+    }
+
+    @Override
+    public void run(){
+      int idx = address.lastIndexOf(':');
+      try (Socket sock = new Socket(address.substring(0, idx), Integer.parseInt(address.substring(idx+1)))) {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(sock.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(sock.getOutputStream()));
+
+        DistributedCoordinator.writeMessage(out, DistributedCoordinator.HELLO, id, 0, null);
+        out.flush();
+
+        for (DistributedCoordinator.Message m = DistributedCoordinator.readMessage(in, id);
+                m.type == DistributedCoordinator.UNIT; m = DistributedCoordinator.readMessage(in, id)){
+          nUnits++;
+
+          if (m.path.equals(errorPath)){
+            DistributedCoordinator.writeMessage(out, DistributedCoordinator.ERROR, 0, 0, m.path);
+          }
+
+          if (m.path.length() < maxDepth){
+            for (int c=0; c<2; c++){
+              int[] a = Arrays.copyOf(m.path.choices, m.path.length()+1);
+              a[a.length-1] = c;
+              int sum = 0;
+              for (int v : a){
+                sum += v;
+              }
+              DistributedCoordinator.writeMessage(out, DistributedCoordinator.UNIT, sum % nWorkers, sum, new ChoicePath(a));
+            }
+          }
+
+          DistributedCoordinator.writeMessage(out, DistributedCoordinator.DONE, 1, 0, null);
+          out.flush();
+        }
+
+      } catch (Throwable t){
+        exception = t;
+      }
+    }
+  }
+
+  static TreeWorker[] startWorkers (String address, int nWorkers, int maxDepth, ChoicePath errorPath){
+    TreeWorker[] workers = new TreeWorker[nWorkers];
+    for (int i=0; i<nWorkers; i++){
+      workers[i] = new TreeWorker(address, i, nWorkers, maxDepth, errorPath);
+      workers[i].start();
+    }
+    return workers;
+  }
+
+  @Test
+  public void testTermination() throws Exception {
+    int nWorkers = 3;
+    int maxDepth = 10;
+
+    DistributedCoordinator coordinator = new DistributedCoordinator(nWorkers, true);
+    String address = coordinator.bind(null, 0);
+    TreeWorker[] workers = startWorkers(address, nWorkers, maxDepth, null);
+
+    coordinator.acceptWorkers(10000);
+    coordinator.run();
+
+    int nUnits = 0;
+    for (TreeWorker w : workers){
+      w.join();
+      assertEquals(null, w.exception);
+      assertTrue(w.nUnits > 0);
+      nUnits += w.nUnits;
+    }
+    coordinator.close();
+
+    int nNodes = (1 << (maxDepth+1)) - 1;
+    assertEquals(nNodes, nUnits);
+    assertEquals(nNodes, coordinator.getNumberOfUnits());
+    assertEquals(nNodes, coordinator.getNumberOfDoneUnits());
+    assertEquals(nNodes, coordinator.getNumberOfNewStates());
+    assertTrue(coordinator.getErrorPaths().isEmpty());
+  }
+
+  @Test
+  public void testStopOnError() throws Exception {
+    int nWorkers = 2;
+    ChoicePath errorPath = new ChoicePath(1, 0, 1);
+
+    DistributedCoordinator coordinator = new DistributedCoordinator(nWorkers, true);
+    String address = coordinator.bind(null, 0);
+    TreeWorker[] workers = startWorkers(address, nWorkers, 16, errorPath);
+
+    coordinator.acceptWorkers(10000);
+    coordinator.run();
+
+    for (TreeWorker w : workers){
+      w.join();
+      assertEquals(null, w.exception);
+    }
+    coordinator.close();
+
+    assertEquals(1, coordinator.getErrorPaths().size());
+    assertEquals(errorPath, coordinator.getErrorPaths().get(0));
+    assertTrue(coordinator.getNumberOfDoneUnits() < (1 << 17) - 1);
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.report.Statistics;
+import gov.nasa.jpf.vm.JenkinsStateSet;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * unit test for writing and reading SearchCheckpoints
+ */
+public class SearchCheckpointTest {
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    JenkinsStateSet states = new JenkinsStateSet();
+    for (int i=0; i<100000; i++){
+      assertEquals(i, states.add(new int[] { i, i*31 }));
+    }
+
+    Statistics stat = new Statistics();
+    stat.newStates = 100000;
+    stat.visitedStates = 42;
+    stat.maxDepth = 17;
+
+    ChoicePath path = new ChoicePath(0, 3, 1, 0, 7);
+    List<ChoicePath> errorPaths = Arrays.asList(new ChoicePath(0, 2), new ChoicePath(1, 1, 4));
+
+    File file = File.createTempFile("jpf-test", ".ckpt");
+    new SearchCheckpoint(path, errorPaths, states).write(file, stat);
+
+    JenkinsStateSet restoredStates = new JenkinsStateSet();
+    restoredStates.add(new int[] { -1 });
+    Statistics restoredStat = new Statistics();
+
+    SearchCheckpoint cp = SearchCheckpoint.read(file, restoredStates, restoredStat);
+    file.delete();
+
+    assertEquals(path, cp.getPath());
+    assertEquals(errorPaths, cp.getErrorPaths());
+    assertEquals(100000, restoredStat.newStates);
+    assertEquals(42, restoredStat.visitedStates);
+    assertEquals(17, restoredStat.maxDepth);
+
+    assertEquals(100000, restoredStates.size());
+    for (int i=0; i<100000; i++){
+      assertEquals(i, restoredStates.add(new int[] { i, i*31 }));
+    }
+    assertEquals(100000, restoredStates.add(new int[] { -1 }));
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search.heuristic;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * unit test for the min-max heap based StaticPriorityQueue, checked against
+ * a TreeSet with the same order
+ */
+public class StaticPriorityQueueTest {
+
+  static PrioritizedState state (int id, int value){
+    return new PrioritizedState(id, null, value);
+  }
+
+  @Test
+  public void testOrder(){
+    StaticPriorityQueue q = new StaticPriorityQueue(-1);
+    assertNull(q.pollFirst());
+
+    q.add(state(1, 5));
+    q.add(state(2, 3));
+    q.add(state(3, Integer.MAX_VALUE));
+    q.add(state(4, 3));
+    q.add(state(5, -7));
+    q.add(state(6, 0));
+
+    assertEquals(6, q.size());
+    assertEquals(5, q.first().getStateId());
+    assertEquals(3, q.last().getStateId());
+
+    int[] expected = { 5, 6, 2, 4, 1, 3 };
+    for (int id : expected){
+      assertEquals(id, q.pollFirst().getStateId());
+    }
+    assertTrue(q.isEmpty());
+  }
+
+  @Test
+  public void testEviction(){
+    StaticPriorityQueue q = new StaticPriorityQueue(3);
+
+    assertTrue(q.add(state(1, 10)));
+    assertTrue(q.add(state(2, 20)));
+    assertTrue(q.add(state(3, 30)));
+    assertTrue(q.isQueueLimitReached());
+
+    assertFalse(q.add(state(4, 40)));  // worse than all queued states
+    assertTrue(q.add(state(5, 15)));   // evicts 3
+
+    assertEquals(3, q.size());
+    assertEquals(1, q.pollFirst().getStateId());
+    assertEquals(5, q.pollFirst().getStateId());
+    assertEquals(2, q.pollFirst().getStateId());
+    assertNull(q.pollFirst());
+  }
+
+  @Test
+  public void testRandomOperations(){
+    Random random = new Random(42);
+    int limit = 500;
+    StaticPriorityQueue q = new StaticPriorityQueue(limit);
+    TreeSet<PrioritizedState> ref = new TreeSet<PrioritizedState>();
+
+    for (int i=0; i<100000; i++){
+      int op = random.nextInt(10);
+
+      if (op < 6){
+        PrioritizedState s = state(i, random.nextInt(200) - 100);
+        boolean added = q.add(s);
+
+        if (ref.size() < limit){
+          assertTrue(added);
+          ref.add(s);
+        } else if (s.compareTo(ref.last()) < 0){
+          assertTrue(added);
+          ref.pollLast();
+          ref.add(s);
+        } else {
+          assertFalse(added);
+        }
+
+      } else if (op < 9){
+        assertSame(ref.pollFirst(), q.pollFirst());
+
+      } else {
+        assertSame(ref.pollLast(), q.pollLast());
+      }
+
+      assertEquals(ref.size(), q.size());
+      if (!ref.isEmpty()){
+        assertSame(ref.first(), q.first());
+        assertSame(ref.last(), q.last());
+      }
+    }
+
+    q.clear();
+    assertTrue(q.isEmpty());
+    assertNull(q.last());
+  }
+}
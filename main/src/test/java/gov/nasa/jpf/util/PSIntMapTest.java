@@ -341,7 +341,60 @@ public class PSIntMapTest {
     }
     assertTrue( n == (max - nRemoved));
   }
-    
+
+  static class ChangeCollector implements Processor<Integer> {
+    BitSet processed = new BitSet();
+
+    @Override
+    public void process (Integer i){
+      assertTrue( !processed.get(i.intValue())); // only once
+      processed.set(i.intValue());
+    }
+  }
+
+  @Test
+  public void testProcessChanged(){
+    Random r = new Random(42);
+    PSIntMap<Integer> m = createPersistentIntMap();
+    for (int i=1; i<5000; i++){
+      m = set(m, i);
+    }
+
+    for (int k=0; k<200; k++){
+      PSIntMap<Integer> m1 = m;
+      int n = r.nextInt(40);
+      for (int j=0; j<n; j++){
+        int i = r.nextInt(6000);
+        if (r.nextInt(4) == 0){
+          if (m1.get(i) != null){
+            m1 = m1.remove(i);
+          }
+        } else {
+          m1 = m1.set(i, new Integer(i)); // not identical to the old value
+        }
+      }
+
+      // changes in both directions, including the pending staging nodes
+      checkProcessChanged(m1, m);
+      checkProcessChanged(m, m1);
+
+      if (k % 2 == 0){
+        m = m1;
+      }
+    }
+  }
+
+  void checkProcessChanged (PSIntMap<Integer> m, PSIntMap<Integer> other){
+    ChangeCollector c = new ChangeCollector();
+    m.processChanged(other, c);
+
+    for (int i=0; i<6000; i++){
+      Integer v = m.get(i);
+      boolean isChanged = (v != null) && (v != other.get(i));
+      assertTrue( "wrong processChanged() result for " + i, isChanged == c.processed.get(i));
+    }
+  }
+
   
   //--- benchmarks
   
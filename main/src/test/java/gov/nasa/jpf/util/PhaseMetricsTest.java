@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * basic checks for PhaseMetrics counting, nesting and histogram buckets
+ */
+public class PhaseMetricsTest {
+
+  @Test
+  public void testBuckets(){
+    assertEquals(0, PhaseMetrics.getBucket(0));
+    assertEquals(1, PhaseMetrics.getBucket(1));
+    assertEquals(2, PhaseMetrics.getBucket(2));
+    assertEquals(2, PhaseMetrics.getBucket(3));
+    assertEquals(11, PhaseMetrics.getBucket(1024));
+    assertEquals(63, PhaseMetrics.getBucket(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testCounting(){
+    PhaseMetrics.disable();
+    PhaseMetrics.reset();
+
+    long t = PhaseMetrics.start(PhaseMetrics.GC);
+    PhaseMetrics.stop(PhaseMetrics.GC, t);
+    assertEquals(0, PhaseMetrics.getCount(PhaseMetrics.GC)); // not enabled
+
+    PhaseMetrics.enable();
+    try {
+      for (int i=0; i<10; i++){
+        t = PhaseMetrics.start(PhaseMetrics.GC);
+        PhaseMetrics.stop(PhaseMetrics.GC, t);
+      }
+      assertEquals(10, PhaseMetrics.getCount(PhaseMetrics.GC));
+
+      // recursive entries are only counted once
+      long t1 = PhaseMetrics.start(PhaseMetrics.CLASS_LOAD);
+      long t2 = PhaseMetrics.start(PhaseMetrics.CLASS_LOAD);
+      PhaseMetrics.stop(PhaseMetrics.CLASS_LOAD, t2);
+      PhaseMetrics.stop(PhaseMetrics.CLASS_LOAD, t1);
+      assertEquals(1, PhaseMetrics.getCount(PhaseMetrics.CLASS_LOAD));
+
+      long total = PhaseMetrics.getTotalNanos(PhaseMetrics.GC);
+      long max = PhaseMetrics.getMaxNanos(PhaseMetrics.GC);
+      assertTrue(max <= total);
+      assertTrue(PhaseMetrics.getPercentileNanos(PhaseMetrics.GC, 50) <= max);
+      assertEquals(max, PhaseMetrics.getPercentileNanos(PhaseMetrics.GC, 100));
+
+    } finally {
+      PhaseMetrics.disable();
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.jvm.DirClassFileContainer;
+import gov.nasa.jpf.jvm.JarClassFileContainer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * unit test for the package index based ClassPath lookup
+ */
+public class ClassPathTest {
+
+  static File createJar (String... entries) throws IOException {
+    File file = File.createTempFile("classpath", ".jar");
+    file.deleteOnExit();
+
+    JarOutputStream jos = new JarOutputStream(new FileOutputStream(file));
+    try {
+      for (String e : entries){
+        jos.putNextEntry(new JarEntry(e));
+        jos.write(new byte[] { (byte)0xca, (byte)0xfe, (byte)0xba, (byte)0xbe });
+        jos.closeEntry();
+      }
+    } finally {
+      jos.close();
+    }
+
+    return file;
+  }
+
+  @Test
+  public void testPackageNames() throws Exception {
+    JarClassFileContainer jar = new JarClassFileContainer( createJar("a/b/C.class", "a/b/C$1.class", "D.class", "x/y/z.txt"));
+    assertEquals(2, jar.getPackageNames().size());
+    assertTrue(jar.getPackageNames().contains("a.b"));
+    assertTrue(jar.getPackageNames().contains(""));
+
+    jar = new JarClassFileContainer( createJar("classes/a/C.class", "classes/D.class", "E.class"), "/classes");
+    assertEquals(2, jar.getPackageNames().size());
+    assertTrue(jar.getPackageNames().contains("a"));
+    assertTrue(jar.getPackageNames().contains(""));
+  }
+
+  @Test
+  public void testLookupOrder() throws Exception {
+    File dir = File.createTempFile("classpath", ".dir");
+    dir.delete();
+    dir.mkdir();
+    dir.deleteOnExit();
+
+    JarClassFileContainer jar1 = new JarClassFileContainer( createJar("a/b/C.class"));
+    JarClassFileContainer jar2 = new JarClassFileContainer( createJar("a/b/C.class", "a/b/D.class", "x/E.class"));
+
+    ClassPath cp = new ClassPath();
+    cp.addClassFileContainer(jar1);
+    cp.addClassFileContainer(new DirClassFileContainer(dir)); // unknown packages
+    cp.addClassFileContainer(jar2);
+
+    assertEquals(3, cp.getContainers("a.b").length);
+    assertEquals(2, cp.getContainers("x").length);
+
+    assertSame(jar1, cp.findMatch("a.b.C").getContainer());
+    assertSame(jar2, cp.findMatch("a.b.D").getContainer());
+    assertSame(jar2, cp.findMatch("x.E").getContainer());
+    assertNull(cp.findMatch("x.F"));
+    assertNull(cp.findMatch("y.G"));
+
+    // new containers invalidate the index, but a restore gets us the old one back
+    Memento<ClassPath> m = cp.getMemento();
+    JarClassFileContainer jar3 = new JarClassFileContainer( createJar("y/G.class"));
+    cp.addClassFileContainer(jar3);
+    assertSame(jar3, cp.findMatch("y.G").getContainer());
+
+    m.restore(cp);
+    assertNull(cp.findMatch("y.G"));
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.PropertyListenerAdapter;
+import gov.nasa.jpf.search.Search;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * unit test for the per-event VMListener dispatch arrays
+ */
+public class ListenerSubscriptionTest {
+
+  static class Passive extends ListenerAdapter {
+    @Override
+    public void stateAdvanced (Search search){
+      // not a VM notification
+    }
+  }
+
+  static class InsnObserver extends ListenerAdapter {
+    @Override
+    public void instructionExecuted (VM vm, ThreadInfo ti, Instruction nextInsn, Instruction executedInsn){
+      // nothing
+    }
+  }
+
+  static class DerivedInsnObserver extends InsnObserver {
+    @Override
+    public void methodEntered (VM vm, ThreadInfo ti, MethodInfo mi){
+      // nothing
+    }
+  }
+
+  static class Property extends PropertyListenerAdapter {
+  }
+
+  static final Class<?>[] EXEC_ARGS = { VM.class, ThreadInfo.class, Instruction.class, Instruction.class };
+  static final Class<?>[] METHOD_ARGS = { VM.class, ThreadInfo.class, MethodInfo.class };
+
+  @Test
+  public void testIsSubscribed(){
+    assertFalse(VM.isSubscribed(new Passive(), "instructionExecuted", EXEC_ARGS));
+    assertFalse(VM.isSubscribed(new Property(), "instructionExecuted", EXEC_ARGS));
+
+    assertTrue(VM.isSubscribed(new InsnObserver(), "instructionExecuted", EXEC_ARGS));
+    assertFalse(VM.isSubscribed(new InsnObserver(), "methodEntered", METHOD_ARGS));
+
+    assertTrue(VM.isSubscribed(new DerivedInsnObserver(), "instructionExecuted", EXEC_ARGS));
+    assertTrue(VM.isSubscribed(new DerivedInsnObserver(), "methodEntered", METHOD_ARGS));
+  }
+
+  @Test
+  public void testGetSubscribers(){
+    VMListener a = new Passive();
+    VMListener b = new InsnObserver();
+    VMListener c = new DerivedInsnObserver();
+
+    VMListener[] subscribers = VM.getSubscribers(new VMListener[] { a, b, c }, "instructionExecuted", EXEC_ARGS);
+    assertEquals(2, subscribers.length);
+    assertSame(b, subscribers[0]);
+    assertSame(c, subscribers[1]);
+
+    subscribers = VM.getSubscribers(new VMListener[] { a, b }, "methodEntered", METHOD_ARGS);
+    assertEquals(0, subscribers.length);
+  }
+}
@@ -71,7 +71,7 @@ public class JPF_java_lang_Object extends NativePeer {
       }
       
       // Ok, this is nasty but efficient
-      eiClone.fields = ei.getFields().clone();
+      eiClone.fields = ei.getReadOnlyFields().clone();
 
       return eiClone.getObjectRef();
     }
@@ -180,8 +180,8 @@ public class JPF_java_lang_String extends NativePeer {
       return false;
     }
 
-    Fields f1 = heap.get(s1.getReferenceField("value")).getFields();
-    Fields f2 = heap.get(s2.getReferenceField("value")).getFields();
+    Fields f1 = heap.get(s1.getReferenceField("value")).getReadOnlyFields();
+    Fields f2 = heap.get(s2.getReferenceField("value")).getReadOnlyFields();
 
     char[] c1 = ((CharArrayFields) f1).asCharArray();
     char[] c2 = ((CharArrayFields) f2).asCharArray();
@@ -302,7 +302,7 @@ public class JPF_java_lang_String extends NativePeer {
   public int indexOf__II__I (MJIEnv env, int objref, int c, int fromIndex) {
     int vref = env.getReferenceField(objref, "value");
     ElementInfo ei = env.getElementInfo(vref);
-    char[] values = ((CharArrayFields) ei.getFields()).asCharArray();
+    char[] values = ((CharArrayFields) ei.getReadOnlyFields()).asCharArray();
 
     int len = values.length;
 
@@ -327,7 +327,7 @@ public class JPF_java_lang_String extends NativePeer {
   public int lastIndexOf__II__I (MJIEnv env, int objref, int c, int fromIndex) {
     int vref = env.getReferenceField(objref, "value");
     ElementInfo ei = env.getElementInfo(vref);
-    char[] values = ((CharArrayFields) ei.getFields()).asCharArray();
+    char[] values = ((CharArrayFields) ei.getReadOnlyFields()).asCharArray();
 
     int len = values.length;
 
@@ -388,12 +388,12 @@ public class JPF_java_lang_String extends NativePeer {
     Heap heap = env.getHeap();
 
     ElementInfo thisStr = heap.get(objRef);
-    CharArrayFields thisFields = (CharArrayFields) heap.get(thisStr.getReferenceField("value")).getFields();
+    CharArrayFields thisFields = (CharArrayFields) heap.get(thisStr.getReferenceField("value")).getReadOnlyFields();
     char[] thisChars = thisFields.asCharArray();
     int thisLength = thisChars.length;
 
     ElementInfo otherStr = heap.get(strRef);
-    CharArrayFields otherFields = (CharArrayFields) heap.get(otherStr.getReferenceField("value")).getFields();
+    CharArrayFields otherFields = (CharArrayFields) heap.get(otherStr.getReferenceField("value")).getReadOnlyFields();
     char[] otherChars = otherFields.asCharArray();
     int otherLength = otherChars.length;
 
@@ -537,7 +537,7 @@ public class JPF_java_lang_String extends NativePeer {
     Heap heap = env.getHeap();
     ElementInfo thisStr = heap.get(objRef);
 
-    CharArrayFields thisFields = (CharArrayFields) heap.get(thisStr.getReferenceField("value")).getFields();
+    CharArrayFields thisFields = (CharArrayFields) heap.get(thisStr.getReferenceField("value")).getReadOnlyFields();
     char[] thisChars = thisFields.asCharArray();
     int thisLength = thisChars.length;
 
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.report.Statistics;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * end-to-end test for DFSearch checkpoints - a search that is interrupted and
+ * resumed from its last checkpoint has to end up with the same totals and errors
+ * as an uninterrupted search
+ */
+public class DFSearchCheckpointTest {
+
+  /**
+   * writes a checkpoint and stops the search when it is about to backtrack
+   * for the n-th time from a visited state, which is what a search that gets
+   * killed right after its last checkpoint leaves behind
+   */
+  static class Interrupter extends SearchListenerAdapter {
+    int n;
+    boolean interrupted;
+
+    Interrupter (int n){
+      this.n = n;
+    }
+
+    @Override
+    public void stateAdvanced (Search search){
+      if (!search.isNewState() && !search.isErrorState() && --n == 0){
+        ((DFSearch)search).writeCheckpoint();
+        search.terminate();
+        interrupted = true;
+      }
+    }
+  }
+
+  static JPF run (SearchListener listener, String... args){
+    JPF jpf = new JPF(new Config(args));
+    if (listener != null){
+      jpf.addListener(listener);
+    }
+    jpf.run();
+    return jpf;
+  }
+
+  @Test
+  public void testResume() throws Exception {
+    File file = File.createTempFile("jpf-test", ".ckpt");
+    file.delete();
+
+    try {
+      JPF full = run(null, "+search.multiple_errors=true", "+report.console.property_violation=",
+              "oldclassic");
+
+      Interrupter interrupter = new Interrupter(300);
+      JPF interrupted = run(interrupter, "+search.multiple_errors=true", "+report.console.property_violation=",
+              "+search.checkpoint.file=" + file.getPath(), "oldclassic");
+      assertTrue(interrupter.interrupted);
+      assertTrue(file.isFile());
+      assertTrue(interrupted.getSearch().getErrors().size() > 0);
+
+      JPF resumed = run(null, "+search.multiple_errors=true", "+report.console.property_violation=",
+              "+search.checkpoint.file=" + file.getPath(), "+search.resume=true", "oldclassic");
+
+      Statistics fullStat = full.getReporter().getStatistics();
+      Statistics resumedStat = resumed.getReporter().getStatistics();
+
+      assertTrue(fullStat.newStates > 0);
+      assertEquals(fullStat.newStates, resumedStat.newStates);
+      assertEquals(fullStat.visitedStates, resumedStat.visitedStates);
+      assertEquals(fullStat.backtracked, resumedStat.backtracked);
+      assertEquals(fullStat.endStates, resumedStat.endStates);
+      assertEquals(full.getVM().getStateSet().size(), resumed.getVM().getStateSet().size());
+
+      // errors found before the checkpoint are reported again
+      assertEquals(full.getSearch().getErrors().size(), resumed.getSearch().getErrors().size());
+
+    } finally {
+      file.delete();
+    }
+  }
+}
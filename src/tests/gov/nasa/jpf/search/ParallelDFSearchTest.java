@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * end-to-end test for ParallelDFSearch, which has to explore the same states
+ * and find the same error states as DFSearch
+ */
+public class ParallelDFSearchTest {
+
+  static class ErrorStateCollector extends SearchListenerAdapter {
+    HashSet<Integer> errorStates = new HashSet<Integer>();
+
+    @Override
+    public void propertyViolated (Search search){
+      errorStates.add(search.getVM().getStateId());
+    }
+  }
+
+  static JPF run (ErrorStateCollector collector, String... args){
+    JPF jpf = new JPF(new Config(args));
+    jpf.addListener(collector);
+    jpf.run();
+    return jpf;
+  }
+
+  @Test
+  public void testOldClassic() {
+    ErrorStateCollector dfsErrors = new ErrorStateCollector();
+    JPF dfs = run(dfsErrors, "+search.multiple_errors=true", "+report.console.property_violation=",
+            "oldclassic");
+    int nStates = dfs.getVM().getStateSet().size();
+
+    ErrorStateCollector parErrors = new ErrorStateCollector();
+    JPF par = run(parErrors, "+search.class=gov.nasa.jpf.search.ParallelDFSearch",
+            "+search.parallel.workers=2", "+search.parallel.split_depth=3",
+            "+search.multiple_errors=true", "+report.console.property_violation=",
+            "oldclassic");
+    ParallelDFSearch search = (ParallelDFSearch) par.getSearch();
+
+    // make sure this was not a sequential fallback
+    assertTrue(search.getSubtreePaths().size() > 1);
+    assertTrue(search.getNumberOfWorkerStates() > 0);
+
+    assertEquals(nStates, search.getNumberOfStates());
+
+    // every error state is reported once
+    assertTrue(dfsErrors.errorStates.size() > 1);
+    assertTrue(dfs.getSearch().getErrors().size() > dfsErrors.errorStates.size());
+    assertEquals(dfsErrors.errorStates.size(), search.getErrors().size());
+  }
+}
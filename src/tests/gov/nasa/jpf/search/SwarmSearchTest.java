@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.search;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * end-to-end test for SwarmSearch, which has to stop its workers and report
+ * their errors
+ */
+public class SwarmSearchTest {
+
+  static SwarmSearch run (String... args){
+    JPF jpf = new JPF(new Config(args));
+    jpf.run();
+    return (SwarmSearch) jpf.getSearch();
+  }
+
+  @Test
+  public void testStopOnError() {
+    // no path limit, the workers only stop because of the error
+    SwarmSearch search = run("+search.class=gov.nasa.jpf.search.SwarmSearch",
+            "+search.swarm.workers=2", "+search.swarm.path_limit=0", "+search.swarm.time_limit=600",
+            "+report.console.property_violation=", "oldclassic");
+
+    assertTrue(search.getNumberOfWorkerPaths() > 0);
+    assertEquals(1, search.getErrors().size());
+  }
+
+  @Test
+  public void testPathLimit() {
+    // with multiple errors, the workers only stop because of the path limit
+    SwarmSearch search = run("+search.class=gov.nasa.jpf.search.SwarmSearch",
+            "+search.swarm.workers=2", "+search.swarm.path_limit=50", "+search.multiple_errors=true",
+            "+report.console.property_violation=", "oldclassic");
+
+    assertEquals(100, search.getNumberOfWorkerPaths());
+    assertTrue(search.getErrors().size() > 0);
+  }
+
+  @Test(expected = JPF.ExitException.class)
+  public void testNoLimit() {
+    run("+search.class=gov.nasa.jpf.search.SwarmSearch", "+search.swarm.workers=2",
+            "+search.swarm.path_limit=0", "oldclassic");
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.test.basic;
+
+import gov.nasa.jpf.annotation.MJI;
+import gov.nasa.jpf.vm.MJIEnv;
+import gov.nasa.jpf.vm.NativeMethodInfo;
+import gov.nasa.jpf.vm.NativePeer;
+import gov.nasa.jpf.vm.NativeStackFrame;
+
+import java.util.Arrays;
+
+/**
+ * native peer class for NativeDispatchTest
+ */
+public class JPF_gov_nasa_jpf_test_basic_NativeDispatchTest extends NativePeer {
+
+  @MJI
+  public long allPrimitives (MJIEnv env, int robj, boolean z, byte b, char c, short s,
+                             int i, long j, float f, double d) {
+    if (!z || f != 1.5f || d != -2.25 || env.getIntField(robj, "idata") != 1) {
+      return 0;
+    }
+    return j + i + s + b + c + (long)(f + d + 1.75);
+  }
+
+  @MJI
+  public double staticPrimitives (MJIEnv env, int rcls, double d, int i, long j, float f) {
+    return d + i + j + f;
+  }
+
+  @MJI
+  public boolean returnBoolean (MJIEnv env, int robj, int i) {
+    return i != 0;
+  }
+
+  @MJI
+  public byte returnByte (MJIEnv env, int robj, int i) {
+    return (byte) i;
+  }
+
+  @MJI
+  public char returnChar (MJIEnv env, int robj, char c) {
+    return (char) (c + 1);
+  }
+
+  @MJI
+  public short returnShort (MJIEnv env, int robj, int i) {
+    return (short) i;
+  }
+
+  @MJI
+  public float returnFloat (MJIEnv env, int robj, float f) {
+    return -f;
+  }
+
+  @MJI
+  public int concat (MJIEnv env, int robj, int sRef, int aRef, int oRef) {
+    String s = env.getStringObject(sRef);
+    int len = env.getArrayLength(aRef);
+    String o = (oRef == MJIEnv.NULL) ? "null" : Integer.toString(env.getIntField(oRef, "value"));
+
+    return env.newString(s + ':' + len + ':' + o);
+  }
+
+  @MJI
+  public int identity (MJIEnv env, int rcls, int oRef) {
+    return oRef;
+  }
+
+  @MJI
+  public int sum (MJIEnv env, int robj, int aRef) {
+    int[] values = env.getIntArrayObject(aRef);
+    int n = 0;
+    for (int i=0; i<values.length; i++){
+      n += values[i];
+    }
+    return n;
+  }
+
+  @MJI
+  public int join (MJIEnv env, int rcls, int sepRef, int aRef) {
+    String sep = env.getStringObject(sepRef);
+    int len = env.getArrayLength(aRef);
+    StringBuilder sb = new StringBuilder();
+
+    for (int i=0; i<len; i++){
+      if (i > 0){
+        sb.append(sep);
+      }
+      int eRef = env.getReferenceArrayElement(aRef, i);
+      if (eRef == MJIEnv.NULL){
+        sb.append("null");
+      } else if (env.isInstanceOf(eRef, "java.lang.String")){
+        sb.append(env.getStringObject(eRef));
+      } else {
+        sb.append(env.getIntField(eRef, "value"));
+      }
+    }
+
+    return env.newString(sb.toString());
+  }
+
+  @MJI
+  public boolean checkBoxedArguments (MJIEnv env, int robj, long j, boolean z, double d,
+                                      int sRef, char c, float f) {
+    NativeStackFrame frame = (NativeStackFrame) env.getThreadInfo().getTopFrame();
+    NativeMethodInfo mi = (NativeMethodInfo) frame.getMethodInfo();
+
+    Object[] boxed = frame.getArguments();
+    Object[] expected = { env, Integer.valueOf(robj), Long.valueOf(j), Boolean.valueOf(z),
+                          Double.valueOf(d), Integer.valueOf(sRef), Character.valueOf(c), Float.valueOf(f) };
+    if (!Arrays.equals(expected, boxed)) {
+      return false;
+    }
+
+    return Arrays.equals(frame.getArgumentSlots(), mi.getArgumentSlots(boxed));
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.test.basic;
+
+import gov.nasa.jpf.util.test.TestJPF;
+import org.junit.Test;
+
+/**
+ * model class for testing the MethodHandle based dispatch of MJI peer methods,
+ * which reads the arguments directly from the native frame slots
+ */
+public class NativeDispatchTest extends TestJPF {
+
+  int idata = 1;
+
+  native long allPrimitives (boolean z, byte b, char c, short s, int i, long j, float f, double d);
+
+  static native double staticPrimitives (double d, int i, long j, float f);
+
+  native boolean returnBoolean (int i);
+  native byte returnByte (int i);
+  native char returnChar (char c);
+  native short returnShort (int i);
+  native float returnFloat (float f);
+
+  native String concat (String s, int[] a, Object o);
+
+  static native Object identity (Object o);
+
+  native int sum (int... values);
+
+  static native String join (String separator, Object... parts);
+
+  native boolean checkBoxedArguments (long j, boolean z, double d, String s, char c, float f);
+
+  @Test
+  public void testPrimitiveArguments () {
+    if (verifyNoPropertyViolation()){
+      long res = allPrimitives(true, (byte)-2, 'x', (short)-300, 40000, 1L << 40, 1.5f, -2.25);
+      assertEquals((1L << 40) + 40000 - 300 - 2 + 'x' + 1, res);
+
+      // double slot arguments in static methods
+      double d = staticPrimitives(0.5, -7, -(1L << 33), 0.25f);
+      assertEquals(0.5 - 7 - (1L << 33) + 0.25, d, 0.0);
+    }
+  }
+
+  @Test
+  public void testPrimitiveReturnValues () {
+    if (verifyNoPropertyViolation()){
+      assertTrue(returnBoolean(1));
+      assertFalse(returnBoolean(0));
+      assertEquals((byte)-1, returnByte(255));
+      assertEquals('b', returnChar('a'));
+      assertEquals((short)-1, returnShort(65535));
+      assertEquals(-0.5f, returnFloat(0.5f), 0.0f);
+    }
+  }
+
+  @Test
+  public void testReferenceArguments () {
+    if (verifyNoPropertyViolation()){
+      int[] a = { 1, 2, 3 };
+      assertEquals("abc:3:null", concat("abc", a, null));
+      assertEquals("abc:3:42", concat("abc", a, Integer.valueOf(42)));
+
+      Object o = new Object();
+      assertSame(o, identity(o));
+      assertNull(identity(null));
+    }
+  }
+
+  @Test
+  public void testVarargs () {
+    if (verifyNoPropertyViolation()){
+      assertEquals(0, sum());
+      assertEquals(6, sum(1, 2, 3));
+      assertEquals(42, sum(new int[] { 40, 2 }));
+
+      assertEquals("", join(","));
+      assertEquals("a,1,null", join(",", "a", Integer.valueOf(1), null));
+    }
+  }
+
+  @Test
+  public void testBoxedArguments () {
+    if (verifyNoPropertyViolation()){
+      // the peer checks that the boxed arguments convert back into the same slots
+      assertTrue(checkBoxedArguments(-(1L << 35), true, 3.75, "x", 'c', -1.5f));
+    }
+  }
+}
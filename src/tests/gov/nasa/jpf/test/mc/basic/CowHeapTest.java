@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.test.mc.basic;
+
+import org.junit.Test;
+
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.Verify;
+
+/**
+ * unit test for CowHeap
+ */
+public class CowHeapTest extends TestJPF {
+
+  static class X {
+    int v;
+  }
+
+  @Test
+  public void testBacktrackedValues() {
+    if (verifyNoPropertyViolation("+vm.heap.class=.vm.CowHeap")) {
+      // enough objects to span a number of pages
+      X[] xs = new X[1000];
+      for (int i=0; i<xs.length; i++) {
+        xs[i] = new X();
+      }
+
+      int n = Verify.getInt(1, 3);
+      for (int i=0; i<xs.length; i++) {
+        assertTrue("object not restored: " + i, xs[i].v == 0);
+      }
+
+      for (int i=0; i<xs.length; i+= n*7) {
+        xs[i].v = n;
+      }
+
+      // throw away some of the objects so that the next state is gc'ed
+      xs[n*10] = null;
+
+      int m = Verify.getInt(1, 2);
+      for (int i=0; i<xs.length; i+= n*7) {
+        if (xs[i] != null) {
+          assertTrue("wrong value: " + i, xs[i].v == n);
+          xs[i].v += m;
+        }
+      }
+    }
+  }
+
+  static final Object lock1 = new Object();
+  static final Object lock2 = new Object();
+
+  @Test
+  public void testDeadlock() {
+    if (verifyDeadlock("+vm.heap.class=.vm.CowHeap")) {
+      Thread t = new Thread() {
+        @Override
+        public void run() {
+          synchronized (lock2) {
+            synchronized (lock1) {
+              System.out.println("T got both locks");
+            }
+          }
+        }
+      };
+      t.start();
+
+      synchronized (lock1) {
+        synchronized (lock2) {
+          System.out.println("M got both locks");
+        }
+      }
+    }
+  }
+}
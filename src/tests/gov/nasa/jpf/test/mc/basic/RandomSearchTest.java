@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.test.mc.basic;
+
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.Verify;
+
+import org.junit.Test;
+
+/**
+ * test for RandomSearch, which picks random choices with a seeded
+ * random generator and restarts until it hits its path limit
+ */
+public class RandomSearchTest extends TestJPF {
+
+  static final String RANDOM = "+search.class=gov.nasa.jpf.search.RandomSearch";
+
+  @Test
+  public void testPathLimit() {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+    }
+
+    if (verifyNoPropertyViolation(RANDOM, "+search.RandomSearch.path_limit=10")) {
+      int a = Verify.getInt(0, 3);
+      int b = Verify.getInt(0, 3);
+      Verify.incrementCounter(0);
+      System.out.println("a=" + a + ",b=" + b);
+    }
+
+    if (!isJPFRun()) {
+      if (Verify.getCounter(0) != 10) {
+        fail("wrong number of paths: " + Verify.getCounter(0));
+      }
+    }
+  }
+
+  @Test
+  public void testRandomChoices() {
+    if (verifyAssertionError(RANDOM, "+search.RandomSearch.path_limit=1000", "+search.RandomSearch.seed=7")) {
+      int a = Verify.getInt(0, 9);
+      int b = Verify.getInt(0, 9);
+      assert (a != 3 || b != 6);
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.test.mc.basic;
+
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.Verify;
+
+import org.junit.Test;
+
+/**
+ * regression test for StatelessSearch, which has to explore all paths by
+ * re-executing choice prefixes, with and without DPOR
+ */
+public class StatelessSearchTest extends TestJPF {
+
+  static final String STATELESS = "+search.class=gov.nasa.jpf.search.StatelessSearch";
+  static final String DPOR = "+vm.scheduler.class=gov.nasa.jpf.vm.DPORScheduler";
+
+  static int x;
+
+  @Test
+  public void testDataPaths() {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+    }
+
+    if (verifyNoPropertyViolation(STATELESS)) {
+      int a = Verify.getInt(0, 3);
+      int b = Verify.getInt(0, 2);
+      boolean c = Verify.getBoolean();
+      Verify.incrementCounter(0);
+      System.out.println("a=" + a + ",b=" + b + ",c=" + c);
+    }
+
+    if (!isJPFRun()) {
+      if (Verify.getCounter(0) != 24) {
+        fail("wrong number of paths: " + Verify.getCounter(0));
+      }
+    }
+  }
+
+  @Test
+  public void testDataError() {
+    if (verifyAssertionError(STATELESS)) {
+      int a = Verify.getInt(0, 3);
+      int b = Verify.getInt(0, 3);
+      assert (a != 2 || b != 3);
+    }
+  }
+
+  @Test
+  public void testAllOutcomes() throws InterruptedException {
+    if (!isJPFRun()) {
+      Verify.resetCounter(1);
+      Verify.resetCounter(2);
+    }
+
+    if (verifyNoPropertyViolation(STATELESS)) {
+      x = 0;
+      Thread t1 = new Thread() {
+        @Override
+        public void run() {
+          x = 1;
+        }
+      };
+      Thread t2 = new Thread() {
+        @Override
+        public void run() {
+          x = 2;
+        }
+      };
+      t1.start();
+      t2.start();
+      t1.join();
+      t2.join();
+
+      Verify.incrementCounter(x);
+    }
+
+    if (!isJPFRun()) {
+      if (Verify.getCounter(1) == 0 || Verify.getCounter(2) == 0) {
+        fail("missed outcome: " + Verify.getCounter(1) + ',' + Verify.getCounter(2));
+      }
+    }
+  }
+
+  @Test
+  public void testAllOutcomesDPOR() throws InterruptedException {
+    if (!isJPFRun()) {
+      Verify.resetCounter(1);
+      Verify.resetCounter(2);
+    }
+
+    if (verifyNoPropertyViolation(STATELESS, DPOR)) {
+      x = 0;
+      Thread t1 = new Thread() {
+        @Override
+        public void run() {
+          x = 1;
+        }
+      };
+      Thread t2 = new Thread() {
+        @Override
+        public void run() {
+          x = 2;
+        }
+      };
+      t1.start();
+      t2.start();
+      t1.join();
+      t2.join();
+
+      Verify.incrementCounter(x);
+    }
+
+    if (!isJPFRun()) {
+      if (Verify.getCounter(1) == 0 || Verify.getCounter(2) == 0) {
+        fail("missed outcome: " + Verify.getCounter(1) + ',' + Verify.getCounter(2));
+      }
+    }
+  }
+
+  @Test
+  public void testLostUpdateDPOR() throws InterruptedException {
+    if (verifyAssertionErrorDetails("lost update", STATELESS, DPOR)) {
+      x = 0;
+      Runnable r = new Runnable() {
+        @Override
+        public void run() {
+          int t = x;
+          x = t + 1;
+        }
+      };
+      Thread t1 = new Thread(r);
+      Thread t2 = new Thread(r);
+      t1.start();
+      t2.start();
+      t1.join();
+      t2.join();
+
+      assert x == 2 : "lost update";
+    }
+  }
+
+  static class Fork {
+  }
+
+  static class Philosopher extends Thread {
+    Fork left, right;
+
+    Philosopher(Fork left, Fork right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public void run() {
+      synchronized (left) {
+        synchronized (right) {
+          x++;
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDeadlockDPOR() {
+    if (verifyDeadlock(STATELESS, DPOR)) {
+      int n = 3;
+      Fork[] forks = new Fork[n];
+      for (int i = 0; i < n; i++) {
+        forks[i] = new Fork();
+      }
+      for (int i = 0; i < n; i++) {
+        new Philosopher(forks[i], forks[(i + 1) % n]).start();
+      }
+    }
+  }
+}
@@ -65,6 +65,24 @@ public class RandomTest extends TestJPF {
 
 
   
+  @Test public void testRandomBFSSpill () {
+    if (!isJPFRun()){
+      Verify.resetCounter(0);
+    }
+    if (verifyNoPropertyViolation("+search.class=gov.nasa.jpf.search.heuristic.BFSHeuristic",
+                                  "+search.heuristic.spill=true")){
+      int i = Verify.getInt(0,2);
+      int j = Verify.getInt(0,2); // the states before this are spilled and replayed
+      Verify.incrementCounter(0);
+      System.out.println(i*3 + j);
+    }
+    if (!isJPFRun()){
+      if (Verify.getCounter(0) != 9){
+        fail("wrong number of paths");
+      }
+    }
+  }
+
   @Test public void testJavaUtilRandom () {
 
     if (verifyUnhandledException("java.lang.ArithmeticException", "+cg.enumerate_random=true")) {
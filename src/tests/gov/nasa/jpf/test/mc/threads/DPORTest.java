@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.test.mc.threads;
+
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.Verify;
+
+import org.junit.Test;
+
+/**
+ * regression test for the DPORScheduler - reduction must not lose any errors
+ * or final outcomes
+ */
+public class DPORTest extends TestJPF {
+
+  static final String DPOR = "+vm.scheduler.class=gov.nasa.jpf.vm.DPORScheduler";
+
+  static int x;
+
+  @Test
+  public void testLostUpdate() throws InterruptedException {
+    if (verifyAssertionErrorDetails("lost update", DPOR)) {
+      x = 0;
+      Runnable r = new Runnable() {
+        @Override
+        public void run() {
+          int t = x;
+          x = t + 1;
+        }
+      };
+      Thread t1 = new Thread(r);
+      Thread t2 = new Thread(r);
+      t1.start();
+      t2.start();
+      t1.join();
+      t2.join();
+
+      assert x == 2 : "lost update";
+    }
+  }
+
+  @Test
+  public void testAllOutcomes() throws InterruptedException {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+      Verify.resetCounter(1);
+      Verify.resetCounter(2);
+    }
+
+    if (verifyNoPropertyViolation(DPOR)) {
+      x = 0;
+      Thread t1 = new Thread() {
+        @Override
+        public void run() {
+          x = 1;
+        }
+      };
+      Thread t2 = new Thread() {
+        @Override
+        public void run() {
+          x = 2;
+        }
+      };
+      t1.start();
+      t2.start();
+      t1.join();
+      t2.join();
+
+      Verify.incrementCounter(x);
+    }
+
+    if (!isJPFRun()) {
+      if (Verify.getCounter(1) == 0 || Verify.getCounter(2) == 0) {
+        fail("missed outcome: " + Verify.getCounter(1) + ',' + Verify.getCounter(2));
+      }
+    }
+  }
+
+  static class Fork {
+  }
+
+  static class Philosopher extends Thread {
+    Fork left, right;
+
+    Philosopher(Fork left, Fork right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public void run() {
+      synchronized (left) {
+        synchronized (right) {
+          x++;
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDeadlock() {
+    if (verifyDeadlock(DPOR)) {
+      int n = 3;
+      Fork[] forks = new Fork[n];
+      for (int i = 0; i < n; i++) {
+        forks[i] = new Fork();
+      }
+      for (int i = 0; i < n; i++) {
+        new Philosopher(forks[i], forks[(i + 1) % n]).start();
+      }
+    }
+  }
+
+  static class Buffer {
+    int[] buf = new int[2];
+    int n, in, out;
+
+    synchronized void put(int v) throws InterruptedException {
+      while (n == buf.length) {
+        wait();
+      }
+      buf[in] = v;
+      in = (in + 1) % buf.length;
+      n++;
+      notifyAll();
+    }
+
+    synchronized int take() throws InterruptedException {
+      while (n == 0) {
+        wait();
+      }
+      int v = buf[out];
+      out = (out + 1) % buf.length;
+      n--;
+      notifyAll();
+      return v;
+    }
+  }
+
+  static void producerConsumer() throws InterruptedException {
+    final Buffer buf = new Buffer();
+    Thread producer = new Thread() {
+      @Override
+      public void run() {
+        try {
+          for (int i = 1; i <= 3; i++) {
+            buf.put(i);
+          }
+        } catch (InterruptedException ix) {
+        }
+      }
+    };
+    producer.start();
+
+    int sum = 0;
+    for (int i = 0; i < 3; i++) {
+      sum += buf.take();
+    }
+    producer.join();
+
+    assert sum == 6 : "wrong sum: " + sum;
+  }
+
+  @Test
+  public void testProducerConsumer() throws InterruptedException {
+    if (verifyNoPropertyViolation(DPOR)) {
+      producerConsumer();
+    }
+  }
+
+  static class Worker extends Thread {
+    int[] data = new int[2];
+
+    @Override
+    public void run() {
+      for (int i = 0; i < data.length; i++) {
+        synchronized (this) {
+          data[i] = i;
+        }
+      }
+    }
+  }
+
+  static void independentWorkers() throws InterruptedException {
+    Worker[] workers = new Worker[3];
+    for (int i = 0; i < workers.length; i++) {
+      workers[i] = new Worker();
+      workers[i].start();
+    }
+    for (int i = 0; i < workers.length; i++) {
+      workers[i].join();
+    }
+  }
+
+  static void assertReduction(JPF full, JPF dpor, int minFactor) {
+    int nFull = full.getVM().getStateSet().size();
+    int nDpor = dpor.getVM().getStateSet().size();
+    assertTrue("no DPOR reduction: " + nDpor + " >= " + nFull + '/' + minFactor, nDpor * minFactor < nFull);
+  }
+
+  //--- reduction tests - these only run on the host since they compare two JPF runs
+
+  @Test
+  public void testProducerConsumerReduction() throws InterruptedException {
+    JPF full = noPropertyViolation();
+    if (full == null) {
+      producerConsumer();
+    } else {
+      assertReduction(full, noPropertyViolation(DPOR), 2);
+    }
+  }
+
+  @Test
+  public void testIndependentReduction() throws InterruptedException {
+    JPF full = noPropertyViolation();
+    if (full == null) {
+      independentWorkers();
+    } else {
+      assertReduction(full, noPropertyViolation(DPOR), 5);
+    }
+  }
+
+  //--- dropped summaries have to fall back to full expansion
+
+  @Test
+  public void testDroppedSummaries() throws InterruptedException {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+      Verify.resetCounter(1);
+      Verify.resetCounter(2);
+      Verify.resetCounter(3);
+    }
+
+    if (verifyNoPropertyViolation(DPOR, "+vm.scheduler.dpor.max_summaries=2")) {
+      x = 0;
+      Thread[] threads = new Thread[3];
+      for (int i = 0; i < threads.length; i++) {
+        final int v = i + 1;
+        threads[i] = new Thread() {
+          @Override
+          public void run() {
+            x = v;
+          }
+        };
+        threads[i].start();
+      }
+      for (int i = 0; i < threads.length; i++) {
+        threads[i].join();
+      }
+
+      Verify.incrementCounter(x);
+    }
+
+    if (!isJPFRun()) {
+      for (int i = 1; i <= 3; i++) {
+        if (Verify.getCounter(i) == 0) {
+          fail("missed outcome: " + i);
+        }
+      }
+    }
+  }
+}
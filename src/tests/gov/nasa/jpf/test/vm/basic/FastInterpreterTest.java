@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.test.vm.basic;
+
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.Verify;
+
+import org.junit.Test;
+
+/**
+ * regression test for the fast interpreter loop (vm.fast_interpreter), which
+ * has to produce the same results and transition breaks as the normal one
+ */
+public class FastInterpreterTest extends TestJPF {
+
+  static int compute (int n){
+    int s = 1;
+    long l = 3;
+    double d = 0.5;
+
+    for (int i=0; i<n; i++){
+      s = s*31 + (i ^ (s >>> 3));
+      if ((s & 1) == 0) {
+        s += i;
+      } else {
+        s -= 7;
+      }
+      l = (l << 1) ^ s;
+      d = d * 1.5 + (s % 13);
+
+      switch (i & 3){
+      case 0: s++; break;
+      case 1: s--; break;
+      default: s ^= 0x55;
+      }
+    }
+    return s + (int)l + (int)d;
+  }
+
+  static final int EXPECTED = -648608008; // compute(1000) on the host VM
+
+  @Test
+  public void testArithmetic (){
+    if (verifyNoPropertyViolation("+vm.fast_interpreter=true")){
+      int r = compute(1000);
+      assertTrue("wrong result: " + r, r == EXPECTED);
+    }
+  }
+
+  @Test
+  public void testMaxTransitionLength (){
+    if (!isJPFRun()){
+      Verify.resetCounter(0);
+    }
+
+    // backjumps have to break the transition after max_transition_length insns
+    if (verifyNoPropertyViolation("+vm.fast_interpreter=true", "+vm.max_transition_length=500")){
+      Thread t = new Thread(){
+        @Override
+        public void run(){
+          compute(200);
+        }
+      };
+      t.start();
+      compute(200);
+      Verify.incrementCounter(0);
+    }
+
+    if (!isJPFRun()){
+      assertTrue("no interleavings", Verify.getCounter(0) > 1);
+    }
+  }
+}
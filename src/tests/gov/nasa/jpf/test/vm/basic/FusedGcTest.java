@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.test.vm.basic;
+
+import gov.nasa.jpf.annotation.FilterField;
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.Verify;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+/**
+ * regression test for gc that is fused with state serialization (vm.gc.fused),
+ * which has to collect the same objects as the normal gc
+ */
+public class FusedGcTest extends TestJPF {
+
+  static class Node {
+    Node next;
+    int value;
+
+    Node (Node next, int value){
+      this.next = next;
+      this.value = value;
+    }
+  }
+
+  static class Holder {
+    @FilterField Node filtered;  // not serialized, but still keeps its target alive
+  }
+
+  static void forceGC (){
+    System.gc();
+    Verify.breakTransition("forceGC"); // gc runs before the state is stored
+  }
+
+  @Test
+  public void testWeakReferences (){
+    if (verifyNoPropertyViolation("+vm.gc.fused=true")){
+      Node strong = new Node(new Node(null, 1), 0);
+      WeakReference<Node> ref1 = new WeakReference<Node>(strong);
+      WeakReference<Node> ref2 = new WeakReference<Node>(new Node(strong, 2));
+
+      // this one is reachable through a collected referent
+      WeakReference<Node> ref3 = new WeakReference<Node>(strong.next);
+      Object[] a = { new WeakReference<Object>(ref3) };
+
+      forceGC();
+
+      assertSame(strong, ref1.get());
+      assertNull(ref2.get());
+      assertSame(strong.next, ref3.get());
+      assertSame(ref3, ((WeakReference<?>)a[0]).get());
+
+      strong.next = null;
+      forceGC();
+      assertNull(ref3.get());
+    }
+  }
+
+  @Test
+  public void testFilteredField (){
+    if (verifyNoPropertyViolation("+vm.gc.fused=true")){
+      Holder h = new Holder();
+      h.filtered = new Node(new Node(null, 42), 0);
+
+      forceGC();
+
+      assertTrue(h.filtered.next.value == 42);
+    }
+  }
+
+  @Test
+  public void testStateSpace (){
+    if (!isJPFRun()){
+      Verify.resetCounter(0);
+    }
+
+    if (verifyNoPropertyViolation("+vm.gc.fused=true")){
+      final Node[] shared = new Node[1];
+
+      Thread t = new Thread(){
+        @Override
+        public void run(){
+          for (int i=0; i<2; i++){
+            synchronized (shared){
+              shared[0] = new Node(shared[0], i);
+            }
+          }
+        }
+      };
+      t.start();
+
+      for (int i=0; i<2; i++){
+        synchronized (shared){
+          shared[0] = (shared[0] != null) ? shared[0].next : new Node(null, -1);
+        }
+      }
+
+      Verify.incrementCounter(0);
+    }
+
+    if (!isJPFRun()){
+      // same as with the normal gc
+      assertTrue("wrong number of end states: " + Verify.getCounter(0), Verify.getCounter(0) == 40);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.test.vm.basic;
+
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.Verify;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+/**
+ * regression test for incremental gc (vm.gc.full_interval), which must not
+ * collect young objects that are only reachable from old ones
+ */
+public class IncrementalGcTest extends TestJPF {
+
+  static class Node {
+    Node next;
+    int value;
+
+    Node (Node next, int value){
+      this.next = next;
+      this.value = value;
+    }
+  }
+
+  static void forceGC (){
+    System.gc();
+    Verify.breakTransition("forceGC"); // gc runs before the state is stored
+  }
+
+  // make sure there are no references to the new objects left on our stack
+  static void link (Node old, Node[] oldArray){
+    old.next = new Node(null, 1);
+    oldArray[0] = new Node(new Node(null, 3), 2);
+  }
+
+  @Test
+  public void testYoungObjects (){
+    if (verifyNoPropertyViolation("+vm.gc.full_interval=1000")){
+      Node old = new Node(null, 0);
+      Node[] oldArray = new Node[1];
+      forceGC();
+      forceGC(); // now they are frozen, and can only be modified through getModifiable()
+
+      // only reachable through old objects that were modified since the last gc
+      link(old, oldArray);
+
+      // young garbage
+      WeakReference<Node> ref3 = new WeakReference<Node>(new Node(old, 4));
+      forceGC();
+
+      assertNull(ref3.get());
+      assertTrue(old.next.value == 1);
+      assertTrue(oldArray[0].next.value == 3);
+    }
+  }
+
+  @Test
+  public void testBacktracking (){
+    if (verifyNoPropertyViolation("+vm.gc.full_interval=1000")){
+      Node old = new Node(null, 0);
+      forceGC();
+
+      boolean b = Verify.getBoolean();
+      old.next = new Node(null, b ? 1 : 2);
+      WeakReference<Node> ref = new WeakReference<Node>(old.next);
+      forceGC();
+
+      assertSame(old.next, ref.get());
+      assertTrue(old.next.value == (b ? 1 : 2));
+    }
+  }
+
+  @Test
+  public void testFullGc (){
+    if (verifyNoPropertyViolation("+vm.gc.full_interval=2")){
+      Node old = new Node(new Node(null, 1), 0);
+      WeakReference<Node> ref = new WeakReference<Node>(old.next);
+      forceGC();
+
+      old.next = null; // old garbage is only collected by a full gc
+      forceGC();
+      forceGC(); // now they are frozen, and can only be modified through getModifiable()
+
+      assertNull(ref.get());
+    }
+  }
+
+  @Test
+  public void testStateSpace (){
+    if (!isJPFRun()){
+      Verify.resetCounter(0);
+    }
+
+    if (verifyNoPropertyViolation("+vm.gc.full_interval=4")){
+      final Node[] shared = new Node[1];
+
+      Thread t = new Thread(){
+        @Override
+        public void run(){
+          for (int i=0; i<2; i++){
+            synchronized (shared){
+              shared[0] = new Node(shared[0], i);
+            }
+          }
+        }
+      };
+      t.start();
+
+      for (int i=0; i<2; i++){
+        synchronized (shared){
+          shared[0] = (shared[0] != null) ? shared[0].next : new Node(null, -1);
+        }
+      }
+
+      Verify.incrementCounter(0);
+    }
+
+    if (!isJPFRun()){
+      // same as with full gcs
+      assertTrue("wrong number of end states: " + Verify.getCounter(0), Verify.getCounter(0) == 40);
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.test.vm.basic;
+
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.Verify;
+
+import org.junit.Test;
+
+/**
+ * regression test for ElementInfo clones that share their Fields and Monitor
+ * with the frozen original until they are modified. Each choice modifies the
+ * shared objects, and has to see them unmodified after backtracking
+ */
+public class SharedStateTest extends TestJPF {
+
+  static class Data {
+    int x;
+    String s = "initial";
+  }
+
+  static void forceGC (){
+    System.gc();
+    Verify.breakTransition("forceGC");
+  }
+
+  @Test
+  public void testFields (){
+    if (!isJPFRun()){
+      Verify.resetCounter(0);
+    }
+
+    if (verifyNoPropertyViolation()){
+      Data d = new Data();
+      int[] a = new int[4];
+      forceGC(); // now they are frozen
+
+      int c = Verify.getInt(0, 2);
+      Verify.incrementCounter(0);
+
+      assertEquals(0, d.x);
+      assertEquals("initial", d.s);
+      assertEquals(0, a[1]);
+
+      d.x = c + 1;
+      d.s = "choice " + c;
+      a[1] = c + 1;
+
+      assertEquals(c + 1, d.x);
+      assertEquals(c + 1, a[1]);
+    }
+
+    if (!isJPFRun()){
+      assertEquals(3, Verify.getCounter(0));
+    }
+  }
+
+  @Test
+  public void testElementAttrs (){
+    if (!isJPFRun()){
+      Verify.resetCounter(0);
+    }
+
+    if (verifyNoPropertyViolation()){
+      int[] a = new int[2];
+      forceGC();
+
+      Verify.getBoolean();
+      Verify.incrementCounter(0);
+
+      assertEquals(0, Verify.getElementAttribute(a, 0));
+
+      // the attribute is stored by IASTORE through setElementAttrNoClone()
+      int v = 42;
+      Verify.setLocalAttribute("v", 1);
+      a[0] = v;
+
+      assertEquals(1, Verify.getElementAttribute(a, 0));
+    }
+
+    if (!isJPFRun()){
+      assertEquals(2, Verify.getCounter(0));
+    }
+  }
+
+  @Test
+  public void testMonitor (){
+    if (!isJPFRun()){
+      Verify.resetCounter(0);
+    }
+
+    if (verifyNoPropertyViolation()){
+      Object lock = new Object();
+      forceGC();
+
+      synchronized (lock){
+        Verify.getBoolean(); // the state is stored while we hold the lock
+        Verify.incrementCounter(0);
+
+        assertTrue(Thread.holdsLock(lock));
+        synchronized (lock){ // modifies the lock count of the clone
+          assertTrue(Thread.holdsLock(lock));
+        }
+        assertTrue(Thread.holdsLock(lock));
+      }
+
+      assertFalse(Thread.holdsLock(lock));
+    }
+
+    if (!isJPFRun()){
+      assertEquals(2, Verify.getCounter(0));
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.JPFConfigException;
+import gov.nasa.jpf.report.Statistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * unit test for BitstateStateSet and the reporting of its omission estimates
+ */
+public class BitstateStateSetTest {
+
+  static int[] state (int i){
+    return new int[] { i, i*31, -i };
+  }
+
+  static BitstateStateSet createSet (String size, int nHashes){
+    return new BitstateStateSet(new Config(new StringReader("vm.storage.bitstate.size=" + size + "\n"
+                                                            + "vm.storage.bitstate.hashes=" + nHashes + "\n")));
+  }
+
+  @Test
+  public void testAddAndDuplicates() {
+    BitstateStateSet set = createSet("1M", 3);
+    int n = 1000;
+
+    for (int i=0; i<n; i++){
+      assertEquals(i, set.add(state(i)));
+    }
+    assertEquals(n, set.size());
+
+    // visited states have no id
+    for (int i=0; i<n; i++){
+      assertEquals(StateSet.UNKNOWN_ID, set.add(state(i)));
+    }
+    assertEquals(n, set.size());
+
+    assertTrue(set.getNumberOfSetBits() <= 3*n);
+    assertTrue(set.getExpectedOmissions() < 0.01);
+  }
+
+  @Test
+  public void testOmissionAccounting() {
+    // small enough to get a significant number of false positives
+    BitstateStateSet set = createSet("1K", 3);
+    int n = 3000;
+    int nOmitted = 0;
+
+    for (int i=0; i<n; i++){
+      int sizeBefore = set.size();
+      int id = set.add(state(i));
+
+      if (id == StateSet.UNKNOWN_ID){
+        nOmitted++;
+        assertEquals(sizeBefore, set.size());
+      } else {
+        assertEquals(sizeBefore, id);
+      }
+    }
+
+    // only states that are counted as new are in size()
+    assertEquals(n, set.size() + nOmitted);
+    assertTrue(nOmitted > 0);
+
+    // there are no false negatives
+    for (int i=0; i<n; i++){
+      assertEquals(StateSet.UNKNOWN_ID, set.add(state(i)));
+    }
+
+    long nSetBits = 0;
+    for (long w : set.bits){
+      nSetBits += Long.bitCount(w);
+    }
+    assertEquals(nSetBits, set.getNumberOfSetBits());
+    assertEquals(8192, set.getNumberOfBits());
+    assertEquals((double)nSetBits / 8192, set.getFillRatio(), 1e-9);
+    assertEquals(Math.pow(set.getFillRatio(), 3), set.getOmissionProbability(), 1e-9);
+
+    // the estimate is only summed up for states that were added, i.e. it
+    // underestimates the omissions once the set is saturated
+    double expected = set.getExpectedOmissions();
+    assertTrue("expected " + expected + " omitted " + nOmitted, expected > nOmitted/2 && expected < nOmitted);
+  }
+
+  static void createSet (String... settings){
+    StringBuilder sb = new StringBuilder();
+    for (String s : settings){
+      sb.append(s).append('\n');
+    }
+    new BitstateStateSet(new Config(new StringReader(sb.toString())));
+  }
+
+  @Test(expected = JPFConfigException.class)
+  public void testMatchDepth() {
+    createSet("search.match_depth=true");
+  }
+
+  @Test(expected = JPFConfigException.class)
+  public void testDPOR() {
+    createSet("vm.scheduler.class=gov.nasa.jpf.vm.DPORScheduler");
+  }
+
+  @Test(expected = JPFConfigException.class)
+  public void testIdListener() {
+    createSet("listener=gov.nasa.jpf.listener.PreciseRaceDetector,.listener.NoStateCycles");
+  }
+
+  @Test
+  public void testCompatibleConfig() {
+    createSet("search.match_depth=false", "listener=gov.nasa.jpf.listener.PreciseRaceDetector");
+  }
+
+  @Test
+  public void testReport() throws IOException {
+    File dir = Files.createTempDirectory("jpf-bitstate").toFile();
+    File console = new File(dir, "console.txt");
+    File xml = new File(dir, "report.xml");
+
+    String[] args = { "+vm.storage.class=gov.nasa.jpf.vm.BitstateStateSet",
+                      "+vm.storage.bitstate.size=1K",
+                      "+report.publisher=console,xml",
+                      "+report.console.file=" + console.getPath(),
+                      "+report.xml.file=" + new File(dir, "report").getPath(),
+                      "+report.xml.finished=result,statistics",
+                      "+target=HelloWorld" };
+    JPF jpf = new JPF(new Config(args));
+    jpf.run();
+
+    Statistics stat = jpf.getReporter().getStatistics();
+    BitstateStateSet set = (BitstateStateSet)jpf.getVM().getStateSet();
+    assertEquals(set.getFillRatio(), stat.stateFillRatio, 0);
+    assertEquals(set.getOmissionProbability(), stat.stateOmissionProbability, 0);
+    assertEquals(set.getExpectedOmissions(), stat.expectedOmittedStates, 0);
+    assertTrue(stat.stateFillRatio > 0);
+
+    String consoleOut = new String(Files.readAllBytes(console.toPath()));
+    assertTrue(consoleOut.contains("bitstate:           fill="));
+    assertTrue(consoleOut.contains(",omissionProbability="));
+
+    String xmlOut = new String(Files.readAllBytes(xml.toPath()));
+    assertTrue(xmlOut.contains("<bitstate-omission-probability>" + stat.stateOmissionProbability + "</bitstate-omission-probability>"));
+    assertTrue(xmlOut.contains("<bitstate-expected-omitted>"));
+
+    console.delete();
+    xml.delete();
+    dir.delete();
+  }
+
+  @Test
+  public void testNoBitstateReport() {
+    String[] args = { "+report.publisher=", "+target=HelloWorld" };
+    JPF jpf = new JPF(new Config(args));
+    jpf.run();
+
+    Statistics stat = jpf.getReporter().getStatistics();
+    assertTrue(stat.stateOmissionProbability < 0);
+  }
+}
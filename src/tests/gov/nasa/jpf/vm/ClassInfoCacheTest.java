@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * unit test for ClassInfoCache
+ */
+public class ClassInfoCacheTest {
+
+  VM createVM (String... args) {
+    Config config = new Config(args);
+    JPF jpf = new JPF(config);
+    VM vm = jpf.getVM();
+
+    vm.initialize();
+    return vm;
+  }
+
+  @Test
+  public void testReuse() {
+    String[] args = {"+vm.class_cache=true", "+target=HelloWorld"};
+
+    VM vm1 = createVM(args);
+    ClassInfo ci1 = vm1.getCurrentThread().getSystemClassLoaderInfo().getResolvedClassInfo("java.lang.String");
+    assertTrue(ClassInfoCache.size() > 0);
+    assertTrue(ClassInfoCache.getNumberOfHits() == 0);
+
+    VM vm2 = createVM(args);
+    ClassInfo ci2 = vm2.getCurrentThread().getSystemClassLoaderInfo().getResolvedClassInfo("java.lang.String");
+    assertTrue(ClassInfoCache.getNumberOfHits() > 0);
+
+    // same class, but nothing shared with the previous run
+    assertTrue(ci1 != ci2);
+    assertTrue(ci1.getName().equals(ci2.getName()));
+    assertTrue(ci1.getDeclaredMethodInfos().length == ci2.getDeclaredMethodInfos().length);
+    assertTrue(ci2.getClassLoaderInfo() == vm2.getCurrentThread().getSystemClassLoaderInfo());
+
+    for (MethodInfo mi : ci2.getDeclaredMethodInfos()) {
+      assertTrue(mi.getClassInfo() == ci2);
+      assertTrue(MethodInfo.getMethodInfo(mi.getGlobalId()) == mi);
+
+      MethodInfo mi1 = ci1.getMethod(mi.getUniqueName(), false);
+      assertTrue(mi1 != mi);
+      assertTrue(mi1.getNumberOfInstructions() == mi.getNumberOfInstructions());
+
+      if (mi.getNumberOfInstructions() > 0) {
+        assertTrue(mi.getInstruction(0) != mi1.getInstruction(0));
+        assertTrue(mi.getInstruction(0).getMethodInfo() == mi);
+      }
+    }
+
+    ClassInfoCache.flush();
+  }
+
+  @Test
+  public void testDisabled() {
+    createVM("+vm.class_cache=false", "+target=HelloWorld");
+    assertTrue(ClassInfoCache.size() == 0);
+
+    createVM("+vm.class_cache=false", "+target=HelloWorld");
+    assertTrue(ClassInfoCache.getNumberOfHits() == 0);
+  }
+}
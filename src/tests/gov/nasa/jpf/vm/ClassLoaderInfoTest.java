@@ -82,4 +82,33 @@ public class ClassLoaderInfoTest {
 
     //--- should compare on-demand loaded classes here..
   }
+
+  @Test
+  public void testClonedMethods() {
+    String[] args = {"+vm.class=.vm.MultiProcessVM", "+target.1=HelloWorld", "+target.2=HelloWorld"};
+    Config config = new Config(args);
+    JPF jpf = new JPF(config);
+    VM vm = jpf.getVM();
+
+    vm.initialize();
+
+    ThreadInfo[] threads = vm.getLiveThreads();
+    SystemClassLoaderInfo cl0 = threads[0].getSystemClassLoaderInfo();
+    SystemClassLoaderInfo cl1 = threads[1].getSystemClassLoaderInfo();
+
+    // the second classloader gets a clone of the class loaded by the first one
+    ClassInfo ci0 = cl0.getResolvedClassInfo("java.util.TreeMap");
+    ClassInfo ci1 = cl1.getResolvedClassInfo("java.util.TreeMap");
+    assertTrue(ci0 != ci1);
+
+    MethodInfo mi0 = ci0.getMethod("size()I", false);
+    MethodInfo mi1 = ci1.getMethod("size()I", false);
+    assertTrue(mi0 != mi1);
+    assertTrue(mi0.getGlobalId() != mi1.getGlobalId());
+
+    // global ids have to map back to the method of the respective classloader
+    assertTrue(MethodInfo.getMethodInfo(mi0.getGlobalId()) == mi0);
+    assertTrue(MethodInfo.getMethodInfo(mi1.getGlobalId()) == mi1);
+    assertTrue(MethodInfo.getMethodInfo(mi1.getGlobalId()).getClassInfo() == ci1);
+  }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * unit test for prefetching classfiles during VM initialization
+ */
+public class ClassPrefetchTest {
+
+  VM createVM (String... args) {
+    Config config = new Config(args);
+    JPF jpf = new JPF(config);
+    VM vm = jpf.getVM();
+
+    vm.initialize();
+    return vm;
+  }
+
+  static SystemClassLoaderInfo getSystemClassLoader (VM vm){
+    return vm.getCurrentThread().getSystemClassLoaderInfo();
+  }
+
+  @Test
+  public void testStartupClasses() {
+    SystemClassLoaderInfo sysCl1 = getSystemClassLoader( createVM("+vm.class_prefetch.threads=0", "+target=HelloWorld"));
+    assertTrue(sysCl1.prefetchedMatches == null);
+
+    SystemClassLoaderInfo sysCl = getSystemClassLoader( createVM("+vm.class_prefetch.threads=2", "+target=HelloWorld"));
+
+    // prefetched classfiles are released once the VM is initialized
+    assertTrue(sysCl.prefetchedMatches == null);
+
+    // parsing from a prefetched ClassFile yields the same class
+    ClassInfo ci1 = sysCl1.getResolvedClassInfo("java.lang.Thread");
+    ClassInfo ci2 = sysCl.getResolvedClassInfo("java.lang.Thread");
+    assertTrue(ci1 != ci2);
+    assertTrue(ci1.getDeclaredMethodInfos().length == ci2.getDeclaredMethodInfos().length);
+    assertTrue(ci1.getNumberOfDeclaredInstanceFields() == ci2.getNumberOfDeclaredInstanceFields());
+  }
+
+  @Test
+  public void testStartupOnly() {
+    SystemClassLoaderInfo sysCl = getSystemClassLoader( createVM("+vm.class_prefetch.threads=2", "+target=HelloWorld"));
+    sysCl.prefetchClasses( Arrays.asList("java.util.TreeMap", "java.lang.Thread"));
+
+    // only classes that are not resolved yet are prefetched
+    assertTrue(sysCl.prefetchedMatches.containsKey("java.util.TreeMap"));
+    assertTrue(!sysCl.prefetchedMatches.containsKey("java.lang.Thread"));
+
+    ClassInfo ci = sysCl.getResolvedClassInfo("java.util.TreeMap");
+    assertTrue(ci != null);
+    assertTrue(!sysCl.prefetchedMatches.containsKey("java.util.TreeMap"));
+
+    sysCl.prefetchClasses( Arrays.asList("java.util.TreeSet"));
+    sysCl.releasePrefetchedClasses();
+    assertTrue(sysCl.prefetchedMatches == null);
+    assertTrue(sysCl.getResolvedClassInfo("java.util.TreeSet") != null);
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * unit test for ConcurrentJenkinsStateSet
+ */
+public class ConcurrentJenkinsStateSetTest {
+
+  static int[] state (int i){
+    return new int[] { i, i*3, 42 };
+  }
+
+  @Test
+  public void testSequentialIds() {
+    // use a small table so that we go through several resizes
+    ConcurrentJenkinsStateSet set = new ConcurrentJenkinsStateSet(1024);
+    int n = 100000;
+
+    for (int i=0; i<n; i++){
+      int sizeBefore = set.size();
+      int id = set.add(state(i));
+      assertEquals(sizeBefore, id);
+      assertEquals(i+1, set.size());
+    }
+
+    for (int i=0; i<n; i++){
+      assertEquals(i, set.add(state(i)));
+    }
+    assertEquals(n, set.size());
+  }
+
+  @Test
+  public void testConcurrentAdd() throws InterruptedException {
+    final ConcurrentJenkinsStateSet set = new ConcurrentJenkinsStateSet(1024);
+    final int n = 200000;
+    final AtomicIntegerArray ids = new AtomicIntegerArray(n);
+    final AtomicIntegerArray newCount = new AtomicIntegerArray(n);
+    final AtomicBoolean inconsistent = new AtomicBoolean();
+
+    Thread[] threads = new Thread[4];
+    for (int t=0; t<threads.length; t++){
+      final int offset = t * 7919;
+      threads[t] = new Thread() {
+        @Override
+        public void run(){
+          for (int k=0; k<n; k++){
+            int i = (k + offset) % n;
+            int id = set.addFingerprint( JenkinsStateSet.longLookup3Hash(state(i)));
+            if (id >= 0){
+              newCount.incrementAndGet(i);
+            } else {
+              id = -id -1;
+            }
+
+            // all threads have to see the same id for the same state
+            if (!ids.compareAndSet(i, 0, id+1) && ids.get(i) != id+1){
+              inconsistent.set(true);
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+
+    for (Thread t : threads){
+      t.join();
+    }
+
+    assertFalse(inconsistent.get());
+    assertEquals(n, set.size());
+    boolean[] seen = new boolean[n];
+    for (int i=0; i<n; i++){
+      assertEquals(1, newCount.get(i));
+
+      int id = ids.get(i) -1;
+      assertTrue(id >= 0 && id < n && !seen[id]);
+      seen[id] = true;
+    }
+  }
+
+  @Test
+  public void testFingerprints() throws IOException {
+    ConcurrentJenkinsStateSet set = new ConcurrentJenkinsStateSet(1024);
+    int n = 10000;
+    for (int i=0; i<n; i++){
+      set.add(state(i));
+    }
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    set.writeFingerprints(new DataOutputStream(bos));
+    byte[] data = bos.toByteArray();
+
+    // ids are preserved, and the format is the one of JenkinsStateSet
+    ConcurrentJenkinsStateSet set2 = new ConcurrentJenkinsStateSet();
+    set2.readFingerprints(new DataInputStream(new ByteArrayInputStream(data)));
+    JenkinsStateSet set3 = new JenkinsStateSet();
+    set3.readFingerprints(new DataInputStream(new ByteArrayInputStream(data)));
+
+    assertEquals(n, set2.size());
+    assertEquals(n, set3.size());
+    for (int i=0; i<n; i++){
+      assertEquals(i, set2.add(state(i)));
+      assertEquals(i, set3.add(state(i)));
+    }
+
+    assertEquals(n, set2.add(state(n)));
+    assertEquals(n+1, set2.size());
+  }
+}
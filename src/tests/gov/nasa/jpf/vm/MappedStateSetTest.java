@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ *        http://www.apache.org/licenses/LICENSE-2.0. 
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.Config;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * unit test for MappedStateSet
+ */
+public class MappedStateSetTest {
+
+  static int[] state (int i){
+    return new int[] { i, -i, i*7 };
+  }
+
+  static Config createConfig (File file, boolean reuse){
+    return new Config(new StringReader("vm.storage.file=" + file.getAbsolutePath().replace('\\', '/') + "\n"
+                                       + "vm.storage.reuse=" + reuse + "\n"));
+  }
+
+  @Test
+  public void testAddAndReuse() throws IOException {
+    File file = File.createTempFile("jpf-mapped", ".states");
+    file.deleteOnExit();
+    int n = 200000; // this causes several rehashes
+
+    MappedStateSet set = new MappedStateSet(createConfig(file, false));
+    for (int i=0; i<n; i++){
+      assertEquals(i, set.add(state(i)));
+    }
+    for (int i=0; i<n; i++){
+      assertEquals(i, set.add(state(i)));
+    }
+    assertEquals(n, set.size());
+    set.force();
+
+    // states of the previous run are still known if we reuse the file
+    MappedStateSet reused = new MappedStateSet(createConfig(file, true));
+    assertEquals(n, reused.size());
+    assertEquals(42, reused.add(state(42)));
+    assertEquals(n, reused.add(state(n)));
+
+    // .. but not if we don't
+    MappedStateSet fresh = new MappedStateSet(createConfig(file, false));
+    assertEquals(0, fresh.size());
+    assertEquals(0, fresh.add(state(42)));
+  }
+
+  @Test
+  public void testRehashAndClose() throws IOException {
+    MappedStateSet set = new MappedStateSet(new Config(new StringReader("")));
+    File fpFile = set.fingerprints.getFile();
+    File hashFile = set.hashtable.getFile();
+
+    int n = 200000;
+    for (int i=0; i<n; i++){
+      set.add(state(i));
+    }
+
+    // rehashing reuses the hash table file
+    assertSame(hashFile, set.hashtable.getFile());
+    assertTrue(hashFile.isFile());
+
+    set.close();
+    assertFalse(hashFile.exists());
+    assertFalse(fpFile.exists());
+  }
+
+  @Test
+  public void testCloseForcesCount() throws IOException {
+    File file = File.createTempFile("jpf-mapped", ".states");
+    file.deleteOnExit();
+
+    MappedStateSet set = new MappedStateSet(createConfig(file, false));
+    for (int i=0; i<1000; i++){
+      set.add(state(i));
+    }
+    set.close();
+    assertTrue(file.isFile());
+
+    MappedStateSet reused = new MappedStateSet(createConfig(file, true));
+    assertEquals(1000, reused.size());
+    assertEquals(999, reused.add(state(999)));
+    reused.close();
+  }
+}
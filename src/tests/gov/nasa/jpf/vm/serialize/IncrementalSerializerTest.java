@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2014, United States Government, as represented by the
+ * Administrator of the National Aeronautics and Space Administration.
+ * All rights reserved.
+ *
+ * The Java Pathfinder core (jpf-core) platform is licensed under the
+ * Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nasa.jpf.vm.serialize;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.JPFException;
+import gov.nasa.jpf.vm.ElementInfo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * checks that IncrementalSerializer matches the same states as the
+ * FilteringSerializer it is derived from, and that its incrementally
+ * maintained heap hash doesn't drift
+ */
+public class IncrementalSerializerTest {
+
+  /**
+   * an IncrementalSerializer that compares its heap hash with a full
+   * re-computation for each state
+   */
+  public static class CheckingSerializer extends IncrementalSerializer {
+    static int nChecks;
+
+    @Override
+    protected void hashHeap (){
+      super.hashHeap();
+
+      long h = 0;
+      int n = 0;
+      for (ElementInfo ei : heap){
+        buf.clear();
+        process(ei);
+        h += getContribution(ei.getObjectRef(), hashBuffer());
+        n++;
+      }
+
+      if (h != heapHash || n != nObjects){
+        throw new JPFException("incremental heap hash differs from full hash (" + n + " objects, "
+                + nObjects + " incremental)");
+      }
+      nChecks++;
+    }
+  }
+
+  static JPF run (String... args){
+    String[] a = new String[args.length + 3];
+    System.arraycopy(args, 0, a, 0, args.length);
+    a[args.length] = "+search.multiple_errors=true";
+    a[args.length+1] = "+report.console.property_violation=";
+    a[args.length+2] = "oldclassic";
+
+    JPF jpf = new JPF(new Config(a));
+    jpf.run();
+    return jpf;
+  }
+
+  static void assertSameStates (JPF expected, JPF jpf){
+    assertEquals(expected.getVM().getStateSet().size(), jpf.getVM().getStateSet().size());
+    assertEquals(expected.getSearch().getErrors().size(), jpf.getSearch().getErrors().size());
+  }
+
+  @Test
+  public void testOldClassic (){
+    JPF filtering = run("+vm.serializer.class=gov.nasa.jpf.vm.serialize.FilteringSerializer");
+    assertTrue(filtering.getVM().getStateSet().size() > 1000);
+
+    JPF incremental = run("+vm.serializer.class=gov.nasa.jpf.vm.serialize.IncrementalSerializer");
+    assertSameStates(filtering, incremental);
+
+    JPF fingerprinting = run("+vm.serializer.class=gov.nasa.jpf.vm.serialize.IncrementalSerializer",
+            "+vm.storage.class=gov.nasa.jpf.vm.IncrementalStateSet");
+    assertSameStates(filtering, fingerprinting);
+  }
+
+  @Test
+  public void testHeapChangeTracking (){
+    JPF filtering = run("+vm.serializer.class=gov.nasa.jpf.vm.serialize.FilteringSerializer");
+
+    // OVHeap doesn't log restored refs, CowHeap and PSIMHeap do
+    String[] heaps = { "gov.nasa.jpf.vm.OVHeap", "gov.nasa.jpf.vm.CowHeap", "gov.nasa.jpf.vm.PSIMHeap" };
+    for (String heap : heaps){
+      CheckingSerializer.nChecks = 0;
+      JPF jpf = run("+vm.serializer.class=gov.nasa.jpf.vm.serialize.IncrementalSerializerTest$CheckingSerializer",
+              "+vm.heap.class=" + heap);
+
+      assertSameStates(filtering, jpf);
+      assertTrue(CheckingSerializer.nChecks > 1000);
+    }
+  }
+}